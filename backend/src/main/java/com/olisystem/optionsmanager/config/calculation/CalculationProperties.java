@@ -0,0 +1,20 @@
+package com.olisystem.optionsmanager.config.calculation;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configurações dos cálculos financeiros de posições e operações
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.calculation")
+@Data
+public class CalculationProperties {
+
+    /**
+     * Se os calculadores de consumo de lotes e P&L devem usar aritmética de ponto fixo
+     * (FixedPointMoney) em vez de BigDecimal; valores fora do intervalo voltam para BigDecimal
+     */
+    private boolean fixedPointMoney = false;
+}
@@ -27,6 +27,11 @@ public class InvoiceConfigurationProperties {
      */
     private ParserConfig parserConfig = new ParserConfig();
 
+    /**
+     * Configurações de progresso do processamento
+     */
+    private ProgressConfig progress = new ProgressConfig();
+
     @Data
     public static class ImportConfig {
         /**
@@ -48,6 +53,21 @@ public class InvoiceConfigurationProperties {
          * Se deve validar hashes duplicados automaticamente
          */
         private boolean validateDuplicates = true;
+
+        /**
+         * Threads de parsing da importação por arquivo ZIP (limitado pelo pool de conexões)
+         */
+        private int archiveWorkerThreads = 3;
+
+        /**
+         * Máximo de PDFs lidos do ZIP aguardando processamento (memória limitada)
+         */
+        private int archiveQueueCapacity = 6;
+
+        /**
+         * Máximo de PDFs por arquivo ZIP
+         */
+        private int archiveMaxEntries = 2000;
     }
 
     @Data
@@ -68,9 +88,9 @@ public class InvoiceConfigurationProperties {
         private String[] allowedExtensions = {"pdf"};
 
         /**
-         * Se deve compactar conteúdo antes de salvar
+         * Se deve compactar (GZIP) o texto bruto da nota antes de salvar
          */
-        private boolean compressContent = false;
+        private boolean compressContent = true;
     }
 
     @Data
@@ -100,4 +120,17 @@ public class InvoiceConfigurationProperties {
          */
         private boolean extractItemObservations = true;
     }
+
+    @Data
+    public static class ProgressConfig {
+        /**
+         * Transporte dos eventos de progresso: memory (instância única) ou postgres (LISTEN/NOTIFY)
+         */
+        private String transport = "memory";
+
+        /**
+         * Canal usado no LISTEN/NOTIFY quando transport = postgres
+         */
+        private String notifyChannel = "invoice_progress";
+    }
 }
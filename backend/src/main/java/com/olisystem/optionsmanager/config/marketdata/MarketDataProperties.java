@@ -0,0 +1,19 @@
+package com.olisystem.optionsmanager.config.marketdata;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configurações das fontes de preço de séries e ativos-objeto
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.market-data")
+@Data
+public class MarketDataProperties {
+
+    /**
+     * Arquivo CSV local com preços (código;preço[;data-hora ISO]); vazio desativa a fonte
+     */
+    private String csvPath = "";
+}
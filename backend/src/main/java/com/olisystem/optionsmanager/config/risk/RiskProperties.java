@@ -0,0 +1,35 @@
+package com.olisystem.optionsmanager.config.risk;
+
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Parâmetros do modelo de precificação (Black-Scholes) usados na visão de risco
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.risk")
+@Data
+public class RiskProperties {
+
+    /**
+     * Taxa livre de risco anual, composta continuamente
+     */
+    private double riskFreeRate = 0.1075;
+
+    /**
+     * Dividend yield anual dos ativos-objeto sem valor próprio em dividendYields
+     */
+    private double defaultDividendYield = 0.0;
+
+    /**
+     * Dividend yield anual por código do ativo-objeto (ex.: PETR4=0.12)
+     */
+    private Map<String, Double> dividendYields = new HashMap<>();
+
+    public double dividendYieldOf(String assetCode) {
+        return dividendYields.getOrDefault(assetCode, defaultDividendYield);
+    }
+}
@@ -5,15 +5,18 @@ import com.olisystem.optionsmanager.model.auth.User;
 import com.olisystem.optionsmanager.model.enums.InvoiceProcessingStatus;
 import com.olisystem.optionsmanager.service.invoice.InvoiceImportService;
 import com.olisystem.optionsmanager.service.invoice.InvoiceQueryService;
+import com.olisystem.optionsmanager.service.invoice.archive.InvoiceArchiveImportService;
 import com.olisystem.optionsmanager.service.auth.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.format.annotation.DateTimeFormat;
 
 import java.time.LocalDate;
@@ -44,6 +47,7 @@ public class InvoiceV2Controller {
     private final UserService userService;
     private final InvoiceRepository invoiceRepository;
     private final InvoiceProcessingLogService processingLogService;
+    private final InvoiceArchiveImportService archiveImportService;
 
     /**
      * Importa múltiplas notas de corretagem
@@ -88,6 +92,56 @@ public class InvoiceV2Controller {
         }
     }
 
+    /**
+     * ✅ NOVO: Importa um arquivo ZIP com PDFs de notas (carga histórica)
+     * POST /api/invoices-v2/import/archive (multipart: file, brokerageId opcional, sessionId opcional)
+     * O progresso é publicado em GET /api/processing/progress/{sessionId}; o sessionId usado
+     * volta no header X-Progress-Session
+     */
+    @PostMapping(value = "/import/archive", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<InvoiceImportResponse> importArchive(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "brokerageId", required = false) UUID brokerageId,
+            @RequestParam(value = "sessionId", required = false) String sessionId,
+            Authentication authentication) {
+
+        String progressSession = sessionId != null && !sessionId.isBlank() ? sessionId : UUID.randomUUID().toString();
+        log.info("📦 Importação de ZIP - Usuário: {}, Arquivo: {}, Tamanho: {} bytes, Sessão: {}",
+                 authentication.getName(), file.getOriginalFilename(), file.getSize(), progressSession);
+
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            User user = userService.findByUsername(authentication.getName())
+                .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
+
+            InvoiceImportResponse response;
+            try (java.io.InputStream archive = file.getInputStream()) {
+                response = archiveImportService.importArchive(
+                    archive, file.getOriginalFilename(), brokerageId, user, progressSession);
+            }
+
+            return ResponseEntity.ok()
+                .header("X-Progress-Session", progressSession)
+                .body(response);
+
+        } catch (java.io.IOException e) {
+            log.warn("⚠️ Arquivo ZIP inválido: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                .header("X-Progress-Session", progressSession)
+                .body(new InvoiceImportResponse("Arquivo ZIP inválido: " + e.getMessage(),
+                    0, 0, 0, 0, java.time.LocalDateTime.now(), List.of()));
+        } catch (Exception e) {
+            log.error("❌ Erro na importação do ZIP: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .header("X-Progress-Session", progressSession)
+                .body(new InvoiceImportResponse("Erro na importação: " + e.getMessage(),
+                    0, 0, 0, 0, java.time.LocalDateTime.now(), List.of()));
+        }
+    }
+
     /**
      * Lista notas com filtros e paginação
      * GET /api/invoices-v2?page=0&size=1000&processingStatus=PENDING
@@ -171,6 +225,23 @@ public class InvoiceV2Controller {
         }
     }
 
+    /**
+     * ✅ NOVO: Texto bruto extraído do PDF (depuração de parsers)
+     * GET /api/invoices-v2/{id}/raw-content
+     */
+    @GetMapping(value = "/{id}/raw-content", produces = "text/plain;charset=UTF-8")
+    public ResponseEntity<String> getInvoiceRawContent(
+            @PathVariable UUID id,
+            Authentication authentication) {
+        
+        User user = userService.findByUsername(authentication.getName())
+            .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
+        
+        return invoiceQueryService.findInvoiceRawContent(id, user)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
     /**
      * Lista notas por corretora
      * GET /api/invoices/brokerage/{brokerageId}
@@ -1,12 +1,10 @@
 package com.olisystem.optionsmanager.controller.invoice;
 
 import com.olisystem.optionsmanager.model.auth.User;
-import com.olisystem.optionsmanager.model.invoice.Invoice;
-import com.olisystem.optionsmanager.model.invoice.InvoiceItem;
-import com.olisystem.optionsmanager.repository.InvoiceItemRepository;
-import com.olisystem.optionsmanager.repository.InvoiceRepository;
 import com.olisystem.optionsmanager.service.auth.UserService;
 import com.olisystem.optionsmanager.service.invoice.processing.RealInvoiceProcessor;
+import com.olisystem.optionsmanager.service.invoice.processing.estimate.ProcessingEstimate;
+import com.olisystem.optionsmanager.service.invoice.processing.estimate.ProcessingTimeEstimator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -21,6 +19,7 @@ import java.util.UUID;
 /**
  * Controller para processamento de invoices
  * ✅ MELHORADO: Estimativa baseada no conteúdo real das invoices
+ * ✅ OTIMIZAÇÃO: Estimativa por modelo ajustado nos logs de processamento
  * 
  * @author Sistema de Gestão de Opções
  * @since 2025-07-18
@@ -33,8 +32,7 @@ public class ProcessingController {
 
     private final RealInvoiceProcessor realInvoiceProcessor;
     private final UserService userService;
-    private final InvoiceRepository invoiceRepository;
-    private final InvoiceItemRepository invoiceItemRepository;
+    private final ProcessingTimeEstimator processingTimeEstimator;
 
     /**
      * ✅ MELHORADO: Endpoint para estimar processamento de invoices baseado no conteúdo real
@@ -83,42 +81,12 @@ public class ProcessingController {
             
             log.info("📊 Estimando processamento para {} invoices", uuidInvoiceIds.size());
             
-            // ✅ MELHORADO: Calcular estimativa baseada no conteúdo real das invoices
-            int totalInvoices = uuidInvoiceIds.size();
-            int totalItems = 0;
-            int totalOperations = 0;
-            long totalEstimatedTimeMs = 0;
-            
-            // Analisar cada invoice para calcular estimativa real
-            for (UUID invoiceId : uuidInvoiceIds) {
-                try {
-                    Invoice invoice = invoiceRepository.findById(invoiceId)
-                        .orElseThrow(() -> new RuntimeException("Invoice não encontrada: " + invoiceId));
-                    
-                    // Buscar items da invoice
-                    List<InvoiceItem> items = invoiceItemRepository.findByInvoiceIdOrderBySequenceNumber(invoiceId);
-                    int itemCount = items.size();
-                    totalItems += itemCount;
-                    
-                    // Calcular operações baseadas nos items
-                    int operationsForInvoice = calculateOperationsForInvoice(items);
-                    totalOperations += operationsForInvoice;
-                    
-                    // Calcular tempo estimado baseado na complexidade dos items
-                    long timeForInvoice = calculateTimeForInvoice(items);
-                    totalEstimatedTimeMs += timeForInvoice;
-                    
-                    log.debug("📋 Invoice {}: {} items, {} operações, {}ms", 
-                        invoice.getInvoiceNumber(), itemCount, operationsForInvoice, timeForInvoice);
-                    
-                } catch (Exception e) {
-                    log.warn("⚠️ Erro ao analisar invoice {}: {}", invoiceId, e.getMessage());
-                    // Usar estimativa padrão para invoices com erro
-                    totalItems += 3; // Estimativa padrão
-                    totalOperations += 3;
-                    totalEstimatedTimeMs += 2500; // 2.5 segundos padrão
-                }
-            }
+            // ✅ OTIMIZAÇÃO: Contagem de itens em uma consulta agregada + modelo ajustado no histórico
+            ProcessingEstimate estimate = processingTimeEstimator.estimate(uuidInvoiceIds);
+            int totalInvoices = estimate.getTotalInvoices();
+            int totalItems = estimate.getTotalItems();
+            int totalOperations = estimate.getTotalOperations();
+            long totalEstimatedTimeMs = estimate.getEstimatedTimeMs();
             
             // ✅ MELHORADO: Calcular complexidade baseada no conteúdo real
             String complexity = calculateComplexity(totalInvoices, totalItems, totalOperations);
@@ -137,6 +105,8 @@ public class ProcessingController {
             response.put("estimatedTimeSeconds", estimatedTimeSeconds);
             response.put("estimatedTimeFormatted", estimatedTimeFormatted);
             response.put("estimatedRemainingTime", totalEstimatedTimeMs);
+            response.put("historicalModel", estimate.isHistoricalModel());
+            response.put("modelSampleCount", estimate.getModelSampleCount());
             response.put("message", String.format("Estimativa: %d invoice(s) com %d items em ~%d segundos", 
                 totalInvoices, totalItems, estimatedTimeSeconds));
             
@@ -161,41 +131,6 @@ public class ProcessingController {
         }
     }
 
-    /**
-     * ✅ CORRIGIDO: Calcular número de operações baseado nos items da invoice
-     * Cada item gera exatamente 1 operação, independente do tipo
-     */
-    private int calculateOperationsForInvoice(List<InvoiceItem> items) {
-        // ✅ CORREÇÃO: Cada item gera exatamente 1 operação
-        // Não há multiplicação baseada no tipo de mercado
-        int operations = items.size();
-        
-        log.debug("📊 Calculando operações: {} items = {} operações", items.size(), operations);
-        
-        return Math.max(operations, 1); // Mínimo 1 operação
-    }
-
-    /**
-     * ✅ NOVO: Calcular tempo estimado baseado na complexidade dos items
-     */
-    private long calculateTimeForInvoice(List<InvoiceItem> items) {
-        long baseTime = 1000; // 1 segundo base
-        long timePerItem = 500; // 0.5 segundos por item
-        
-        // Tempo base + tempo por item
-        long totalTime = baseTime + (items.size() * timePerItem);
-        
-        // Adicionar tempo extra para items complexos
-        for (InvoiceItem item : items) {
-            String marketType = item.getMarketType();
-            if (marketType != null && marketType.contains("OPCAO")) {
-                totalTime += 300; // 0.3 segundos extra para opções
-            }
-        }
-        
-        return totalTime;
-    }
-
     /**
      * ✅ NOVO: Calcular complexidade baseada no conteúdo real
      */
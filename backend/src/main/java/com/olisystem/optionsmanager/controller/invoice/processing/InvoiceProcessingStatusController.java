@@ -1,5 +1,6 @@
 package com.olisystem.optionsmanager.controller.invoice.processing;
 
+import com.olisystem.optionsmanager.dto.invoice.processing.ProcessingStatsSummary;
 import com.olisystem.optionsmanager.model.auth.User;
 import com.olisystem.optionsmanager.model.invoice.Invoice;
 import com.olisystem.optionsmanager.model.invoice.InvoiceProcessingLog;
@@ -8,6 +9,8 @@ import com.olisystem.optionsmanager.service.auth.UserService;
 import com.olisystem.optionsmanager.service.invoice.processing.log.InvoiceProcessingLogService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
@@ -259,16 +262,12 @@ public class InvoiceProcessingStatusController {
             User currentUser = userService.findByUsername(authentication.getName())
                 .orElseThrow(() -> new RuntimeException("Usuário não encontrado: " + authentication.getName()));
             
-            // Buscar logs de processamento do usuário
-            List<InvoiceProcessingLog> processingLogs = processingLogService.findProcessingLogsByUser(currentUser);
-            
-            // Filtrar por página (implementação simples)
-            int startIndex = page * size;
-            int endIndex = Math.min(startIndex + size, processingLogs.size());
-            List<InvoiceProcessingLog> pagedLogs = processingLogs.subList(startIndex, endIndex);
+            // ✅ OTIMIZAÇÃO: Paginação no banco (LIMIT/OFFSET + COUNT)
+            Page<InvoiceProcessingLog> pagedLogs = processingLogService.findProcessingLogsByUser(
+                currentUser, PageRequest.of(Math.max(page, 0), Math.max(size, 1)));
             
             // Converter para resposta
-            List<Map<String, Object>> logsResponse = pagedLogs.stream()
+            List<Map<String, Object>> logsResponse = pagedLogs.getContent().stream()
                 .map(log -> {
                     Map<String, Object> logMap = new HashMap<>();
                     logMap.put("id", log.getId());
@@ -292,12 +291,12 @@ public class InvoiceProcessingStatusController {
             
             Map<String, Object> response = new HashMap<>();
             response.put("logs", logsResponse);
-            response.put("totalLogs", processingLogs.size());
+            response.put("totalLogs", pagedLogs.getTotalElements());
             response.put("currentPage", page);
             response.put("pageSize", size);
-            response.put("totalPages", (int) Math.ceil((double) processingLogs.size() / size));
+            response.put("totalPages", pagedLogs.getTotalPages());
             
-            log.info("✅ Histórico consultado: {} logs encontrados", processingLogs.size());
+            log.info("✅ Histórico consultado: {} logs encontrados", pagedLogs.getTotalElements());
             return ResponseEntity.ok(response);
             
         } catch (Exception e) {
@@ -321,13 +320,8 @@ public class InvoiceProcessingStatusController {
             User currentUser = userService.findByUsername(authentication.getName())
                 .orElseThrow(() -> new RuntimeException("Usuário não encontrado: " + authentication.getName()));
             
-            // Buscar logs ativos
-            List<InvoiceProcessingLog> activeLogs = processingLogService.findActiveProcessingLogs();
-            
-            // Filtrar apenas logs do usuário atual
-            List<InvoiceProcessingLog> userActiveLogs = activeLogs.stream()
-                .filter(log -> log.getUser().getId().equals(currentUser.getId()))
-                .toList();
+            // ✅ OTIMIZAÇÃO: Filtrar pelo usuário no banco
+            List<InvoiceProcessingLog> userActiveLogs = processingLogService.findActiveProcessingLogs(currentUser);
             
             // Converter para resposta
             List<Map<String, Object>> logsResponse = userActiveLogs.stream()
@@ -376,54 +370,23 @@ public class InvoiceProcessingStatusController {
             User currentUser = userService.findByUsername(authentication.getName())
                 .orElseThrow(() -> new RuntimeException("Usuário não encontrado: " + authentication.getName()));
             
-            // Buscar logs do usuário
-            List<InvoiceProcessingLog> userLogs = processingLogService.findProcessingLogsByUser(currentUser);
-            
-            // Calcular estatísticas
-            long totalProcessed = userLogs.size();
-            long successfulProcessed = userLogs.stream()
-                .filter(log -> log.getStatus().isSuccessful())
-                .count();
-            long failedProcessed = userLogs.stream()
-                .filter(log -> log.getStatus() == com.olisystem.optionsmanager.model.enums.InvoiceProcessingStatus.ERROR)
-                .count();
-            long activeProcessing = userLogs.stream()
-                .filter(log -> log.getStatus() == com.olisystem.optionsmanager.model.enums.InvoiceProcessingStatus.PROCESSING)
-                .count();
-            
-            long totalOperationsCreated = userLogs.stream()
-                .mapToLong(InvoiceProcessingLog::getOperationsCreated)
-                .sum();
-            long totalOperationsUpdated = userLogs.stream()
-                .mapToLong(InvoiceProcessingLog::getOperationsUpdated)
-                .sum();
-            long totalOperationsSkipped = userLogs.stream()
-                .mapToLong(InvoiceProcessingLog::getOperationsSkipped)
-                .sum();
-            
-            long totalReprocessed = userLogs.stream()
-                .mapToLong(InvoiceProcessingLog::getReprocessedCount)
-                .sum();
-            
-            long totalProcessingTime = userLogs.stream()
-                .filter(log -> log.getProcessingDurationMs() != null)
-                .mapToLong(InvoiceProcessingLog::getProcessingDurationMs)
-                .sum();
+            // ✅ OTIMIZAÇÃO: Estatísticas agregadas no banco, sem carregar os logs
+            ProcessingStatsSummary stats = processingLogService.getProcessingStats(currentUser);
             
             Map<String, Object> response = new HashMap<>();
-            response.put("totalProcessed", totalProcessed);
-            response.put("successfulProcessed", successfulProcessed);
-            response.put("failedProcessed", failedProcessed);
-            response.put("activeProcessing", activeProcessing);
-            response.put("totalOperationsCreated", totalOperationsCreated);
-            response.put("totalOperationsUpdated", totalOperationsUpdated);
-            response.put("totalOperationsSkipped", totalOperationsSkipped);
-            response.put("totalReprocessed", totalReprocessed);
-            response.put("totalProcessingTimeMs", totalProcessingTime);
-            response.put("averageProcessingTimeMs", totalProcessed > 0 ? totalProcessingTime / totalProcessed : 0);
-            response.put("successRate", totalProcessed > 0 ? (double) successfulProcessed / totalProcessed * 100 : 0);
-            
-            log.info("✅ Estatísticas consultadas: {} invoices processadas", totalProcessed);
+            response.put("totalProcessed", stats.getTotalProcessed());
+            response.put("successfulProcessed", stats.getSuccessfulProcessed());
+            response.put("failedProcessed", stats.getFailedProcessed());
+            response.put("activeProcessing", stats.getActiveProcessing());
+            response.put("totalOperationsCreated", stats.getTotalOperationsCreated());
+            response.put("totalOperationsUpdated", stats.getTotalOperationsUpdated());
+            response.put("totalOperationsSkipped", stats.getTotalOperationsSkipped());
+            response.put("totalReprocessed", stats.getTotalReprocessed());
+            response.put("totalProcessingTimeMs", stats.getTotalProcessingTimeMs());
+            response.put("averageProcessingTimeMs", stats.getAverageProcessingTimeMs());
+            response.put("successRate", stats.getSuccessRate());
+            
+            log.info("✅ Estatísticas consultadas: {} invoices processadas", stats.getTotalProcessed());
             return ResponseEntity.ok(response);
             
         } catch (Exception e) {
@@ -0,0 +1,45 @@
+package com.olisystem.optionsmanager.controller.invoice.processing;
+
+import com.olisystem.optionsmanager.service.invoice.processing.metrics.PipelineMetrics;
+import com.olisystem.optionsmanager.service.invoice.processing.metrics.StageMetricsSnapshot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Controller das métricas por etapa do pipeline de invoices
+ * ✅ NOVO: JSON para o frontend e texto no formato do Prometheus para coleta (scrape)
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@RestController
+@RequestMapping("/api/processing/metrics")
+@RequiredArgsConstructor
+public class ProcessingMetricsController {
+
+    private static final MediaType PROMETHEUS_TEXT = MediaType.parseMediaType("text/plain;version=0.0.4;charset=utf-8");
+
+    private final PipelineMetrics pipelineMetrics;
+
+    /**
+     * GET /api/processing/metrics
+     */
+    @GetMapping
+    public ResponseEntity<List<StageMetricsSnapshot>> getMetrics() {
+        return ResponseEntity.ok(pipelineMetrics.snapshot());
+    }
+
+    /**
+     * GET /api/processing/metrics/prometheus
+     */
+    @GetMapping("/prometheus")
+    public ResponseEntity<String> getPrometheusMetrics() {
+        return ResponseEntity.ok().contentType(PROMETHEUS_TEXT).body(pipelineMetrics.toPrometheus());
+    }
+}
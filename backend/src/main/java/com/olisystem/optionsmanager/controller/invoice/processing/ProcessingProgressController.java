@@ -10,7 +10,6 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -31,56 +30,64 @@ public class ProcessingProgressController {
     /**
      * Endpoint para conectar ao SSE de progresso
      * GET /api/processing/progress/{sessionId}
+     * ✅ NOVO: Reconexões com Last-Event-ID (ou ?lastEventId=) recebem os eventos perdidos
      */
-                    @GetMapping(value = "/{sessionId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE + ";charset=UTF-8")
-    public SseEmitter subscribeToProgress(@PathVariable String sessionId) {
-        log.info("📡 Cliente conectando ao SSE de progresso: {}", sessionId);
+    @GetMapping(value = "/{sessionId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE + ";charset=UTF-8")
+    public SseEmitter subscribeToProgress(@PathVariable String sessionId,
+                                          @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+                                          @RequestParam(value = "lastEventId", required = false) String lastEventIdParam) {
+        long lastEventId = parseLastEventId(lastEventIdHeader != null ? lastEventIdHeader : lastEventIdParam);
+        log.info("📡 Cliente conectando ao SSE de progresso: {} (último evento: {})", sessionId, lastEventId);
         
-                            // Criar emitter com timeout de 5 minutos
-                    SseEmitter emitter = new SseEmitter(TimeUnit.SECONDS.toMillis(300));
+        // Criar emitter com timeout de 5 minutos
+        SseEmitter emitter = new SseEmitter(TimeUnit.SECONDS.toMillis(300));
         
-        // Configurar callbacks do emitter
+        // Enviar evento de conexão antes de registrar o callback (eventos chegam em outra thread)
+        if (!sendConnectionEvent(sessionId, emitter)) {
+            return emitter;
+        }
+        
+        // Registrar callback de progresso (com replay dos eventos do buffer)
+        ProcessingProgressService.ProgressSubscription subscription = progressService.registerProgressCallback(
+            sessionId, lastEventId, sequenced -> {
+                try {
+                    String eventJson = progressService.serializeEvent(sequenced.event());
+                    emitter.send(SseEmitter.event()
+                        .name("progress")
+                        .data(eventJson, MediaType.APPLICATION_JSON_UTF8)
+                        .id(String.valueOf(sequenced.id()))
+                        .reconnectTime(3000));
+                    log.debug("📡 Evento enviado via SSE: {} - {}", sessionId, sequenced.event().getMessage());
+                } catch (IOException e) {
+                    log.error("❌ Erro ao enviar evento SSE: {}", e.getMessage());
+                    emitter.completeWithError(e);
+                    throw new IllegalStateException(e);
+                }
+            });
+        
+        // Configurar callbacks do emitter - remove apenas a assinatura desta conexão
         emitter.onCompletion(() -> {
             log.info("📡 SSE completado para sessão: {}", sessionId);
-            progressService.unregisterProgressCallbacks(sessionId);
+            subscription.cancel();
         });
         
         emitter.onTimeout(() -> {
             log.warn("⏰ SSE timeout para sessão: {}", sessionId);
-            progressService.unregisterProgressCallbacks(sessionId);
+            subscription.cancel();
         });
         
         emitter.onError((ex) -> {
-            log.error("❌ Erro no SSE para sessão: {} - {}", sessionId, ex.getMessage(), ex);
-            progressService.unregisterProgressCallbacks(sessionId);
-        });
-        
-        // Registrar callback de progresso
-        progressService.registerProgressCallback(sessionId, event -> {
-            try {
-                                                                        String eventJson = progressService.serializeEvent(event);
-                            log.info("🔧 JSON antes do envio SSE: {}", eventJson);
-                            
-                            // Verificar encoding
-                            byte[] bytes = eventJson.getBytes(StandardCharsets.UTF_8);
-                            String utf8String = new String(bytes, StandardCharsets.UTF_8);
-                            log.info("🔧 Verificação UTF-8: original={}, utf8={}", eventJson, utf8String);
-                            
-                            SseEmitter.SseEventBuilder eventBuilder = SseEmitter.event()
-                                .name("progress")
-                                .data(eventJson, MediaType.APPLICATION_JSON_UTF8)
-                                .id(String.valueOf(System.currentTimeMillis()))
-                                .reconnectTime(3000);
-                            
-                            emitter.send(eventBuilder);
-                            log.info("📡 Evento enviado via SSE: {} - {}", sessionId, event.getMessage());
-                
-            } catch (IOException e) {
-                log.error("❌ Erro ao enviar evento SSE: {}", e.getMessage(), e);
-                emitter.completeWithError(e);
-            }
+            log.error("❌ Erro no SSE para sessão: {} - {}", sessionId, ex.getMessage());
+            subscription.cancel();
         });
         
+        return emitter;
+    }
+    
+    /**
+     * Envia o evento de conexão; retorna false se o emitter falhou
+     */
+    private boolean sendConnectionEvent(String sessionId, SseEmitter emitter) {
         // Enviar evento de conexão
         try {
             ProcessingProgressEvent connectionEvent = ProcessingProgressEvent.builder()
@@ -90,22 +97,36 @@ public class ProcessingProgressController {
                 .timestamp(java.time.LocalDateTime.now())
                 .build();
             
-                                    String connectionJson = progressService.serializeEvent(connectionEvent);
-                        SseEmitter.SseEventBuilder connectionBuilder = SseEmitter.event()
-                            .name("connected")
-                            .data(connectionJson, MediaType.APPLICATION_JSON_UTF8)
-                            .id(String.valueOf(System.currentTimeMillis()))
-                            .reconnectTime(3000);
+            // Sem ID: o Last-Event-ID do navegador deve refletir apenas eventos de progresso
+            String connectionJson = progressService.serializeEvent(connectionEvent);
+            SseEmitter.SseEventBuilder connectionBuilder = SseEmitter.event()
+                .name("connected")
+                .data(connectionJson, MediaType.APPLICATION_JSON_UTF8)
+                .reconnectTime(3000);
             
             emitter.send(connectionBuilder);
             log.info("✅ Cliente conectado ao SSE: {}", sessionId);
+            return true;
             
         } catch (IOException e) {
             log.error("❌ Erro ao enviar evento de conexão: {}", e.getMessage(), e);
             emitter.completeWithError(e);
+            return false;
+        }
+    }
+    
+    /**
+     * Converte o Last-Event-ID recebido; IDs ausentes ou inválidos reenviam todo o buffer
+     */
+    private long parseLastEventId(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            return 0L;
         }
-        
-        return emitter;
     }
     
     /**
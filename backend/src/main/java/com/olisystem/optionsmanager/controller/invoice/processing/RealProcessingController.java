@@ -6,6 +6,9 @@ import com.olisystem.optionsmanager.service.invoice.processing.ProcessingProgres
 import com.olisystem.optionsmanager.service.invoice.processing.ProcessingResult;
 import com.olisystem.optionsmanager.service.invoice.processing.InvoiceProcessingResult;
 import com.olisystem.optionsmanager.service.invoice.processing.RealInvoiceProcessor;
+import com.olisystem.optionsmanager.service.invoice.processing.session.ProcessingSession;
+import com.olisystem.optionsmanager.service.invoice.processing.session.ProcessingSessionMetrics;
+import com.olisystem.optionsmanager.service.invoice.processing.session.ProcessingSessionRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -17,7 +20,6 @@ import org.springframework.http.MediaType;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -36,8 +38,8 @@ public class RealProcessingController {
     private final RealInvoiceProcessor realInvoiceProcessor;
     private final UserService userService;
     
-    // ✅ NOVO: Sessões ativas de processamento
-    private final Map<String, ProcessingSession> activeSessions = new ConcurrentHashMap<>();
+    // ✅ NOVO: Registro único de sessões (com remoção de sessões concluídas/ociosas)
+    private final ProcessingSessionRegistry sessionRegistry;
 
     @PostMapping("/process")
     public ResponseEntity<Map<String, Object>> processInvoices(
@@ -67,19 +69,11 @@ public class RealProcessingController {
             return ResponseEntity.status(401).body(errorResponse);
         }
         
-        // Gerar session ID
-        String sessionId = UUID.randomUUID().toString();
-        
         // Criar sessão de processamento
-        ProcessingSession session = new ProcessingSession(sessionId, uuidInvoiceIds.size());
-        activeSessions.put(sessionId, session);
+        ProcessingSession session = sessionRegistry.create(uuidInvoiceIds.size());
+        String sessionId = session.getSessionId();
         
-        // ✅ CORREÇÃO: Adicionar delay para dar tempo ao frontend conectar ao SSE
-        try {
-            Thread.sleep(100);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+        // ✅ CORREÇÃO: Sem espera pelo SSE - eventos emitidos antes da conexão ficam no buffer da sessão
         
         // Iniciar processamento assíncrono
         CompletableFuture.runAsync(() -> {
@@ -88,14 +82,10 @@ public class RealProcessingController {
                 
                 // Processar invoices
                 CompletableFuture<ProcessingResult> future = realInvoiceProcessor.processInvoicesAsync(
-                    uuidInvoiceIds, currentUser, this::updateProgress, sessionId);
+                    uuidInvoiceIds, currentUser, session::updateProgress, sessionId);
                 
                 ProcessingResult result = future.get();
                 
-                // Atualizar sessão com resultado final
-                session.setResult(result);
-                session.setCompleted(true);
-                
                 if (result.isSuccess()) {
                     session.addMessage("✅ Processamento concluído com sucesso");
                     log.info("✅ Processamento concluído: {} operações criadas", result.getTotalOperationsCreated());
@@ -105,22 +95,19 @@ public class RealProcessingController {
                     log.error("❌ Processamento falhou: {}", errorMessage);
                 }
                 
-                // Enviar evento final
-                session.sendEvent("complete", Map.of(
+                // Finalizar sessão enviando evento final
+                session.complete(result, Map.of(
                     "success", result.isSuccess(),
                     "operationsCreated", result.getTotalOperationsCreated(),
                     "operationsSkipped", result.getTotalOperationsSkipped(),
-                    "processingTimeMs", result.getProcessingTimeMs()
+                    "processingTimeMs", result.getProcessingTimeMs(),
+                    "stageDurationsMs", result.getStageDurationsMs()
                 ));
                 
             } catch (Exception e) {
                 log.error("❌ Erro durante processamento assíncrono: {}", e.getMessage(), e);
                 session.addError("❌ Erro interno: " + e.getMessage());
-                session.setCompleted(true);
-                session.setErrorMessage(e.getMessage());
-                
-                // Enviar evento de erro
-                session.sendEvent("error", Map.of("error", e.getMessage()));
+                session.fail(e.getMessage());
             }
         });
         
@@ -246,7 +233,7 @@ public class RealProcessingController {
     public ResponseEntity<Map<String, Object>> getProcessingStatus(@PathVariable String sessionId) {
         log.debug("📊 Consultando status da sessão: {}", sessionId);
         
-        ProcessingSession session = activeSessions.get(sessionId);
+        ProcessingSession session = sessionRegistry.find(sessionId).orElse(null);
         if (session == null) {
             return ResponseEntity.notFound().build();
         }
@@ -277,11 +264,11 @@ public class RealProcessingController {
     public ResponseEntity<Map<String, Object>> getProcessingStatusPublic(@PathVariable String sessionId) {
         log.info("📊 Consultando status da sessão (público): {}", sessionId);
         
-        ProcessingSession session = activeSessions.get(sessionId);
+        ProcessingSession session = sessionRegistry.find(sessionId).orElse(null);
         if (session == null) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", "Sessão não encontrada: " + sessionId);
-            errorResponse.put("availableSessions", activeSessions.keySet());
+            errorResponse.put("availableSessions", sessionRegistry.getSessionIds());
             return ResponseEntity.status(404).body(errorResponse);
         }
         
@@ -315,11 +302,19 @@ public class RealProcessingController {
         Map<String, Object> response = new HashMap<>();
         response.put("message", "RealProcessingController está funcionando!");
         response.put("timestamp", System.currentTimeMillis());
-        response.put("activeSessions", activeSessions.size());
+        response.put("activeSessions", sessionRegistry.size());
         
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * ✅ NOVO: Métricas das sessões de processamento em memória
+     */
+    @GetMapping("/sessions/metrics")
+    public ResponseEntity<ProcessingSessionMetrics> getSessionMetrics() {
+        return ResponseEntity.ok(sessionRegistry.getMetrics());
+    }
+
     /**
      * ✅ TESTE: Endpoint simples para status público
      */
@@ -330,8 +325,8 @@ public class RealProcessingController {
         Map<String, Object> response = new HashMap<>();
         response.put("sessionId", sessionId);
         response.put("message", "Endpoint de status funcionando!");
-        response.put("activeSessions", activeSessions.size());
-        response.put("availableSessions", activeSessions.keySet());
+        response.put("activeSessions", sessionRegistry.size());
+        response.put("availableSessions", sessionRegistry.getSessionIds());
         
         return ResponseEntity.ok(response);
     }
@@ -340,14 +335,13 @@ public class RealProcessingController {
     public SseEmitter streamProcessingProgress(@PathVariable String sessionId) {
         log.info("📡 Iniciando stream SSE para sessão: {}", sessionId);
         
-        ProcessingSession session = activeSessions.get(sessionId);
+        ProcessingSession session = sessionRegistry.find(sessionId).orElse(null);
         if (session == null) {
             log.warn("⚠️ Sessão não encontrada: {}", sessionId);
             return null;
         }
         
         SseEmitter emitter = new SseEmitter(300000L); // 5 minutos timeout
-        session.addEmitter(emitter);
         
         // Enviar evento inicial
         try {
@@ -358,6 +352,13 @@ public class RealProcessingController {
             log.error("❌ Erro ao enviar evento inicial: {}", e.getMessage());
         }
         
+        session.addEmitter(emitter);
+        
+        // Sessão já finalizada: não há mais eventos, fechar o stream
+        if (session.isCompleted()) {
+            session.closeEmitters();
+        }
+        
         return emitter;
     }
 
@@ -412,7 +413,7 @@ public class RealProcessingController {
     public ResponseEntity<Map<String, Object>> cancelProcessing(@PathVariable String sessionId) {
         log.info("🚫 Cancelando processamento da sessão: {}", sessionId);
         
-        ProcessingSession session = activeSessions.get(sessionId);
+        ProcessingSession session = sessionRegistry.find(sessionId).orElse(null);
         if (session == null) {
             return ResponseEntity.notFound().build();
         }
@@ -427,106 +428,4 @@ public class RealProcessingController {
         
         return ResponseEntity.ok(response);
     }
-
-    /**
-     * Atualiza progresso da sessão
-     */
-    private void updateProgress(ProcessingProgress progress) {
-        log.debug("📊 Atualizando progresso: {}", progress);
-        
-        // Encontrar sessão correspondente
-        for (ProcessingSession session : activeSessions.values()) {
-            if (session.getCurrentProgress() == null || 
-                session.getCurrentProgress().getCurrentInvoice() != progress.getCurrentInvoice()) {
-                session.setCurrentProgress(progress);
-                session.addMessage("📊 " + progress.getCurrentStep());
-                break;
-            }
-        }
-    }
-
-    /**
-     * Sessão de processamento com gerenciamento de SSE
-     */
-    public static class ProcessingSession {
-        private final String sessionId;
-        private final int totalInvoices;
-        private final long startTime;
-        private final List<SseEmitter> emitters;
-        private final List<String> messages;
-        private final List<String> errors;
-        
-        private ProcessingProgress currentProgress;
-        private ProcessingResult result;
-        private boolean completed = false;
-        private boolean cancelled = false;
-        private String errorMessage;
-        
-        public ProcessingSession(String sessionId, int totalInvoices) {
-            this.sessionId = sessionId;
-            this.totalInvoices = totalInvoices;
-            this.startTime = System.currentTimeMillis();
-            this.emitters = new ArrayList<>();
-            this.messages = new ArrayList<>();
-            this.errors = new ArrayList<>();
-        }
-        
-        public void addEmitter(SseEmitter emitter) {
-            emitters.add(emitter);
-        }
-        
-        public void setCurrentProgress(ProcessingProgress progress) {
-            this.currentProgress = progress;
-            sendEvent("progress", progress);
-        }
-        
-        public void setResult(ProcessingResult result) {
-            this.result = result;
-        }
-        
-        public void setCompleted(boolean completed) {
-            this.completed = completed;
-        }
-        
-        public void setErrorMessage(String errorMessage) {
-            this.errorMessage = errorMessage;
-        }
-        
-        public void addMessage(String message) {
-            messages.add(message);
-            sendEvent("message", Map.of("message", message));
-        }
-        
-        public void addError(String error) {
-            errors.add(error);
-            sendEvent("error", Map.of("error", error));
-        }
-        
-        public void cancel() {
-            this.cancelled = true;
-        }
-        
-        public void sendEvent(String event, Object data) {
-            emitters.removeIf(emitter -> {
-                try {
-                    emitter.send(SseEmitter.event().name(event).data(data));
-                    return false;
-                } catch (IOException e) {
-                    return true; // Remove emitter com erro
-                }
-            });
-        }
-        
-        // Getters
-        public String getSessionId() { return sessionId; }
-        public int getTotalInvoices() { return totalInvoices; }
-        public ProcessingProgress getCurrentProgress() { return currentProgress; }
-        public ProcessingResult getResult() { return result; }
-        public boolean isCompleted() { return completed; }
-        public boolean isCancelled() { return cancelled; }
-        public String getErrorMessage() { return errorMessage; }
-        public List<String> getMessages() { return messages; }
-        public List<String> getErrors() { return errors; }
-        public long getElapsedTimeSeconds() { return (System.currentTimeMillis() - startTime) / 1000; }
-    }
 }
@@ -0,0 +1,57 @@
+package com.olisystem.optionsmanager.controller.marketdata;
+
+import com.olisystem.optionsmanager.service.marketdata.PriceSnapshot;
+import com.olisystem.optionsmanager.service.marketdata.PriceSnapshotStore;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/** Controller dos preços em memória usados na marcação a mercado. */
+@RestController
+@RequestMapping("/api/market-data")
+@RequiredArgsConstructor
+@Slf4j
+public class MarketDataController {
+
+  private static final String API_SOURCE = "API";
+
+  private final PriceSnapshotStore priceStore;
+
+  /** Lista os últimos preços conhecidos. */
+  @GetMapping("/prices")
+  public ResponseEntity<Collection<PriceSnapshot>> getPrices() {
+    return ResponseEntity.ok(priceStore.all());
+  }
+
+  /** Publica preços (séries ou ativos-objeto); sem asOf usa o horário atual. */
+  @PostMapping("/prices")
+  public ResponseEntity<Map<String, Object>> updatePrices(@RequestBody List<PriceSnapshot> prices) {
+    LocalDateTime now = LocalDateTime.now();
+    List<PriceSnapshot> snapshots =
+        prices.stream()
+            .map(
+                price ->
+                    new PriceSnapshot(
+                        price.code(),
+                        price.price(),
+                        price.asOf() != null ? price.asOf() : now,
+                        price.source() != null ? price.source() : API_SOURCE))
+            .toList();
+
+    int changed = priceStore.update(snapshots);
+    return ResponseEntity.ok(Map.of("received", prices.size(), "changed", changed, "version", priceStore.version()));
+  }
+
+  /** Relê as fontes de preço configuradas (ex.: arquivo CSV). */
+  @PostMapping("/refresh")
+  public ResponseEntity<Map<String, Object>> refresh() {
+    int changed = priceStore.refresh();
+    log.info("Preços recarregados das fontes: {} alterados", changed);
+    return ResponseEntity.ok(Map.of("changed", changed, "version", priceStore.version()));
+  }
+}
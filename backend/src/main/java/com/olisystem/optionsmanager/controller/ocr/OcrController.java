@@ -7,18 +7,16 @@ import com.olisystem.optionsmanager.model.brokerage.Brokerage;
 import com.olisystem.optionsmanager.repository.BrokerageRepository;
 import com.olisystem.optionsmanager.service.auth.UserService;
 import com.olisystem.optionsmanager.service.invoice.InvoiceImportService;
+import com.olisystem.optionsmanager.service.invoice.parser.BrokerageTextDetector;
+import com.olisystem.optionsmanager.service.invoice.parser.PdfTextExtractor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.text.PDFTextStripper;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
 import java.util.*;
 
 /**
@@ -35,6 +33,7 @@ public class OcrController {
     private final InvoiceImportService invoiceImportService;
     private final UserService userService;
     private final BrokerageRepository brokerageRepository;
+    private final PdfTextExtractor pdfTextExtractor;
 
     /**
      * 📁 Upload de arquivo para processamento OCR + Importação automática
@@ -132,7 +131,7 @@ public class OcrController {
                 .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
             
             // 🔧 CORREÇÃO: Hash deve ser baseado no texto extraído (não no arquivo original)
-            String fileHash = generateFileHash(extractedText);
+            String fileHash = PdfTextExtractor.hashText(extractedText);
             
             // Detectar corretora automaticamente se não fornecida
             UUID detectedBrokerageId = detectBrokerageId(extractedText, brokerageId);
@@ -185,22 +184,7 @@ public class OcrController {
      * 📄 Extrai texto de PDF usando PDFBox
      */
     private String extractTextFromPdf(MultipartFile file) throws IOException {
-        log.debug("📄 Extraindo texto do PDF...");
-        
-        try (PDDocument document = PDDocument.load(file.getInputStream())) {
-            PDFTextStripper stripper = new PDFTextStripper();
-            
-            // Configurações para melhor extração
-            stripper.setSortByPosition(true);
-            stripper.setLineSeparator("\n");
-            
-            String text = stripper.getText(document);
-            
-            log.debug("✅ Texto extraído: {} páginas, {} caracteres", 
-                     document.getNumberOfPages(), text.length());
-            
-            return text;
-        }
+        return pdfTextExtractor.extractText(file.getInputStream());
     }
 
     /**
@@ -221,22 +205,8 @@ public class OcrController {
         }
         
         // Mapear padrões de texto para CNPJs conhecidos
-        String detectedCnpj = null;
-        String detectedName = null;
-        
-        if (text.contains("BTG Pactual") || text.contains("BTG PACTUAL")) {
-            detectedCnpj = "42.815.158/0001-22"; // CNPJ real da BTG Pactual
-            detectedName = "BTG Pactual";
-        } else if (text.contains("CLEAR") || text.contains("Clear Corretora") || text.contains("XP INVESTIMENTOS")) {
-            detectedCnpj = "02.332.886/0001-04"; // CNPJ real da Clear/XP
-            detectedName = "Clear";
-        } else if (text.contains("RICO") || text.contains("Rico Investimentos")) {
-            detectedCnpj = "03.509.645/0001-23"; // CNPJ real da Rico
-            detectedName = "Rico";
-        } else if (text.contains("TORO") || text.contains("Toro Investimentos")) {
-            detectedCnpj = "26.563.455/0001-20"; // CNPJ real da Toro
-            detectedName = "Toro";
-        }
+        String detectedName = BrokerageTextDetector.detectName(text);
+        String detectedCnpj = BrokerageTextDetector.cnpjOf(detectedName);
         
         if (detectedCnpj != null) {
             log.info("🔍 Corretora detectada: {} (CNPJ: {})", detectedName, detectedCnpj);
@@ -261,25 +231,6 @@ public class OcrController {
                                  "certifique-se de que o PDF contém informações reconhecíveis da corretora.");
     }
 
-    /**
-     * 🔐 Gera hash SHA-256 do conteúdo (compatível com InvoiceUtils)
-     */
-    private String generateFileHash(String content) throws Exception {
-        MessageDigest digest = MessageDigest.getInstance("SHA-256");
-        byte[] hashBytes = digest.digest(content.getBytes(StandardCharsets.UTF_8));
-        
-        StringBuilder hexString = new StringBuilder();
-        for (byte b : hashBytes) {
-            String hex = Integer.toHexString(0xff & b);
-            if (hex.length() == 1) {
-                hexString.append('0');
-            }
-            hexString.append(hex);
-        }
-        
-        return hexString.toString();
-    }
-
     /**
      * 📊 Status do serviço OCR
      */
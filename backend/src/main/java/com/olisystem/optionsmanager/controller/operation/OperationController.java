@@ -1,12 +1,16 @@
 package com.olisystem.optionsmanager.controller.operation;
 
+import com.olisystem.optionsmanager.dto.operation.BulkExitRequest;
+import com.olisystem.optionsmanager.dto.operation.BulkExitResponse;
 import com.olisystem.optionsmanager.dto.operation.OperationDataRequest;
 import com.olisystem.optionsmanager.dto.operation.OperationFinalizationRequest;
 import com.olisystem.optionsmanager.dto.operation.OperationSummaryResponseDto;
 import com.olisystem.optionsmanager.model.operation.Operation;
 import com.olisystem.optionsmanager.record.operation.OperationSearchRequest;
 import com.olisystem.optionsmanager.service.operation.OperationService;
+import com.olisystem.optionsmanager.service.operation.exit.BulkExitService;
 import com.olisystem.optionsmanager.service.operation.search.OperationSearchService;
+import com.olisystem.optionsmanager.util.SecurityUtil;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,12 +33,15 @@ public class OperationController {
 
   private final OperationService operationService;
   private final OperationSearchService operationSearchService;
+  private final BulkExitService bulkExitService;
 
   public OperationController(OperationService operationService,
-                             OperationSearchService operationSearchService
+                             OperationSearchService operationSearchService,
+                             BulkExitService bulkExitService
   ){
     this.operationService = operationService;
     this.operationSearchService = operationSearchService;
+    this.bulkExitService = bulkExitService;
   }
 
   @PostMapping("/operations")
@@ -75,6 +82,16 @@ public class OperationController {
       Operation result = operationService.createExitOperation(request);
       return ResponseEntity.ok(result);
       }
+
+    /**
+     * ✅ NOVO: Finaliza várias operações em uma requisição, com resultado por item
+     */
+    @PostMapping("/operations/finalize/batch")
+    public ResponseEntity<BulkExitResponse> finalizeOperations(
+            @Valid @RequestBody BulkExitRequest request) {
+      log.info("Finalizando {} operações em lote", request.getExits().size());
+      return ResponseEntity.ok(bulkExitService.finalizeAll(request.getExits(), SecurityUtil.getLoggedUser()));
+      }
     }
 
 
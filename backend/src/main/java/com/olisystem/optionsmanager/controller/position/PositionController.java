@@ -4,7 +4,12 @@ import com.olisystem.optionsmanager.dto.position.*;
 import com.olisystem.optionsmanager.model.option_serie.OptionType;
 import com.olisystem.optionsmanager.model.position.PositionStatus;
 import com.olisystem.optionsmanager.model.transaction.TransactionType;
+import com.olisystem.optionsmanager.service.position.PositionExitSimulationService;
 import com.olisystem.optionsmanager.service.position.PositionService;
+import com.olisystem.optionsmanager.service.position.rebuild.PositionRebuildService;
+import com.olisystem.optionsmanager.service.position.valuation.MarkToMarketService;
+import com.olisystem.optionsmanager.util.SecurityUtil;
+import jakarta.validation.Valid;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
@@ -25,6 +30,9 @@ import org.springframework.web.bind.annotation.*;
 public class PositionController {
 
   private final PositionService positionService;
+  private final PositionExitSimulationService exitSimulationService;
+  private final PositionRebuildService positionRebuildService;
+  private final MarkToMarketService markToMarketService;
 
   /** Lista posições com filtros de status. */
   @GetMapping
@@ -147,6 +155,42 @@ public class PositionController {
     return ResponseEntity.ok(position);
   }
 
+  /** Simula uma saída para vários preços, sem gravar nada (curva P&L x preço de saída). */
+  @PostMapping("/{id}/exit/simulate")
+  public ResponseEntity<ExitSimulationResponse> simulateExit(
+      @PathVariable UUID id, @Valid @RequestBody ExitSimulationRequest request) {
+    log.debug("Simulando saída da posição: {}", id);
+
+    ExitSimulationResponse result =
+        exitSimulationService.simulate(id, request, SecurityUtil.getLoggedUser());
+    return ResponseEntity.ok(result);
+  }
+
+  /**
+   * Reconstrói posições, lotes e saídas a partir das operações de origem. Sem apply=true só
+   * devolve o relatório de diferenças.
+   */
+  @PostMapping("/rebuild")
+  public ResponseEntity<PositionRebuildReport> rebuildPositions(
+      @RequestParam(required = false) String optionSeriesCode,
+      @RequestParam(defaultValue = "false") boolean apply) {
+    log.info("Reconstruindo posições - série: {}, aplicar: {}", optionSeriesCode, apply);
+
+    PositionRebuildReport report =
+        positionRebuildService.rebuild(SecurityUtil.getLoggedUser(), optionSeriesCode, apply);
+    return ResponseEntity.ok(report);
+  }
+
+  /**
+   * Marcação a mercado das posições abertas com os últimos preços conhecidos. O resultado vem
+   * de cache enquanto os preços não mudam; refresh=true força o recálculo.
+   */
+  @GetMapping("/mark-to-market")
+  public ResponseEntity<MarkToMarketResponse> markToMarket(
+      @RequestParam(defaultValue = "false") boolean refresh) {
+    return ResponseEntity.ok(markToMarketService.markToMarket(SecurityUtil.getLoggedUser(), refresh));
+  }
+
   /** Processa uma nova entrada (criação de posição ou adição a existente). */
   @PostMapping("/entry")
   public ResponseEntity<PositionDto> processEntry(@RequestBody PositionEntryRequest request) {
@@ -0,0 +1,40 @@
+package com.olisystem.optionsmanager.controller.risk;
+
+import com.olisystem.optionsmanager.dto.position.PortfolioRiskResponse;
+import com.olisystem.optionsmanager.dto.position.ScenarioGridRequest;
+import com.olisystem.optionsmanager.dto.position.ScenarioGridResponse;
+import com.olisystem.optionsmanager.service.position.risk.PortfolioRiskService;
+import com.olisystem.optionsmanager.service.position.risk.ScenarioGridService;
+import com.olisystem.optionsmanager.util.SecurityUtil;
+import jakarta.validation.Valid;
+import java.time.LocalDate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/** Controller da visão de risco das posições abertas. */
+@RestController
+@RequestMapping("/api/risk")
+@RequiredArgsConstructor
+public class RiskController {
+
+  private final PortfolioRiskService portfolioRiskService;
+  private final ScenarioGridService scenarioGridService;
+
+  /** Gregas por posição e exposição por ativo-objeto; sem data usa hoje. */
+  @GetMapping("/greeks")
+  public ResponseEntity<PortfolioRiskResponse> getGreeks(
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+          LocalDate valuationDate) {
+    LocalDate date = valuationDate != null ? valuationDate : LocalDate.now();
+    return ResponseEntity.ok(portfolioRiskService.risk(SecurityUtil.getLoggedUser(), date));
+  }
+
+  /** P&L da carteira e de cada ativo-objeto em uma grade de variações de preço, volatilidade e prazo. */
+  @PostMapping("/scenarios")
+  public ResponseEntity<ScenarioGridResponse> runScenarios(
+      @Valid @RequestBody ScenarioGridRequest request) {
+    return ResponseEntity.ok(scenarioGridService.run(SecurityUtil.getLoggedUser(), request));
+  }
+}
@@ -0,0 +1,32 @@
+package com.olisystem.optionsmanager.dto.invoice.processing;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Estatísticas agregadas de processamento de um usuário (calculadas no banco)
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Data
+@Builder
+public class ProcessingStatsSummary {
+    private long totalProcessed;
+    private long successfulProcessed;
+    private long failedProcessed;
+    private long activeProcessing;
+    private long totalOperationsCreated;
+    private long totalOperationsUpdated;
+    private long totalOperationsSkipped;
+    private long totalReprocessed;
+    private long totalProcessingTimeMs;
+
+    public long getAverageProcessingTimeMs() {
+        return totalProcessed > 0 ? totalProcessingTimeMs / totalProcessed : 0;
+    }
+
+    public double getSuccessRate() {
+        return totalProcessed > 0 ? (double) successfulProcessed / totalProcessed * 100 : 0;
+    }
+}
@@ -0,0 +1,21 @@
+package com.olisystem.optionsmanager.dto.operation;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkExitRequest {
+
+  @NotEmpty(message = "Informe ao menos uma finalização")
+  @Size(max = 1000, message = "Máximo de 1000 finalizações por requisição")
+  private List<@Valid OperationFinalizationRequest> exits;
+}
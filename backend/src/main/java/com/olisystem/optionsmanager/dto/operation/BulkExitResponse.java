@@ -0,0 +1,37 @@
+package com.olisystem.optionsmanager.dto.operation;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkExitResponse {
+  // Totalizadores
+  private int total;
+  private int successful;
+  private int failed;
+  private BigDecimal totalProfitLoss;
+  private long durationMs;
+
+  // Resultado por finalização, na ordem da requisição
+  private List<ItemResult> results;
+
+  @Data
+  @Builder
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class ItemResult {
+    private UUID operationId;
+    private boolean success;
+    private UUID resultOperationId;
+    private BigDecimal profitLoss;
+    private String message;
+  }
+}
@@ -0,0 +1,37 @@
+package com.olisystem.optionsmanager.dto.position;
+
+import com.olisystem.optionsmanager.model.position.ExitStrategy;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExitSimulationRequest {
+
+  @NotNull(message = "Data de saída é obrigatória")
+  private LocalDate exitDate;
+
+  @NotNull(message = "Quantidade é obrigatória")
+  @Min(value = 1, message = "Quantidade deve ser maior que zero")
+  private Integer quantity;
+
+  // Preços candidatos de saída (curva P&L x preço)
+  @NotEmpty(message = "Informe ao menos um preço de saída")
+  @Size(max = 500, message = "Máximo de 500 preços por simulação")
+  private List<@NotNull @DecimalMin(value = "0.00", message = "Preço de saída não pode ser negativo") BigDecimal>
+      exitUnitPrices;
+
+  private List<ExitStrategy> strategies; // Opcional: FIFO, LIFO e AUTO quando vazio
+}
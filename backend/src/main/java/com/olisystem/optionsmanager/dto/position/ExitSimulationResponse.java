@@ -0,0 +1,67 @@
+package com.olisystem.optionsmanager.dto.position;
+
+import com.olisystem.optionsmanager.model.operation.TradeType;
+import com.olisystem.optionsmanager.model.position.ExitStrategy;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExitSimulationResponse {
+  private UUID positionId;
+  private LocalDate exitDate;
+  private Integer quantity;
+  private Integer availableQuantity;
+  private BigDecimal averagePrice;
+
+  // Uma simulação por estratégia, na ordem da requisição
+  private List<StrategySimulation> simulations;
+
+  @Data
+  @Builder
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class StrategySimulation {
+    private ExitStrategy strategy;
+    private Integer dayTradeQuantity;
+    private Integer swingTradeQuantity;
+    private Integer remainingQuantity;
+    private BigDecimal remainingAveragePrice;
+    private List<SimulatedLot> lots; // Consumo planejado - o mesmo para todos os preços
+    private List<PricePoint> points; // Um ponto por preço candidato
+  }
+
+  @Data
+  @Builder
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class SimulatedLot {
+    private UUID entryLotId;
+    private Integer sequenceNumber;
+    private LocalDate entryDate;
+    private BigDecimal entryUnitPrice;
+    private Integer quantity;
+    private TradeType tradeType;
+  }
+
+  @Data
+  @Builder
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class PricePoint {
+    private BigDecimal exitUnitPrice;
+    private BigDecimal totalProfitLoss;
+    private BigDecimal dayTradeProfitLoss;
+    private BigDecimal swingTradeProfitLoss;
+    private BigDecimal profitLossPercentage;
+    private List<BigDecimal> lotProfitLoss; // Mesma ordem de lots
+  }
+}
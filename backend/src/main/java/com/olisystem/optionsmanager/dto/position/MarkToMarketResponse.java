@@ -0,0 +1,48 @@
+package com.olisystem.optionsmanager.dto.position;
+
+import com.olisystem.optionsmanager.model.position.PositionStatus;
+import com.olisystem.optionsmanager.model.transaction.TransactionType;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MarkToMarketResponse {
+  private BigDecimal costBasis; // Só posições com preço; vendidas entram negativas
+  private BigDecimal marketValue;
+  private BigDecimal unrealizedProfitLoss;
+  private BigDecimal unrealizedProfitLossPercentage; // Sobre o custo bruto (compradas + vendidas)
+  private Integer pricedPositions;
+  private Integer unpricedPositions;
+  private Long priceVersion; // Versão do PriceSnapshotStore usada no cálculo
+  private LocalDateTime computedAt;
+  private List<PositionMark> positions;
+
+  @Data
+  @Builder
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class PositionMark {
+    private UUID positionId;
+    private String optionSeriesCode;
+    private String underlyingCode;
+    private TransactionType direction;
+    private PositionStatus status;
+    private Integer remainingQuantity;
+    private BigDecimal averagePrice;
+    private BigDecimal lastPrice; // null quando não há preço para a série
+    private LocalDateTime priceAsOf;
+    private BigDecimal underlyingPrice;
+    private BigDecimal marketValue;
+    private BigDecimal unrealizedProfitLoss;
+    private BigDecimal unrealizedProfitLossPercentage;
+  }
+}
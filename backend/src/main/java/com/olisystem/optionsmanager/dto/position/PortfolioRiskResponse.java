@@ -0,0 +1,76 @@
+package com.olisystem.optionsmanager.dto.position;
+
+import com.olisystem.optionsmanager.model.option_serie.OptionType;
+import com.olisystem.optionsmanager.model.transaction.TransactionType;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PortfolioRiskResponse {
+  private LocalDate valuationDate;
+  private BigDecimal riskFreeRate;
+  private Long priceVersion;
+  private Integer pricedPositions;
+  private Integer unpricedPositions;
+  private BigDecimal deltaNotional; // R$ equivalentes em ativo-objeto (delta x spot)
+  private BigDecimal theta; // R$ por dia
+  private BigDecimal vega; // R$ por ponto de volatilidade
+  private Long durationMs;
+  private List<UnderlyingExposure> underlyings;
+  private List<PositionRisk> positions;
+
+  @Data
+  @Builder
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class UnderlyingExposure {
+    private String underlyingCode;
+    private BigDecimal spot;
+    private Integer positions;
+    private BigDecimal delta; // Em ações equivalentes
+    private BigDecimal deltaNotional;
+    private BigDecimal gamma;
+    private BigDecimal theta;
+    private BigDecimal vega;
+  }
+
+  @Data
+  @Builder
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class PositionRisk {
+    private UUID positionId;
+    private String optionSeriesCode;
+    private String underlyingCode;
+    private OptionType optionType;
+    private TransactionType direction;
+    private Integer quantity; // Vendidas negativas
+    private BigDecimal strikePrice;
+    private LocalDate expirationDate;
+    private Integer daysToExpiration;
+    private BigDecimal spot;
+    private BigDecimal optionPrice;
+    private BigDecimal impliedVolatility;
+    private BigDecimal theoreticalPrice;
+    // Gregas por unidade
+    private BigDecimal delta;
+    private BigDecimal gamma;
+    private BigDecimal theta;
+    private BigDecimal vega;
+    // Exposição da posição (gregas x quantidade com sinal)
+    private BigDecimal positionDelta;
+    private BigDecimal positionGamma;
+    private BigDecimal positionTheta;
+    private BigDecimal positionVega;
+    private String message; // Motivo quando a posição não foi precificada
+  }
+}
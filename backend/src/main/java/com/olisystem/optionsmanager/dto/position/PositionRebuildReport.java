@@ -0,0 +1,36 @@
+package com.olisystem.optionsmanager.dto.position;
+
+import java.util.List;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PositionRebuildReport {
+  private String optionSeriesCode; // null = todas as séries do usuário
+  private boolean applied;
+  private int positionsAnalyzed;
+  private int positionsChanged;
+  private int positionsFailed;
+  private long durationMs;
+
+  // Apenas posições com diferença ou com falha na reconstrução
+  private List<PositionDiff> positions;
+
+  @Data
+  @Builder
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class PositionDiff {
+    private UUID positionId;
+    private String optionSeriesCode;
+    private List<String> changes; // "campo: atual → reconstruído"
+    private String error;
+    private boolean applied;
+  }
+}
@@ -0,0 +1,39 @@
+package com.olisystem.optionsmanager.dto.position;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScenarioGridRequest {
+
+  private LocalDate valuationDate; // Opcional: hoje
+
+  // Variação relativa do ativo-objeto (-0.10 = queda de 10%)
+  @NotEmpty(message = "Informe ao menos uma variação do ativo-objeto")
+  @Size(max = 200, message = "Máximo de 200 variações do ativo-objeto")
+  private List<@NotNull @DecimalMin(value = "-1.00", message = "Variação do ativo-objeto não pode passar de -100%")
+      BigDecimal> spotShifts;
+
+  // Variação absoluta da volatilidade (0.05 = +5 pontos)
+  @NotEmpty(message = "Informe ao menos uma variação de volatilidade")
+  @Size(max = 100, message = "Máximo de 100 variações de volatilidade")
+  private List<@NotNull BigDecimal> volatilityShifts;
+
+  // Dias corridos à frente da data de avaliação
+  @NotEmpty(message = "Informe ao menos um prazo")
+  @Size(max = 60, message = "Máximo de 60 prazos")
+  private List<@NotNull @Min(value = 0, message = "Prazo não pode ser negativo") Integer> daysForward;
+}
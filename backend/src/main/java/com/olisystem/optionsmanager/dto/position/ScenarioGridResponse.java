@@ -0,0 +1,40 @@
+package com.olisystem.optionsmanager.dto.position;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScenarioGridResponse {
+  private LocalDate valuationDate;
+  private List<BigDecimal> spotShifts;
+  private List<BigDecimal> volatilityShifts;
+  private List<Integer> daysForward;
+  private Integer gridPoints;
+  private Integer pricedPositions;
+  private Integer unpricedPositions;
+  private List<String> unpricedSeries; // Sem preço ou volatilidade implícita - fora das matrizes
+  private Long durationMs;
+
+  // P&L em R$ contra o valor teórico atual, indexado [prazo][variação do ativo][variação de vol]
+  private double[][][] portfolio;
+  private List<UnderlyingScenario> underlyings;
+
+  @Data
+  @Builder
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class UnderlyingScenario {
+    private String underlyingCode;
+    private BigDecimal spot;
+    private Integer positions;
+    private double[][][] profitLoss; // Mesmo índice de portfolio
+  }
+}
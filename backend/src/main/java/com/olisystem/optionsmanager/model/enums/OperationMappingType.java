@@ -8,6 +8,11 @@ package com.olisystem.optionsmanager.model.enums;
  */
 public enum OperationMappingType {
     
+    /**
+     * Item reservado para processamento (operação ainda não vinculada)
+     */
+    CLAIMED("Reservado para Processamento"),
+    
     /**
      * Nova operação criada a partir do invoice item
      */
@@ -2,6 +2,7 @@ package com.olisystem.optionsmanager.model.invoice;
 
 import com.olisystem.optionsmanager.model.brokerage.Brokerage;
 import com.olisystem.optionsmanager.model.auth.User;
+import com.olisystem.optionsmanager.model.enums.InvoiceProcessingStatus;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -108,7 +109,9 @@ public class Invoice {
   private BigDecimal irrfCommonValue;
 
   // === DADOS BRUTOS ===
-  @Column(name = "raw_content", columnDefinition = "TEXT")
+  // ✅ OTIMIZAÇÃO: Texto do PDF vai para invoice_raw_contents (InvoiceRawContentService);
+  // aqui só transporta o resultado do parser até o salvamento
+  @Transient
   private String rawContent;
 
   @Column(name = "file_hash", length = 64)
@@ -128,6 +131,17 @@ public class Invoice {
   @Column(name = "updated_at")
   private LocalDateTime updatedAt;
 
+  // === STATUS DE PROCESSAMENTO (espelho do InvoiceProcessingLog) ===
+  // Mantido apenas pelo InvoiceProcessingLogService via UPDATE direto
+  // Default no banco: o ddl-auto cria a coluna com as invoices existentes já em PENDING
+  @Enumerated(EnumType.STRING)
+  @Column(name = "processing_status", length = 50, updatable = false,
+      columnDefinition = "varchar(50) default 'PENDING' not null")
+  private InvoiceProcessingStatus processingStatus;
+
+  @Column(name = "last_processed_at", updatable = false)
+  private LocalDateTime lastProcessedAt;
+
   // === CAMPOS LEGADOS (manter compatibilidade) ===
   @Deprecated
   private Date tradeDate;
@@ -146,6 +160,9 @@ public class Invoice {
     if (importedAt == null) {
       importedAt = LocalDateTime.now();
     }
+    if (processingStatus == null) {
+      processingStatus = InvoiceProcessingStatus.PENDING;
+    }
     updatedAt = LocalDateTime.now();
   }
 
@@ -0,0 +1,49 @@
+package com.olisystem.optionsmanager.model.invoice;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Texto bruto extraído do PDF de uma invoice
+ * Fica fora da tabela invoices para não ser lido nas listagens; carregado só sob demanda
+ * 
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Entity
+@Table(name = "invoice_raw_contents")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceRawContent {
+
+    @Id
+    @Column(name = "invoice_id")
+    private UUID invoiceId;
+
+    /**
+     * Texto em UTF-8, compactado com GZIP quando compressed = true
+     */
+    @Column(name = "content", nullable = false)
+    private byte[] content;
+
+    @Column(name = "compressed", nullable = false)
+    private boolean compressed;
+
+    @Column(name = "original_length")
+    private Integer originalLength;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
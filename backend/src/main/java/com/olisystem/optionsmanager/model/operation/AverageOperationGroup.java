@@ -44,6 +44,11 @@ public class AverageOperationGroup {
   // Relacionamento com a posição (opcional)
   @Column private UUID positionId;
 
+  // ✅ NOVO: Versão otimista dos totais do grupo
+  @Version
+  @Column(nullable = false, columnDefinition = "bigint default 0 not null")
+  private Long version;
+
   @OneToMany(mappedBy = "group")
   @Builder.Default
   private List<AverageOperationItem> items = new ArrayList<>();
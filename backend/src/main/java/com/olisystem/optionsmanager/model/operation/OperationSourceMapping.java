@@ -12,12 +12,15 @@ import java.util.UUID;
 /**
  * Entity para mapeamento entre Operations e InvoiceItems
  * Rastreia qual InvoiceItem originou qual Operation
+ * ✅ NOVO: Único por InvoiceItem - funciona como chave de idempotência do processamento
  * 
  * @author Sistema de Gestão de Opções
  * @since 2025-07-03
  */
 @Entity
-@Table(name = "operation_source_mapping")
+@Table(name = "operation_source_mapping",
+       uniqueConstraints = @UniqueConstraint(name = "idx_operation_source_mapping_invoice_item_unique",
+                                             columnNames = "invoice_item_id"))
 @Data
 @Builder
 @NoArgsConstructor
@@ -28,8 +31,9 @@ public class OperationSourceMapping {
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
 
+    // Nulo enquanto o item está apenas reservado (CLAIMED) para processamento
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "operation_id", nullable = false)
+    @JoinColumn(name = "operation_id")
     private Operation operation;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -40,4 +40,9 @@ public class EntryLot {
 
   @Column(nullable = false)
   private Boolean isFullyConsumed;
+
+  // ✅ NOVO: Versão otimista do saldo do lote
+  @Version
+  @Column(nullable = false, columnDefinition = "bigint default 0 not null")
+  private Long version;
 }
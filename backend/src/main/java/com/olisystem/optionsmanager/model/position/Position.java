@@ -60,8 +60,15 @@ public class Position {
   @JoinColumn(name = "user_id", nullable = false)
   private User user;
 
+  // ✅ NOVO: Versão otimista - entradas e saídas concorrentes na mesma posição falham no commit
+  // Default no banco: o ddl-auto cria a coluna já preenchida nas linhas existentes
+  @Version
+  @Column(nullable = false, columnDefinition = "bigint default 0 not null")
+  private Long version;
+
   @Builder.Default
   @OneToMany(mappedBy = "position", cascade = CascadeType.ALL, orphanRemoval = true)
+  @OrderBy("entryDate ASC, sequenceNumber ASC") // ordem do LotBook: montado sem reordenar
   private List<EntryLot> entryLots = new ArrayList<>();
 
   @Builder.Default
@@ -3,6 +3,7 @@ package com.olisystem.optionsmanager.repository;
 import com.olisystem.optionsmanager.model.operation.AverageOperationGroup;
 import com.olisystem.optionsmanager.model.operation.AverageOperationGroupStatus;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -18,6 +19,9 @@ public interface AverageOperationGroupRepository
   // Buscar grupo por ID de posição
   AverageOperationGroup findByPositionId(UUID positionId);
 
+  // Grupos das posições informadas (reconstrução de posições)
+  List<AverageOperationGroup> findByPositionIdIn(Collection<UUID> positionIds);
+
   // Buscar grupos com saídas parciais
   List<AverageOperationGroup> findByStatusAndClosedQuantityGreaterThan(
       AverageOperationGroupStatus status, Integer minClosedQuantity);
@@ -4,6 +4,7 @@ import com.olisystem.optionsmanager.model.operation.AverageOperationGroup;
 import com.olisystem.optionsmanager.model.operation.AverageOperationItem;
 import com.olisystem.optionsmanager.model.operation.Operation;
 import com.olisystem.optionsmanager.model.operation.OperationRoleType;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -23,6 +24,10 @@ public interface AverageOperationItemRepository extends JpaRepository<AverageOpe
   // Buscar todos os itens de um grupo por ID do grupo
   List<AverageOperationItem> findByGroup_Id(UUID groupId);
 
+  // Itens dos grupos com a operação já carregada (reconstrução de posições)
+  @Query("SELECT ai FROM AverageOperationItem ai JOIN FETCH ai.operation WHERE ai.group.id IN :groupIds")
+  List<AverageOperationItem> findWithOperationByGroupIdIn(@Param("groupIds") Collection<UUID> groupIds);
+
   // Buscar itens por grupo e tipo de papel
   List<AverageOperationItem> findByGroupAndRoleType(
       AverageOperationGroup group, OperationRoleType roleType);
@@ -32,6 +37,11 @@ public interface AverageOperationItemRepository extends JpaRepository<AverageOpe
 
   AverageOperationItem findByOperation(Operation operation);
 
+  // ✅ NOVO: Itens (com grupo) de várias operações em uma consulta - finalização em lote
+  @Query("SELECT ai FROM AverageOperationItem ai JOIN FETCH ai.group " +
+         "WHERE ai.operation.id IN :operationIds")
+  List<AverageOperationItem> findWithGroupByOperationIdIn(@Param("operationIds") Collection<UUID> operationIds);
+
   // Buscar operações de um grupo que tenham data de saída e não sejam consolidadas
   @Query("SELECT ai FROM AverageOperationItem ai " +
          "WHERE ai.group.id = :groupId " +
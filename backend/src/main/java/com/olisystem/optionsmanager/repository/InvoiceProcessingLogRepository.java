@@ -12,6 +12,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -35,6 +36,11 @@ public interface InvoiceProcessingLogRepository extends JpaRepository<InvoicePro
      */
     Optional<InvoiceProcessingLog> findByInvoiceId(UUID invoiceId);
     
+    /**
+     * Busca logs de processamento de um lote de invoices (uma única consulta)
+     */
+    List<InvoiceProcessingLog> findByInvoiceIdIn(Collection<UUID> invoiceIds);
+    
     /**
      * Busca todos os logs de um usuário
      */
@@ -77,6 +83,44 @@ public interface InvoiceProcessingLogRepository extends JpaRepository<InvoicePro
     @Query("SELECT ipl.status, COUNT(ipl) FROM InvoiceProcessingLog ipl WHERE ipl.user = :user GROUP BY ipl.status")
     List<Object[]> countByStatusForUser(@Param("user") User user);
     
+    /**
+     * Agrega estatísticas de processamento de um usuário em uma única linha
+     * [total, sucesso, erro, processando, criadas, atualizadas, ignoradas, reprocessamentos, duração total]
+     */
+    @Query("SELECT COUNT(ipl), " +
+           "SUM(CASE WHEN ipl.status IN ('SUCCESS', 'PARTIAL_SUCCESS') THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN ipl.status = 'ERROR' THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN ipl.status = 'PROCESSING' THEN 1 ELSE 0 END), " +
+           "SUM(ipl.operationsCreated), SUM(ipl.operationsUpdated), SUM(ipl.operationsSkipped), " +
+           "SUM(ipl.reprocessedCount), SUM(ipl.processingDurationMs) " +
+           "FROM InvoiceProcessingLog ipl WHERE ipl.user.id = :userId")
+    List<Object[]> aggregateStatsForUser(@Param("userId") UUID userId);
+    
+    /**
+     * Histórico paginado de um usuário, com a invoice carregada no mesmo SELECT
+     */
+    @Query(value = "SELECT ipl FROM InvoiceProcessingLog ipl JOIN FETCH ipl.invoice " +
+                   "WHERE ipl.user.id = :userId ORDER BY ipl.createdAt DESC",
+           countQuery = "SELECT COUNT(ipl) FROM InvoiceProcessingLog ipl WHERE ipl.user.id = :userId")
+    Page<InvoiceProcessingLog> findPageByUserId(@Param("userId") UUID userId, Pageable pageable);
+    
+    /**
+     * Logs pendentes ou em processamento de um usuário
+     */
+    @Query("SELECT ipl FROM InvoiceProcessingLog ipl JOIN FETCH ipl.invoice " +
+           "WHERE ipl.user.id = :userId AND ipl.status IN ('PENDING', 'PROCESSING') ORDER BY ipl.createdAt ASC")
+    List<InvoiceProcessingLog> findActiveProcessingByUserId(@Param("userId") UUID userId);
+    
+    /**
+     * Amostras para o estimador de tempo: [duração, total de itens, itens de opção]
+     * dos logs concluídos com sucesso, mais recentes primeiro
+     */
+    @Query("SELECT ipl.processingDurationMs, COUNT(ii), SUM(CASE WHEN ii.marketType LIKE '%OPCAO%' THEN 1 ELSE 0 END) " +
+           "FROM InvoiceProcessingLog ipl JOIN ipl.invoice i LEFT JOIN i.items ii " +
+           "WHERE ipl.status IN ('SUCCESS', 'PARTIAL_SUCCESS') AND ipl.processingDurationMs IS NOT NULL " +
+           "GROUP BY ipl.id, ipl.processingDurationMs, ipl.completedAt ORDER BY ipl.completedAt DESC")
+    List<Object[]> findDurationSamples(Pageable pageable);
+    
     /**
      * Verifica se existe processamento ativo para uma invoice
      */
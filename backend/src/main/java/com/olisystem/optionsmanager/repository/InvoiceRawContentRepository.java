@@ -0,0 +1,11 @@
+package com.olisystem.optionsmanager.repository;
+
+import com.olisystem.optionsmanager.model.invoice.InvoiceRawContent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface InvoiceRawContentRepository extends JpaRepository<InvoiceRawContent, UUID> {
+}
@@ -5,11 +5,14 @@ import com.olisystem.optionsmanager.model.enums.InvoiceProcessingStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -29,7 +32,15 @@ public interface InvoiceRepository extends JpaRepository<Invoice, UUID> {
            "JOIN FETCH i.user u " +
            "WHERE i.id = :invoiceId")
     Optional<Invoice> findByIdWithAllRelations(@Param("invoiceId") UUID invoiceId);
-    
+
+    // ✅ NOVO: Buscar lote de invoices com itens e relações em uma única consulta
+    @Query("SELECT DISTINCT i FROM Invoice i " +
+           "LEFT JOIN FETCH i.items " +
+           "JOIN FETCH i.brokerage b " +
+           "JOIN FETCH i.user u " +
+           "WHERE i.id IN :invoiceIds")
+    List<Invoice> findByIdsWithItemsAndRelations(@Param("invoiceIds") Collection<UUID> invoiceIds);
+
     // Buscar por número da nota e corretora
     @Query("SELECT i FROM Invoice i WHERE i.invoiceNumber = :invoiceNumber AND i.brokerage.id = :brokerageId")
     Optional<Invoice> findByInvoiceNumberAndBrokerageId(@Param("invoiceNumber") String invoiceNumber, 
@@ -60,39 +71,48 @@ public interface InvoiceRepository extends JpaRepository<Invoice, UUID> {
     // === MÉTODOS ADICIONADOS PARA SISTEMA DE IMPORTAÇÃO V2 ===
     
     /**
-     * Busca notas por usuário com paginação
+     * Busca ids das notas por usuário com paginação
+     * ✅ OTIMIZAÇÃO: Paginação em duas fases - a página é feita sobre ids no banco e só as invoices
+     * da página são carregadas depois, com itens e corretora (findWithItemsAndBrokerageByIdIn)
      */
-    @Query("SELECT DISTINCT i FROM Invoice i " +
-           "LEFT JOIN FETCH i.items " +
-           "LEFT JOIN FETCH i.brokerage " +
-           "WHERE i.user.id = :userId " +
-           "ORDER BY i.tradingDate ASC")
-    Page<Invoice> findByUser(@Param("userId") UUID userId, Pageable pageable);
+    @Query(value = "SELECT i.id FROM Invoice i " +
+                   "WHERE i.user.id = :userId " +
+                   "ORDER BY i.tradingDate ASC",
+           countQuery = "SELECT COUNT(i) FROM Invoice i WHERE i.user.id = :userId")
+    Page<UUID> findIdPageByUser(@Param("userId") UUID userId, Pageable pageable);
 
     /**
-     * Busca notas por corretora e usuário com paginação
+     * ✅ NOVO: Segunda fase da paginação - invoices da página com itens e corretora em uma consulta
      */
     @Query("SELECT DISTINCT i FROM Invoice i " +
            "LEFT JOIN FETCH i.items " +
            "LEFT JOIN FETCH i.brokerage " +
-           "WHERE i.brokerage.id = :brokerageId AND i.user.id = :userId " +
-           "ORDER BY i.tradingDate ASC")
-    Page<Invoice> findByBrokerageAndUser(
+           "WHERE i.id IN :invoiceIds")
+    List<Invoice> findWithItemsAndBrokerageByIdIn(@Param("invoiceIds") Collection<UUID> invoiceIds);
+
+    /**
+     * Busca ids das notas por corretora e usuário com paginação
+     */
+    @Query(value = "SELECT i.id FROM Invoice i " +
+                   "WHERE i.brokerage.id = :brokerageId AND i.user.id = :userId " +
+                   "ORDER BY i.tradingDate ASC",
+           countQuery = "SELECT COUNT(i) FROM Invoice i WHERE i.brokerage.id = :brokerageId AND i.user.id = :userId")
+    Page<UUID> findIdPageByBrokerageAndUser(
         @Param("brokerageId") UUID brokerageId,
         @Param("userId") UUID userId,
         Pageable pageable
     );
 
     /**
-     * Busca notas por usuário e período
+     * Busca ids das notas por usuário e período
      */
-    @Query("SELECT DISTINCT i FROM Invoice i " +
-           "LEFT JOIN FETCH i.items " +
-           "LEFT JOIN FETCH i.brokerage " +
-           "WHERE i.user.id = :userId " +
-           "AND i.tradingDate BETWEEN :startDate AND :endDate " +
-           "ORDER BY i.tradingDate ASC")
-    Page<Invoice> findByUserAndDateRange(
+    @Query(value = "SELECT i.id FROM Invoice i " +
+                   "WHERE i.user.id = :userId " +
+                   "AND i.tradingDate BETWEEN :startDate AND :endDate " +
+                   "ORDER BY i.tradingDate ASC",
+           countQuery = "SELECT COUNT(i) FROM Invoice i WHERE i.user.id = :userId " +
+                        "AND i.tradingDate BETWEEN :startDate AND :endDate")
+    Page<UUID> findIdPageByUserAndDateRange(
         @Param("userId") UUID userId,
         @Param("startDate") LocalDate startDate,
         @Param("endDate") LocalDate endDate,
@@ -139,79 +159,49 @@ public interface InvoiceRepository extends JpaRepository<Invoice, UUID> {
     );
     
     // === ✅ NOVOS MÉTODOS PARA FILTRO POR STATUS DE PROCESSAMENTO ===
+    // ✅ OTIMIZAÇÃO: Filtram pela coluna denormalizada processing_status
+    // (índice user_id, processing_status, trading_date) em vez de EXISTS sobre invoice_processing_log
     
     /**
-     * ✅ NOVO: Busca notas por usuário e status de processamento
-     * Retorna apenas invoices que NÃO foram processadas (não têm log ou têm status PENDING/ERROR)
+     * ✅ NOVO: Busca ids das notas por usuário que NÃO foram processadas (sem log = PENDING, ou ERROR)
+     * Usado pela aba "Todas"
      */
-    @Query("SELECT DISTINCT i FROM Invoice i " +
-           "LEFT JOIN FETCH i.items " +
-           "LEFT JOIN FETCH i.brokerage " +
-           "WHERE i.user.id = :userId " +
-           "AND (NOT EXISTS (SELECT 1 FROM InvoiceProcessingLog ipl WHERE ipl.invoice = i) " +
-           "OR EXISTS (SELECT 1 FROM InvoiceProcessingLog ipl WHERE ipl.invoice = i AND ipl.status IN ('PENDING', 'ERROR'))) " +
-           "ORDER BY i.tradingDate ASC")
-    Page<Invoice> findByUserAndNotProcessed(
+    @Query(value = "SELECT i.id FROM Invoice i " +
+                   "WHERE i.user.id = :userId " +
+                   "AND i.processingStatus IN ('PENDING', 'ERROR') " +
+                   "ORDER BY i.tradingDate ASC",
+           countQuery = "SELECT COUNT(i) FROM Invoice i WHERE i.user.id = :userId " +
+                        "AND i.processingStatus IN ('PENDING', 'ERROR')")
+    Page<UUID> findIdPageByUserAndNotProcessed(
         @Param("userId") UUID userId,
         Pageable pageable
     );
     
     /**
-     * ✅ NOVO: Busca notas por usuário e status específico de processamento
+     * ✅ NOVO: Busca ids das notas por usuário e status específico de processamento
      */
-    @Query("SELECT DISTINCT i FROM Invoice i " +
-           "LEFT JOIN FETCH i.items " +
-           "LEFT JOIN FETCH i.brokerage " +
-           "WHERE i.user.id = :userId " +
-           "AND (CASE " +
-           "  WHEN :status = 'PENDING' THEN " +
-           "    (NOT EXISTS (SELECT 1 FROM InvoiceProcessingLog ipl WHERE ipl.invoice = i) " +
-           "     OR EXISTS (SELECT 1 FROM InvoiceProcessingLog ipl WHERE ipl.invoice = i AND ipl.status = 'PENDING')) " +
-           "  WHEN :status = 'SUCCESS' THEN " +
-           "    EXISTS (SELECT 1 FROM InvoiceProcessingLog ipl WHERE ipl.invoice = i AND ipl.status = 'SUCCESS') " +
-           "  WHEN :status = 'PARTIAL_SUCCESS' THEN " +
-           "    EXISTS (SELECT 1 FROM InvoiceProcessingLog ipl WHERE ipl.invoice = i AND ipl.status = 'PARTIAL_SUCCESS') " +
-           "  WHEN :status = 'ERROR' THEN " +
-           "    EXISTS (SELECT 1 FROM InvoiceProcessingLog ipl WHERE ipl.invoice = i AND ipl.status = 'ERROR') " +
-           "  WHEN :status = 'PROCESSING' THEN " +
-           "    EXISTS (SELECT 1 FROM InvoiceProcessingLog ipl WHERE ipl.invoice = i AND ipl.status = 'PROCESSING') " +
-           "  WHEN :status = 'CANCELLED' THEN " +
-           "    EXISTS (SELECT 1 FROM InvoiceProcessingLog ipl WHERE ipl.invoice = i AND ipl.status = 'CANCELLED') " +
-           "  ELSE FALSE " +
-           "END) " +
-           "ORDER BY i.tradingDate ASC")
-    Page<Invoice> findByUserAndProcessingStatus(
-        @Param("userId") UUID userId,
-        @Param("status") String status,
-        Pageable pageable
-    );
-    
-    /**
-     * ✅ NOVO: Busca notas por usuário que NÃO foram processadas (para aba "Todas")
-     */
-    @Query("SELECT DISTINCT i FROM Invoice i " +
-           "LEFT JOIN FETCH i.items " +
-           "LEFT JOIN FETCH i.brokerage " +
-           "WHERE i.user.id = :userId " +
-           "AND (NOT EXISTS (SELECT 1 FROM InvoiceProcessingLog ipl WHERE ipl.invoice = i) " +
-           "OR EXISTS (SELECT 1 FROM InvoiceProcessingLog ipl WHERE ipl.invoice = i AND ipl.status IN ('PENDING', 'ERROR'))) " +
-           "ORDER BY i.tradingDate ASC")
-    Page<Invoice> findByUserAndNotSuccessfullyProcessed(
+    @Query(value = "SELECT i.id FROM Invoice i " +
+                   "WHERE i.user.id = :userId " +
+                   "AND i.processingStatus = :status " +
+                   "ORDER BY i.tradingDate ASC",
+           countQuery = "SELECT COUNT(i) FROM Invoice i WHERE i.user.id = :userId " +
+                        "AND i.processingStatus = :status")
+    Page<UUID> findIdPageByUserAndProcessingStatus(
         @Param("userId") UUID userId,
+        @Param("status") InvoiceProcessingStatus status,
         Pageable pageable
     );
     
     /**
-     * ✅ NOVO: Busca notas por usuário que estão pendentes (para aba "Pendentes")
+     * ✅ NOVO: Busca ids das notas por usuário que estão pendentes (para aba "Pendentes")
      */
-    @Query("SELECT DISTINCT i FROM Invoice i " +
-           "LEFT JOIN FETCH i.items " +
-           "LEFT JOIN FETCH i.brokerage " +
-           "WHERE i.user.id = :userId " +
-           "AND (NOT EXISTS (SELECT 1 FROM InvoiceProcessingLog ipl WHERE ipl.invoice = i) " +
-           "OR EXISTS (SELECT 1 FROM InvoiceProcessingLog ipl WHERE ipl.invoice = i AND ipl.status = 'PENDING')) " +
-           "ORDER BY i.tradingDate ASC")
-    Page<Invoice> findByUserAndPending(
+    @Query(value = "SELECT i.id FROM Invoice i " +
+                   "WHERE i.user.id = :userId " +
+                   "AND i.processingStatus = 'PENDING' " +
+                   "ORDER BY i.tradingDate ASC",
+           countQuery = "SELECT COUNT(i) FROM Invoice i WHERE i.user.id = :userId " +
+                        "AND i.processingStatus = 'PENDING'")
+    Page<UUID> findIdPageByUserAndPending(
         @Param("userId") UUID userId,
         Pageable pageable
     );
@@ -220,15 +210,35 @@ public interface InvoiceRepository extends JpaRepository<Invoice, UUID> {
      * ✅ NOVO: Conta notas não processadas por usuário
      */
     @Query("SELECT COUNT(i) FROM Invoice i WHERE i.user.id = :userId " +
-           "AND (NOT EXISTS (SELECT 1 FROM InvoiceProcessingLog ipl WHERE ipl.invoice = i) " +
-           "OR EXISTS (SELECT 1 FROM InvoiceProcessingLog ipl WHERE ipl.invoice = i AND ipl.status IN ('PENDING', 'ERROR')))")
+           "AND i.processingStatus IN ('PENDING', 'ERROR')")
     Long countByUserAndNotProcessed(@Param("userId") UUID userId);
     
     /**
      * ✅ NOVO: Conta notas pendentes por usuário
      */
     @Query("SELECT COUNT(i) FROM Invoice i WHERE i.user.id = :userId " +
-           "AND (NOT EXISTS (SELECT 1 FROM InvoiceProcessingLog ipl WHERE ipl.invoice = i) " +
-           "OR EXISTS (SELECT 1 FROM InvoiceProcessingLog ipl WHERE ipl.invoice = i AND ipl.status = 'PENDING'))")
+           "AND i.processingStatus = 'PENDING'")
     Long countByUserAndPending(@Param("userId") UUID userId);
+    
+    /**
+     * ✅ NOVO: Atualiza o status denormalizado a partir do log de processamento
+     * UPDATE direto: a coluna não é atualizável pela entidade, evitando sobrescrita por instâncias desatualizadas
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE invoices SET processing_status = :status, " +
+                   "last_processed_at = COALESCE(:processedAt, last_processed_at) " +
+                   "WHERE id = :invoiceId", nativeQuery = true)
+    int updateProcessingStatus(
+        @Param("invoiceId") UUID invoiceId,
+        @Param("status") String status,
+        @Param("processedAt") LocalDateTime processedAt
+    );
+    
+    /**
+     * ✅ NOVO: Contagem de itens por invoice em uma única consulta
+     * [invoiceId, total de itens, itens de opção]; invoices inexistentes não aparecem
+     */
+    @Query("SELECT i.id, COUNT(ii), SUM(CASE WHEN ii.marketType LIKE '%OPCAO%' THEN 1 ELSE 0 END) " +
+           "FROM Invoice i LEFT JOIN i.items ii WHERE i.id IN :invoiceIds GROUP BY i.id")
+    List<Object[]> countItemsByInvoiceIds(@Param("invoiceIds") Collection<UUID> invoiceIds);
 }
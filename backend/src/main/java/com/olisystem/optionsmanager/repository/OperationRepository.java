@@ -6,7 +6,9 @@ import com.olisystem.optionsmanager.model.operation.OperationStatus;
 import com.olisystem.optionsmanager.model.option_serie.OptionSerie;
 import com.olisystem.optionsmanager.model.transaction.TransactionType;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -62,4 +64,18 @@ public interface OperationRepository
       @Param("userId") UUID userId,
       @Param("entryDate") java.time.LocalDate entryDate, 
       @Param("assetCode") String assetCode);
+
+  // === SÉRIE DA OPERAÇÃO (CHAVE DO LOCK DE POSIÇÃO) ===
+
+  /**
+   * Código da série da operação, sem carregar a entidade no contexto de persistência
+   */
+  @Query("SELECT o.optionSeries.code FROM Operation o WHERE o.id = :id")
+  Optional<String> findOptionSeriesCodeById(@Param("id") UUID id);
+
+  /**
+   * Códigos distintos das séries das operações, sem carregar as entidades
+   */
+  @Query("SELECT DISTINCT o.optionSeries.code FROM Operation o WHERE o.id IN :ids")
+  List<String> findOptionSeriesCodesByIdIn(@Param("ids") Collection<UUID> ids);
 }
@@ -6,10 +6,12 @@ import com.olisystem.optionsmanager.model.invoice.Invoice;
 import com.olisystem.optionsmanager.model.invoice.InvoiceItem;
 import com.olisystem.optionsmanager.model.enums.OperationMappingType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -38,6 +40,12 @@ public interface OperationSourceMappingRepository extends JpaRepository<Operatio
      */
     Optional<OperationSourceMapping> findByInvoiceItem(InvoiceItem invoiceItem);
     
+    /**
+     * ✅ NOVO: Mapeamentos das operações com o item de nota carregado (ordem dos negócios na nota)
+     */
+    @Query("SELECT osm FROM OperationSourceMapping osm JOIN FETCH osm.invoiceItem WHERE osm.operation.id IN :operationIds")
+    List<OperationSourceMapping> findWithInvoiceItemByOperationIdIn(@Param("operationIds") Collection<UUID> operationIds);
+    
     /**
      * Busca mapeamentos por tipo
      */
@@ -53,7 +61,46 @@ public interface OperationSourceMappingRepository extends JpaRepository<Operatio
      * Verifica se já existe mapeamento para um invoice item
      */
     boolean existsByInvoiceItem(InvoiceItem invoiceItem);
-    
+
+    /**
+     * Busca IDs dos invoice items já mapeados para um conjunto de invoices (uma única consulta por lote)
+     */
+    @Query("SELECT DISTINCT ii.id FROM OperationSourceMapping osm JOIN osm.invoiceItem ii WHERE ii.invoice.id IN :invoiceIds AND osm.operation IS NOT NULL")
+    List<UUID> findMappedInvoiceItemIdsByInvoiceIds(@Param("invoiceIds") Collection<UUID> invoiceIds);
+
+    /**
+     * Reserva os invoice items para processamento (INSERT ... ON CONFLICT DO NOTHING)
+     * Retorna apenas os IDs efetivamente reservados; itens já mapeados ou reservados
+     * por outra transação concorrente ficam de fora.
+     */
+    @Query(value = "INSERT INTO operation_source_mapping " +
+                   "(id, invoice_id, invoice_item_id, mapping_type, processing_sequence, notes, created_at, updated_at) " +
+                   "SELECT gen_random_uuid(), ii.invoice_id, ii.id, 'CLAIMED', ii.sequence_number, " +
+                   "'Item reservado para processamento', now(), now() " +
+                   "FROM invoice_items ii WHERE ii.id IN (:invoiceItemIds) " +
+                   "ON CONFLICT (invoice_item_id) DO NOTHING " +
+                   "RETURNING invoice_item_id", nativeQuery = true)
+    List<UUID> claimInvoiceItems(@Param("invoiceItemIds") Collection<UUID> invoiceItemIds);
+
+    /**
+     * Vincula a operação criada aos itens reservados
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE OperationSourceMapping osm SET osm.operation = :operation, osm.mappingType = :mappingType, " +
+           "osm.notes = :notes, osm.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE osm.invoiceItem.id IN :invoiceItemIds AND osm.operation IS NULL")
+    int linkClaimedItems(@Param("invoiceItemIds") Collection<UUID> invoiceItemIds,
+                         @Param("operation") Operation operation,
+                         @Param("mappingType") OperationMappingType mappingType,
+                         @Param("notes") String notes);
+
+    /**
+     * Libera reservas de itens que não geraram operação (permite nova tentativa)
+     */
+    @Modifying
+    @Query("DELETE FROM OperationSourceMapping osm WHERE osm.invoiceItem.id IN :invoiceItemIds AND osm.operation IS NULL")
+    int releaseClaimedItems(@Param("invoiceItemIds") Collection<UUID> invoiceItemIds);
+
     /**
      * Busca operations criadas a partir de uma invoice
      */
@@ -3,6 +3,7 @@ package com.olisystem.optionsmanager.repository.position;
 import com.olisystem.optionsmanager.model.position.EntryLot;
 import com.olisystem.optionsmanager.model.position.Position;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -17,6 +18,9 @@ public interface EntryLotRepository extends JpaRepository<EntryLot, UUID> {
 
   List<EntryLot> findByPositionOrderByEntryDateDesc(Position position);
 
+  // ✅ NOVO: Lotes de várias posições em uma consulta - finalização em lote
+  List<EntryLot> findByPositionInOrderByEntryDateAscSequenceNumberAsc(Collection<Position> positions);
+
   @Query(
       "SELECT e FROM EntryLot e WHERE e.position = :position AND e.remainingQuantity > 0 "
           + "AND e.entryDate = :date ORDER BY e.sequenceNumber DESC")
@@ -3,6 +3,8 @@ package com.olisystem.optionsmanager.repository.position;
 import com.olisystem.optionsmanager.model.operation.Operation;
 import com.olisystem.optionsmanager.model.position.EntryLot;
 import com.olisystem.optionsmanager.model.position.ExitRecord;
+import com.olisystem.optionsmanager.model.position.Position;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -19,4 +21,7 @@ public interface ExitRecordRepository extends JpaRepository<ExitRecord, UUID> {
 
   @Query("SELECT e FROM ExitRecord e WHERE e.entryLot.position.id = :positionId")
   List<ExitRecord> findByPositionId(@Param("positionId") UUID positionId);
+
+  @Query("SELECT e FROM ExitRecord e JOIN FETCH e.entryLot l WHERE l.position IN :positions")
+  List<ExitRecord> findByPositionIn(@Param("positions") Collection<Position> positions);
 }
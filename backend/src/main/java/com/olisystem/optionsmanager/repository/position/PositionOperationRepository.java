@@ -4,6 +4,7 @@ import com.olisystem.optionsmanager.model.operation.Operation;
 import com.olisystem.optionsmanager.model.position.Position;
 import com.olisystem.optionsmanager.model.position.PositionOperation;
 import com.olisystem.optionsmanager.model.position.PositionOperationType;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -19,4 +20,6 @@ public interface PositionOperationRepository extends JpaRepository<PositionOpera
       Position position, PositionOperationType type);
 
   Optional<PositionOperation> findByOperation(Operation operation);
+
+  List<PositionOperation> findByPositionIn(Collection<Position> positions);
 }
@@ -24,6 +24,16 @@ public interface PositionRepository
 
   List<Position> findByUserAndStatusIn(User user, List<PositionStatus> statuses);
 
+  List<Position> findByUser(User user);
+
+  List<Position> findByUserAndOptionSeries_Code(User user, String optionSeriesCode);
+
+  /**
+   * Códigos distintos das séries com posição do usuário (chaves do lock de posição)
+   */
+  @Query("SELECT DISTINCT p.optionSeries.code FROM Position p WHERE p.user = :user")
+  List<String> findOptionSeriesCodesByUser(@Param("user") User user);
+
   @Query(
       "SELECT p FROM Position p WHERE p.user = :user AND p.optionSeries = :optionSeries "
           + "AND p.brokerage = :brokerage AND p.direction = :direction AND p.status IN ('OPEN', 'PARTIAL')")
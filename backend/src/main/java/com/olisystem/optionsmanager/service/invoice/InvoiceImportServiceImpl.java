@@ -35,6 +35,7 @@ public class InvoiceImportServiceImpl implements InvoiceImportService {
     private final InvoiceParserService invoiceParserService;
     private final InvoiceMapperService invoiceMapperService;
     private final InvoiceFileValidator invoiceFileValidator;
+    private final InvoiceRawContentService rawContentService;
 
     @Override
     public InvoiceImportResponse importInvoices(InvoiceImportRequest request, User user) {
@@ -151,8 +152,10 @@ public class InvoiceImportServiceImpl implements InvoiceImportService {
             // 3. Extrair dados da nota usando parser
             Invoice parsedInvoice = invoiceParserService.parseInvoice(fileData, brokerage, user);
 
-            // 4. Salvar no banco
+            // 4. Salvar no banco (texto bruto em tabela separada, compactado)
+            String rawContent = parsedInvoice.getRawContent();
             Invoice savedInvoice = invoiceRepository.save(parsedInvoice);
+            rawContentService.store(savedInvoice.getId(), rawContent);
 
             // 5. Converter para DTO
             InvoiceData invoiceData = invoiceMapperService.toInvoiceData(savedInvoice);
@@ -2,6 +2,7 @@ package com.olisystem.optionsmanager.service.invoice;
 
 import com.olisystem.optionsmanager.dto.invoice.InvoiceData;
 import com.olisystem.optionsmanager.dto.invoice.InvoiceFilterRequest;
+import com.olisystem.optionsmanager.model.enums.InvoiceProcessingStatus;
 import com.olisystem.optionsmanager.model.invoice.Invoice;
 import com.olisystem.optionsmanager.model.auth.User;
 import com.olisystem.optionsmanager.repository.InvoiceRepository;
@@ -17,7 +18,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -32,6 +36,7 @@ public class InvoiceQueryService {
 
     private final InvoiceRepository invoiceRepository;
     private final InvoiceMapperService invoiceMapperService;
+    private final InvoiceRawContentService rawContentService;
 
     /**
      * Lista notas com filtros e paginação
@@ -55,7 +60,7 @@ public class InvoiceQueryService {
         } else if (!filters.hasFilters()) {
             // Sem filtros - busca todas as notas do usuário (não processadas)
             log.info("📋 Buscando todas as notas não processadas do usuário");
-            invoicesPage = invoiceRepository.findByUserAndNotSuccessfullyProcessed(user.getId(), pageRequest);
+            invoicesPage = loadPage(invoiceRepository.findIdPageByUserAndNotProcessed(user.getId(), pageRequest));
         } else {
             // Com filtros específicos
             invoicesPage = findWithSpecificFilters(filters, user, pageRequest);
@@ -88,14 +93,14 @@ public class InvoiceQueryService {
         if (filterRequest.processingStatus() == null || 
             filterRequest.processingStatus().equals("ALL")) {
             // Buscar todas as invoices sem filtro de status
-            invoicesPage = invoiceRepository.findByUser(user.getId(), pageable);
+            invoicesPage = loadPage(invoiceRepository.findIdPageByUser(user.getId(), pageable));
             log.info("📋 Filtro ALL: Retornando todas as invoices ({} encontradas)", invoicesPage.getTotalElements());
         } else {
             // ✅ CORREÇÃO: Usar métodos específicos para cada status
             switch (filterRequest.processingStatus()) {
                 case "PENDING":
                     log.info("📋 Buscando notas pendentes");
-                    invoicesPage = invoiceRepository.findByUserAndPending(user.getId(), pageable);
+                    invoicesPage = loadPage(invoiceRepository.findIdPageByUserAndPending(user.getId(), pageable));
                     break;
                     
                 case "SUCCESS":
@@ -104,16 +109,16 @@ public class InvoiceQueryService {
                 case "PROCESSING":
                 case "CANCELLED":
                     log.info("📋 Buscando notas com status: {}", filterRequest.processingStatus());
-                    invoicesPage = invoiceRepository.findByUserAndProcessingStatus(
+                    invoicesPage = loadPage(invoiceRepository.findIdPageByUserAndProcessingStatus(
                         user.getId(),
-                        filterRequest.processingStatus(),
+                        InvoiceProcessingStatus.valueOf(filterRequest.processingStatus()),
                         pageable
-                    );
+                    ));
                     break;
                     
                 default:
                     log.warn("⚠️ Status de processamento não reconhecido: {}", filterRequest.processingStatus());
-                    invoicesPage = invoiceRepository.findByUserAndNotSuccessfullyProcessed(user.getId(), pageable);
+                    invoicesPage = loadPage(invoiceRepository.findIdPageByUserAndNotProcessed(user.getId(), pageable));
                     break;
             }
             
@@ -135,30 +140,30 @@ public class InvoiceQueryService {
         
         if (filters.processingStatus() == null) {
             // Se não especificado, retorna notas não processadas (comportamento padrão)
-            return invoiceRepository.findByUserAndNotSuccessfullyProcessed(user.getId(), pageRequest);
+            return loadPage(invoiceRepository.findIdPageByUserAndNotProcessed(user.getId(), pageRequest));
         }
         
         switch (filters.processingStatus()) {
             case "PENDING":
                 log.info("📋 Buscando notas pendentes");
-                return invoiceRepository.findByUserAndPending(user.getId(), pageRequest);
+                return loadPage(invoiceRepository.findIdPageByUserAndPending(user.getId(), pageRequest));
                 
             case "SUCCESS":
             case "PARTIAL_SUCCESS":
                 log.info("✅ Buscando notas processadas com sucesso");
-                return invoiceRepository.findByUserAndProcessingStatus(user.getId(), filters.processingStatus(), pageRequest);
+                return loadPage(invoiceRepository.findIdPageByUserAndProcessingStatus(user.getId(), InvoiceProcessingStatus.valueOf(filters.processingStatus()), pageRequest));
                 
             case "ERROR":
                 log.info("❌ Buscando notas com erro de processamento");
-                return invoiceRepository.findByUserAndProcessingStatus(user.getId(), filters.processingStatus(), pageRequest);
+                return loadPage(invoiceRepository.findIdPageByUserAndProcessingStatus(user.getId(), InvoiceProcessingStatus.valueOf(filters.processingStatus()), pageRequest));
                 
             case "PROCESSING":
                 log.info("🔄 Buscando notas em processamento");
-                return invoiceRepository.findByUserAndProcessingStatus(user.getId(), filters.processingStatus(), pageRequest);
+                return loadPage(invoiceRepository.findIdPageByUserAndProcessingStatus(user.getId(), InvoiceProcessingStatus.valueOf(filters.processingStatus()), pageRequest));
                 
             default:
                 log.warn("⚠️ Status de processamento não reconhecido: {}", filters.processingStatus());
-                return invoiceRepository.findByUserAndNotSuccessfullyProcessed(user.getId(), pageRequest);
+                return loadPage(invoiceRepository.findIdPageByUserAndNotProcessed(user.getId(), pageRequest));
         }
     }
 
@@ -173,6 +178,15 @@ public class InvoiceQueryService {
             .map(invoiceMapperService::toInvoiceData);
     }
 
+    /**
+     * ✅ NOVO: Texto bruto da nota (carregado sob demanda da tabela separada)
+     */
+    public Optional<String> findInvoiceRawContent(UUID invoiceId, User user) {
+        return invoiceRepository.findById(invoiceId)
+            .filter(invoice -> invoice.getUser().getId().equals(user.getId()))
+            .flatMap(invoice -> rawContentService.findText(invoiceId));
+    }
+
     /**
      * Busca notas por corretora
      */
@@ -181,7 +195,7 @@ public class InvoiceQueryService {
 
         PageRequest pageRequest = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "tradingDate"));
         
-        Page<Invoice> invoicesPage = invoiceRepository.findByBrokerageAndUser(brokerageId, user.getId(), pageRequest);
+        Page<Invoice> invoicesPage = loadPage(invoiceRepository.findIdPageByBrokerageAndUser(brokerageId, user.getId(), pageRequest));
         
         List<InvoiceData> invoiceDataList = invoiceMapperService.toInvoiceDataList(invoicesPage.getContent());
 
@@ -197,8 +211,8 @@ public class InvoiceQueryService {
 
         PageRequest pageRequest = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "tradingDate"));
         
-        Page<Invoice> invoicesPage = invoiceRepository.findByUserAndDateRange(
-            user.getId(), startDate, endDate, pageRequest);
+        Page<Invoice> invoicesPage = loadPage(invoiceRepository.findIdPageByUserAndDateRange(
+            user.getId(), startDate, endDate, pageRequest));
         
         List<InvoiceData> invoiceDataList = invoiceMapperService.toInvoiceDataList(invoicesPage.getContent());
 
@@ -250,6 +264,27 @@ public class InvoiceQueryService {
         return invoiceRepository.countByBrokerageAndUser(brokerageId, user.getId());
     }
 
+    /**
+     * ✅ OTIMIZAÇÃO: Segunda fase da paginação - carrega apenas as invoices da página (itens e corretora)
+     * em uma consulta IN, mantendo a ordem e o total da página de ids
+     */
+    private Page<Invoice> loadPage(Page<UUID> idPage) {
+        if (idPage.isEmpty()) {
+            return new PageImpl<>(List.of(), idPage.getPageable(), idPage.getTotalElements());
+        }
+        
+        Map<UUID, Invoice> invoicesById = new HashMap<>();
+        for (Invoice invoice : invoiceRepository.findWithItemsAndBrokerageByIdIn(idPage.getContent())) {
+            invoicesById.put(invoice.getId(), invoice);
+        }
+        
+        List<Invoice> invoices = idPage.getContent().stream()
+            .map(invoicesById::get)
+            .filter(Objects::nonNull)
+            .toList();
+        return new PageImpl<>(invoices, idPage.getPageable(), idPage.getTotalElements());
+    }
+
     /**
      * Aplica filtros específicos na consulta
      * ✅ ATUALIZADO: Mantém comportamento original para filtros específicos
@@ -258,7 +293,7 @@ public class InvoiceQueryService {
         
         // Se tem filtro de corretora
         if (filters.brokerageId() != null) {
-            return invoiceRepository.findByBrokerageAndUser(filters.brokerageId(), user.getId(), pageRequest);
+            return loadPage(invoiceRepository.findIdPageByBrokerageAndUser(filters.brokerageId(), user.getId(), pageRequest));
         }
         
         // Se tem filtro de período
@@ -266,10 +301,10 @@ public class InvoiceQueryService {
             LocalDate startDate = filters.startDate() != null ? filters.startDate() : LocalDate.of(1990, 1, 1);
             LocalDate endDate = filters.endDate() != null ? filters.endDate() : LocalDate.now();
             
-            return invoiceRepository.findByUserAndDateRange(user.getId(), startDate, endDate, pageRequest);
+            return loadPage(invoiceRepository.findIdPageByUserAndDateRange(user.getId(), startDate, endDate, pageRequest));
         }
         
         // Sem filtros específicos implementados ainda - retorna todas (não processadas)
-        return invoiceRepository.findByUserAndNotSuccessfullyProcessed(user.getId(), pageRequest);
+        return loadPage(invoiceRepository.findIdPageByUserAndNotProcessed(user.getId(), pageRequest));
     }
 }
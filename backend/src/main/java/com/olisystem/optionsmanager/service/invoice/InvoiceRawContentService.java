@@ -0,0 +1,87 @@
+package com.olisystem.optionsmanager.service.invoice;
+
+import com.olisystem.optionsmanager.config.invoice.InvoiceConfigurationProperties;
+import com.olisystem.optionsmanager.model.invoice.InvoiceRawContent;
+import com.olisystem.optionsmanager.repository.InvoiceRawContentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Armazenamento do texto bruto das invoices em tabela separada
+ * ✅ NOVO: Compactado com GZIP quando app.invoice.file-config.compress-content = true
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InvoiceRawContentService {
+
+    private final InvoiceRawContentRepository rawContentRepository;
+    private final InvoiceConfigurationProperties invoiceProperties;
+
+    /**
+     * Salva (ou substitui) o texto bruto de uma invoice
+     */
+    @Transactional
+    public void store(UUID invoiceId, String text) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        boolean compress = invoiceProperties.getFileConfig().isCompressContent();
+        byte[] content = compress ? gzip(raw) : raw;
+
+        rawContentRepository.save(InvoiceRawContent.builder()
+            .invoiceId(invoiceId)
+            .content(content)
+            .compressed(compress)
+            .originalLength(raw.length)
+            .build());
+
+        log.debug("🗜️ Texto bruto da invoice {} salvo: {} -> {} bytes", invoiceId, raw.length, content.length);
+    }
+
+    /**
+     * Carrega o texto bruto de uma invoice (somente endpoints de detalhe/depuração)
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> findText(UUID invoiceId) {
+        return rawContentRepository.findById(invoiceId)
+            .map(rawContent -> new String(
+                rawContent.isCompressed() ? gunzip(rawContent.getContent()) : rawContent.getContent(),
+                StandardCharsets.UTF_8));
+    }
+
+    static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao compactar texto da invoice", e);
+        }
+        return out.toByteArray();
+    }
+
+    static byte[] gunzip(byte[] data) {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return gzip.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao descompactar texto da invoice", e);
+        }
+    }
+}
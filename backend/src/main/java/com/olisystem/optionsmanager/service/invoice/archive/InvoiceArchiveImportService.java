@@ -0,0 +1,277 @@
+package com.olisystem.optionsmanager.service.invoice.archive;
+
+import com.olisystem.optionsmanager.config.invoice.InvoiceConfigurationProperties;
+import com.olisystem.optionsmanager.dto.invoice.InvoiceImportRequest;
+import com.olisystem.optionsmanager.dto.invoice.InvoiceImportResponse;
+import com.olisystem.optionsmanager.model.auth.User;
+import com.olisystem.optionsmanager.model.brokerage.Brokerage;
+import com.olisystem.optionsmanager.service.invoice.InvoiceImportService;
+import com.olisystem.optionsmanager.service.invoice.parser.BrokerageTextDetector;
+import com.olisystem.optionsmanager.service.invoice.parser.PdfTextExtractor;
+import com.olisystem.optionsmanager.service.invoice.processing.ProcessingProgressService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Importação em lote de notas a partir de um arquivo ZIP com PDFs
+ * ✅ NOVO: O ZIP é lido entrada a entrada (só o PDF corrente fica em memória), cada nota é
+ * deduplicada pelo hash do texto e o parsing roda em um pool limitado; a fila de PDFs lidos
+ * é limitada por semáforo, o que segura a leitura do ZIP quando os workers estão ocupados
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Service
+@Slf4j
+public class InvoiceArchiveImportService {
+
+    private final InvoiceImportService invoiceImportService;
+    private final PdfTextExtractor pdfTextExtractor;
+    private final BrokerageTextDetector brokerageTextDetector;
+    private final ProcessingProgressService progressService;
+    private final InvoiceConfigurationProperties properties;
+
+    private final ExecutorService workers;
+
+    public InvoiceArchiveImportService(InvoiceImportService invoiceImportService,
+                                       PdfTextExtractor pdfTextExtractor,
+                                       BrokerageTextDetector brokerageTextDetector,
+                                       ProcessingProgressService progressService,
+                                       InvoiceConfigurationProperties properties) {
+        this.invoiceImportService = invoiceImportService;
+        this.pdfTextExtractor = pdfTextExtractor;
+        this.brokerageTextDetector = brokerageTextDetector;
+        this.progressService = progressService;
+        this.properties = properties;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(
+            Math.max(1, properties.getImportConfig().getArchiveWorkerThreads()), runnable -> {
+                Thread thread = new Thread(runnable, "invoice-archive-worker-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Importa todos os PDFs do ZIP; o progresso é emitido na sessão SSE informada.
+     * Como o total só é conhecido ao fim da leitura, cada evento usa as entradas lidas até o momento.
+     *
+     * @param brokerageId corretora das notas; se null, é reconhecida pelo texto de cada nota
+     */
+    public InvoiceImportResponse importArchive(InputStream archive, String archiveName, UUID brokerageId,
+                                               User user, String sessionId) throws IOException {
+        InvoiceConfigurationProperties.ImportConfig importConfig = properties.getImportConfig();
+        long maxEntryBytes = properties.getFileConfig().getMaxFileSizeBytes();
+
+        log.info("📦 Importando arquivo ZIP {} (usuário: {})", archiveName, user.getUsername());
+        progressService.emitStarted(sessionId, null, archiveName, 0);
+
+        Semaphore queueSlots = new Semaphore(Math.max(1, importConfig.getArchiveQueueCapacity()));
+        Set<String> seenHashes = ConcurrentHashMap.newKeySet();
+        AtomicInteger discovered = new AtomicInteger();
+        AtomicInteger finished = new AtomicInteger();
+        List<Future<InvoiceImportResponse.ImportResult>> pending = new ArrayList<>();
+
+        try (ZipInputStream zip = new ZipInputStream(new BufferedInputStream(archive))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                String fileName = entry.getName();
+                if (!isPdfEntry(entry)) {
+                    log.debug("⏭️ Entrada ignorada no ZIP: {}", fileName);
+                    continue;
+                }
+                if (discovered.get() >= importConfig.getArchiveMaxEntries()) {
+                    log.warn("⚠️ Limite de {} PDFs por ZIP atingido - entradas restantes ignoradas",
+                             importConfig.getArchiveMaxEntries());
+                    break;
+                }
+                discovered.incrementAndGet();
+
+                byte[] pdf;
+                try {
+                    pdf = readEntry(zip, maxEntryBytes);
+                } catch (IOException e) {
+                    InvoiceImportResponse.ImportResult result = error(fileName, e.getMessage());
+                    reportProgress(sessionId, result, finished.incrementAndGet(), discovered.get());
+                    pending.add(CompletableFuture.completedFuture(result));
+                    continue;
+                }
+
+                queueSlots.acquireUninterruptibly();
+                try {
+                    pending.add(workers.submit(() -> {
+                        try {
+                            InvoiceImportResponse.ImportResult result =
+                                importEntry(fileName, pdf, brokerageId, user, seenHashes);
+                            reportProgress(sessionId, result, finished.incrementAndGet(), discovered.get());
+                            return result;
+                        } finally {
+                            queueSlots.release();
+                        }
+                    }));
+                } catch (RuntimeException e) {
+                    queueSlots.release();
+                    throw e;
+                }
+            }
+        } catch (IOException e) {
+            log.error("❌ Falha ao ler o ZIP {}: {}", archiveName, e.getMessage());
+            cancel(pending);
+            progressService.emitError(sessionId, null, archiveName, "Arquivo ZIP inválido: " + e.getMessage());
+            throw e;
+        }
+
+        List<InvoiceImportResponse.ImportResult> results = new ArrayList<>(pending.size());
+        for (Future<InvoiceImportResponse.ImportResult> future : pending) {
+            results.add(await(future));
+        }
+
+        int successful = (int) results.stream().filter(InvoiceImportResponse.ImportResult::isSuccess).count();
+        int duplicates = (int) results.stream().filter(InvoiceImportResponse.ImportResult::isDuplicate).count();
+        int failed = (int) results.stream().filter(InvoiceImportResponse.ImportResult::isError).count();
+
+        log.info("✅ ZIP {} importado - PDFs: {}, Sucessos: {}, Duplicatas: {}, Erros: {}",
+                 archiveName, results.size(), successful, duplicates, failed);
+        progressService.emitFinished(sessionId, null, archiveName, successful);
+
+        return new InvoiceImportResponse(
+            String.format("Importação do ZIP concluída: %d sucessos, %d duplicatas, %d erros",
+                          successful, duplicates, failed),
+            results.size(),
+            successful,
+            duplicates,
+            failed,
+            LocalDateTime.now(),
+            results
+        );
+    }
+
+    /**
+     * Extrai o texto, descarta duplicatas (no banco ou no próprio ZIP) e importa a nota.
+     * Cada importação roda em sua própria transação (InvoiceImportService é transacional).
+     */
+    InvoiceImportResponse.ImportResult importEntry(String fileName, byte[] pdf, UUID brokerageId,
+                                                   User user, Set<String> seenHashes) {
+        try {
+            String text = pdfTextExtractor.extractText(new ByteArrayInputStream(pdf));
+            String fileHash = PdfTextExtractor.hashText(text);
+
+            if (!seenHashes.add(fileHash) || invoiceImportService.isFileAlreadyImported(fileHash)) {
+                return new InvoiceImportResponse.ImportResult(
+                    fileName,
+                    InvoiceImportResponse.ImportStatus.DUPLICATE,
+                    "Arquivo já importado anteriormente",
+                    null,
+                    null
+                );
+            }
+
+            UUID entryBrokerageId = brokerageId != null ? brokerageId
+                : brokerageTextDetector.detect(text).map(Brokerage::getId).orElse(null);
+            if (entryBrokerageId == null) {
+                return error(fileName, "Corretora não detectada. Informe o brokerageId da importação");
+            }
+
+            InvoiceImportRequest.InvoiceFileData fileData =
+                new InvoiceImportRequest.InvoiceFileData(fileName, text, fileHash);
+            InvoiceImportResponse.ImportResult result = invoiceImportService.processSingleFile(
+                fileData, new InvoiceImportRequest(entryBrokerageId, List.of(fileData)), user);
+
+            // Resposta do lote sem os dados completos de cada nota
+            return new InvoiceImportResponse.ImportResult(
+                result.fileName(), result.status(), result.message(), result.invoiceId(), null);
+
+        } catch (Exception e) {
+            log.error("❌ Erro ao importar {} do ZIP: {}", fileName, e.getMessage());
+            return error(fileName, e.getMessage());
+        }
+    }
+
+    private void reportProgress(String sessionId, InvoiceImportResponse.ImportResult result,
+                                int current, int total) {
+        String invoiceId = result.invoiceId() != null ? result.invoiceId().toString() : null;
+        if (result.isError()) {
+            progressService.emitError(sessionId, invoiceId, result.fileName(), result.message());
+        } else {
+            progressService.emitCompleted(sessionId, invoiceId, result.fileName(), current, total);
+        }
+    }
+
+    static boolean isPdfEntry(ZipEntry entry) {
+        String name = entry.getName();
+        return !entry.isDirectory()
+            && !name.startsWith("__MACOSX/")
+            && name.toLowerCase().endsWith(".pdf");
+    }
+
+    /**
+     * Lê a entrada corrente do ZIP, recusando entradas acima do tamanho máximo de arquivo
+     */
+    static byte[] readEntry(InputStream zip, long maxBytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        int read;
+        while ((read = zip.read(buffer)) != -1) {
+            total += read;
+            if (total > maxBytes) {
+                throw new IOException("Arquivo muito grande. Limite: " + maxBytes + " bytes");
+            }
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static InvoiceImportResponse.ImportResult await(Future<InvoiceImportResponse.ImportResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Importação do ZIP interrompida", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha inesperada na importação do ZIP", e.getCause());
+        }
+    }
+
+    private static void cancel(List<Future<InvoiceImportResponse.ImportResult>> pending) {
+        pending.forEach(future -> future.cancel(true));
+    }
+
+    private static InvoiceImportResponse.ImportResult error(String fileName, String message) {
+        return new InvoiceImportResponse.ImportResult(
+            fileName,
+            InvoiceImportResponse.ImportStatus.ERROR,
+            "Erro na importação: " + message,
+            null,
+            null
+        );
+    }
+}
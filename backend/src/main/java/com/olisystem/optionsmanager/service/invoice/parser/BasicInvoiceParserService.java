@@ -5,6 +5,8 @@ import com.olisystem.optionsmanager.model.invoice.Invoice;
 import com.olisystem.optionsmanager.model.invoice.InvoiceItem;
 import com.olisystem.optionsmanager.model.brokerage.Brokerage;
 import com.olisystem.optionsmanager.model.auth.User;
+import com.olisystem.optionsmanager.service.invoice.processing.metrics.PipelineMetrics;
+import com.olisystem.optionsmanager.service.invoice.processing.metrics.PipelineStage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -29,6 +31,9 @@ public class BasicInvoiceParserService implements InvoiceParserService {
     // Injeção de parsers específicos
     private final BtgInvoiceParser btgInvoiceParser;
     private final ToroInvoiceParser toroInvoiceParser;
+    
+    // ✅ NOVO: Timers por etapa do pipeline
+    private final PipelineMetrics pipelineMetrics;
 
     // Padrões regex básicos para extração de dados
     private static final Pattern INVOICE_NUMBER_PATTERN = 
@@ -48,17 +53,21 @@ public class BasicInvoiceParserService implements InvoiceParserService {
         log.info("🔍 Iniciando parsing da nota: {}", fileData.fileName());
         
         String content = fileData.fileContent();
+        String brokerageLabel = PipelineMetrics.brokerageLabel(brokerage);
         
         // 🎯 SELEÇÃO AUTOMÁTICA DO PARSER ESPECÍFICO
-        InvoiceParser specificParser = selectSpecificParser(content, fileData.fileName());
+        InvoiceParser specificParser = pipelineMetrics.time(PipelineStage.PARSER_SELECTION, brokerageLabel,
+            () -> selectSpecificParser(content, fileData.fileName()));
         
         if (specificParser != null) {
             log.info("✅ Parser específico selecionado: {}", specificParser.getBrokerageName());
             
+            long parsingStarted = System.nanoTime();
             try {
                 // Criar MultipartFile mock para compatibilidade
                 MultipartFile mockFile = createMockMultipartFile(fileData);
                 Invoice parsedInvoice = specificParser.parseInvoice(content, mockFile);
+                pipelineMetrics.record(PipelineStage.PARSING, brokerageLabel, System.nanoTime() - parsingStarted, true);
                 
                 // 🔧 CORREÇÃO: Configurar campos obrigatórios que vêm do serviço
                 parsedInvoice.setBrokerage(brokerage);
@@ -70,6 +79,7 @@ public class BasicInvoiceParserService implements InvoiceParserService {
                 return parsedInvoice;
                 
             } catch (Exception e) {
+                pipelineMetrics.record(PipelineStage.PARSING, brokerageLabel, System.nanoTime() - parsingStarted, false);
                 log.error("❌ Erro no parser específico {}: {}", specificParser.getBrokerageName(), e.getMessage());
                 log.warn("🔄 Tentando parser genérico como fallback...");
             }
@@ -77,7 +87,8 @@ public class BasicInvoiceParserService implements InvoiceParserService {
         
         // 🔄 FALLBACK: Parser genérico (básico)
         log.info("⚙️ Usando parser genérico");
-        return parseWithGenericParser(fileData, brokerage, user);
+        return pipelineMetrics.time(PipelineStage.PARSING, brokerageLabel,
+            () -> parseWithGenericParser(fileData, brokerage, user));
     }
     
     /**
@@ -0,0 +1,64 @@
+package com.olisystem.optionsmanager.service.invoice.parser;
+
+import com.olisystem.optionsmanager.model.brokerage.Brokerage;
+import com.olisystem.optionsmanager.repository.BrokerageRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Reconhecimento da corretora pelo texto extraído da nota
+ * ✅ NOVO: Padrões e CNPJs antes privados do OcrController, reutilizados pela importação de ZIP
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Component
+@RequiredArgsConstructor
+public class BrokerageTextDetector {
+
+    /**
+     * CNPJs reais das corretoras reconhecidas pelo texto da nota
+     */
+    private static final Map<String, String> KNOWN_BROKERAGE_CNPJS = Map.of(
+        "BTG Pactual", "42.815.158/0001-22",
+        "Clear", "02.332.886/0001-04",
+        "Rico", "03.509.645/0001-23",
+        "Toro", "26.563.455/0001-20"
+    );
+
+    private final BrokerageRepository brokerageRepository;
+
+    /**
+     * 🔍 Nome da corretora reconhecida pelos padrões de texto (null se nenhuma)
+     */
+    public static String detectName(String text) {
+        if (text.contains("BTG Pactual") || text.contains("BTG PACTUAL")) {
+            return "BTG Pactual";
+        } else if (text.contains("CLEAR") || text.contains("Clear Corretora") || text.contains("XP INVESTIMENTOS")) {
+            return "Clear";
+        } else if (text.contains("RICO") || text.contains("Rico Investimentos")) {
+            return "Rico";
+        } else if (text.contains("TORO") || text.contains("Toro Investimentos")) {
+            return "Toro";
+        }
+        return null;
+    }
+
+    /**
+     * CNPJ conhecido para o nome reconhecido (null se desconhecido)
+     */
+    public static String cnpjOf(String brokerageName) {
+        return brokerageName != null ? KNOWN_BROKERAGE_CNPJS.get(brokerageName) : null;
+    }
+
+    /**
+     * Corretora cadastrada correspondente ao texto, se reconhecida
+     */
+    public Optional<Brokerage> detect(String text) {
+        String cnpj = cnpjOf(detectName(text));
+        return cnpj != null ? brokerageRepository.findByCnpj(cnpj) : Optional.empty();
+    }
+}
@@ -0,0 +1,82 @@
+package com.olisystem.optionsmanager.service.invoice.parser;
+
+import com.olisystem.optionsmanager.service.invoice.processing.metrics.PipelineMetrics;
+import com.olisystem.optionsmanager.service.invoice.processing.metrics.PipelineStage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Extração de texto de PDFs de notas de corretagem (PDFBox)
+ * ✅ NOVO: Compartilhado entre o upload OCR e a importação de arquivos ZIP;
+ * o hash de duplicidade é sempre calculado sobre o texto extraído
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PdfTextExtractor {
+
+    private final PipelineMetrics pipelineMetrics;
+
+    /**
+     * 📄 Extrai o texto do PDF; a medição é rotulada pela corretora reconhecida no texto
+     */
+    public String extractText(InputStream pdf) throws IOException {
+        log.debug("📄 Extraindo texto do PDF...");
+        long started = System.nanoTime();
+
+        try (PDDocument document = PDDocument.load(pdf)) {
+            PDFTextStripper stripper = new PDFTextStripper();
+
+            // Configurações para melhor extração
+            stripper.setSortByPosition(true);
+            stripper.setLineSeparator("\n");
+
+            String text = stripper.getText(document);
+
+            log.debug("✅ Texto extraído: {} páginas, {} caracteres",
+                     document.getNumberOfPages(), text.length());
+
+            // Corretora só é conhecida após a extração - rotular pelo texto
+            String detectedName = BrokerageTextDetector.detectName(text);
+            pipelineMetrics.record(PipelineStage.PDF_EXTRACTION, detectedName, System.nanoTime() - started, true);
+            return text;
+        } catch (IOException e) {
+            pipelineMetrics.record(PipelineStage.PDF_EXTRACTION, null, System.nanoTime() - started, false);
+            throw e;
+        }
+    }
+
+    /**
+     * 🔐 Hash SHA-256 (hex) do texto extraído (compatível com InvoiceUtils)
+     */
+    public static String hashText(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hashBytes = digest.digest(content.getBytes(StandardCharsets.UTF_8));
+
+            StringBuilder hexString = new StringBuilder();
+            for (byte b : hashBytes) {
+                String hex = Integer.toHexString(0xff & b);
+                if (hex.length() == 1) {
+                    hexString.append('0');
+                }
+                hexString.append(hex);
+            }
+            return hexString.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 não disponível", e);
+        }
+    }
+}
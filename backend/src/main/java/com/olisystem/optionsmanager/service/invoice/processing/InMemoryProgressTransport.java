@@ -0,0 +1,31 @@
+package com.olisystem.optionsmanager.service.invoice.processing;
+
+import com.olisystem.optionsmanager.dto.invoice.ProcessingProgressEvent;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Transporte de progresso em memória (instância única)
+ * Padrão quando app.invoice.progress.transport não está definido.
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.invoice.progress", name = "transport", havingValue = "memory", matchIfMissing = true)
+public class InMemoryProgressTransport implements ProgressTransport {
+
+    private volatile BiConsumer<String, ProcessingProgressEvent> receiver = (sessionId, event) -> { };
+
+    @Override
+    public void publish(String sessionId, ProcessingProgressEvent event) {
+        receiver.accept(sessionId, event);
+    }
+
+    @Override
+    public void subscribe(BiConsumer<String, ProcessingProgressEvent> receiver) {
+        this.receiver = receiver;
+    }
+}
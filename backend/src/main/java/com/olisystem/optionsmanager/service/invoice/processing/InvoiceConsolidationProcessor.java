@@ -5,6 +5,7 @@ import com.olisystem.optionsmanager.dto.operation.OperationFinalizationRequest;
 import com.olisystem.optionsmanager.dto.option.OptionDataResponseDto;
 import com.olisystem.optionsmanager.model.Asset.Asset;
 import com.olisystem.optionsmanager.model.auth.User;
+import com.olisystem.optionsmanager.model.enums.OperationMappingType;
 import com.olisystem.optionsmanager.model.invoice.Invoice;
 import com.olisystem.optionsmanager.model.invoice.InvoiceItem;
 import com.olisystem.optionsmanager.model.invoice.InvoiceProcessingLog;
@@ -16,13 +17,17 @@ import com.olisystem.optionsmanager.model.operation.TradeType;
 import com.olisystem.optionsmanager.model.option_serie.OptionSerie;
 import com.olisystem.optionsmanager.model.position.Position;
 import com.olisystem.optionsmanager.model.transaction.TransactionType;
-import com.olisystem.optionsmanager.repository.InvoiceItemRepository;
-import com.olisystem.optionsmanager.repository.InvoiceRepository;
 import com.olisystem.optionsmanager.repository.OperationRepository;
 import com.olisystem.optionsmanager.repository.optionSerie.OptionSerieRepository;
 import com.olisystem.optionsmanager.repository.position.PositionRepository;
 import com.olisystem.optionsmanager.service.asset.AssetService;
+import com.olisystem.optionsmanager.service.invoice.processing.context.InvoiceBatchContext;
+import com.olisystem.optionsmanager.service.invoice.processing.context.InvoiceBatchContextLoader;
+import com.olisystem.optionsmanager.service.invoice.processing.detection.FillNettingService;
+import com.olisystem.optionsmanager.service.invoice.processing.detection.NettedFill;
 import com.olisystem.optionsmanager.service.invoice.processing.log.InvoiceProcessingLogService;
+import com.olisystem.optionsmanager.service.invoice.processing.metrics.PipelineMetrics;
+import com.olisystem.optionsmanager.service.invoice.processing.metrics.PipelineStage;
 import com.olisystem.optionsmanager.service.operation.OperationService;
 import com.olisystem.optionsmanager.service.option_series.OptionSerieService;
 import lombok.RequiredArgsConstructor;
@@ -32,6 +37,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -49,8 +55,7 @@ import java.util.UUID;
 @Slf4j
 public class InvoiceConsolidationProcessor {
 
-    private final InvoiceRepository invoiceRepository;
-    private final InvoiceItemRepository invoiceItemRepository;
+    private final InvoiceBatchContextLoader contextLoader;
     private final InvoiceToOperationMapper mapper;
     private final OperationService operationService;
     private final OperationRepository operationRepository;
@@ -64,6 +69,13 @@ public class InvoiceConsolidationProcessor {
     
     // ✅ NOVO: Serviço de logs de processamento
     private final InvoiceProcessingLogService processingLogService;
+    
+    // ✅ NOVO: Agrupamento de execuções parciais e reserva idempotente de itens
+    private final FillNettingService fillNettingService;
+    private final InvoiceItemClaimService claimService;
+    
+    // ✅ NOVO: Timers por etapa do pipeline
+    private final PipelineMetrics pipelineMetrics;
 
     /**
      * Processa invoices com sistema de consolidação
@@ -74,28 +86,53 @@ public class InvoiceConsolidationProcessor {
     @Transactional(readOnly = false)
     public ConsolidationResult processInvoicesWithConsolidation(List<UUID> invoiceIds, User currentUser, 
                                                              String sessionId, ProcessingProgressService progressService) {
-        log.info("🔄 Processando {} invoices com sistema de consolidação", invoiceIds.size());
+        InvoiceBatchContext context = contextLoader.load(invoiceIds);
+        
+        List<UUID> missingIds = invoiceIds.stream()
+            .filter(id -> context.findInvoice(id).isEmpty())
+            .toList();
+        if (!missingIds.isEmpty()) {
+            log.error("❌ Invoices não encontradas: {}", missingIds);
+            ConsolidationResult result = ConsolidationResult.builder()
+                .success(false)
+                .totalInvoices(invoiceIds.size())
+                .consolidatedOperationsCount(0)
+                .build();
+            result.setErrorMessage("Erro interno: Invoice não encontrada: " + missingIds.get(0));
+            return result;
+        }
+        
+        return processInvoicesWithConsolidation(context, currentUser, sessionId, progressService);
+    }
+
+    /**
+     * Processa invoices com sistema de consolidação sobre o snapshot já carregado do lote
+     * ✅ NOVO: Invoices e itens vêm do contexto - nenhuma recarga por invoice
+     */
+    @Transactional(readOnly = false)
+    public ConsolidationResult processInvoicesWithConsolidation(InvoiceBatchContext context, User currentUser, 
+                                                             String sessionId, ProcessingProgressService progressService) {
+        log.info("🔄 Processando {} invoices com sistema de consolidação", context.getInvoiceCount());
         log.info("👤 Usuário: {}", currentUser.getEmail());
         
         ConsolidationResult result = ConsolidationResult.builder()
             .success(true)
-            .totalInvoices(invoiceIds.size())
+            .totalInvoices(context.getInvoiceCount())
             .consolidatedOperationsCount(0)
             .build();
         
         try {
-            for (UUID invoiceId : invoiceIds) {
+            for (Invoice invoice : context.getInvoices()) {
+                UUID invoiceId = invoice.getId();
                 log.info("📋 Processando invoice: {}", invoiceId);
-                
-                Invoice invoice = invoiceRepository.findById(invoiceId)
-                    .orElseThrow(() -> new RuntimeException("Invoice não encontrada: " + invoiceId));
-                
                 log.info("📄 Invoice encontrada: {} - {}", invoice.getInvoiceNumber(), invoice.getTradingDate());
+                pipelineMetrics.setCurrentBrokerage(PipelineMetrics.brokerageLabel(invoice));
                 
                 // ✅ NOVO: Buscar ou criar log de processamento para esta invoice
-                InvoiceProcessingLog processingLog = processingLogService.createProcessingLog(invoice, currentUser);
+                InvoiceProcessingLog processingLog = pipelineMetrics.time(PipelineStage.LOG_WRITE,
+                    () -> processingLogService.createProcessingLog(invoice, currentUser));
                 
-                List<InvoiceItem> items = invoiceItemRepository.findByInvoiceIdWithAllRelations(invoiceId);
+                List<InvoiceItem> items = new ArrayList<>(context.getItems(invoiceId));
                 log.info("📦 Invoice {} tem {} items", invoiceId, items.size());
                 
                 if (items.isEmpty()) {
@@ -117,23 +154,40 @@ public class InvoiceConsolidationProcessor {
                 log.info("📋 Itens ordenados por sequenceNumber: {}", 
                     items.stream().map(item -> item.getSequenceNumber() + "(" + item.getOperationType() + ")").collect(java.util.stream.Collectors.joining(", ")));
                 
+                // ✅ OTIMIZAÇÃO: Agrupar execuções parciais do mesmo lado/série em uma operação por preço médio
+                List<NettedFill> fills = fillNettingService.netFills(items);
+                
                 // ✅ NOVO: Contadores para esta invoice
                 int operationsCreatedForInvoice = 0;
                 int operationsSkippedForInvoice = 0;
                 
                 int operationCounter = 0;
-                for (InvoiceItem item : items) {
+                for (NettedFill candidateFill : fills) {
                     operationCounter++;
+                    
+                    // ✅ NOVO: Reservar os itens antes de criar a operação - itens já processados são ignorados
+                    List<InvoiceItem> claimedItems = pipelineMetrics.time(PipelineStage.DUPLICATE_DETECTION,
+                        () -> claimService.claim(candidateFill.getSourceItems()));
+                    if (claimedItems.isEmpty()) {
+                        log.info("⏭️ Itens {} da invoice {} já processados - ignorando", 
+                            candidateFill.getSequenceLabel(), invoiceId);
+                        operationsSkippedForInvoice++;
+                        continue;
+                    }
+                    NettedFill fill = claimedItems.size() == candidateFill.getSourceItems().size()
+                        ? candidateFill : fillNettingService.netFills(claimedItems).get(0);
+                    InvoiceItem item = fill.getPrimaryItem();
+                    
                     try {
-                        log.info("🔄 Processando item {}/{} (sequence: {}) da invoice {}", 
-                            operationCounter, items.size(), item.getSequenceNumber(), invoiceId);
+                        log.info("🔄 Processando execução {}/{} (sequence: {}) da invoice {}", 
+                            operationCounter, fills.size(), fill.getSequenceLabel(), invoiceId);
                         
                         // ✅ NOVO: Emitir evento de processamento
                         if (sessionId != null && progressService != null) {
                             String invoiceIdStr = invoice.getId().toString();
                             String invoiceNumber = invoice.getInvoiceNumber();
-                            progressService.emitProcessing(sessionId, invoiceIdStr, invoiceNumber, operationCounter, items.size());
-                            log.debug("📡 Evento de processamento emitido: operação {}/{}", operationCounter, items.size());
+                            progressService.emitProcessing(sessionId, invoiceIdStr, invoiceNumber, operationCounter, fills.size());
+                            log.debug("📡 Evento de processamento emitido: operação {}/{}", operationCounter, fills.size());
                         }
                         log.info("📋 Mapeando item {} para OperationDataRequest", item.getSequenceNumber());
                         
@@ -144,6 +198,7 @@ public class InvoiceConsolidationProcessor {
                         }
                         
                         OperationDataRequest operationRequest = mapper.mapToOperationRequest(item);
+                        applyNetting(operationRequest, fill);
                         log.info("✅ Item {} mapeado com TransactionType: {}", item.getSequenceNumber(), operationRequest.getTransactionType());
                         log.info("🔍 Validando OperationDataRequest para item {}", item.getSequenceNumber());
                         validateOperationRequest(operationRequest);
@@ -163,19 +218,23 @@ public class InvoiceConsolidationProcessor {
                         // ✅ CORREÇÃO: Usar o TransactionType já mapeado pelo InvoiceToOperationMapper
                         TransactionType transactionType = operationRequest.getTransactionType();
 
-                        OptionDataResponseDto optionDataResponseDto = optionSerieService.buscarOpcaoInfo(operationRequest.getOptionSeriesCode());
+                        OptionDataResponseDto optionDataResponseDto = pipelineMetrics.timeChecked(PipelineStage.SERIES_LOOKUP_REMOTE,
+                            () -> optionSerieService.buscarOpcaoInfo(operationRequest.getOptionSeriesCode()));
                         operationRequest.setBaseAssetCode(optionDataResponseDto.getBaseAsset());
                         operationRequest.setBaseAssetName(optionDataResponseDto.getBaseAssetName());
                         operationRequest.setBaseAssetLogoUrl(optionDataResponseDto.getBaseAssetUrlLogo());
                         operationRequest.setBaseAssetType(optionDataResponseDto.getBaseAssetType());
                         Asset asset = assetService.findOrCreateAsset(operationRequest);
-                        OptionSerie optionSerie = optionSerieService.findOrCreateOptionSerie(operationRequest, asset);
+                        OptionSerie optionSerie = pipelineMetrics.time(PipelineStage.SERIES_LOOKUP_LOCAL,
+                            () -> optionSerieService.findOrCreateOptionSerie(operationRequest, asset));
 
                         if(transactionType == TransactionType.BUY){
 
                         // CHAMADA REAL: criar operação e adicionar ID real ao resultado
-                            Operation operation = operationService.createOperation(operationRequest, currentUser);
+                            Operation operation = pipelineMetrics.time(PipelineStage.OPERATION_CREATION,
+                                () -> operationService.createOperation(operationRequest, currentUser));
                             log.info("✅ Operação criada: {} - TransactionType: {}", operation.getId(), operation.getTransactionType());
+                            claimService.complete(fill.getSourceItems(), operation, OperationMappingType.NEW_OPERATION);
                         result.incrementConsolidatedOperations();
                         operationsCreatedForInvoice++;
                         log.info("📈 Contador de operações incrementado: {} (invoice: {})", result.getConsolidatedOperationsCount(), operationsCreatedForInvoice);
@@ -184,20 +243,23 @@ public class InvoiceConsolidationProcessor {
                         if (sessionId != null && progressService != null) {
                             String invoiceIdStr = invoice.getId().toString();
                             String invoiceNumber = invoice.getInvoiceNumber();
-                            progressService.emitCompleted(sessionId, invoiceIdStr, invoiceNumber, operationCounter, items.size());
-                            log.debug("📡 Evento de conclusão emitido: operação {}/{}", operationCounter, items.size());
+                            progressService.emitCompleted(sessionId, invoiceIdStr, invoiceNumber, operationCounter, fills.size());
+                            log.debug("📡 Evento de conclusão emitido: operação {}/{}", operationCounter, fills.size());
                         }
                         } else {
 
                                                       // ✅ CORREÇÃO: Buscar posição em vez de operação com status ACTIVE
                             // Buscar posição aberta para este ativo
-                            Optional<Position> openPosition = positionRepository.findOpenPositionByUserAndOptionSeriesAndBrokerage(
-                                currentUser, optionSerie, invoice.getBrokerage());
+                            Optional<Position> openPosition = pipelineMetrics.time(PipelineStage.POSITION_UPDATE,
+                                () -> positionRepository.findOpenPositionByUserAndOptionSeriesAndBrokerage(
+                                    currentUser, optionSerie, invoice.getBrokerage()));
                             
                             if(openPosition.isEmpty()){
                                 log.warn("⚠️ Posição não encontrada para saída: {} - criando operação de saída direta", item.getAssetCode());
                                 // ✅ CORREÇÃO: Criar operação diretamente sem passar pelo fluxo de estratégia
-                                Operation operation = createDirectOperation(operationRequest, currentUser);
+                                Operation operation = pipelineMetrics.time(PipelineStage.OPERATION_CREATION,
+                                    () -> createDirectOperation(operationRequest, currentUser));
+                                claimService.complete(fill.getSourceItems(), operation, OperationMappingType.NEW_OPERATION);
                                 
                                 log.info("✅ Operação de saída criada: {} - TransactionType: {}, Status: {}", 
                                     operation.getId(), operation.getTransactionType(), operation.getStatus());
@@ -209,8 +271,8 @@ public class InvoiceConsolidationProcessor {
                                 if (sessionId != null && progressService != null) {
                                     String invoiceIdStr = invoice.getId().toString();
                                     String invoiceNumber = invoice.getInvoiceNumber();
-                                    progressService.emitCompleted(sessionId, invoiceIdStr, invoiceNumber, operationCounter, items.size());
-                                    log.debug("📡 Evento de conclusão emitido: operação {}/{}", operationCounter, items.size());
+                                    progressService.emitCompleted(sessionId, invoiceIdStr, invoiceNumber, operationCounter, fills.size());
+                                    log.debug("📡 Evento de conclusão emitido: operação {}/{}", operationCounter, fills.size());
                                 }
                                 continue;
                             }
@@ -225,7 +287,9 @@ public class InvoiceConsolidationProcessor {
                                     position.getId(), position.getRemainingQuantity());
                                 
                                 // Criar operação de saída direta quando a posição já foi fechada
-                                Operation operation = createDirectOperation(operationRequest, currentUser);
+                                Operation operation = pipelineMetrics.time(PipelineStage.OPERATION_CREATION,
+                                    () -> createDirectOperation(operationRequest, currentUser));
+                                claimService.complete(fill.getSourceItems(), operation, OperationMappingType.NEW_OPERATION);
                                 
                                 log.info("✅ Operação de saída criada (posição fechada): {} - TransactionType: {}, Status: {}", 
                                     operation.getId(), operation.getTransactionType(), operation.getStatus());
@@ -302,6 +366,7 @@ public class InvoiceConsolidationProcessor {
                                 
                                 if (consolidatedEntryOperation == null) {
                                     log.error("❌ Nenhuma operação válida encontrada para saída: {}", item.getAssetCode());
+                                    claimService.release(fill.getSourceItems());
                                     operationsSkippedForInvoice++;
                                     continue;
                                 }
@@ -311,7 +376,12 @@ public class InvoiceConsolidationProcessor {
                                 consolidatedEntryOperation.getId(), consolidatedEntryOperation.getStatus(), consolidatedEntryOperation.getQuantity());
                             
                             // ✅ CORREÇÃO: Criar operação de saída usando a estratégia correta
-                            Operation exitOperation = createExitOperation(operationRequest, currentUser, consolidatedEntryOperation, quantityToUse, isTotalExit);
+                            Operation consolidatedEntry = consolidatedEntryOperation;
+                            int exitQuantity = quantityToUse;
+                            boolean totalExit = isTotalExit;
+                            Operation exitOperation = pipelineMetrics.time(PipelineStage.POSITION_UPDATE,
+                                () -> createExitOperation(operationRequest, currentUser, consolidatedEntry, exitQuantity, totalExit));
+                            claimService.complete(fill.getSourceItems(), exitOperation, OperationMappingType.EXISTING_OPERATION_EXIT);
                             
                             log.info("✅ Operação de saída criada: {} - TransactionType: {}, Status: {}", 
                                 exitOperation.getId(), exitOperation.getTransactionType(), exitOperation.getStatus());
@@ -321,17 +391,20 @@ public class InvoiceConsolidationProcessor {
                         }
                         
                     } catch (Exception e) {
-                        log.error("❌ Erro ao processar item {} da invoice {}: {}", item.getSequenceNumber(), invoiceId, e.getMessage(), e);
+                        log.error("❌ Erro ao processar item {} da invoice {}: {}", fill.getSequenceLabel(), invoiceId, e.getMessage(), e);
+                        claimService.release(fill.getSourceItems());
                         operationsSkippedForInvoice++;
-                        result.addError("Erro ao processar item " + item.getSequenceNumber() + ": " + e.getMessage());
+                        result.addError("Erro ao processar item " + fill.getSequenceLabel() + ": " + e.getMessage());
                     }
                 }
                 
                 // ✅ NOVO: Atualizar contadores no log de processamento
-                processingLogService.updateCounters(processingLog, 
-                    operationsCreatedForInvoice, 
+                int createdCount = operationsCreatedForInvoice;
+                int skippedCount = operationsSkippedForInvoice;
+                pipelineMetrics.time(PipelineStage.LOG_WRITE, () -> processingLogService.updateCounters(processingLog, 
+                    createdCount, 
                     0, // operationsUpdated - não implementado ainda
-                    operationsSkippedForInvoice);
+                    skippedCount));
                 
                 log.info("📊 Invoice {} processada: {} operações criadas, {} ignoradas", 
                     invoice.getInvoiceNumber(), operationsCreatedForInvoice, operationsSkippedForInvoice);
@@ -343,11 +416,27 @@ public class InvoiceConsolidationProcessor {
             log.error("❌ Erro durante processamento de consolidação: {}", e.getMessage(), e);
             result.setSuccess(false);
             result.setErrorMessage("Erro interno: " + e.getMessage());
+        } finally {
+            // ✅ CORREÇÃO: Não deixar o rótulo da corretora na thread (pool) após sucesso ou erro
+            pipelineMetrics.setCurrentBrokerage(null);
         }
         
         return result;
     }
 
+    /**
+     * ✅ OTIMIZAÇÃO: Aplica quantidade e preço médio da execução agrupada ao request
+     */
+    private void applyNetting(OperationDataRequest request, NettedFill fill) {
+        if (!fill.isNetted()) {
+            return;
+        }
+        request.setQuantity(fill.getQuantity());
+        request.setEntryUnitPrice(fill.getUnitPrice());
+        log.info("🧮 Itens {} agrupados: quantidade={}, preço médio={}", 
+            fill.getSequenceLabel(), fill.getQuantity(), fill.getUnitPrice());
+    }
+
     /**
      * ✅ NOVO MÉTODO: Validação básica do OperationDataRequest
      */
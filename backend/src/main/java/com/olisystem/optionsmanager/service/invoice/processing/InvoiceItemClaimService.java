@@ -0,0 +1,77 @@
+package com.olisystem.optionsmanager.service.invoice.processing;
+
+import com.olisystem.optionsmanager.model.enums.OperationMappingType;
+import com.olisystem.optionsmanager.model.invoice.InvoiceItem;
+import com.olisystem.optionsmanager.model.operation.Operation;
+import com.olisystem.optionsmanager.repository.OperationSourceMappingRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Reserva de invoice items antes da criação de operações
+ * O mapeamento em operation_source_mapping é único por item: reservar, vincular a operação
+ * e liberar em caso de falha torna o processamento de cada item idempotente, mesmo com
+ * reprocessamentos, retentativas ou lotes concorrentes.
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-20
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InvoiceItemClaimService {
+
+    private final OperationSourceMappingRepository sourceMappingRepository;
+
+    /**
+     * Reserva os itens informados e retorna apenas os que ainda não foram processados
+     */
+    @Transactional
+    public List<InvoiceItem> claim(List<InvoiceItem> items) {
+        if (items.isEmpty()) {
+            return List.of();
+        }
+
+        Set<UUID> claimedIds = new HashSet<>(sourceMappingRepository.claimInvoiceItems(
+            items.stream().map(InvoiceItem::getId).toList()));
+
+        List<InvoiceItem> claimed = items.stream()
+            .filter(item -> claimedIds.contains(item.getId()))
+            .toList();
+
+        if (claimed.size() < items.size()) {
+            log.info("⏭️ {} de {} itens já processados ou reservados - ignorados", 
+                items.size() - claimed.size(), items.size());
+        }
+        return claimed;
+    }
+
+    /**
+     * Vincula a operação criada aos itens reservados
+     */
+    @Transactional
+    public void complete(List<InvoiceItem> items, Operation operation, OperationMappingType mappingType) {
+        int linked = sourceMappingRepository.linkClaimedItems(
+            items.stream().map(InvoiceItem::getId).toList(), operation, mappingType, mappingType.getDescription());
+        log.debug("🔗 {} itens vinculados à operação {} ({})", linked, operation.getId(), mappingType);
+    }
+
+    /**
+     * Libera a reserva de itens que não geraram operação, permitindo nova tentativa
+     */
+    @Transactional
+    public void release(List<InvoiceItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        int released = sourceMappingRepository.releaseClaimedItems(items.stream().map(InvoiceItem::getId).toList());
+        log.debug("↩️ {} reservas liberadas", released);
+    }
+}
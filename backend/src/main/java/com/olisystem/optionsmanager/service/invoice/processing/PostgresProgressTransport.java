@@ -0,0 +1,237 @@
+package com.olisystem.optionsmanager.service.invoice.processing;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.olisystem.optionsmanager.config.invoice.InvoiceConfigurationProperties;
+import com.olisystem.optionsmanager.dto.invoice.ProcessingProgressEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * Transporte de progresso via PostgreSQL LISTEN/NOTIFY
+ * Permite que qualquer instância atrás do balanceador sirva o SSE de uma sessão,
+ * independentemente de qual instância está processando as invoices.
+ * Usa duas conexões dedicadas (fora do pool): uma para NOTIFY, outra para LISTEN.
+ * A publicação é feita em uma única thread, o que preserva a ordem dos eventos.
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.invoice.progress", name = "transport", havingValue = "postgres")
+@Slf4j
+public class PostgresProgressTransport implements ProgressTransport {
+
+    /**
+     * O payload do NOTIFY é limitado a 8000 bytes
+     */
+    private static final int MAX_PAYLOAD_BYTES = 7900;
+    private static final int MAX_MESSAGE_LENGTH = 500;
+    private static final int LISTEN_POLL_TIMEOUT_MS = 500;
+    private static final long RECONNECT_DELAY_MS = 2000;
+    private static final Pattern CHANNEL_NAME = Pattern.compile("[a-z_][a-z0-9_]{0,62}");
+
+    private final DataSourceProperties dataSourceProperties;
+    private final ObjectMapper compactMapper;
+    private final String channel;
+
+    private final ExecutorService publisher = Executors.newSingleThreadExecutor(daemon("progress-notify"));
+    private final Thread listener;
+
+    private volatile BiConsumer<String, ProcessingProgressEvent> receiver = (sessionId, event) -> { };
+    private volatile boolean running = true;
+
+    // Acessada apenas pela thread de publicação
+    private Connection publishConnection;
+
+    public PostgresProgressTransport(DataSourceProperties dataSourceProperties,
+                                     ObjectMapper objectMapper,
+                                     InvoiceConfigurationProperties invoiceProperties) {
+        this.dataSourceProperties = dataSourceProperties;
+        this.compactMapper = objectMapper.copy().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        this.channel = invoiceProperties.getProgress().getNotifyChannel();
+        if (!CHANNEL_NAME.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Nome de canal NOTIFY inválido: " + channel);
+        }
+
+        this.listener = daemon("progress-listen").newThread(this::listenLoop);
+        this.listener.start();
+        log.info("🔧 Transporte de progresso via PostgreSQL LISTEN/NOTIFY no canal '{}'", channel);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        listener.interrupt();
+        publisher.shutdown();
+        try {
+            publisher.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeQuietly(publishConnection);
+    }
+
+    /**
+     * Publica de forma assíncrona - a thread de processamento não espera o banco
+     */
+    @Override
+    public void publish(String sessionId, ProcessingProgressEvent event) {
+        String payload = encode(sessionId, event);
+        if (payload == null) {
+            return;
+        }
+        publisher.execute(() -> sendNotification(payload));
+    }
+
+    @Override
+    public void subscribe(BiConsumer<String, ProcessingProgressEvent> receiver) {
+        this.receiver = receiver;
+    }
+
+    /**
+     * Codifica o evento como JSON compacto {"s": sessionId, "e": evento sem campos nulos}
+     * Se exceder o limite do NOTIFY, descarta os detalhes e encurta a mensagem.
+     */
+    String encode(String sessionId, ProcessingProgressEvent event) {
+        try {
+            ObjectNode node = compactMapper.createObjectNode();
+            node.put("s", sessionId);
+            ObjectNode eventNode = compactMapper.valueToTree(event);
+            node.set("e", eventNode);
+
+            String payload = compactMapper.writeValueAsString(node);
+            if (payload.getBytes(StandardCharsets.UTF_8).length <= MAX_PAYLOAD_BYTES) {
+                return payload;
+            }
+
+            eventNode.remove("details");
+            JsonNode message = eventNode.get("message");
+            if (message != null && message.asText().length() > MAX_MESSAGE_LENGTH) {
+                eventNode.put("message", message.asText().substring(0, MAX_MESSAGE_LENGTH) + "...");
+            }
+            payload = compactMapper.writeValueAsString(node);
+            if (payload.getBytes(StandardCharsets.UTF_8).length <= MAX_PAYLOAD_BYTES) {
+                return payload;
+            }
+
+            log.warn("⚠️ Evento de progresso da sessão {} excede o limite do NOTIFY e foi descartado", sessionId);
+            return null;
+        } catch (Exception e) {
+            log.error("❌ Erro ao codificar evento de progresso: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private void sendNotification(String payload) {
+        try {
+            if (publishConnection == null || publishConnection.isClosed()) {
+                publishConnection = openConnection();
+            }
+            try (PreparedStatement statement = publishConnection.prepareStatement("SELECT pg_notify(?, ?)")) {
+                statement.setString(1, channel);
+                statement.setString(2, payload);
+                statement.execute();
+            }
+        } catch (SQLException e) {
+            // Progresso é best-effort: o evento é descartado e a conexão reaberta no próximo envio
+            log.warn("⚠️ Falha ao publicar progresso via NOTIFY: {}", e.getMessage());
+            closeQuietly(publishConnection);
+            publishConnection = null;
+        }
+    }
+
+    private void listenLoop() {
+        while (running) {
+            try (Connection connection = openConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                log.info("📡 Escutando progresso no canal '{}'", channel);
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(LISTEN_POLL_TIMEOUT_MS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        deliver(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    break;
+                }
+                log.warn("⚠️ Conexão LISTEN perdida, reconectando em {} ms: {}", RECONNECT_DELAY_MS, e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+    }
+
+    private void deliver(String payload) {
+        try {
+            JsonNode node = compactMapper.readTree(payload);
+            String sessionId = node.path("s").asText(null);
+            ProcessingProgressEvent event = compactMapper.treeToValue(node.get("e"), ProcessingProgressEvent.class);
+            if (sessionId != null && event != null) {
+                receiver.accept(sessionId, event);
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ Notificação de progresso ignorada: {}", e.getMessage());
+        }
+    }
+
+    private Connection openConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection(
+            dataSourceProperties.determineUrl(),
+            dataSourceProperties.determineUsername(),
+            dataSourceProperties.determinePassword());
+        connection.setAutoCommit(true);
+        return connection;
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.debug("Erro ao fechar conexão de progresso: {}", e.getMessage());
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -4,18 +4,27 @@ import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.olisystem.optionsmanager.dto.invoice.ProcessingProgressEvent;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 /**
  * Serviço para gerenciar progresso do processamento de invoices
  * ✅ INTEGRAÇÃO: Sistema de progresso em tempo real
+ * ✅ OTIMIZAÇÃO: Barramento por sessão com buffer circular (replay via Last-Event-ID),
+ * entrega assíncrona fora da thread de processamento e coalescência dos eventos PROCESSING
+ * ✅ NOVO: Eventos passam por um {@link ProgressTransport} (memória ou PostgreSQL LISTEN/NOTIFY),
+ * permitindo que qualquer instância sirva o SSE de uma sessão
  * 
  * @author Sistema de Gestão de Opções
  * @since 2025-07-21
@@ -24,56 +33,111 @@ import java.util.function.Consumer;
 @Slf4j
 public class ProcessingProgressService {
     
+    /**
+     * Eventos mantidos por sessão para replay
+     */
+    private static final int EVENT_BUFFER_CAPACITY = 256;
+    
+    /**
+     * Intervalo de publicação dos eventos PROCESSING coalescidos
+     */
+    private static final long COALESCE_INTERVAL_MS = 250;
+    
+    /**
+     * Sessões sem assinantes e sem atividade são descartadas após este tempo
+     */
+    private static final long IDLE_SESSION_TTL_MS = TimeUnit.MINUTES.toMillis(10);
+    
     private final ObjectMapper objectMapper;
+    private final ProgressTransport transport;
+    
+    /**
+     * Canais de eventos por session ID (lado de quem serve o SSE)
+     */
+    private final ConcurrentHashMap<String, ProgressEventChannel> channels = new ConcurrentHashMap<>();
+    
+    /**
+     * Eventos PROCESSING aguardando publicação por session ID (lado de quem processa)
+     */
+    private final ConcurrentHashMap<String, PendingPublication> pendingPublications = new ConcurrentHashMap<>();
+    
+    private final ExecutorService dispatcher = Executors.newFixedThreadPool(4, daemonThreadFactory("progress-dispatch-"));
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreadFactory("progress-coalesce-"));
     
-    public ProcessingProgressService(ObjectMapper objectMapper) {
+    public ProcessingProgressService(ObjectMapper objectMapper, ProgressTransport transport) {
         this.objectMapper = objectMapper;
+        this.transport = transport;
         // Configurar UTF-8 corretamente
         this.objectMapper.configure(JsonGenerator.Feature.ESCAPE_NON_ASCII, false);
         
+        scheduler.scheduleAtFixedRate(this::flushCoalescedEvents, 
+            COALESCE_INTERVAL_MS, COALESCE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        scheduler.scheduleAtFixedRate(this::evictIdleSessions, 1, 1, TimeUnit.MINUTES);
+        
+        // Eventos publicados por qualquer instância alimentam o canal local da sessão
+        transport.subscribe((sessionId, event) -> channelFor(sessionId).publish(event));
+        
         // Log da configuração
         log.info("🔧 ProcessingProgressService configurado com UTF-8");
     }
     
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        dispatcher.shutdownNow();
+    }
+    
     /**
-     * Callbacks de progresso por session ID
+     * Assinatura de progresso de uma conexão
      */
-    private final ConcurrentHashMap<String, CopyOnWriteArrayList<Consumer<ProcessingProgressEvent>>> progressCallbacks = 
-        new ConcurrentHashMap<>();
+    public interface ProgressSubscription {
+        void cancel();
+    }
     
     /**
      * Registra um callback de progresso para uma sessão
+     * Eventos já emitidos e ainda no buffer são reenviados ao novo assinante.
      */
-    public void registerProgressCallback(String sessionId, Consumer<ProcessingProgressEvent> callback) {
-        progressCallbacks.computeIfAbsent(sessionId, k -> new CopyOnWriteArrayList<>()).add(callback);
-        log.debug("📡 Callback de progresso registrado para sessão: {}", sessionId);
+    public ProgressSubscription registerProgressCallback(String sessionId, Consumer<ProcessingProgressEvent> callback) {
+        return registerProgressCallback(sessionId, 0L, sequenced -> callback.accept(sequenced.event()));
+    }
+    
+    /**
+     * Registra um callback de progresso reenviando os eventos posteriores a lastEventId
+     */
+    public ProgressSubscription registerProgressCallback(String sessionId, long lastEventId, 
+                                                         Consumer<SequencedProgressEvent> callback) {
+        ProgressEventChannel channel = channelFor(sessionId);
+        ProgressEventChannel.Subscriber subscriber = channel.subscribe(lastEventId, callback);
+        log.debug("📡 Callback de progresso registrado para sessão: {} (replay após evento {})", sessionId, lastEventId);
+        return () -> channel.unsubscribe(subscriber);
     }
     
     /**
      * Remove callbacks de progresso de uma sessão
+     * O buffer de eventos é mantido para permitir reconexão.
      */
     public void unregisterProgressCallbacks(String sessionId) {
-        progressCallbacks.remove(sessionId);
+        ProgressEventChannel channel = channels.get(sessionId);
+        if (channel != null) {
+            channel.clearSubscribers();
+        }
         log.debug("📡 Callbacks de progresso removidos para sessão: {}", sessionId);
     }
     
     /**
      * Emite evento de progresso para uma sessão
+     * ✅ OTIMIZAÇÃO: Apenas publica no transporte - a entrega acontece nas threads de despacho
      */
     public void emitProgressEvent(String sessionId, ProcessingProgressEvent event) {
-        CopyOnWriteArrayList<Consumer<ProcessingProgressEvent>> callbacks = progressCallbacks.get(sessionId);
-        if (callbacks != null) {
-            callbacks.forEach(callback -> {
-                try {
-                    callback.accept(event);
-                    log.debug("📡 Evento de progresso emitido: {} - {}", sessionId, event.getMessage());
-                } catch (Exception e) {
-                    log.error("❌ Erro ao emitir evento de progresso: {}", e.getMessage(), e);
-                }
-            });
-        } else {
-            log.warn("⚠️ Nenhum callback registrado para sessão: {}", sessionId);
+        PendingPublication pending = pendingFor(sessionId);
+        synchronized (pending) {
+            // Publica antes o PROCESSING pendente, preservando a ordem dos eventos
+            publishPending(sessionId, pending);
+            transport.publish(sessionId, event);
+            pending.lastActivityMillis = System.currentTimeMillis();
         }
+        log.debug("📡 Evento de progresso emitido: {} - {}", sessionId, event.getMessage());
     }
     
     /**
@@ -89,7 +153,12 @@ public class ProcessingProgressService {
      */
     public void emitProcessing(String sessionId, String invoiceId, String invoiceNumber, int current, int total) {
         ProcessingProgressEvent event = ProcessingProgressEvent.processing(invoiceId, invoiceNumber, current, total);
-        emitProgressEvent(sessionId, event);
+        // ✅ OTIMIZAÇÃO: Coalescido - apenas o mais recente é publicado a cada intervalo
+        PendingPublication pending = pendingFor(sessionId);
+        synchronized (pending) {
+            pending.coalesced = event;
+            pending.lastActivityMillis = System.currentTimeMillis();
+        }
     }
     
     /**
@@ -152,14 +221,78 @@ public class ProcessingProgressService {
      * Verifica se há callbacks registrados para uma sessão
      */
     public boolean hasCallbacks(String sessionId) {
-        return progressCallbacks.containsKey(sessionId) && !progressCallbacks.get(sessionId).isEmpty();
+        ProgressEventChannel channel = channels.get(sessionId);
+        return channel != null && channel.hasSubscribers();
     }
     
     /**
      * Limpa todas as sessões (útil para testes)
      */
     public void clearAllSessions() {
-        progressCallbacks.clear();
+        channels.clear();
+        pendingPublications.clear();
         log.info("🧹 Todas as sessões de progresso foram limpas");
     }
+    
+    private ProgressEventChannel channelFor(String sessionId) {
+        return channels.computeIfAbsent(sessionId, 
+            id -> new ProgressEventChannel(id, EVENT_BUFFER_CAPACITY, dispatcher));
+    }
+    
+    private PendingPublication pendingFor(String sessionId) {
+        return pendingPublications.computeIfAbsent(sessionId, id -> new PendingPublication());
+    }
+    
+    private void publishPending(String sessionId, PendingPublication pending) {
+        if (pending.coalesced != null) {
+            transport.publish(sessionId, pending.coalesced);
+            pending.coalesced = null;
+        }
+    }
+    
+    /**
+     * Publica os eventos PROCESSING coalescidos de todas as sessões
+     */
+    private void flushCoalescedEvents() {
+        try {
+            pendingPublications.forEach((sessionId, pending) -> {
+                synchronized (pending) {
+                    publishPending(sessionId, pending);
+                }
+            });
+        } catch (Exception e) {
+            log.error("❌ Erro ao publicar eventos coalescidos: {}", e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Descarta sessões sem assinantes e sem atividade recente
+     */
+    private void evictIdleSessions() {
+        long cutoff = System.currentTimeMillis() - IDLE_SESSION_TTL_MS;
+        channels.entrySet().removeIf(entry -> 
+            !entry.getValue().hasSubscribers() && entry.getValue().getLastActivityMillis() < cutoff);
+        pendingPublications.entrySet().removeIf(entry -> {
+            synchronized (entry.getValue()) {
+                return entry.getValue().coalesced == null && entry.getValue().lastActivityMillis < cutoff;
+            }
+        });
+    }
+    
+    /**
+     * Evento PROCESSING mais recente ainda não publicado de uma sessão
+     */
+    private static final class PendingPublication {
+        private ProcessingProgressEvent coalesced;
+        private long lastActivityMillis = System.currentTimeMillis();
+    }
+    
+    private static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
 } 
\ No newline at end of file
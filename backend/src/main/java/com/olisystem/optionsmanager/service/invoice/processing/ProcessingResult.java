@@ -4,7 +4,9 @@ import lombok.Builder;
 import lombok.Data;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -23,6 +25,10 @@ public class ProcessingResult {
     @Builder.Default  
     private List<String> errors = new ArrayList<>();
     
+    // ✅ NOVO: Tempo (ms) gasto em cada etapa do pipeline nesta execução
+    @Builder.Default
+    private Map<String, Long> stageDurationsMs = new LinkedHashMap<>();
+    
     public void addInvoiceResult(InvoiceProcessingResult result) {
         if (invoiceResults == null) {
             invoiceResults = new ArrayList<>();
@@ -0,0 +1,167 @@
+package com.olisystem.optionsmanager.service.invoice.processing;
+
+import com.olisystem.optionsmanager.dto.invoice.ProcessingProgressEvent;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Canal de eventos de progresso de uma sessão
+ * Mantém os últimos eventos em um buffer circular limitado e entrega para os assinantes
+ * de forma serial em uma thread de despacho - nunca na thread que processa as invoices.
+ * O próprio buffer funciona como fila: cada assinante guarda o último ID entregue,
+ * então um navegador lento só perde eventos antigos, sem acumular memória.
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Slf4j
+class ProgressEventChannel {
+
+    private final String sessionId;
+    private final int capacity;
+    private final Executor dispatcher;
+
+    private final ArrayDeque<SequencedProgressEvent> buffer = new ArrayDeque<>();
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+
+    private long nextId = 1;
+    private volatile long lastActivityMillis = System.currentTimeMillis();
+
+    ProgressEventChannel(String sessionId, int capacity, Executor dispatcher) {
+        this.sessionId = sessionId;
+        this.capacity = capacity;
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * Registra um evento recebido do transporte e agenda a entrega
+     */
+    void publish(ProcessingProgressEvent event) {
+        synchronized (this) {
+            append(event);
+        }
+        scheduleDrain();
+    }
+
+    /**
+     * Registra um assinante; eventos do buffer com ID maior que lastEventId são reenviados
+     */
+    Subscriber subscribe(long lastEventId, Consumer<SequencedProgressEvent> callback) {
+        Subscriber subscriber = new Subscriber(callback, lastEventId);
+        synchronized (this) {
+            subscribers.add(subscriber);
+            lastActivityMillis = System.currentTimeMillis();
+        }
+        scheduleDrain();
+        return subscriber;
+    }
+
+    synchronized void unsubscribe(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    synchronized void clearSubscribers() {
+        subscribers.clear();
+    }
+
+    synchronized boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    long getLastActivityMillis() {
+        return lastActivityMillis;
+    }
+
+    private void append(ProcessingProgressEvent event) {
+        if (buffer.size() == capacity) {
+            buffer.pollFirst();
+        }
+        buffer.addLast(new SequencedProgressEvent(nextId++, event));
+        lastActivityMillis = System.currentTimeMillis();
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            dispatcher.execute(this::drain);
+        }
+    }
+
+    /**
+     * Entrega os eventos pendentes a cada assinante, fora do lock do canal
+     */
+    private void drain() {
+        try {
+            List<Delivery> deliveries;
+            while (!(deliveries = collectDeliveries()).isEmpty()) {
+                for (Delivery delivery : deliveries) {
+                    try {
+                        for (SequencedProgressEvent event : delivery.events()) {
+                            delivery.subscriber().callback.accept(event);
+                        }
+                    } catch (Exception e) {
+                        log.warn("⚠️ Assinante removido da sessão {} após falha na entrega: {}", sessionId, e.getMessage());
+                        unsubscribe(delivery.subscriber());
+                    }
+                }
+            }
+        } finally {
+            draining.set(false);
+            if (hasUndelivered()) {
+                scheduleDrain();
+            }
+        }
+    }
+
+    private synchronized List<Delivery> collectDeliveries() {
+        List<Delivery> deliveries = new ArrayList<>();
+        if (buffer.isEmpty()) {
+            return deliveries;
+        }
+        long lastId = buffer.peekLast().id();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.lastDeliveredId >= lastId) {
+                continue;
+            }
+            List<SequencedProgressEvent> events = new ArrayList<>();
+            for (SequencedProgressEvent event : buffer) {
+                if (event.id() > subscriber.lastDeliveredId) {
+                    events.add(event);
+                }
+            }
+            subscriber.lastDeliveredId = lastId;
+            deliveries.add(new Delivery(subscriber, events));
+        }
+        return deliveries;
+    }
+
+    private synchronized boolean hasUndelivered() {
+        if (buffer.isEmpty()) {
+            return false;
+        }
+        long lastId = buffer.peekLast().id();
+        return subscribers.stream().anyMatch(subscriber -> subscriber.lastDeliveredId < lastId);
+    }
+
+    /**
+     * Assinante do canal (um por conexão SSE)
+     */
+    static final class Subscriber {
+        private final Consumer<SequencedProgressEvent> callback;
+        private long lastDeliveredId;
+
+        private Subscriber(Consumer<SequencedProgressEvent> callback, long lastDeliveredId) {
+            this.callback = callback;
+            this.lastDeliveredId = lastDeliveredId;
+        }
+    }
+
+    private record Delivery(Subscriber subscriber, List<SequencedProgressEvent> events) {
+    }
+}
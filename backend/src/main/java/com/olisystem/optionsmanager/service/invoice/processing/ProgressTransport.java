@@ -0,0 +1,27 @@
+package com.olisystem.optionsmanager.service.invoice.processing;
+
+import com.olisystem.optionsmanager.dto.invoice.ProcessingProgressEvent;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Transporte dos eventos de progresso entre quem processa e quem serve o SSE
+ * O {@link ProcessingProgressService} publica por aqui e recebe de volta, em cada nó,
+ * os eventos publicados por qualquer nó - o buffer de replay continua local.
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+public interface ProgressTransport {
+
+    /**
+     * Publica um evento de progresso de uma sessão
+     * Eventos de uma mesma sessão devem chegar aos receptores na ordem de publicação.
+     */
+    void publish(String sessionId, ProcessingProgressEvent event);
+
+    /**
+     * Registra o receptor local dos eventos (sessionId, evento)
+     */
+    void subscribe(BiConsumer<String, ProcessingProgressEvent> receiver);
+}
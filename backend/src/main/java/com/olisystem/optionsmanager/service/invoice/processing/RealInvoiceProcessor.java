@@ -6,10 +6,16 @@ import com.olisystem.optionsmanager.model.invoice.Invoice;
 import com.olisystem.optionsmanager.model.invoice.InvoiceItem;
 import com.olisystem.optionsmanager.model.invoice.InvoiceProcessingLog;
 import com.olisystem.optionsmanager.model.enums.InvoiceProcessingStatus;
+import com.olisystem.optionsmanager.model.enums.OperationMappingType;
 import com.olisystem.optionsmanager.model.operation.Operation;
 import com.olisystem.optionsmanager.repository.InvoiceItemRepository;
 import com.olisystem.optionsmanager.repository.InvoiceRepository;
+import com.olisystem.optionsmanager.service.invoice.processing.context.InvoiceBatchContext;
+import com.olisystem.optionsmanager.service.invoice.processing.context.InvoiceBatchContextLoader;
+import com.olisystem.optionsmanager.service.invoice.processing.detection.FillNettingService;
 import com.olisystem.optionsmanager.service.invoice.processing.log.InvoiceProcessingLogService;
+import com.olisystem.optionsmanager.service.invoice.processing.metrics.PipelineMetrics;
+import com.olisystem.optionsmanager.service.invoice.processing.metrics.PipelineStage;
 import com.olisystem.optionsmanager.service.operation.OperationService;
 import com.olisystem.optionsmanager.service.invoice.processing.InvoiceToOperationMapper;
 import lombok.RequiredArgsConstructor;
@@ -38,12 +44,18 @@ public class RealInvoiceProcessor {
     private final OperationService operationService;
     private final InvoiceToOperationMapper mapper;
     private final InvoiceConsolidationProcessor consolidationProcessor;
+    private final InvoiceBatchContextLoader contextLoader;
+    private final FillNettingService fillNettingService;
+    private final InvoiceItemClaimService claimService;
     
     // ✅ NOVO: Serviço de logs de processamento
     private final InvoiceProcessingLogService processingLogService;
     
     // ✅ NOVO: Serviço de progresso em tempo real
     private final ProcessingProgressService progressService;
+    
+    // ✅ NOVO: Timers por etapa do pipeline
+    private final PipelineMetrics pipelineMetrics;
 
     /**
      * Processa múltiplas invoices de forma assíncrona com consolidação
@@ -65,109 +77,117 @@ public class RealInvoiceProcessor {
                 .totalInvoices(invoiceIds.size())
                 .build();
             
-            try {
-                // ✅ NOVO: Validar se invoices podem ser processadas em lote
-                List<Invoice> validInvoices = validateInvoicesForBatchProcessing(invoiceIds, currentUser);
-                
-                if (validInvoices.isEmpty()) {
-                    log.warn("⚠️ Nenhuma invoice válida para processamento em lote");
-                    result.addError("Nenhuma invoice válida para processamento");
-                    return result;
-                }
-                
-                log.info("📊 {} invoices válidas para processamento em lote", validInvoices.size());
-                
-                // ✅ NOVO: Criar logs de processamento para todas as invoices
-                List<InvoiceProcessingLog> processingLogs = createProcessingLogs(validInvoices, currentUser);
-                
-                // ✅ NOVO: Marcar início do processamento
-                markProcessingStarted(processingLogs);
-                
-                // ✅ NOVO: Emitir evento de início do processamento
-                if (sessionId != null && !sessionId.isEmpty()) {
-                    String firstInvoiceId = validInvoices.get(0).getId().toString();
-                    String firstInvoiceNumber = validInvoices.get(0).getInvoiceNumber();
+            // ✅ NOVO: Contabilizar o tempo por etapa desta execução
+            // ✅ CORREÇÃO: try-with-resources - o estado da thread do pool é limpo mesmo com erro
+            try (PipelineMetrics.SessionScope metricsScope = pipelineMetrics.openSession()) {
+                try {
+                    // ✅ NOVO: Carregar invoices e itens do lote uma única vez
+                    InvoiceBatchContext batchContext = contextLoader.load(invoiceIds);
+                    
+                    // ✅ NOVO: Validar se invoices podem ser processadas em lote
+                    List<Invoice> validInvoices = validateInvoicesForBatchProcessing(batchContext, invoiceIds);
                     
-                    // ✅ CORREÇÃO: Calcular total de operações de forma segura
-                    int totalOperations = 0;
-                    for (Invoice invoice : validInvoices) {
-                        List<InvoiceItem> items = invoiceItemRepository.findByInvoiceIdWithAllRelations(invoice.getId());
-                        totalOperations += items.size();
+                    if (validInvoices.isEmpty()) {
+                        log.warn("⚠️ Nenhuma invoice válida para processamento em lote");
+                        result.addError("Nenhuma invoice válida para processamento");
+                        result.setStageDurationsMs(metricsScope.getDurationsMs());
+                        return result;
                     }
                     
-                    progressService.emitStarted(sessionId, firstInvoiceId, firstInvoiceNumber, totalOperations);
-                    log.info("📡 Evento de início emitido para sessão: {} - {} operações", sessionId, totalOperations);
-                }
-                
-                // ✅ NOVO: Usar sistema de consolidação com usuário autenticado
-                InvoiceConsolidationProcessor.ConsolidationResult consolidationResult = 
-                    consolidationProcessor.processInvoicesWithConsolidation(invoiceIds, currentUser, sessionId, progressService);
-                
-                // ✅ NOVO: Marcar conclusão do processamento
-                markProcessingCompleted(processingLogs, consolidationResult.isSuccess() ? 
-                    InvoiceProcessingStatus.SUCCESS : InvoiceProcessingStatus.ERROR, 
-                    consolidationResult.getErrorMessage());
-                
-                // ✅ NOVO: Emitir evento de finalização
-                if (sessionId != null && !sessionId.isEmpty() && consolidationResult.isSuccess()) {
-                    String firstInvoiceId = validInvoices.get(0).getId().toString();
-                    String firstInvoiceNumber = validInvoices.get(0).getInvoiceNumber();
-                    progressService.emitFinished(sessionId, firstInvoiceId, firstInvoiceNumber, consolidationResult.getConsolidatedOperationsCount());
-                    log.info("📡 Evento de finalização emitido para sessão: {} - {} operações", sessionId, consolidationResult.getConsolidatedOperationsCount());
-                }
-                
-                // ✅ CORREÇÃO: Adicionar resultado da consolidação ao ProcessingResult
-                result.setEndTime(System.currentTimeMillis());
-                
-                // ✅ NOVO: Criar InvoiceProcessingResult para representar o resultado da consolidação
-                InvoiceProcessingResult consolidationInvoiceResult = InvoiceProcessingResult.builder()
-                    .invoiceId(validInvoices.get(0).getId()) // Usar primeira invoice como representante
-                    .invoiceNumber("CONSOLIDATED")
-                    .totalItems(validInvoices.size())
-                    .build();
-                
-                // ✅ NOVO: Adicionar operações criadas baseado no resultado da consolidação
-                for (int i = 0; i < consolidationResult.getConsolidatedOperationsCount(); i++) {
-                    consolidationInvoiceResult.addCreatedOperation(UUID.randomUUID()); // UUID temporário
-                }
-                
-                // ✅ NOVO: Adicionar ao ProcessingResult
-                result.addInvoiceResult(consolidationInvoiceResult);
-                
-                if (!consolidationResult.isSuccess()) {
-                    result.addError(consolidationResult.getErrorMessage());
+                    log.info("📊 {} invoices válidas para processamento em lote", validInvoices.size());
+                    
+                    // ✅ NOVO: Criar logs de processamento para todas as invoices
+                    List<InvoiceProcessingLog> processingLogs = createProcessingLogs(validInvoices, currentUser);
+                    
+                    // ✅ NOVO: Marcar início do processamento
+                    markProcessingStarted(processingLogs);
+                    
+                    // ✅ NOVO: Emitir evento de início do processamento
+                    if (sessionId != null && !sessionId.isEmpty()) {
+                        String firstInvoiceId = validInvoices.get(0).getId().toString();
+                        String firstInvoiceNumber = validInvoices.get(0).getInvoiceNumber();
+                        
+                        // ✅ CORREÇÃO: Calcular total de operações a partir do snapshot do lote (após agrupamento de execuções)
+                        int totalOperations = 0;
+                        for (Invoice invoice : validInvoices) {
+                            totalOperations += fillNettingService.netFills(batchContext.getItems(invoice.getId())).size();
+                        }
+                        
+                        progressService.emitStarted(sessionId, firstInvoiceId, firstInvoiceNumber, totalOperations);
+                        log.info("📡 Evento de início emitido para sessão: {} - {} operações", sessionId, totalOperations);
+                    }
+                    
+                    // ✅ NOVO: Usar sistema de consolidação com usuário autenticado
+                    InvoiceConsolidationProcessor.ConsolidationResult consolidationResult = 
+                        consolidationProcessor.processInvoicesWithConsolidation(batchContext, currentUser, sessionId, progressService);
+                    
+                    // ✅ NOVO: Marcar conclusão do processamento
+                    markProcessingCompleted(processingLogs, consolidationResult.isSuccess() ? 
+                        InvoiceProcessingStatus.SUCCESS : InvoiceProcessingStatus.ERROR, 
+                        consolidationResult.getErrorMessage());
+                    
+                    // ✅ NOVO: Emitir evento de finalização
+                    if (sessionId != null && !sessionId.isEmpty() && consolidationResult.isSuccess()) {
+                        String firstInvoiceId = validInvoices.get(0).getId().toString();
+                        String firstInvoiceNumber = validInvoices.get(0).getInvoiceNumber();
+                        progressService.emitFinished(sessionId, firstInvoiceId, firstInvoiceNumber, consolidationResult.getConsolidatedOperationsCount());
+                        log.info("📡 Evento de finalização emitido para sessão: {} - {} operações", sessionId, consolidationResult.getConsolidatedOperationsCount());
+                    }
+                    
+                    // ✅ CORREÇÃO: Adicionar resultado da consolidação ao ProcessingResult
+                    result.setEndTime(System.currentTimeMillis());
+                    
+                    // ✅ NOVO: Criar InvoiceProcessingResult para representar o resultado da consolidação
+                    InvoiceProcessingResult consolidationInvoiceResult = InvoiceProcessingResult.builder()
+                        .invoiceId(validInvoices.get(0).getId()) // Usar primeira invoice como representante
+                        .invoiceNumber("CONSOLIDATED")
+                        .totalItems(validInvoices.size())
+                        .build();
+                    
+                    // ✅ NOVO: Adicionar operações criadas baseado no resultado da consolidação
+                    for (int i = 0; i < consolidationResult.getConsolidatedOperationsCount(); i++) {
+                        consolidationInvoiceResult.addCreatedOperation(UUID.randomUUID()); // UUID temporário
+                    }
+                    
+                    // ✅ NOVO: Adicionar ao ProcessingResult
+                    result.addInvoiceResult(consolidationInvoiceResult);
+                    
+                    if (!consolidationResult.isSuccess()) {
+                        result.addError(consolidationResult.getErrorMessage());
+                    }
+                    
+                    log.info("✅ Processamento concluído: {} operações consolidadas", 
+                        consolidationResult.getConsolidatedOperationsCount());
+                    
+                } catch (Exception e) {
+                    log.error("❌ Erro durante processamento: {}", e.getMessage(), e);
+                    result.addError("Erro interno: " + e.getMessage());
+                    
+                    // ✅ NOVO: Marcar erro no processamento
+                    try {
+                        List<Invoice> invoices = contextLoader.load(invoiceIds).getInvoices();
+                        List<InvoiceProcessingLog> processingLogs = createProcessingLogs(invoices, currentUser);
+                        markProcessingCompleted(processingLogs, InvoiceProcessingStatus.ERROR, e.getMessage());
+                    } catch (Exception logError) {
+                        log.error("❌ Erro ao registrar log de erro: {}", logError.getMessage());
+                    }
                 }
                 
-                log.info("✅ Processamento concluído: {} operações consolidadas", 
-                    consolidationResult.getConsolidatedOperationsCount());
-                
-            } catch (Exception e) {
-                log.error("❌ Erro durante processamento: {}", e.getMessage(), e);
-                result.addError("Erro interno: " + e.getMessage());
-                
-                // ✅ NOVO: Marcar erro no processamento
-                try {
-                    List<Invoice> invoices = fetchInvoicesForConsolidation(invoiceIds);
-                    List<InvoiceProcessingLog> processingLogs = createProcessingLogs(invoices, currentUser);
-                    markProcessingCompleted(processingLogs, InvoiceProcessingStatus.ERROR, e.getMessage());
-                } catch (Exception logError) {
-                    log.error("❌ Erro ao registrar log de erro: {}", logError.getMessage());
-                }
+                result.setStageDurationsMs(metricsScope.getDurationsMs());
+                return result;
             }
-            
-            return result;
         });
     }
 
     /**
      * ✅ NOVO: Validar se invoices podem ser processadas em lote
      */
-    private List<Invoice> validateInvoicesForBatchProcessing(List<UUID> invoiceIds, User currentUser) {
+    private List<Invoice> validateInvoicesForBatchProcessing(InvoiceBatchContext batchContext, List<UUID> invoiceIds) {
         List<Invoice> validInvoices = new ArrayList<>();
         
         for (UUID invoiceId : invoiceIds) {
             try {
-                Invoice invoice = invoiceRepository.findByIdWithAllRelations(invoiceId)
+                Invoice invoice = batchContext.findInvoice(invoiceId)
                     .orElseThrow(() -> new RuntimeException("Invoice não encontrada: " + invoiceId));
                 
                 // Verificar se pode ser processada em lote
@@ -194,7 +214,8 @@ public class RealInvoiceProcessor {
         
         for (Invoice invoice : invoices) {
             try {
-                InvoiceProcessingLog processingLog = processingLogService.createProcessingLog(invoice, currentUser);
+                InvoiceProcessingLog processingLog = pipelineMetrics.time(PipelineStage.LOG_WRITE,
+                    PipelineMetrics.brokerageLabel(invoice), () -> processingLogService.createProcessingLog(invoice, currentUser));
                 processingLogs.add(processingLog);
             } catch (Exception e) {
                 log.error("❌ Erro ao criar log de processamento para invoice {}: {}", 
@@ -212,7 +233,8 @@ public class RealInvoiceProcessor {
     private void markProcessingStarted(List<InvoiceProcessingLog> processingLogs) {
         for (InvoiceProcessingLog processingLog : processingLogs) {
             try {
-                processingLogService.markAsStarted(processingLog);
+                pipelineMetrics.time(PipelineStage.LOG_WRITE, PipelineMetrics.brokerageLabel(processingLog.getInvoice()),
+                    () -> processingLogService.markAsStarted(processingLog));
             } catch (Exception e) {
                 log.error("❌ Erro ao marcar início do processamento {}: {}", 
                     processingLog.getId(), e.getMessage());
@@ -230,7 +252,8 @@ public class RealInvoiceProcessor {
             try {
                 // ✅ CORREÇÃO: Para processamento em lote, não temos contadores específicos
                 // Os contadores serão atualizados pelo InvoiceConsolidationProcessor
-                processingLogService.markAsCompleted(processingLog, finalStatus, errorMessage);
+                pipelineMetrics.time(PipelineStage.LOG_WRITE, PipelineMetrics.brokerageLabel(processingLog.getInvoice()),
+                    () -> processingLogService.markAsCompleted(processingLog, finalStatus, errorMessage));
             } catch (Exception e) {
                 log.error("❌ Erro ao marcar conclusão do processamento {}: {}", 
                     processingLog.getId(), e.getMessage());
@@ -381,6 +404,12 @@ public class RealInvoiceProcessor {
         for (InvoiceItem item : items) {
             log.info("🔄 Processando item {}: OperationType='{}'", item.getSequenceNumber(), item.getOperationType());
             
+            // ✅ NOVO: Reserva idempotente - item já processado não gera nova operação
+            if (claimService.claim(List.of(item)).isEmpty()) {
+                log.info("⏭️ Item {} já processado - ignorando", item.getSequenceNumber());
+                continue;
+            }
+            
             try {
                 // ✅ NOVO: Log antes do mapeamento
                 log.info("�� ANTES DO MAPEAMENTO - Item {}: OperationType='{}'", item.getSequenceNumber(), item.getOperationType());
@@ -394,6 +423,7 @@ public class RealInvoiceProcessor {
                 log.info("🟢 ANTES DA CRIAÇÃO - Item {}: TransactionType='{}'", item.getSequenceNumber(), request.getTransactionType());
                 
                 Operation operation = operationService.createOperation(request, invoice.getUser());
+                claimService.complete(List.of(item), operation, OperationMappingType.NEW_OPERATION);
                 
                 // ✅ NOVO: Log após a criação da operação
                 log.info("🟢 APÓS A CRIAÇÃO - Item {}: Operation ID={}, TransactionType='{}'", 
@@ -415,6 +445,7 @@ public class RealInvoiceProcessor {
                 
             } catch (Exception e) {
                 log.error("❌ Erro ao processar item {}: {}", item.getSequenceNumber(), e.getMessage(), e);
+                claimService.release(List.of(item));
                 errors++;
             }
         }
@@ -461,24 +492,4 @@ public class RealInvoiceProcessor {
             log.error("❌ Erro ao atualizar contadores: {}", e.getMessage());
         }
     }
-
-    /**
-     * ✅ NOVO: Buscar invoices para consolidação
-     */
-    private List<Invoice> fetchInvoicesForConsolidation(List<UUID> invoiceIds) {
-        List<Invoice> invoices = new ArrayList<>();
-        
-        for (UUID invoiceId : invoiceIds) {
-            try {
-                Invoice invoice = invoiceRepository.findByIdWithAllRelations(invoiceId)
-                    .orElseThrow(() -> new RuntimeException("Invoice não encontrada: " + invoiceId));
-                invoices.add(invoice);
-            } catch (Exception e) {
-                log.error("❌ Erro ao buscar invoice {}: {}", invoiceId, e.getMessage());
-            }
-        }
-        
-        log.info("📊 {} invoices carregadas para consolidação", invoices.size());
-        return invoices;
-    }
 }
@@ -0,0 +1,13 @@
+package com.olisystem.optionsmanager.service.invoice.processing;
+
+import com.olisystem.optionsmanager.dto.invoice.ProcessingProgressEvent;
+
+/**
+ * Evento de progresso com o número de sequência da sessão
+ * O ID é enviado no campo {@code id} do SSE e permite replay via {@code Last-Event-ID}.
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+public record SequencedProgressEvent(long id, ProcessingProgressEvent event) {
+}
@@ -0,0 +1,158 @@
+package com.olisystem.optionsmanager.service.invoice.processing.context;
+
+import com.olisystem.optionsmanager.model.invoice.Invoice;
+import com.olisystem.optionsmanager.model.invoice.InvoiceItem;
+import com.olisystem.optionsmanager.model.invoice.InvoiceProcessingLog;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Snapshot imutável de um lote de invoices com seus itens
+ * Carregado uma única vez por lote e compartilhado por validação, detecção e integração,
+ * evitando que cada etapa recarregue os mesmos itens do banco.
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-20
+ */
+public final class InvoiceBatchContext {
+
+    private static final Comparator<InvoiceItem> BY_SEQUENCE = Comparator.comparing(
+        InvoiceItem::getSequenceNumber, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final List<Invoice> invoices;
+    private final Map<UUID, Invoice> invoicesById;
+    private final Map<UUID, List<InvoiceItem>> itemsByInvoiceId;
+    private final List<InvoiceItem> allItems;
+    private final Map<UUID, InvoiceProcessingLog> processingLogsByInvoiceId;
+
+    private InvoiceBatchContext(List<Invoice> invoices, Map<UUID, List<InvoiceItem>> itemsByInvoiceId) {
+        this(invoices, itemsByInvoiceId, Map.of());
+    }
+
+    private InvoiceBatchContext(List<Invoice> invoices, Map<UUID, List<InvoiceItem>> itemsByInvoiceId,
+                                Map<UUID, InvoiceProcessingLog> processingLogsByInvoiceId) {
+        Map<UUID, Invoice> byId = new LinkedHashMap<>();
+        Map<UUID, List<InvoiceItem>> items = new LinkedHashMap<>();
+        List<InvoiceItem> flat = new ArrayList<>();
+
+        for (Invoice invoice : invoices) {
+            byId.put(invoice.getId(), invoice);
+
+            List<InvoiceItem> invoiceItems = new ArrayList<>(
+                itemsByInvoiceId.getOrDefault(invoice.getId(), List.of()));
+            invoiceItems.removeIf(item -> item == null);
+            invoiceItems.sort(BY_SEQUENCE);
+
+            items.put(invoice.getId(), Collections.unmodifiableList(invoiceItems));
+            flat.addAll(invoiceItems);
+        }
+
+        this.invoices = List.copyOf(byId.values());
+        this.invoicesById = Collections.unmodifiableMap(byId);
+        this.itemsByInvoiceId = Collections.unmodifiableMap(items);
+        this.allItems = Collections.unmodifiableList(flat);
+        this.processingLogsByInvoiceId = Collections.unmodifiableMap(new LinkedHashMap<>(processingLogsByInvoiceId));
+    }
+
+    /**
+     * Cria o contexto a partir de invoices cujos itens já foram carregados (JOIN FETCH)
+     */
+    public static InvoiceBatchContext fromFetchedInvoices(List<Invoice> invoices) {
+        Map<UUID, List<InvoiceItem>> items = new LinkedHashMap<>();
+        for (Invoice invoice : invoices) {
+            items.put(invoice.getId(), invoice.getItems() != null ? invoice.getItems() : List.of());
+        }
+        return new InvoiceBatchContext(invoices, items);
+    }
+
+    /**
+     * Cria o contexto resolvendo os itens de cada invoice com a função informada
+     * Usado pelos pontos de entrada legados que recebem apenas a lista de invoices.
+     */
+    public static InvoiceBatchContext of(List<Invoice> invoices, Function<UUID, List<InvoiceItem>> itemLoader) {
+        Map<UUID, List<InvoiceItem>> items = new LinkedHashMap<>();
+        for (Invoice invoice : invoices) {
+            items.put(invoice.getId(), itemLoader.apply(invoice.getId()));
+        }
+        return new InvoiceBatchContext(invoices, items);
+    }
+
+    /**
+     * Cria um contexto vazio
+     */
+    public static InvoiceBatchContext empty() {
+        return new InvoiceBatchContext(List.of(), Map.of());
+    }
+
+    /**
+     * Retorna um novo contexto restrito às invoices informadas, sem novo acesso ao banco
+     */
+    public InvoiceBatchContext restrictTo(Collection<UUID> invoiceIds) {
+        List<Invoice> subset = invoiceIds.stream()
+            .map(invoicesById::get)
+            .filter(invoice -> invoice != null)
+            .toList();
+        return new InvoiceBatchContext(subset, itemsByInvoiceId, processingLogsByInvoiceId);
+    }
+
+    /**
+     * Retorna um novo contexto com os logs de processamento já carregados para o lote
+     */
+    public InvoiceBatchContext withProcessingLogs(Map<UUID, InvoiceProcessingLog> processingLogs) {
+        return new InvoiceBatchContext(invoices, itemsByInvoiceId, processingLogs);
+    }
+
+    public List<Invoice> getInvoices() {
+        return invoices;
+    }
+
+    public List<UUID> getInvoiceIds() {
+        return List.copyOf(invoicesById.keySet());
+    }
+
+    public Optional<Invoice> findInvoice(UUID invoiceId) {
+        return Optional.ofNullable(invoicesById.get(invoiceId));
+    }
+
+    /**
+     * Itens de uma invoice, ordenados por sequenceNumber
+     */
+    public List<InvoiceItem> getItems(UUID invoiceId) {
+        return itemsByInvoiceId.getOrDefault(invoiceId, List.of());
+    }
+
+    /**
+     * Todos os itens do lote, na ordem das invoices e por sequenceNumber
+     */
+    public List<InvoiceItem> getAllItems() {
+        return allItems;
+    }
+
+    /**
+     * Log de processamento existente da invoice (vazio se nunca foi processada ou se os logs não foram carregados)
+     */
+    public Optional<InvoiceProcessingLog> findProcessingLog(UUID invoiceId) {
+        return Optional.ofNullable(processingLogsByInvoiceId.get(invoiceId));
+    }
+
+    public int getInvoiceCount() {
+        return invoices.size();
+    }
+
+    public int getTotalItems() {
+        return allItems.size();
+    }
+
+    public boolean isEmpty() {
+        return invoices.isEmpty();
+    }
+}
@@ -0,0 +1,92 @@
+package com.olisystem.optionsmanager.service.invoice.processing.context;
+
+import com.olisystem.optionsmanager.model.invoice.Invoice;
+import com.olisystem.optionsmanager.model.invoice.InvoiceProcessingLog;
+import com.olisystem.optionsmanager.repository.InvoiceProcessingLogRepository;
+import com.olisystem.optionsmanager.repository.InvoiceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Carrega o {@link InvoiceBatchContext} de um lote com uma única consulta
+ * (invoices + itens + corretora + usuário via JOIN FETCH)
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-20
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InvoiceBatchContextLoader {
+
+    private static final Comparator<InvoiceProcessingLog> BY_CREATED_AT = Comparator.comparing(
+        InvoiceProcessingLog::getCreatedAt, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final InvoiceRepository invoiceRepository;
+    private final InvoiceProcessingLogRepository processingLogRepository;
+
+    /**
+     * Carrega o snapshot do lote preservando a ordem dos IDs informados
+     * IDs inexistentes são ignorados e registrados em log.
+     */
+    @Transactional(readOnly = true)
+    public InvoiceBatchContext load(Collection<UUID> invoiceIds) {
+        if (invoiceIds == null || invoiceIds.isEmpty()) {
+            return InvoiceBatchContext.empty();
+        }
+
+        LinkedHashSet<UUID> orderedIds = new LinkedHashSet<>(invoiceIds);
+        Map<UUID, Invoice> fetched = invoiceRepository.findByIdsWithItemsAndRelations(orderedIds).stream()
+            .collect(Collectors.toMap(Invoice::getId, Function.identity(), (a, b) -> a));
+
+        List<Invoice> invoices = new ArrayList<>(fetched.size());
+        for (UUID invoiceId : orderedIds) {
+            Invoice invoice = fetched.get(invoiceId);
+            if (invoice != null) {
+                invoices.add(invoice);
+            } else {
+                log.warn("⚠️ Invoice não encontrada ao montar contexto do lote: {}", invoiceId);
+            }
+        }
+
+        InvoiceBatchContext context = InvoiceBatchContext.fromFetchedInvoices(invoices);
+        log.info("📦 Contexto do lote carregado: {} invoices, {} itens",
+            context.getInvoiceCount(), context.getTotalItems());
+        return context;
+    }
+
+    /**
+     * Carrega o snapshot do lote incluindo os logs de processamento existentes
+     * (uma consulta para invoices/itens e uma para os logs)
+     */
+    @Transactional(readOnly = true)
+    public InvoiceBatchContext loadWithProcessingLogs(Collection<UUID> invoiceIds) {
+        InvoiceBatchContext context = load(invoiceIds);
+        if (context.isEmpty()) {
+            return context;
+        }
+
+        Map<UUID, InvoiceProcessingLog> logsByInvoiceId = processingLogRepository
+            .findByInvoiceIdIn(context.getInvoiceIds()).stream()
+            .collect(Collectors.toMap(
+                processingLog -> processingLog.getInvoice().getId(),
+                Function.identity(),
+                // Mantém o log mais recente caso exista mais de um por invoice
+                (a, b) -> BY_CREATED_AT.compare(a, b) >= 0 ? a : b));
+
+        log.info("📝 {} logs de processamento carregados para o lote", logsByInvoiceId.size());
+        return context.withProcessingLogs(logsByInvoiceId);
+    }
+}
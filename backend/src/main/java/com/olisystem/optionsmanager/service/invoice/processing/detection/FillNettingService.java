@@ -0,0 +1,125 @@
+package com.olisystem.optionsmanager.service.invoice.processing.detection;
+
+import com.olisystem.optionsmanager.model.invoice.InvoiceItem;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Etapa de pré-consolidação por nota
+ * Agrupa execuções parciais do mesmo lado da mesma série em uma execução a preço médio,
+ * reduzindo o número de operações criadas por nota sem perder os itens de origem.
+ * 
+ * Apenas execuções consecutivas são agrupadas: uma execução do lado oposto na mesma série
+ * encerra o grupo, preservando a ordem entrada → saída → reentrada da nota.
+ * 
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-20
+ */
+@Service
+@Slf4j
+public class FillNettingService {
+
+    private static final int PRICE_SCALE = 4;
+
+    /**
+     * Agrupa os itens de uma nota (já ordenados por sequenceNumber)
+     * O resultado segue a ordem do primeiro item de cada grupo.
+     */
+    public List<NettedFill> netFills(List<InvoiceItem> items) {
+        List<List<InvoiceItem>> groups = new ArrayList<>();
+        Map<String, List<InvoiceItem>> openGroupBySeries = new HashMap<>();
+        Map<String, String> openGroupKeyBySeries = new HashMap<>();
+        
+        for (InvoiceItem item : items) {
+            if (!isNettable(item)) {
+                // Itens incompletos seguem sozinhos para a validação normal
+                groups.add(new ArrayList<>(List.of(item)));
+                continue;
+            }
+            
+            String seriesKey = item.getAssetCode().trim().toUpperCase();
+            String groupKey = generateNettingKey(item);
+            List<InvoiceItem> openGroup = openGroupBySeries.get(seriesKey);
+            
+            if (openGroup != null && groupKey.equals(openGroupKeyBySeries.get(seriesKey))) {
+                openGroup.add(item);
+            } else {
+                List<InvoiceItem> group = new ArrayList<>();
+                group.add(item);
+                groups.add(group);
+                openGroupBySeries.put(seriesKey, group);
+                openGroupKeyBySeries.put(seriesKey, groupKey);
+            }
+        }
+        
+        List<NettedFill> fills = groups.stream().map(this::createFill).toList();
+        
+        if (fills.size() < items.size()) {
+            log.info("🧮 {} itens agrupados em {} execuções", items.size(), fills.size());
+        }
+        return fills;
+    }
+
+    /**
+     * Chave de agrupamento: série + lado + mercado + marcação de day trade
+     */
+    private String generateNettingKey(InvoiceItem item) {
+        return String.format("%s_%s_%s_%s",
+            item.getAssetCode().trim().toUpperCase(),
+            item.getOperationType().trim().toUpperCase(),
+            item.getMarketType() != null ? item.getMarketType().trim().toUpperCase() : "",
+            Boolean.TRUE.equals(item.getIsDayTrade()));
+    }
+
+    /**
+     * Apenas itens com série, lado, quantidade e preço válidos participam do agrupamento
+     */
+    private boolean isNettable(InvoiceItem item) {
+        return item.getAssetCode() != null && !item.getAssetCode().trim().isEmpty()
+            && item.getOperationType() != null && !item.getOperationType().trim().isEmpty()
+            && item.getQuantity() != null && item.getQuantity() > 0
+            && item.getUnitPrice() != null;
+    }
+
+    /**
+     * Cria a execução consolidada com preço médio ponderado pela quantidade
+     */
+    private NettedFill createFill(List<InvoiceItem> group) {
+        InvoiceItem first = group.get(0);
+        if (group.size() == 1) {
+            return NettedFill.builder()
+                .sourceItems(List.copyOf(group))
+                .quantity(first.getQuantity())
+                .unitPrice(first.getUnitPrice())
+                .totalValue(first.getUnitPrice() != null && first.getQuantity() != null
+                    ? first.getUnitPrice().multiply(BigDecimal.valueOf(first.getQuantity())) : null)
+                .build();
+        }
+        
+        int totalQuantity = 0;
+        BigDecimal totalValue = BigDecimal.ZERO;
+        for (InvoiceItem item : group) {
+            totalQuantity += item.getQuantity();
+            totalValue = totalValue.add(item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+        }
+        
+        BigDecimal averagePrice = totalValue.divide(BigDecimal.valueOf(totalQuantity), PRICE_SCALE, RoundingMode.HALF_UP);
+        
+        log.debug("🧮 Execuções {} de {} agrupadas: {} @ {}", 
+            group.stream().map(InvoiceItem::getSequenceNumber).toList(), first.getAssetCode(), totalQuantity, averagePrice);
+        
+        return NettedFill.builder()
+            .sourceItems(List.copyOf(group))
+            .quantity(totalQuantity)
+            .unitPrice(averagePrice)
+            .totalValue(totalValue)
+            .build();
+    }
+}
@@ -0,0 +1,52 @@
+package com.olisystem.optionsmanager.service.invoice.processing.detection;
+
+import com.olisystem.optionsmanager.model.invoice.InvoiceItem;
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Execução consolidada de uma nota: execuções parciais consecutivas do mesmo lado
+ * (C ou V) da mesma série agrupadas em uma única execução a preço médio ponderado
+ * 
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-20
+ */
+@Data
+@Builder
+public class NettedFill {
+    
+    // === ORIGEM (rastreabilidade) ===
+    private List<InvoiceItem> sourceItems;
+    
+    // === DADOS CONSOLIDADOS ===
+    private Integer quantity;
+    private BigDecimal unitPrice; // Preço médio ponderado pela quantidade
+    private BigDecimal totalValue;
+    
+    /**
+     * Primeiro item da execução - base para o mapeamento da operação
+     */
+    public InvoiceItem getPrimaryItem() {
+        return sourceItems.get(0);
+    }
+    
+    /**
+     * Verifica se a execução agrupa mais de um item da nota
+     */
+    public boolean isNetted() {
+        return sourceItems.size() > 1;
+    }
+    
+    /**
+     * Sequências dos itens de origem (para logs)
+     */
+    public String getSequenceLabel() {
+        return sourceItems.stream()
+            .map(item -> String.valueOf(item.getSequenceNumber()))
+            .reduce((a, b) -> a + "+" + b)
+            .orElse("");
+    }
+}
@@ -4,11 +4,11 @@ import com.olisystem.optionsmanager.model.auth.User;
 import com.olisystem.optionsmanager.model.invoice.Invoice;
 import com.olisystem.optionsmanager.model.invoice.InvoiceItem;
 import com.olisystem.optionsmanager.repository.InvoiceItemRepository;
+import com.olisystem.optionsmanager.service.invoice.processing.context.InvoiceBatchContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -34,19 +34,27 @@ public class OperationDetectionEngine {
 
     /**
      * Detecta operações em múltiplas invoices
-     * ✅ CORREÇÃO: Usa repositório para buscar itens
+     * Ponto de entrada legado: monta o contexto do lote e delega
      */
     public DetectionResult detectOperations(List<Invoice> invoices, User user) {
-        log.info("🔍 Detectando operações em {} invoices", invoices.size());
+        return detectOperations(
+            InvoiceBatchContext.of(invoices, invoiceItemRepository::findByInvoiceIdWithAllRelations), user);
+    }
+
+    /**
+     * Detecta operações sobre o snapshot já carregado do lote
+     * ✅ NOVO: Itens vêm do contexto - sem recarregar por etapa
+     */
+    public DetectionResult detectOperations(InvoiceBatchContext context, User user) {
+        log.info("🔍 Detectando operações em {} invoices", context.getInvoiceCount());
         
         DetectionResult result = DetectionResult.builder()
             .success(true)
-            .totalInvoices(invoices.size())
+            .totalInvoices(context.getInvoiceCount())
             .build();
         
         try {
-            // ✅ CORREÇÃO: Buscar todos os itens via repositório
-            List<InvoiceItem> allItems = extractAllItems(invoices);
+            List<InvoiceItem> allItems = context.getAllItems();
             result.setTotalItems(allItems.size());
             
             log.info("📊 Extraídos {} itens para análise", allItems.size());
@@ -84,23 +92,6 @@ public class OperationDetectionEngine {
         return result;
     }
 
-    /**
-     * Extrai todos os itens de todas as invoices
-     * ✅ CORREÇÃO: Usa repositório para buscar itens
-     */
-    private List<InvoiceItem> extractAllItems(List<Invoice> invoices) {
-        List<InvoiceItem> allItems = new ArrayList<>();
-        
-        for (Invoice invoice : invoices) {
-            List<InvoiceItem> items = invoiceItemRepository.findByInvoiceIdWithAllRelations(invoice.getId());
-            allItems.addAll(items);
-        }
-        
-        return allItems.stream()
-            .filter(item -> item != null)
-            .collect(Collectors.toList());
-    }
-
     /**
      * Calcula estatísticas da detecção
      */
@@ -0,0 +1,22 @@
+package com.olisystem.optionsmanager.service.invoice.processing.estimate;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Estimativa de processamento de um conjunto de invoices
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Data
+@Builder
+public class ProcessingEstimate {
+    private int totalInvoices;
+    private int totalItems;
+    private int totalOperations;
+    private long estimatedTimeMs;
+    private int invoicesNotFound;
+    private boolean historicalModel;
+    private int modelSampleCount;
+}
@@ -0,0 +1,142 @@
+package com.olisystem.optionsmanager.service.invoice.processing.estimate;
+
+import com.olisystem.optionsmanager.repository.InvoiceProcessingLogRepository;
+import com.olisystem.optionsmanager.repository.InvoiceRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Estimador de tempo de processamento baseado no histórico
+ * ✅ NOVO: O modelo é ajustado sobre os logs concluídos, atualizado periodicamente
+ * e consultado em memória; a estimativa carrega apenas contagens de itens
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Service
+@Slf4j
+public class ProcessingTimeEstimator {
+
+    /**
+     * Logs mais recentes usados no ajuste
+     */
+    private static final int MAX_SAMPLES = 500;
+
+    private static final long REFRESH_INTERVAL_MINUTES = 30;
+
+    /**
+     * Estimativa para invoices não encontradas (mantida do cálculo anterior)
+     */
+    private static final int FALLBACK_ITEMS = 3;
+    private static final long FALLBACK_TIME_MS = 2500;
+
+    private final InvoiceRepository invoiceRepository;
+    private final InvoiceProcessingLogRepository processingLogRepository;
+
+    private volatile ProcessingTimeModel model = ProcessingTimeModel.defaults();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "processing-estimator-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ProcessingTimeEstimator(InvoiceRepository invoiceRepository,
+                                   InvoiceProcessingLogRepository processingLogRepository) {
+        this.invoiceRepository = invoiceRepository;
+        this.processingLogRepository = processingLogRepository;
+        scheduler.scheduleWithFixedDelay(this::refreshModel, 0, REFRESH_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Estima o processamento das invoices com uma única consulta agregada de contagem de itens
+     */
+    public ProcessingEstimate estimate(Collection<UUID> invoiceIds) {
+        LinkedHashSet<UUID> uniqueIds = new LinkedHashSet<>(invoiceIds);
+        Map<UUID, long[]> itemCounts = new HashMap<>();
+        for (Object[] row : invoiceRepository.countItemsByInvoiceIds(uniqueIds)) {
+            long total = ((Number) row[1]).longValue();
+            long options = row[2] != null ? ((Number) row[2]).longValue() : 0L;
+            itemCounts.put((UUID) row[0], new long[] {options, total - options});
+        }
+
+        ProcessingTimeModel current = model;
+        int totalItems = 0;
+        int totalOperations = 0;
+        long totalTimeMs = 0;
+        int notFound = 0;
+
+        for (UUID invoiceId : uniqueIds) {
+            long[] counts = itemCounts.get(invoiceId);
+            if (counts == null) {
+                log.warn("⚠️ Invoice não encontrada para estimativa: {}", invoiceId);
+                notFound++;
+                totalItems += FALLBACK_ITEMS;
+                totalOperations += FALLBACK_ITEMS;
+                totalTimeMs += FALLBACK_TIME_MS;
+                continue;
+            }
+
+            int items = (int) (counts[0] + counts[1]);
+            totalItems += items;
+            // Cada item gera exatamente 1 operação (mínimo 1 por invoice)
+            totalOperations += Math.max(items, 1);
+            totalTimeMs += current.estimateMs(counts[0], counts[1]);
+        }
+
+        return ProcessingEstimate.builder()
+            .totalInvoices(uniqueIds.size())
+            .totalItems(totalItems)
+            .totalOperations(totalOperations)
+            .estimatedTimeMs(totalTimeMs)
+            .invoicesNotFound(notFound)
+            .historicalModel(current.isFitted())
+            .modelSampleCount(current.getSampleCount())
+            .build();
+    }
+
+    public ProcessingTimeModel getModel() {
+        return model;
+    }
+
+    /**
+     * Reajusta o modelo com os logs mais recentes
+     */
+    public void refreshModel() {
+        try {
+            List<ProcessingTimeModel.Sample> samples = new ArrayList<>();
+            for (Object[] row : processingLogRepository.findDurationSamples(PageRequest.of(0, MAX_SAMPLES))) {
+                long duration = ((Number) row[0]).longValue();
+                long total = ((Number) row[1]).longValue();
+                long options = row[2] != null ? ((Number) row[2]).longValue() : 0L;
+                samples.add(new ProcessingTimeModel.Sample(duration, options, total - options));
+            }
+
+            ProcessingTimeModel fitted = ProcessingTimeModel.fit(samples);
+            model = fitted;
+            log.info("📈 Modelo de estimativa atualizado: {} amostras, base={}ms, opção={}ms/item, outros={}ms/item{}",
+                samples.size(), Math.round(fitted.getBaseMs()), Math.round(fitted.getMsPerOptionItem()),
+                Math.round(fitted.getMsPerOtherItem()), fitted.isFitted() ? "" : " (valores padrão)");
+        } catch (Exception e) {
+            log.warn("⚠️ Não foi possível atualizar o modelo de estimativa: {}", e.getMessage());
+        }
+    }
+}
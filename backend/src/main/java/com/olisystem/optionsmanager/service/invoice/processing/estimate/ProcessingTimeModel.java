@@ -0,0 +1,148 @@
+package com.olisystem.optionsmanager.service.invoice.processing.estimate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Modelo linear de tempo de processamento por invoice:
+ * tempo = base + custoPorItemDeOpcao * itensDeOpcao + custoPorOutroItem * outrosItens
+ * Ajustado por mínimos quadrados sobre os logs de processamento concluídos.
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+public final class ProcessingTimeModel {
+
+    /**
+     * Mínimo de amostras para confiar no ajuste
+     */
+    static final int MIN_SAMPLES = 10;
+
+    /**
+     * Valores anteriormente fixos no controller (1 s por invoice, 0,5 s por item, +0,3 s por opção)
+     */
+    private static final ProcessingTimeModel DEFAULT = new ProcessingTimeModel(1000, 800, 500, 0, null);
+
+    private final double baseMs;
+    private final double msPerOptionItem;
+    private final double msPerOtherItem;
+    private final int sampleCount;
+    private final LocalDateTime fittedAt;
+
+    private ProcessingTimeModel(double baseMs, double msPerOptionItem, double msPerOtherItem,
+                                int sampleCount, LocalDateTime fittedAt) {
+        this.baseMs = baseMs;
+        this.msPerOptionItem = msPerOptionItem;
+        this.msPerOtherItem = msPerOtherItem;
+        this.sampleCount = sampleCount;
+        this.fittedAt = fittedAt;
+    }
+
+    public static ProcessingTimeModel defaults() {
+        return DEFAULT;
+    }
+
+    /**
+     * Amostra histórica: duração observada de uma invoice e a composição dos seus itens
+     */
+    public record Sample(long durationMs, long optionItems, long otherItems) {
+    }
+
+    /**
+     * Ajusta o modelo às amostras; retorna o modelo padrão se houver poucas amostras
+     * ou se o ajuste produzir coeficientes negativos
+     */
+    public static ProcessingTimeModel fit(List<Sample> samples) {
+        if (samples.size() < MIN_SAMPLES) {
+            return DEFAULT;
+        }
+
+        // Equações normais (XᵀX)β = Xᵀy com X = [1, opções, outros]
+        double[][] xtx = new double[3][3];
+        double[] xty = new double[3];
+        for (Sample sample : samples) {
+            double[] x = {1, sample.optionItems(), sample.otherItems()};
+            for (int i = 0; i < 3; i++) {
+                for (int j = 0; j < 3; j++) {
+                    xtx[i][j] += x[i] * x[j];
+                }
+                xty[i] += x[i] * sample.durationMs();
+            }
+        }
+
+        double[] beta = solve(xtx, xty);
+        if (beta != null && beta[0] >= 0 && beta[1] >= 0 && beta[2] >= 0) {
+            return new ProcessingTimeModel(beta[0], beta[1], beta[2], samples.size(), LocalDateTime.now());
+        }
+
+        // Lotes sem variação de composição (ex.: só opções) - ajusta um custo único por item
+        double[][] xtx2 = {{xtx[0][0], xtx[0][1] + xtx[0][2]},
+                           {xtx[0][1] + xtx[0][2], xtx[1][1] + 2 * xtx[1][2] + xtx[2][2]}};
+        double[] xty2 = {xty[0], xty[1] + xty[2]};
+        double[] beta2 = solve(xtx2, xty2);
+        if (beta2 != null && beta2[0] >= 0 && beta2[1] >= 0) {
+            return new ProcessingTimeModel(beta2[0], beta2[1], beta2[1], samples.size(), LocalDateTime.now());
+        }
+
+        return DEFAULT;
+    }
+
+    /**
+     * Tempo estimado para uma invoice com a composição informada
+     */
+    public long estimateMs(long optionItems, long otherItems) {
+        return Math.round(baseMs + msPerOptionItem * optionItems + msPerOtherItem * otherItems);
+    }
+
+    public boolean isFitted() {
+        return fittedAt != null;
+    }
+
+    public double getBaseMs() { return baseMs; }
+    public double getMsPerOptionItem() { return msPerOptionItem; }
+    public double getMsPerOtherItem() { return msPerOtherItem; }
+    public int getSampleCount() { return sampleCount; }
+    public LocalDateTime getFittedAt() { return fittedAt; }
+
+    /**
+     * Eliminação de Gauss com pivoteamento parcial; null se o sistema for singular
+     */
+    private static double[] solve(double[][] a, double[] b) {
+        int n = b.length;
+        double[][] m = new double[n][n + 1];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(a[i], 0, m[i], 0, n);
+            m[i][n] = b[i];
+        }
+
+        for (int col = 0; col < n; col++) {
+            int pivot = col;
+            for (int row = col + 1; row < n; row++) {
+                if (Math.abs(m[row][col]) > Math.abs(m[pivot][col])) {
+                    pivot = row;
+                }
+            }
+            if (Math.abs(m[pivot][col]) < 1e-9) {
+                return null;
+            }
+            double[] tmp = m[col];
+            m[col] = m[pivot];
+            m[pivot] = tmp;
+
+            for (int row = 0; row < n; row++) {
+                if (row != col) {
+                    double factor = m[row][col] / m[col][col];
+                    for (int k = col; k <= n; k++) {
+                        m[row][k] -= factor * m[col][k];
+                    }
+                }
+            }
+        }
+
+        double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = m[i][n] / m[i][i];
+        }
+        return x;
+    }
+}
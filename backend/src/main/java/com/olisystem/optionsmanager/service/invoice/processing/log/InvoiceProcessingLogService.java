@@ -1,12 +1,16 @@
 package com.olisystem.optionsmanager.service.invoice.processing.log;
 
+import com.olisystem.optionsmanager.dto.invoice.processing.ProcessingStatsSummary;
 import com.olisystem.optionsmanager.model.auth.User;
 import com.olisystem.optionsmanager.model.invoice.Invoice;
 import com.olisystem.optionsmanager.model.invoice.InvoiceProcessingLog;
 import com.olisystem.optionsmanager.model.enums.InvoiceProcessingStatus;
 import com.olisystem.optionsmanager.repository.InvoiceProcessingLogRepository;
+import com.olisystem.optionsmanager.repository.InvoiceRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -28,6 +32,9 @@ import java.util.UUID;
 public class InvoiceProcessingLogService {
 
     private final InvoiceProcessingLogRepository logRepository;
+    
+    // ✅ NOVO: Mantém o status denormalizado em invoices na mesma transação do log
+    private final InvoiceRepository invoiceRepository;
 
     /**
      * Cria um novo log de processamento
@@ -74,6 +81,7 @@ public class InvoiceProcessingLogService {
         
         processingLog.markAsStarted();
         logRepository.save(processingLog);
+        syncInvoiceStatus(processingLog, processingLog.getStartedAt());
         
         log.info("✅ Processamento iniciado: {}", processingLog.getId());
     }
@@ -114,11 +122,20 @@ public class InvoiceProcessingLogService {
         }
         
         logRepository.save(processingLog);
+        syncInvoiceStatus(processingLog, processingLog.getCompletedAt());
         
         log.info("✅ Processamento concluído: {} - Duração: {}ms", 
             processingLog.getId(), processingLog.getProcessingDurationMs());
     }
 
+    /**
+     * ✅ NOVO: Copia o status do log para invoices.processing_status (filtros e contadores das abas)
+     */
+    private void syncInvoiceStatus(InvoiceProcessingLog processingLog, LocalDateTime processedAt) {
+        invoiceRepository.updateProcessingStatus(
+            processingLog.getInvoice().getId(), processingLog.getStatus().name(), processedAt);
+    }
+
     /**
      * Verifica se uma invoice já foi processada com sucesso
      */
@@ -184,6 +201,48 @@ public class InvoiceProcessingLogService {
         return logRepository.findByUserOrderByCreatedAtDesc(user);
     }
 
+    /**
+     * Busca uma página do histórico de processamento de um usuário
+     */
+    @Transactional(readOnly = true)
+    public Page<InvoiceProcessingLog> findProcessingLogsByUser(User user, Pageable pageable) {
+        return logRepository.findPageByUserId(user.getId(), pageable);
+    }
+
+    /**
+     * Busca logs ativos (PENDING ou PROCESSING) de um usuário
+     */
+    @Transactional(readOnly = true)
+    public List<InvoiceProcessingLog> findActiveProcessingLogs(User user) {
+        return logRepository.findActiveProcessingByUserId(user.getId());
+    }
+
+    /**
+     * ✅ OTIMIZAÇÃO: Estatísticas do usuário calculadas com um único SELECT agregado
+     */
+    @Transactional(readOnly = true)
+    public ProcessingStatsSummary getProcessingStats(User user) {
+        List<Object[]> rows = logRepository.aggregateStatsForUser(user.getId());
+        Object[] row = rows.isEmpty() ? new Object[9] : rows.get(0);
+
+        return ProcessingStatsSummary.builder()
+            .totalProcessed(asLong(row[0]))
+            .successfulProcessed(asLong(row[1]))
+            .failedProcessed(asLong(row[2]))
+            .activeProcessing(asLong(row[3]))
+            .totalOperationsCreated(asLong(row[4]))
+            .totalOperationsUpdated(asLong(row[5]))
+            .totalOperationsSkipped(asLong(row[6]))
+            .totalReprocessed(asLong(row[7]))
+            .totalProcessingTimeMs(asLong(row[8]))
+            .build();
+    }
+
+    private static long asLong(Object value) {
+        // SUM sobre nenhum registro retorna null
+        return value instanceof Number number ? number.longValue() : 0L;
+    }
+
     /**
      * Busca logs por status
      */
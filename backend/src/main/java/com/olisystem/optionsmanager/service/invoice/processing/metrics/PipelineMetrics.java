@@ -0,0 +1,269 @@
+package com.olisystem.optionsmanager.service.invoice.processing.metrics;
+
+import com.olisystem.optionsmanager.model.brokerage.Brokerage;
+import com.olisystem.optionsmanager.model.invoice.Invoice;
+import org.hibernate.Hibernate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Timers e contadores por etapa do pipeline, rotulados por etapa e corretora
+ * ✅ NOVO: Acumula em memória (LongAdder) e expõe em JSON e no formato texto do Prometheus;
+ * uma sessão aberta na thread de processamento soma também o tempo por etapa daquela execução
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Component
+public class PipelineMetrics {
+
+    static final String UNKNOWN_BROKERAGE = "unknown";
+
+    /**
+     * Limites superiores (segundos) dos buckets do histograma
+     */
+    static final double[] BUCKET_BOUNDS_SECONDS = {0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    private static final String METRIC_NAME = "invoice_pipeline_stage_seconds";
+    private static final String ERROR_METRIC_NAME = "invoice_pipeline_stage_errors_total";
+
+    private final Map<StageKey, StageTimer> timers = new ConcurrentHashMap<>();
+    private final ThreadLocal<String> currentBrokerage = new ThreadLocal<>();
+    private final ThreadLocal<SessionScope> currentSession = new ThreadLocal<>();
+
+    /**
+     * Ação com exceção verificada (ex.: consultas remotas de séries)
+     */
+    @FunctionalInterface
+    public interface ThrowingSupplier<T> {
+        T get() throws Exception;
+    }
+
+    public <T> T time(PipelineStage stage, Supplier<T> action) {
+        return time(stage, currentBrokerage(), action);
+    }
+
+    public <T> T time(PipelineStage stage, String brokerage, Supplier<T> action) {
+        long started = System.nanoTime();
+        boolean success = false;
+        try {
+            T value = action.get();
+            success = true;
+            return value;
+        } finally {
+            record(stage, brokerage, System.nanoTime() - started, success);
+        }
+    }
+
+    public void time(PipelineStage stage, Runnable action) {
+        time(stage, currentBrokerage(), action);
+    }
+
+    public void time(PipelineStage stage, String brokerage, Runnable action) {
+        time(stage, brokerage, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public <T> T timeChecked(PipelineStage stage, ThrowingSupplier<T> action) throws Exception {
+        long started = System.nanoTime();
+        boolean success = false;
+        try {
+            T value = action.get();
+            success = true;
+            return value;
+        } finally {
+            record(stage, currentBrokerage(), System.nanoTime() - started, success);
+        }
+    }
+
+    /**
+     * Registra uma medição; também soma na sessão aberta na thread atual, se houver
+     */
+    public void record(PipelineStage stage, String brokerage, long nanos, boolean success) {
+        String label = brokerage == null || brokerage.isBlank() ? UNKNOWN_BROKERAGE : brokerage;
+        timers.computeIfAbsent(new StageKey(stage, label), key -> new StageTimer()).record(nanos, success);
+
+        SessionScope session = currentSession.get();
+        if (session != null) {
+            session.add(stage, nanos);
+        }
+    }
+
+    /**
+     * Define a corretora usada como rótulo pelas medições seguintes na thread atual
+     */
+    public void setCurrentBrokerage(String brokerage) {
+        if (brokerage == null) {
+            currentBrokerage.remove();
+        } else {
+            currentBrokerage.set(brokerage);
+        }
+    }
+
+    /**
+     * Rótulo da corretora sem disparar carregamento lazy fora de transação
+     */
+    public static String brokerageLabel(Brokerage brokerage) {
+        if (brokerage == null || !Hibernate.isInitialized(brokerage) || brokerage.getName() == null) {
+            return UNKNOWN_BROKERAGE;
+        }
+        return brokerage.getName();
+    }
+
+    public static String brokerageLabel(Invoice invoice) {
+        return invoice != null && Hibernate.isInitialized(invoice) ? brokerageLabel(invoice.getBrokerage()) : UNKNOWN_BROKERAGE;
+    }
+
+    public String currentBrokerage() {
+        String brokerage = currentBrokerage.get();
+        return brokerage != null ? brokerage : UNKNOWN_BROKERAGE;
+    }
+
+    /**
+     * Abre a contabilização por etapa de uma execução na thread atual
+     */
+    public SessionScope openSession() {
+        SessionScope session = new SessionScope();
+        currentSession.set(session);
+        currentBrokerage.remove();
+        return session;
+    }
+
+    public List<StageMetricsSnapshot> snapshot() {
+        List<StageMetricsSnapshot> snapshots = new ArrayList<>();
+        timers.forEach((key, timer) -> snapshots.add(StageMetricsSnapshot.builder()
+            .stage(key.stage().getLabel())
+            .brokerage(key.brokerage())
+            .count(timer.count.sum())
+            .errorCount(timer.errors.sum())
+            .totalMs(timer.totalNanos.sum() / 1_000_000.0)
+            .maxMs(timer.maxNanos.get() / 1_000_000.0)
+            .build()));
+        snapshots.sort(Comparator.comparing(StageMetricsSnapshot::getStage)
+            .thenComparing(StageMetricsSnapshot::getBrokerage));
+        return snapshots;
+    }
+
+    /**
+     * Exporta no formato texto de exposição do Prometheus (histograma + contador de erros)
+     */
+    public String toPrometheus() {
+        List<Map.Entry<StageKey, StageTimer>> entries = new ArrayList<>(timers.entrySet());
+        entries.sort(Comparator.comparing((Map.Entry<StageKey, StageTimer> entry) -> entry.getKey().stage())
+            .thenComparing(entry -> entry.getKey().brokerage()));
+
+        StringBuilder out = new StringBuilder();
+        out.append("# HELP ").append(METRIC_NAME).append(" Tempo por etapa do pipeline de invoices\n");
+        out.append("# TYPE ").append(METRIC_NAME).append(" histogram\n");
+        for (Map.Entry<StageKey, StageTimer> entry : entries) {
+            String labels = labels(entry.getKey());
+            StageTimer timer = entry.getValue();
+            long cumulative = 0;
+            for (int i = 0; i < BUCKET_BOUNDS_SECONDS.length; i++) {
+                cumulative += timer.buckets[i].sum();
+                out.append(METRIC_NAME).append("_bucket{").append(labels)
+                    .append(",le=\"").append(BUCKET_BOUNDS_SECONDS[i]).append("\"} ").append(cumulative).append('\n');
+            }
+            long count = timer.count.sum();
+            out.append(METRIC_NAME).append("_bucket{").append(labels).append(",le=\"+Inf\"} ").append(count).append('\n');
+            out.append(METRIC_NAME).append("_sum{").append(labels).append("} ")
+                .append(String.format(Locale.ROOT, "%.6f", timer.totalNanos.sum() / 1e9)).append('\n');
+            out.append(METRIC_NAME).append("_count{").append(labels).append("} ").append(count).append('\n');
+        }
+
+        out.append("# HELP ").append(ERROR_METRIC_NAME).append(" Falhas por etapa do pipeline de invoices\n");
+        out.append("# TYPE ").append(ERROR_METRIC_NAME).append(" counter\n");
+        for (Map.Entry<StageKey, StageTimer> entry : entries) {
+            out.append(ERROR_METRIC_NAME).append('{').append(labels(entry.getKey())).append("} ")
+                .append(entry.getValue().errors.sum()).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static String labels(StageKey key) {
+        return "stage=\"" + key.stage().getLabel() + "\",brokerage=\"" + escape(key.brokerage()) + "\"";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * Tempo acumulado por etapa de uma execução; fechar remove o estado da thread
+     */
+    public final class SessionScope implements AutoCloseable {
+
+        private final long[] nanos = new long[PipelineStage.values().length];
+
+        private SessionScope() {
+        }
+
+        private void add(PipelineStage stage, long elapsed) {
+            nanos[stage.ordinal()] += elapsed;
+        }
+
+        public Map<String, Long> getDurationsMs() {
+            Map<String, Long> durations = new LinkedHashMap<>();
+            for (PipelineStage stage : PipelineStage.values()) {
+                if (nanos[stage.ordinal()] > 0) {
+                    durations.put(stage.getLabel(), nanos[stage.ordinal()] / 1_000_000);
+                }
+            }
+            return durations;
+        }
+
+        @Override
+        public void close() {
+            if (currentSession.get() == this) {
+                currentSession.remove();
+                currentBrokerage.remove();
+            }
+        }
+    }
+
+    private record StageKey(PipelineStage stage, String brokerage) {
+    }
+
+    private static final class StageTimer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_SECONDS.length];
+
+        private StageTimer() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        private void record(long nanos, boolean success) {
+            count.increment();
+            if (!success) {
+                errors.increment();
+            }
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+
+            double seconds = nanos / 1e9;
+            for (int i = 0; i < BUCKET_BOUNDS_SECONDS.length; i++) {
+                if (seconds <= BUCKET_BOUNDS_SECONDS[i]) {
+                    buckets[i].increment();
+                    break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.olisystem.optionsmanager.service.invoice.processing.metrics;
+
+/**
+ * Etapas instrumentadas do pipeline de importação e processamento de invoices
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+public enum PipelineStage {
+    PDF_EXTRACTION("pdf_extraction"),
+    PARSER_SELECTION("parser_selection"),
+    PARSING("parsing"),
+    DUPLICATE_DETECTION("duplicate_detection"),
+    SERIES_LOOKUP_LOCAL("series_lookup_local"),
+    SERIES_LOOKUP_REMOTE("series_lookup_remote"),
+    OPERATION_CREATION("operation_creation"),
+    POSITION_UPDATE("position_update"),
+    LOG_WRITE("log_write");
+
+    private final String label;
+
+    PipelineStage(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
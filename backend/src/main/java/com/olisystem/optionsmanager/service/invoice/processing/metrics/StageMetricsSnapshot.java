@@ -0,0 +1,25 @@
+package com.olisystem.optionsmanager.service.invoice.processing.metrics;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Fotografia dos contadores de uma etapa para uma corretora
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Data
+@Builder
+public class StageMetricsSnapshot {
+    private String stage;
+    private String brokerage;
+    private long count;
+    private long errorCount;
+    private double totalMs;
+    private double maxMs;
+
+    public double getAverageMs() {
+        return count > 0 ? totalMs / count : 0;
+    }
+}
@@ -2,6 +2,8 @@ package com.olisystem.optionsmanager.service.invoice.processing.orchestrator;
 
 import com.olisystem.optionsmanager.model.auth.User;
 import com.olisystem.optionsmanager.model.invoice.Invoice;
+import com.olisystem.optionsmanager.service.invoice.processing.context.InvoiceBatchContext;
+import com.olisystem.optionsmanager.service.invoice.processing.context.InvoiceBatchContextLoader;
 import com.olisystem.optionsmanager.service.invoice.processing.detection.DetectionResult;
 import com.olisystem.optionsmanager.service.invoice.processing.detection.OperationDetectionEngine;
 import com.olisystem.optionsmanager.service.invoice.processing.integration.IntegrationResult;
@@ -17,9 +19,11 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Orquestrador principal do processamento de invoices
@@ -33,6 +37,9 @@ import java.util.function.Consumer;
 @Slf4j
 public class InvoiceProcessingOrchestrator {
 
+    // === CARGA DO LOTE ===
+    private final InvoiceBatchContextLoader contextLoader;
+
     // === SERVIÇOS DE VALIDAÇÃO ===
     private final InvoiceValidationService invoiceValidationService;
     private final DuplicateDetectionService duplicateDetectionService;
@@ -53,12 +60,18 @@ public class InvoiceProcessingOrchestrator {
         
         OrchestrationResult result = OrchestrationResult.builder()
             .totalInvoices(invoiceIds.size())
+            .startTime(System.currentTimeMillis())
             .build();
         
         try {
-            // 1. VALIDAÇÃO DE INVOICES
+            // 1. CARGA ÚNICA DO LOTE (invoices + itens + corretora + logs)
+            progressCallback.accept(createProgress(5, "Carregando invoices..."));
+            InvoiceBatchContext batchContext = timed(result, OrchestrationStage.LOADING,
+                () -> contextLoader.loadWithProcessingLogs(invoiceIds));
+            
+            // 2. VALIDAÇÃO DE INVOICES (sobre o snapshot em memória)
             progressCallback.accept(createProgress(10, "Validando invoices..."));
-            ValidationOrchestrationResult validationResult = validateInvoices(invoiceIds, user);
+            ValidationOrchestrationResult validationResult = validateInvoices(invoiceIds, batchContext, user, result);
             result.setValidationResult(validationResult);
             
             if (!validationResult.isCanProceed()) {
@@ -68,14 +81,16 @@ public class InvoiceProcessingOrchestrator {
                 return result;
             }
             
-            // 2. BUSCAR INVOICES VÁLIDAS
-            progressCallback.accept(createProgress(20, "Buscando invoices válidas..."));
-            List<Invoice> validInvoices = fetchValidInvoices(validationResult.getValidInvoiceIds());
+            // 3. RESTRINGIR O SNAPSHOT ÀS INVOICES VÁLIDAS
+            progressCallback.accept(createProgress(20, "Preparando invoices válidas..."));
+            InvoiceBatchContext validContext = batchContext.restrictTo(validationResult.getValidInvoiceIds());
+            List<Invoice> validInvoices = validContext.getInvoices();
             result.setProcessedInvoices(validInvoices);
             
-            // 3. DETECÇÃO DE OPERAÇÕES
+            // 4. DETECÇÃO DE OPERAÇÕES
             progressCallback.accept(createProgress(40, "Detectando operações..."));
-            DetectionResult detectionResult = detectionEngine.detectOperations(validInvoices, user);
+            DetectionResult detectionResult = timed(result, OrchestrationStage.DETECTION,
+                () -> detectionEngine.detectOperations(validContext, user));
             result.setDetectionResult(detectionResult);
             
             if (!detectionResult.isSuccess()) {
@@ -85,10 +100,11 @@ public class InvoiceProcessingOrchestrator {
                 return result;
             }
             
-            // 4. VALIDAÇÃO PARA INTEGRAÇÃO
+            // 5. VALIDAÇÃO PARA INTEGRAÇÃO
             progressCallback.accept(createProgress(60, "Validando operações para integração..."));
-            ValidationSummary integrationValidation = integrationProcessor.validateOperationsForIntegration(
-                detectionResult.getConsolidatedOperations(), user);
+            ValidationSummary integrationValidation = timed(result, OrchestrationStage.INTEGRATION_VALIDATION,
+                () -> integrationProcessor.validateOperationsForIntegration(
+                    detectionResult.getConsolidatedOperations(), user));
             result.setIntegrationValidation(integrationValidation);
             
             if (integrationValidation.getValidCount() == 0) {
@@ -98,14 +114,16 @@ public class InvoiceProcessingOrchestrator {
                 return result;
             }
             
-            // 5. INTEGRAÇÃO DE OPERAÇÕES
+            // 6. INTEGRAÇÃO DE OPERAÇÕES
             progressCallback.accept(createProgress(80, "Integrando operações..."));
-            IntegrationResult integrationResult = integrationProcessor.processIntegration(
-                detectionResult.getConsolidatedOperations(), validInvoices, user);
+            IntegrationResult integrationResult = timed(result, OrchestrationStage.INTEGRATION,
+                () -> integrationProcessor.processIntegration(
+                    detectionResult.getConsolidatedOperations(), validInvoices, user));
             result.setIntegrationResult(integrationResult);
             
-            // 6. FINALIZAÇÃO
+            // 7. FINALIZAÇÃO
             progressCallback.accept(createProgress(100, "Processamento concluído!"));
+            result.setSuccess(true);
             calculateFinalStatistics(result);
             
             log.info("✅ Orquestração concluída: {} operações criadas, {} erros", 
@@ -116,15 +134,19 @@ public class InvoiceProcessingOrchestrator {
             log.error("❌ Erro durante orquestração: {}", e.getMessage(), e);
             result.setSuccess(false);
             result.setErrorMessage("Erro na orquestração: " + e.getMessage());
+        } finally {
+            result.setEndTime(System.currentTimeMillis());
+            log.info("⏱️ Tempos por etapa (ms): {}", result.getStageDurationsMs());
         }
         
         return result;
     }
 
     /**
-     * Valida uma lista de invoices
+     * Valida as invoices do lote usando o snapshot já carregado (sem consultas por invoice)
      */
-    private ValidationOrchestrationResult validateInvoices(List<UUID> invoiceIds, User user) {
+    private ValidationOrchestrationResult validateInvoices(List<UUID> invoiceIds, InvoiceBatchContext batchContext,
+                                                           User user, OrchestrationResult orchestration) {
         log.info("🔍 Validando {} invoices", invoiceIds.size());
         
         ValidationOrchestrationResult result = ValidationOrchestrationResult.builder()
@@ -133,61 +155,75 @@ public class InvoiceProcessingOrchestrator {
         
         try {
             // 1. Validação básica de invoices
-            for (UUID invoiceId : invoiceIds) {
-                try {
-                    // TODO: Buscar invoice real quando repository estiver disponível
-                    Invoice mockInvoice = createMockInvoice(invoiceId);
+            timed(orchestration, OrchestrationStage.VALIDATION, () -> {
+                for (UUID invoiceId : invoiceIds) {
+                    Invoice invoice = batchContext.findInvoice(invoiceId).orElse(null);
+                    if (invoice == null) {
+                        result.getInvalidInvoiceIds().add(invoiceId);
+                        result.addValidationError(String.format("Invoice %s: não encontrada", invoiceId));
+                        continue;
+                    }
                     
-                    InvoiceValidationResult validation = invoiceValidationService.validateInvoice(mockInvoice);
-                    if (validation.isValid()) {
-                        result.getValidInvoiceIds().add(invoiceId);
-                    } else {
+                    try {
+                        InvoiceValidationResult validation = invoiceValidationService.validateInvoice(
+                            invoice, batchContext.getItems(invoiceId));
+                        if (validation.isValid()) {
+                            result.getValidInvoiceIds().add(invoiceId);
+                        } else {
+                            result.getInvalidInvoiceIds().add(invoiceId);
+                            result.addValidationError(String.format("Invoice %s: %s", 
+                            invoiceId, validation.getErrors().isEmpty() ? "Erro de validação" : validation.getErrors().get(0)));
+                        }
+                    } catch (Exception e) {
+                        log.warn("⚠️ Erro ao validar invoice {}: {}", invoiceId, e.getMessage());
                         result.getInvalidInvoiceIds().add(invoiceId);
-                        result.addValidationError(String.format("Invoice %s: %s", 
-                        invoiceId, validation.getErrors().isEmpty() ? "Erro de validação" : validation.getErrors().get(0)));
+                        result.addValidationError(String.format("Invoice %s: Erro interno", invoiceId));
                     }
-                } catch (Exception e) {
-                    log.warn("⚠️ Erro ao validar invoice {}: {}", invoiceId, e.getMessage());
-                    result.getInvalidInvoiceIds().add(invoiceId);
-                    result.addValidationError(String.format("Invoice %s: Erro interno", invoiceId));
                 }
-            }
+                return null;
+            });
             
             // 2. Detecção de duplicatas
             if (!result.getValidInvoiceIds().isEmpty()) {
-                // TODO: Buscar invoices válidas quando repository estiver disponível
-                List<Invoice> validInvoices = result.getValidInvoiceIds().stream()
-                    .map(this::createMockInvoice)
-                    .toList();
-                
-                DuplicateDetectionResult duplicateResult = duplicateDetectionService.detectDuplicates(validInvoices);
+                DuplicateDetectionResult duplicateResult = timed(orchestration, OrchestrationStage.DUPLICATE_CHECK,
+                    () -> duplicateDetectionService.detectDuplicates(batchContext.restrictTo(result.getValidInvoiceIds())));
                 if (duplicateResult.hasDuplicates()) {
                     result.setHasDuplicates(true);
                     result.addValidationError("Duplicatas detectadas: " + duplicateResult.getSummary());
                 }
             }
             
-            // 3. Validação de reprocessamento
-            for (UUID invoiceId : result.getValidInvoiceIds()) {
-                try {
-                    Invoice mockInvoice = createMockInvoice(invoiceId);
-                    ReprocessingValidationResult reprocessingResult = reprocessingValidationService.validateReprocessing(mockInvoice, user);
-                    
-                    if (!reprocessingResult.isCanReprocess()) {
-                        result.getInvalidInvoiceIds().add(invoiceId);
-                        result.getValidInvoiceIds().remove(invoiceId);
-                        result.addValidationError(String.format("Invoice %s: %s", 
-                            invoiceId, reprocessingResult.getRejectionReason()));
+            // 3. Validação de reprocessamento (com o log anterior já carregado no snapshot)
+            timed(orchestration, OrchestrationStage.REPROCESSING_CHECK, () -> {
+                // ✅ CORREÇÃO: itera sobre uma cópia, pois invoices rejeitadas são removidas da lista de válidas
+                for (UUID invoiceId : new ArrayList<>(result.getValidInvoiceIds())) {
+                    try {
+                        Invoice invoice = batchContext.findInvoice(invoiceId).orElseThrow();
+                        ReprocessingValidationResult reprocessingResult = reprocessingValidationService.validateReprocessing(
+                            invoice, batchContext.getItems(invoiceId), user,
+                            batchContext.findProcessingLog(invoiceId).orElse(null));
+                        
+                        if (!reprocessingResult.isCanReprocess()) {
+                            result.getInvalidInvoiceIds().add(invoiceId);
+                            result.getValidInvoiceIds().remove(invoiceId);
+                            result.addValidationError(String.format("Invoice %s: %s", 
+                                invoiceId, reprocessingResult.getRejectionReason()));
+                        }
+                    } catch (Exception e) {
+                        log.warn("⚠️ Erro ao validar reprocessamento da invoice {}: {}", invoiceId, e.getMessage());
                     }
-                } catch (Exception e) {
-                    log.warn("⚠️ Erro ao validar reprocessamento da invoice {}: {}", invoiceId, e.getMessage());
                 }
-            }
+                return null;
+            });
             
             // 4. Calcular estatísticas
             result.setValidCount(result.getValidInvoiceIds().size());
             result.setInvalidCount(result.getInvalidInvoiceIds().size());
             result.setCanProceed(result.getValidCount() > 0 && !result.isHasDuplicates());
+            if (!result.isCanProceed()) {
+                result.setRejectionReason(result.isHasDuplicates()
+                    ? "Duplicatas detectadas no lote" : "Nenhuma invoice válida para processamento");
+            }
             
             log.info("✅ Validação concluída: {} válidas, {} inválidas, duplicatas: {}", 
                 result.getValidCount(), result.getInvalidCount(), result.isHasDuplicates());
@@ -202,15 +238,15 @@ public class InvoiceProcessingOrchestrator {
     }
 
     /**
-     * Busca invoices válidas
+     * Executa uma etapa registrando sua duração no resultado
      */
-    private List<Invoice> fetchValidInvoices(List<UUID> validInvoiceIds) {
-        log.info("📋 Buscando {} invoices válidas", validInvoiceIds.size());
-        
-        // TODO: Implementar busca real quando repository estiver disponível
-        return validInvoiceIds.stream()
-            .map(this::createMockInvoice)
-            .toList();
+    private <T> T timed(OrchestrationResult result, OrchestrationStage stage, Supplier<T> step) {
+        long start = System.currentTimeMillis();
+        try {
+            return step.get();
+        } finally {
+            result.recordStageDuration(stage, System.currentTimeMillis() - start);
+        }
     }
 
     /**
@@ -252,23 +288,6 @@ public class InvoiceProcessingOrchestrator {
             .build();
     }
 
-    /**
-     * Cria invoice mock para testes
-     */
-    private Invoice createMockInvoice(UUID invoiceId) {
-        Invoice invoice = new Invoice();
-        invoice.setId(invoiceId);
-        invoice.setInvoiceNumber("NOTA_" + invoiceId.toString().substring(0, 8));
-        invoice.setTradingDate(java.time.LocalDate.now());
-        
-        User mockUser = new User();
-        mockUser.setId(UUID.randomUUID());
-        mockUser.setEmail("usuario@teste.com");
-        invoice.setUser(mockUser);
-        
-        return invoice;
-    }
-
     /**
      * Processa uma única invoice
      */
@@ -7,7 +7,9 @@ import com.olisystem.optionsmanager.service.invoice.processing.integration.Valid
 import lombok.Builder;
 import lombok.Data;
 
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Resultado principal da orquestração de processamento de invoices
@@ -45,6 +47,17 @@ public class OrchestrationResult {
     private IntegrationResult integrationResult;
     private List<Invoice> processedInvoices;
     
+    // === TEMPOS POR ETAPA ===
+    @Builder.Default
+    private Map<OrchestrationStage, Long> stageDurationsMs = new EnumMap<>(OrchestrationStage.class);
+    
+    /**
+     * Registra a duração de uma etapa em milissegundos
+     */
+    public void recordStageDuration(OrchestrationStage stage, long durationMs) {
+        stageDurationsMs.put(stage, durationMs);
+    }
+    
     /**
      * Verifica se a orquestração foi bem-sucedida
      */
@@ -0,0 +1,45 @@
+package com.olisystem.optionsmanager.service.invoice.processing.orchestrator;
+
+/**
+ * Etapas da orquestração com duração medida em {@link OrchestrationResult}
+ * 
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-20
+ */
+public enum OrchestrationStage {
+    
+    /**
+     * Carga do snapshot do lote (invoices, itens, corretora e logs)
+     */
+    LOADING,
+    
+    /**
+     * Validação básica das invoices
+     */
+    VALIDATION,
+    
+    /**
+     * Detecção de duplicatas
+     */
+    DUPLICATE_CHECK,
+    
+    /**
+     * Validação de reprocessamento
+     */
+    REPROCESSING_CHECK,
+    
+    /**
+     * Detecção e consolidação de operações
+     */
+    DETECTION,
+    
+    /**
+     * Validação das operações para integração
+     */
+    INTEGRATION_VALIDATION,
+    
+    /**
+     * Integração das operações
+     */
+    INTEGRATION
+}
@@ -29,9 +29,12 @@ public class ValidationOrchestrationResult {
     private boolean hasDuplicates;
     
     // === INVOICES ===
-    private List<UUID> validInvoiceIds;
-    private List<UUID> invalidInvoiceIds;
-    private List<String> validationErrors;
+    @Builder.Default
+    private List<UUID> validInvoiceIds = new ArrayList<>();
+    @Builder.Default
+    private List<UUID> invalidInvoiceIds = new ArrayList<>();
+    @Builder.Default
+    private List<String> validationErrors = new ArrayList<>();
     
     /**
      * Adiciona erro de validação
@@ -0,0 +1,198 @@
+package com.olisystem.optionsmanager.service.invoice.processing.session;
+
+import com.olisystem.optionsmanager.service.invoice.processing.ProcessingProgress;
+import com.olisystem.optionsmanager.service.invoice.processing.ProcessingResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sessão de processamento com gerenciamento de SSE
+ * Thread-safe: atualizada pela thread de processamento e lida pelos endpoints de status.
+ * O histórico de mensagens e erros é limitado para não crescer indefinidamente.
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Slf4j
+public class ProcessingSession {
+
+    private final String sessionId;
+    private final int totalInvoices;
+    private final long startTime;
+    private final int maxRetainedMessages;
+
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private final Deque<String> messages = new ArrayDeque<>();
+    private final Deque<String> errors = new ArrayDeque<>();
+    private final AtomicInteger droppedMessages = new AtomicInteger();
+
+    private volatile ProcessingProgress currentProgress;
+    private volatile ProcessingResult result;
+    private volatile boolean completed = false;
+    private volatile boolean cancelled = false;
+    private volatile String errorMessage;
+    private volatile long lastActivityMillis;
+    private volatile long completedAtMillis;
+
+    ProcessingSession(String sessionId, int totalInvoices, int maxRetainedMessages) {
+        this.sessionId = sessionId;
+        this.totalInvoices = totalInvoices;
+        this.maxRetainedMessages = maxRetainedMessages;
+        this.startTime = System.currentTimeMillis();
+        this.lastActivityMillis = startTime;
+    }
+
+    /**
+     * Conecta um emitter; ele é removido ao completar, expirar ou falhar
+     */
+    public void addEmitter(SseEmitter emitter) {
+        emitters.add(emitter);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(throwable -> emitters.remove(emitter));
+        touch();
+        log.debug("📡 Emitter adicionado à sessão {}. Total: {}", sessionId, emitters.size());
+    }
+
+    /**
+     * Atualiza o progresso e registra a etapa no histórico quando ela muda
+     */
+    public void updateProgress(ProcessingProgress progress) {
+        ProcessingProgress previous = this.currentProgress;
+        this.currentProgress = progress;
+        sendEvent("progress", progress);
+
+        boolean stepChanged = previous == null || !Objects.equals(previous.getCurrentStep(), progress.getCurrentStep());
+        if (stepChanged && progress.getCurrentStep() != null) {
+            addMessage("📊 " + progress.getCurrentStep());
+        }
+    }
+
+    public void addMessage(String message) {
+        append(messages, message);
+        sendEvent("message", Map.of("message", message));
+    }
+
+    public void addError(String error) {
+        append(errors, error);
+        sendEvent("error", Map.of("error", error));
+    }
+
+    /**
+     * Finaliza a sessão com resultado, envia o evento final e fecha os emitters
+     */
+    public void complete(ProcessingResult result, Object completionEvent) {
+        this.result = result;
+        markCompleted();
+        sendEvent("complete", completionEvent);
+        closeEmitters();
+    }
+
+    /**
+     * Finaliza a sessão com erro, envia o evento de erro e fecha os emitters
+     */
+    public void fail(String errorMessage) {
+        this.errorMessage = errorMessage;
+        markCompleted();
+        sendEvent("error", Map.of("error", errorMessage != null ? errorMessage : "Erro desconhecido"));
+        closeEmitters();
+    }
+
+    public void cancel() {
+        this.cancelled = true;
+        touch();
+    }
+
+    /**
+     * Envia um evento para todos os emitters conectados, descartando os que falharem
+     */
+    public void sendEvent(String event, Object data) {
+        touch();
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().name(event).data(data));
+            } catch (Exception e) {
+                // IOException (cliente desconectou) ou IllegalStateException (emitter já completado)
+                log.debug("🔌 Removendo emitter da sessão {}: {}", sessionId, e.getMessage());
+                emitters.remove(emitter);
+            }
+        }
+    }
+
+    /**
+     * Fecha todos os emitters conectados
+     */
+    public void closeEmitters() {
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.complete();
+            } catch (Exception e) {
+                log.debug("⚠️ Erro ao fechar emitter da sessão {}: {}", sessionId, e.getMessage());
+            }
+        }
+        emitters.clear();
+    }
+
+    private void markCompleted() {
+        this.completed = true;
+        this.completedAtMillis = System.currentTimeMillis();
+        touch();
+    }
+
+    private void append(Deque<String> history, String entry) {
+        String timestamped = String.format("[%s] %s", LocalDateTime.now().toString().substring(11, 19), entry);
+        synchronized (history) {
+            history.addLast(timestamped);
+            while (history.size() > maxRetainedMessages) {
+                history.removeFirst();
+                droppedMessages.incrementAndGet();
+            }
+        }
+        touch();
+    }
+
+    private List<String> snapshot(Deque<String> history) {
+        synchronized (history) {
+            return List.copyOf(history);
+        }
+    }
+
+    private void touch() {
+        this.lastActivityMillis = System.currentTimeMillis();
+    }
+
+    // Getters
+    public String getSessionId() { return sessionId; }
+    public int getTotalInvoices() { return totalInvoices; }
+    public ProcessingProgress getCurrentProgress() { return currentProgress; }
+    public ProcessingResult getResult() { return result; }
+    public boolean isCompleted() { return completed; }
+    public boolean isCancelled() { return cancelled; }
+    public String getErrorMessage() { return errorMessage; }
+    public List<String> getMessages() { return snapshot(messages); }
+    public List<String> getErrors() { return snapshot(errors); }
+    public int getDroppedMessages() { return droppedMessages.get(); }
+    public int getEmitterCount() { return emitters.size(); }
+    public long getLastActivityMillis() { return lastActivityMillis; }
+    public long getCompletedAtMillis() { return completedAtMillis; }
+    public long getElapsedTimeSeconds() { return (System.currentTimeMillis() - startTime) / 1000; }
+
+    int getRetainedMessageCount() {
+        return sizeOf(messages) + sizeOf(errors);
+    }
+
+    private static int sizeOf(Deque<String> history) {
+        synchronized (history) {
+            return history.size();
+        }
+    }
+}
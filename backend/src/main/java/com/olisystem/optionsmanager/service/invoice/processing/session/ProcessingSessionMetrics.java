@@ -0,0 +1,22 @@
+package com.olisystem.optionsmanager.service.invoice.processing.session;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Métricas das sessões de processamento mantidas em memória
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Data
+@Builder
+public class ProcessingSessionMetrics {
+    private int activeSessions;
+    private int runningSessions;
+    private int completedSessions;
+    private int connectedEmitters;
+    private int retainedMessages;
+    private long totalCreated;
+    private long totalEvicted;
+}
@@ -0,0 +1,161 @@
+package com.olisystem.optionsmanager.service.invoice.processing.session;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registro único das sessões de processamento em andamento
+ * ✅ OTIMIZAÇÃO: Sessões concluídas e sessões ociosas são removidas periodicamente,
+ * evitando que uma instância de longa duração acumule sessões em memória
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Service
+@Slf4j
+public class ProcessingSessionRegistry {
+
+    /**
+     * Mensagens (e erros) mantidos por sessão
+     */
+    static final int MAX_RETAINED_MESSAGES = 200;
+
+    /**
+     * Tempo que uma sessão concluída permanece disponível para consulta de status
+     */
+    static final long COMPLETED_SESSION_TTL_MS = TimeUnit.MINUTES.toMillis(15);
+
+    /**
+     * Sessões sem nenhuma atividade por este tempo são consideradas abandonadas
+     */
+    static final long IDLE_SESSION_TTL_MS = TimeUnit.MINUTES.toMillis(60);
+
+    private final ConcurrentHashMap<String, ProcessingSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong totalCreated = new AtomicLong();
+    private final AtomicLong totalEvicted = new AtomicLong();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "processing-session-eviction");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ProcessingSessionRegistry() {
+        scheduler.scheduleAtFixedRate(this::evictExpiredSessions, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        sessions.values().forEach(ProcessingSession::closeEmitters);
+        sessions.clear();
+    }
+
+    /**
+     * Cria e registra uma nova sessão
+     */
+    public ProcessingSession create(int totalInvoices) {
+        String sessionId = UUID.randomUUID().toString();
+        ProcessingSession session = new ProcessingSession(sessionId, totalInvoices, MAX_RETAINED_MESSAGES);
+        sessions.put(sessionId, session);
+        totalCreated.incrementAndGet();
+        log.debug("🆕 Sessão de processamento criada: {} ({} invoices)", sessionId, totalInvoices);
+        return session;
+    }
+
+    public Optional<ProcessingSession> find(String sessionId) {
+        return Optional.ofNullable(sessions.get(sessionId));
+    }
+
+    /**
+     * Remove a sessão e fecha seus emitters
+     */
+    public void remove(String sessionId) {
+        ProcessingSession session = sessions.remove(sessionId);
+        if (session != null) {
+            session.closeEmitters();
+        }
+    }
+
+    public Set<String> getSessionIds() {
+        return Set.copyOf(sessions.keySet());
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Métricas atuais das sessões registradas
+     */
+    public ProcessingSessionMetrics getMetrics() {
+        int running = 0;
+        int completed = 0;
+        int emitters = 0;
+        int retainedMessages = 0;
+
+        for (ProcessingSession session : sessions.values()) {
+            if (session.isCompleted()) {
+                completed++;
+            } else {
+                running++;
+            }
+            emitters += session.getEmitterCount();
+            retainedMessages += session.getRetainedMessageCount();
+        }
+
+        return ProcessingSessionMetrics.builder()
+            .activeSessions(running + completed)
+            .runningSessions(running)
+            .completedSessions(completed)
+            .connectedEmitters(emitters)
+            .retainedMessages(retainedMessages)
+            .totalCreated(totalCreated.get())
+            .totalEvicted(totalEvicted.get())
+            .build();
+    }
+
+    /**
+     * Remove sessões concluídas há mais de COMPLETED_SESSION_TTL_MS
+     * e sessões sem atividade há mais de IDLE_SESSION_TTL_MS
+     *
+     * @return quantidade de sessões removidas
+     */
+    int evictExpiredSessions(long nowMillis) {
+        int evicted = 0;
+        for (ProcessingSession session : sessions.values()) {
+            boolean expired = session.isCompleted()
+                ? nowMillis - session.getCompletedAtMillis() > COMPLETED_SESSION_TTL_MS
+                : nowMillis - session.getLastActivityMillis() > IDLE_SESSION_TTL_MS;
+
+            if (expired && sessions.remove(session.getSessionId(), session)) {
+                session.closeEmitters();
+                evicted++;
+            }
+        }
+
+        if (evicted > 0) {
+            totalEvicted.addAndGet(evicted);
+            log.info("🧹 {} sessões de processamento removidas. Ativas: {}", evicted, sessions.size());
+        }
+        return evicted;
+    }
+
+    private void evictExpiredSessions() {
+        try {
+            evictExpiredSessions(System.currentTimeMillis());
+        } catch (Exception e) {
+            log.error("❌ Erro ao remover sessões expiradas: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.olisystem.optionsmanager.service.invoice.processing.validation;
 import com.olisystem.optionsmanager.model.invoice.Invoice;
 import com.olisystem.optionsmanager.model.invoice.InvoiceItem;
 import com.olisystem.optionsmanager.repository.InvoiceItemRepository;
+import com.olisystem.optionsmanager.service.invoice.processing.context.InvoiceBatchContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -33,35 +34,38 @@ public class BatchLimitValidator {
 
     /**
      * Valida limites de lote para processamento
-     * ✅ CORREÇÃO: Usa repositório para buscar itens
+     * Ponto de entrada legado: monta o contexto do lote e delega
      */
     public BatchLimitValidationResult validateBatchLimits(List<Invoice> invoices) {
-        log.info("🔍 Validando limites de lote para {} invoices", invoices.size());
+        return validateBatchLimits(InvoiceBatchContext.of(invoices, invoiceItemRepository::findByInvoiceIdWithAllRelations));
+    }
+
+    /**
+     * Valida limites de lote sobre o snapshot já carregado
+     * ✅ NOVO: Nenhum acesso ao banco - os itens vêm do contexto do lote
+     */
+    public BatchLimitValidationResult validateBatchLimits(InvoiceBatchContext context) {
+        log.info("🔍 Validando limites de lote para {} invoices", context.getInvoiceCount());
         
         BatchLimitValidationResult result = new BatchLimitValidationResult();
         
         try {
             // Validar número de invoices
-            validateInvoiceCount(invoices, result);
+            validateInvoiceCount(context.getInvoices(), result);
             
-            // ✅ CORREÇÃO: Buscar todos os itens via repositório
-            List<InvoiceItem> allItems = new ArrayList<>();
-            for (Invoice invoice : invoices) {
-                List<InvoiceItem> items = invoiceItemRepository.findByInvoiceIdWithAllRelations(invoice.getId());
-                allItems.addAll(items);
-            }
+            List<InvoiceItem> allItems = context.getAllItems();
             
             // Validar número total de itens
             validateTotalItemCount(allItems, result);
             
             // Validar itens por invoice
-            validateItemsPerInvoice(invoices, result);
+            validateItemsPerInvoice(context, result);
             
             // Validar valor total do lote
             validateTotalBatchValue(allItems, result);
             
             log.info("✅ Validação de limites concluída: {} itens, {} invoices", 
-                allItems.size(), invoices.size());
+                allItems.size(), context.getInvoiceCount());
             
         } catch (Exception e) {
             log.error("❌ Erro durante validação de limites: {}", e.getMessage(), e);
@@ -102,11 +106,10 @@ public class BatchLimitValidator {
 
     /**
      * Valida número de itens por invoice
-     * ✅ CORREÇÃO: Usa repositório para buscar itens
      */
-    private void validateItemsPerInvoice(List<Invoice> invoices, BatchLimitValidationResult result) {
-        for (Invoice invoice : invoices) {
-            List<InvoiceItem> items = invoiceItemRepository.findByInvoiceIdWithAllRelations(invoice.getId());
+    private void validateItemsPerInvoice(InvoiceBatchContext context, BatchLimitValidationResult result) {
+        for (Invoice invoice : context.getInvoices()) {
+            List<InvoiceItem> items = context.getItems(invoice.getId());
             
             if (items.size() > MAX_ITEMS_PER_INVOICE) {
                 result.addError(String.format("Invoice %s excede limite de %d itens (atual: %d)", 
@@ -139,6 +142,13 @@ public class BatchLimitValidator {
         return result.isValid();
     }
 
+    /**
+     * Verifica se um lote já carregado pode ser processado
+     */
+    public boolean canProcessBatch(InvoiceBatchContext context) {
+        return validateBatchLimits(context).isValid();
+    }
+
     /**
      * Resultado da validação de limites de lote
      */
@@ -2,9 +2,11 @@ package com.olisystem.optionsmanager.service.invoice.processing.validation;
 
 import com.olisystem.optionsmanager.model.invoice.Invoice;
 import com.olisystem.optionsmanager.model.invoice.InvoiceItem;
-import com.olisystem.optionsmanager.model.operation.OperationSourceMapping;
 import com.olisystem.optionsmanager.repository.InvoiceItemRepository;
 import com.olisystem.optionsmanager.repository.OperationSourceMappingRepository;
+import com.olisystem.optionsmanager.service.invoice.processing.context.InvoiceBatchContext;
+import com.olisystem.optionsmanager.service.invoice.processing.metrics.PipelineMetrics;
+import com.olisystem.optionsmanager.service.invoice.processing.metrics.PipelineStage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -27,6 +29,7 @@ public class DuplicateDetectionService {
 
     private final InvoiceItemRepository invoiceItemRepository;
     private final OperationSourceMappingRepository sourceMappingRepository;
+    private final PipelineMetrics pipelineMetrics;
 
     // Configurações de detecção
     private static final BigDecimal PRICE_SIMILARITY_THRESHOLD = BigDecimal.valueOf(0.01); // 1 centavo
@@ -34,26 +37,31 @@ public class DuplicateDetectionService {
 
     /**
      * Detecta duplicatas em uma lista de invoices
-     * ✅ CORREÇÃO: Usa repositório para buscar itens
+     * Ponto de entrada legado: monta o contexto do lote e delega
      */
     public DuplicateDetectionResult detectDuplicates(List<Invoice> invoices) {
-        log.info("🔍 Detectando duplicatas em {} invoices", invoices.size());
+        return detectDuplicates(InvoiceBatchContext.of(invoices, invoiceItemRepository::findByInvoiceIdWithAllRelations));
+    }
+
+    /**
+     * Detecta duplicatas sobre o snapshot já carregado do lote
+     * ✅ NOVO: Itens vêm do contexto - sem recarregar por etapa
+     */
+    public DuplicateDetectionResult detectDuplicates(InvoiceBatchContext context) {
+        log.info("🔍 Detectando duplicatas em {} invoices", context.getInvoiceCount());
         
         DuplicateDetectionResult result = new DuplicateDetectionResult();
+        long started = System.nanoTime();
         
         try {
-            // ✅ CORREÇÃO: Buscar todos os itens via repositório
-            List<InvoiceItem> allItems = new ArrayList<>();
-            for (Invoice invoice : invoices) {
-                List<InvoiceItem> items = invoiceItemRepository.findByInvoiceIdWithAllRelations(invoice.getId());
-                allItems.addAll(items);
-            }
+            List<InvoiceItem> allItems = context.getAllItems();
             
             log.info("📊 Analisando {} itens para duplicatas", allItems.size());
             
             // Detectar diferentes tipos de duplicatas
-            detectProcessedItems(invoices, result);
-            detectBusinessRuleDuplicates(allItems, result);
+            // ✅ OTIMIZAÇÃO: A antiga verificação por regra de negócio (mesmo ativo, tipo, quantidade,
+            // preço e data) era um subconjunto da verificação de preços similares e foi removida
+            detectProcessedItems(context, result);
             detectSimilarPriceDuplicates(allItems, result);
             detectTimeBasedDuplicates(allItems, result);
             
@@ -64,58 +72,35 @@ public class DuplicateDetectionService {
             result.addError("Erro na detecção: " + e.getMessage());
         }
         
+        pipelineMetrics.record(PipelineStage.DUPLICATE_DETECTION, pipelineMetrics.currentBrokerage(),
+            System.nanoTime() - started, result.getErrors().isEmpty());
         return result;
     }
 
     /**
      * Detecta itens já processados anteriormente
-     * ✅ CORREÇÃO: Usa repositório para buscar itens
+     * ✅ OTIMIZAÇÃO: Uma única consulta por lote em vez de uma consulta por item
      */
-    private void detectProcessedItems(List<Invoice> invoices, DuplicateDetectionResult result) {
-        List<InvoiceItem> allItems = new ArrayList<>();
-        for (Invoice invoice : invoices) {
-            List<InvoiceItem> items = invoiceItemRepository.findByInvoiceIdWithAllRelations(invoice.getId());
-            allItems.addAll(items);
-        }
+    private void detectProcessedItems(InvoiceBatchContext context, DuplicateDetectionResult result) {
+        if (context.getAllItems().isEmpty()) return;
         
-        for (InvoiceItem item : allItems) {
-            // Verificar se já existe OperationSourceMapping para este item
-            Optional<OperationSourceMapping> existingMapping = sourceMappingRepository
-                .findByInvoiceItem(item);
-            
-            if (existingMapping.isPresent()) {
+        Set<UUID> mappedItemIds = new HashSet<>(
+            sourceMappingRepository.findMappedInvoiceItemIdsByInvoiceIds(context.getInvoiceIds()));
+        if (mappedItemIds.isEmpty()) return;
+        
+        for (InvoiceItem item : context.getAllItems()) {
+            if (item.getId() != null && mappedItemIds.contains(item.getId())) {
                 result.addDuplicateItem(item, "Item já processado anteriormente");
                 log.debug("🔄 Item {} já foi processado anteriormente", item.getId());
             }
         }
     }
 
-    /**
-     * Detecta duplicatas por regras de negócio
-     * ✅ CORREÇÃO: Recebe lista de itens como parâmetro
-     */
-    private void detectBusinessRuleDuplicates(List<InvoiceItem> allItems, DuplicateDetectionResult result) {
-        // Agrupar itens por critérios de negócio
-        Map<String, List<InvoiceItem>> itemsByBusinessKey = new HashMap<>();
-        
-        for (InvoiceItem item : allItems) {
-            String businessKey = createBusinessKey(item);
-            itemsByBusinessKey.computeIfAbsent(businessKey, k -> new ArrayList<>()).add(item);
-        }
-        
-        // Verificar grupos com múltiplos itens
-        for (Map.Entry<String, List<InvoiceItem>> entry : itemsByBusinessKey.entrySet()) {
-            List<InvoiceItem> items = entry.getValue();
-            
-            if (items.size() > 1) {
-                // Verificar se são realmente duplicatas (preços similares)
-                detectSimilarPriceDuplicates(items, result);
-            }
-        }
-    }
-
     /**
      * Detecta duplicatas por preços similares
+     * ✅ OTIMIZAÇÃO: Ordena cada grupo por preço e compara apenas vizinhos - O(n log n).
+     * Após a ordenação, um item tem algum par com preço similar se e somente se
+     * um de seus vizinhos imediatos estiver dentro do limiar.
      */
     private void detectSimilarPriceDuplicates(List<InvoiceItem> items, DuplicateDetectionResult result) {
         if (items.size() < 2) return;
@@ -123,24 +108,25 @@ public class DuplicateDetectionService {
         // Agrupar por ativo e tipo de operação
         Map<String, List<InvoiceItem>> itemsByAssetAndType = items.stream()
             .filter(item -> item.getAssetCode() != null && item.getOperationType() != null)
+            .filter(item -> item.getUnitPrice() != null)
             .collect(Collectors.groupingBy(item -> 
                 item.getAssetCode() + "_" + item.getOperationType()));
         
         for (List<InvoiceItem> group : itemsByAssetAndType.values()) {
             if (group.size() < 2) continue;
             
-            // Verificar preços similares
-            for (int i = 0; i < group.size(); i++) {
-                for (int j = i + 1; j < group.size(); j++) {
-                    InvoiceItem item1 = group.get(i);
-                    InvoiceItem item2 = group.get(j);
-                    
-                    if (arePricesSimilar(item1.getUnitPrice(), item2.getUnitPrice())) {
-                        String reason = String.format("Preços similares: %s vs %s", 
-                            item1.getUnitPrice(), item2.getUnitPrice());
-                        result.addDuplicateItem(item1, reason);
-                        result.addDuplicateItem(item2, reason);
-                    }
+            List<InvoiceItem> sorted = new ArrayList<>(group);
+            sorted.sort(Comparator.comparing(InvoiceItem::getUnitPrice));
+            
+            for (int i = 1; i < sorted.size(); i++) {
+                InvoiceItem previous = sorted.get(i - 1);
+                InvoiceItem current = sorted.get(i);
+                
+                if (arePricesSimilar(previous.getUnitPrice(), current.getUnitPrice())) {
+                    String reason = String.format("Preços similares: %s vs %s", 
+                        previous.getUnitPrice(), current.getUnitPrice());
+                    result.addDuplicateItem(previous, reason);
+                    result.addDuplicateItem(current, reason);
                 }
             }
         }
@@ -166,19 +152,6 @@ public class DuplicateDetectionService {
         }
     }
 
-    /**
-     * Cria chave de negócio para um item
-     */
-    private String createBusinessKey(InvoiceItem item) {
-        return String.format("%s_%s_%s_%s_%s",
-            item.getAssetCode(),
-            item.getOperationType(),
-            item.getQuantity(),
-            item.getUnitPrice(),
-            item.getInvoice() != null ? item.getInvoice().getTradingDate() : "unknown"
-        );
-    }
-
     /**
      * Verifica se dois preços são similares
      */
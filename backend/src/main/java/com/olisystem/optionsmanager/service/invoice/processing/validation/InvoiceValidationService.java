@@ -41,6 +41,13 @@ public class InvoiceValidationService {
      * ✅ CORREÇÃO: Usa repositório para buscar itens
      */
     public InvoiceValidationResult validateInvoice(Invoice invoice) {
+        return validateInvoice(invoice, invoiceItemRepository.findByInvoiceIdWithAllRelations(invoice.getId()));
+    }
+
+    /**
+     * Valida uma invoice com itens já carregados (snapshot do lote)
+     */
+    public InvoiceValidationResult validateInvoice(Invoice invoice, List<InvoiceItem> items) {
         log.debug("🔍 Validando invoice: {}", invoice.getInvoiceNumber());
         
         InvoiceValidationResult result = InvoiceValidationResult.builder()
@@ -52,9 +59,6 @@ public class InvoiceValidationService {
             // Validar dados básicos da invoice
             validateBasicInvoiceData(invoice, result);
             
-            // ✅ CORREÇÃO: Buscar itens via repositório em vez de acessar coleção lazy
-            List<InvoiceItem> items = invoiceItemRepository.findByInvoiceIdWithAllRelations(invoice.getId());
-            
             // Validar itens da invoice
             validateInvoiceItems(items, result);
             
@@ -3,6 +3,8 @@ package com.olisystem.optionsmanager.service.invoice.processing.validation;
 import com.olisystem.optionsmanager.model.auth.User;
 import com.olisystem.optionsmanager.model.invoice.Invoice;
 import com.olisystem.optionsmanager.model.invoice.InvoiceItem;
+import com.olisystem.optionsmanager.model.invoice.InvoiceProcessingLog;
+import com.olisystem.optionsmanager.model.enums.InvoiceProcessingStatus;
 import com.olisystem.optionsmanager.repository.InvoiceItemRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -71,6 +73,72 @@ public class ReprocessingValidationService {
         return result;
     }
 
+    /**
+     * Valida reprocessamento sobre o snapshot do lote (itens e log já carregados)
+     * O log anterior substitui as heurísticas baseadas em updatedAt: sem log, é o primeiro processamento.
+     *
+     * @param previousLog log de processamento existente, ou null se a invoice nunca foi processada
+     */
+    public ReprocessingValidationResult validateReprocessing(Invoice invoice, List<InvoiceItem> items,
+                                                             User user, InvoiceProcessingLog previousLog) {
+        log.debug("🔍 Validando reprocessamento da invoice: {} (snapshot)", invoice.getInvoiceNumber());
+        
+        ReprocessingValidationResult result = ReprocessingValidationResult.builder()
+            .canReprocess(true)
+            .invoiceId(invoice.getId())
+            .invoiceNumber(invoice.getInvoiceNumber())
+            .build();
+        
+        try {
+            validateInvoiceItems(items, result);
+            validateUserPermission(invoice, user, result);
+            
+            if (previousLog != null) {
+                validateProcessingLogHistory(previousLog, result);
+            }
+            
+        } catch (Exception e) {
+            log.error("❌ Erro durante validação de reprocessamento: {}", e.getMessage(), e);
+            result.setCanReprocess(false);
+            result.setRejectionReason("Erro interno na validação: " + e.getMessage());
+        }
+        
+        return result;
+    }
+
+    /**
+     * Valida histórico e intervalo a partir do log de processamento anterior
+     */
+    private void validateProcessingLogHistory(InvoiceProcessingLog previousLog, ReprocessingValidationResult result) {
+        if (!result.isCanReprocess()) return;
+        
+        if (previousLog.getStatus() == InvoiceProcessingStatus.PROCESSING) {
+            result.setCanReprocess(false);
+            result.setRejectionReason("Invoice está sendo processada atualmente");
+            return;
+        }
+        
+        Integer reprocessedCount = previousLog.getReprocessedCount();
+        if (reprocessedCount != null && reprocessedCount >= MAX_REPROCESSING_ATTEMPTS) {
+            result.setCanReprocess(false);
+            result.setRejectionReason(String.format(
+                "Limite de %d reprocessamentos atingido", MAX_REPROCESSING_ATTEMPTS));
+            return;
+        }
+        
+        LocalDateTime lastProcessing = previousLog.getCompletedAt() != null
+            ? previousLog.getCompletedAt() : previousLog.getUpdatedAt();
+        if (lastProcessing != null) {
+            long hoursSinceLastProcessing = java.time.Duration.between(lastProcessing, LocalDateTime.now()).toHours();
+            if (hoursSinceLastProcessing < MIN_REPROCESSING_INTERVAL_HOURS) {
+                result.setCanReprocess(false);
+                result.setRejectionReason(String.format(
+                    "Intervalo mínimo de %d horas não respeitado (último processamento: %s)", 
+                    MIN_REPROCESSING_INTERVAL_HOURS, lastProcessing));
+            }
+        }
+    }
+
     /**
      * Valida se a invoice tem itens válidos para reprocessamento
      * ✅ CORREÇÃO: Recebe lista de itens como parâmetro
@@ -0,0 +1,95 @@
+package com.olisystem.optionsmanager.service.marketdata;
+
+import com.olisystem.optionsmanager.config.marketdata.MarketDataProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Fonte de preços a partir de um arquivo CSV local (substituto de um feed de mercado)
+ * ✅ NOVO: Uma linha por código - "código;preço[;data-hora ISO]"; aceita vírgula decimal,
+ * ignora cabeçalho, linhas em branco e comentários (#). Sem data-hora usa a modificação do arquivo.
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CsvPriceSource implements PriceSource {
+
+    static final String NAME = "CSV";
+
+    private final MarketDataProperties properties;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public List<PriceSnapshot> load() {
+        String csvPath = properties.getCsvPath();
+        if (csvPath == null || csvPath.isBlank()) {
+            return List.of();
+        }
+
+        Path path = Path.of(csvPath);
+        if (!Files.isReadable(path)) {
+            log.warn("⚠️ Arquivo de preços não encontrado: {}", path);
+            return List.of();
+        }
+
+        try {
+            LocalDateTime modifiedAt = LocalDateTime.ofInstant(
+                Files.getLastModifiedTime(path).toInstant(), ZoneId.systemDefault());
+            return parse(Files.readAllLines(path, StandardCharsets.UTF_8), modifiedAt);
+        } catch (IOException e) {
+            log.error("❌ Erro ao ler arquivo de preços {}: {}", path, e.getMessage());
+            return List.of();
+        }
+    }
+
+    static List<PriceSnapshot> parse(List<String> lines, LocalDateTime defaultAsOf) {
+        List<PriceSnapshot> snapshots = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            String[] fields = line.split(";");
+            if (fields.length < 2) {
+                log.warn("⚠️ Linha {} de preços ignorada: {}", i + 1, line);
+                continue;
+            }
+
+            try {
+                BigDecimal price = new BigDecimal(fields[1].trim().replace(',', '.'));
+                LocalDateTime asOf = fields.length > 2 && !fields[2].isBlank()
+                    ? LocalDateTime.parse(fields[2].trim())
+                    : defaultAsOf;
+                snapshots.add(new PriceSnapshot(
+                    fields[0].trim().toUpperCase(Locale.ROOT), price, asOf, NAME));
+            } catch (NumberFormatException | DateTimeParseException e) {
+                // Cabeçalho ou linha inválida
+                if (i > 0) {
+                    log.warn("⚠️ Linha {} de preços ignorada: {}", i + 1, line);
+                }
+            }
+        }
+        return snapshots;
+    }
+}
@@ -0,0 +1,15 @@
+package com.olisystem.optionsmanager.service.marketdata;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Último preço conhecido de uma série de opção ou de um ativo-objeto
+ *
+ * @param code   código negociado (ex.: PETRA123, PETR4), sempre em maiúsculas
+ * @param price  último preço
+ * @param asOf   momento do preço
+ * @param source fonte que publicou o preço
+ */
+public record PriceSnapshot(String code, BigDecimal price, LocalDateTime asOf, String source) {
+}
@@ -0,0 +1,92 @@
+package com.olisystem.optionsmanager.service.marketdata;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Últimos preços de séries de opção e ativos-objeto, em memória
+ * ✅ NOVO: Alimentado pelas PriceSource registradas (refresh) ou por atualizações diretas (update).
+ * A versão só avança quando algum preço muda, então caches de valoração podem comparar a
+ * versão em vez de recalcular a cada leitura.
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PriceSnapshotStore {
+
+    private final List<PriceSource> sources;
+
+    private final Map<String, PriceSnapshot> prices = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        refresh();
+    }
+
+    /**
+     * Relê todas as fontes; retorna quantos preços mudaram
+     */
+    public int refresh() {
+        int changed = 0;
+        for (PriceSource source : sources) {
+            List<PriceSnapshot> snapshots = source.load();
+            changed += update(snapshots);
+            log.debug("📈 Fonte de preços {}: {} preços lidos", source.name(), snapshots.size());
+        }
+        return changed;
+    }
+
+    /**
+     * Aplica os preços informados; preços idênticos aos atuais não contam como mudança
+     */
+    public int update(Collection<PriceSnapshot> snapshots) {
+        int changed = 0;
+        for (PriceSnapshot snapshot : snapshots) {
+            if (snapshot.code() == null || snapshot.price() == null) {
+                continue;
+            }
+            String code = normalize(snapshot.code());
+            PriceSnapshot normalized = code.equals(snapshot.code()) ? snapshot
+                : new PriceSnapshot(code, snapshot.price(), snapshot.asOf(), snapshot.source());
+            PriceSnapshot previous = prices.put(code, normalized);
+            if (previous == null || previous.price().compareTo(normalized.price()) != 0) {
+                changed++;
+            }
+        }
+        if (changed > 0) {
+            long current = version.incrementAndGet();
+            log.info("📈 {} preços atualizados (versão {})", changed, current);
+        }
+        return changed;
+    }
+
+    public Optional<PriceSnapshot> get(String code) {
+        return code == null ? Optional.empty() : Optional.ofNullable(prices.get(normalize(code)));
+    }
+
+    public Collection<PriceSnapshot> all() {
+        return List.copyOf(prices.values());
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    private static String normalize(String code) {
+        return code.trim().toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,20 @@
+package com.olisystem.optionsmanager.service.marketdata;
+
+import java.util.List;
+
+/**
+ * Fonte de preços plugável do PriceSnapshotStore
+ * ✅ NOVO: Cada implementação registrada como bean é lida em PriceSnapshotStore.refresh()
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+public interface PriceSource {
+
+    String name();
+
+    /**
+     * Preços atuais da fonte; erros de leitura devem ser registrados e resultar em lista vazia
+     */
+    List<PriceSnapshot> load();
+}
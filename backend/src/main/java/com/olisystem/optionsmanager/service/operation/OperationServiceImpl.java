@@ -26,6 +26,7 @@ import com.olisystem.optionsmanager.service.operation.filter.OperationFilterServ
 import com.olisystem.optionsmanager.service.operation.strategy.ExitOperationStrategy;
 import com.olisystem.optionsmanager.service.operation.strategy.OperationStrategyService;
 import com.olisystem.optionsmanager.service.option_series.OptionSerieService;
+import com.olisystem.optionsmanager.service.position.lock.PositionLockService;
 import com.olisystem.optionsmanager.util.SecurityUtil;
 import com.olisystem.optionsmanager.validation.OperationValidator;
 import lombok.extern.slf4j.Slf4j;
@@ -57,6 +58,7 @@ public class OperationServiceImpl implements OperationService {
     private final OperationFilterService operationFilterService;
     private final ExitOperationStrategyResolver exitOperationStrategyResolver;
     private final AverageOperationService averageOperationService;
+    private final PositionLockService positionLockService;
 
     // Construtor com injeção de dependências
     public OperationServiceImpl(
@@ -70,7 +72,8 @@ public class OperationServiceImpl implements OperationService {
             OperationTargetRepository operationTargetRepository,
             OperationFilterService operationFilterService,
             ExitOperationStrategyResolver exitOperationStrategyResolver,
-            AverageOperationService averageOperationService
+            AverageOperationService averageOperationService,
+            PositionLockService positionLockService
             ) {
         this.operationValidator = operationValidator;
         this.assetService = assetService;
@@ -83,10 +86,12 @@ public class OperationServiceImpl implements OperationService {
         this.operationFilterService = operationFilterService;
         this.exitOperationStrategyResolver = exitOperationStrategyResolver;
         this.averageOperationService = averageOperationService;
+        this.positionLockService = positionLockService;
     }
 
+    // ✅ NOVO: Criação e finalização não abrem transação aqui - PositionLockService abre com o lock
+    // da posição seguro e refaz em conflito de versão; chamadores já transacionais só serializam
     @Override
-    @Transactional
     public Operation createOperation(OperationDataRequest request) {
         try {
             final User currentUser = SecurityUtil.getLoggedUser();
@@ -103,7 +108,6 @@ public class OperationServiceImpl implements OperationService {
     }
 
     @Override
-    @Transactional
     public Operation createOperation(OperationDataRequest request, User user) {
         log.info("🚀 Criando operação: {} {} - {} cotas @ R$ {} (user: {})",
                 request.getTransactionType(), request.getOptionSeriesCode(),
@@ -112,6 +116,12 @@ public class OperationServiceImpl implements OperationService {
         // 1. Validar e preparar recursos básicos
         operationValidator.validateCreate(request);
 
+        return positionLockService.executeLocked(
+                PositionLockService.keyOf(user, request.getOptionSeriesCode()),
+                () -> processOperation(request, user));
+    }
+
+    private Operation processOperation(OperationDataRequest request, User user) {
         // 2. Criar ou recuperar entidades base
         Asset asset = assetService.findOrCreateAsset(request);
         OptionSerie optionSerie = optionSerieService.findOrCreateOptionSerie(request, asset);
@@ -149,18 +159,28 @@ public class OperationServiceImpl implements OperationService {
     }
 
     @Override
-    @Transactional
     public Operation createExitOperation(OperationFinalizationRequest request) {
         User currentUser = SecurityUtil.getLoggedUser();
         return createExitOperation(request, currentUser);
     }
 
     @Override
-    @Transactional
     public Operation createExitOperation(OperationFinalizationRequest request, User user) {
         log.info("🏁 Processando finalização de operação: {} (user: {})", 
                 request.getOperationId(), user.getUsername());
 
+        // ✅ CORREÇÃO: Só o código da série antes do lock (consulta escalar) - carregar a operação aqui
+        // a deixaria no contexto de persistência (open-in-view) e a leitura dentro do lock viria do cache
+        String seriesCode = operationRepository.findOptionSeriesCodeById(request.getOperationId())
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "Operação não encontrada com ID: " + request.getOperationId()));
+
+        return positionLockService.executeLocked(
+                PositionLockService.keyOf(user, seriesCode),
+                () -> processExitOperation(request, user));
+    }
+
+    private Operation processExitOperation(OperationFinalizationRequest request, User user) {
         // 1. Buscar operação ativa
         Operation activeOperation = findActiveOperation(request.getOperationId());
 
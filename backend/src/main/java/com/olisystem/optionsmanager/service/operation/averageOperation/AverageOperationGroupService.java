@@ -6,6 +6,7 @@ import com.olisystem.optionsmanager.model.operation.Operation;
 import com.olisystem.optionsmanager.model.operation.OperationRoleType;
 import com.olisystem.optionsmanager.model.position.Position;
 import com.olisystem.optionsmanager.repository.AverageOperationGroupRepository;
+import com.olisystem.optionsmanager.service.operation.exit.ExitChangeSet;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -34,14 +35,23 @@ public class AverageOperationGroupService {
                 group, exitOperation, OperationRoleType.TOTAL_EXIT);
 
         // Atualizar grupo
-        group.setRemainingQuantity(position.getRemainingQuantity());
-        group.setAvgExitPrice(exitOperation.getExitUnitPrice());
-        group.setClosedQuantity(exitOperation.getQuantity());
-        group.setTotalProfit(profitLoss);
-        group.setStatus(AverageOperationGroupStatus.CLOSED);
+        planGroupClose(position.getRemainingQuantity(), exitOperation, profitLoss).applyTo(group);
 
         groupRepository.save(group);
 
         log.debug("Grupo de operações atualizado com sucesso");
     }
+
+    /**
+     * ✅ NOVO: Totais do grupo fechado pela operação de saída, sem alterar nem gravar o grupo
+     */
+    public ExitChangeSet.GroupTotals planGroupClose(Integer remainingQuantity, Operation exitOperation,
+                                                    BigDecimal profitLoss) {
+        return new ExitChangeSet.GroupTotals(
+                remainingQuantity,
+                exitOperation.getExitUnitPrice(),
+                exitOperation.getQuantity(),
+                profitLoss,
+                AverageOperationGroupStatus.CLOSED);
+    }
 }
@@ -1,5 +1,6 @@
 package com.olisystem.optionsmanager.service.operation.averageOperation;
 
+import com.olisystem.optionsmanager.config.calculation.CalculationProperties;
 import com.olisystem.optionsmanager.model.operation.*;
 import com.olisystem.optionsmanager.model.position.Position;
 import com.olisystem.optionsmanager.model.auth.User;
@@ -8,6 +9,7 @@ import com.olisystem.optionsmanager.model.transaction.TransactionType;
 import com.olisystem.optionsmanager.repository.AverageOperationGroupRepository;
 import com.olisystem.optionsmanager.repository.AverageOperationItemRepository;
 import com.olisystem.optionsmanager.repository.OperationRepository;
+import com.olisystem.optionsmanager.util.FixedPointMoney;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
@@ -36,6 +38,10 @@ public class AverageOperationService {
   private AverageOperationItemRepository itemRepository;
   @Autowired
   private OperationRepository operationRepository;
+  @Autowired
+  private CalculationProperties calculationProperties;
+
+  private static final int AVG_EXIT_PRICE_SCALE = 6;
 
 
   /** Cria um novo grupo para uma operação inicial. */
@@ -114,15 +120,13 @@ public class AverageOperationService {
           || group.getAvgExitPrice().compareTo(BigDecimal.ZERO) == 0) {
         group.setAvgExitPrice(partialExitOperation.getExitUnitPrice());
       } else {
-        BigDecimal prevClosedQty = BigDecimal.valueOf(group.getClosedQuantity() - exitQuantity);
-        BigDecimal prevExitTotal = group.getAvgExitPrice().multiply(prevClosedQty);
-        BigDecimal newExitTotal =
-            partialExitOperation.getExitUnitPrice().multiply(BigDecimal.valueOf(exitQuantity));
-        BigDecimal totalExitValue = prevExitTotal.add(newExitTotal);
-
         group.setAvgExitPrice(
-            totalExitValue.divide(
-                BigDecimal.valueOf(group.getClosedQuantity()), 6, RoundingMode.HALF_UP));
+            calculateAvgExitPrice(
+                group.getAvgExitPrice(),
+                group.getClosedQuantity() - exitQuantity,
+                partialExitOperation.getExitUnitPrice(),
+                exitQuantity,
+                group.getClosedQuantity()));
       }
 
       // Atualizar status do grupo
@@ -221,18 +225,13 @@ public class AverageOperationService {
       // Atualizar lucro e preço médio de saída
       if (group.getClosedQuantity() > exitOperation.getQuantity()) {
         // Já houve saídas parciais anteriores
-        BigDecimal prevClosedQty =
-            BigDecimal.valueOf(group.getClosedQuantity() - exitOperation.getQuantity());
-        BigDecimal prevExitTotal = group.getAvgExitPrice().multiply(prevClosedQty);
-        BigDecimal newExitTotal =
-            exitOperation
-                .getExitUnitPrice()
-                .multiply(BigDecimal.valueOf(exitOperation.getQuantity()));
-        BigDecimal totalExitValue = prevExitTotal.add(newExitTotal);
-
         group.setAvgExitPrice(
-            totalExitValue.divide(
-                BigDecimal.valueOf(group.getClosedQuantity()), 6, RoundingMode.HALF_UP));
+            calculateAvgExitPrice(
+                group.getAvgExitPrice(),
+                group.getClosedQuantity() - exitOperation.getQuantity(),
+                exitOperation.getExitUnitPrice(),
+                exitOperation.getQuantity(),
+                group.getClosedQuantity()));
 
         group.setTotalProfit(group.getTotalProfit().add(exitOperation.getProfitLoss()));
       } else {
@@ -352,12 +351,7 @@ public class AverageOperationService {
     }
     
     // 1. Criar um novo itemGroup apenas se não existir
-    AverageOperationItem itemGroup = new AverageOperationItem();
-    itemGroup.setGroup(group);
-    itemGroup.setOperation(operation);
-    itemGroup.setInclusionDate(LocalDate.now());
-    itemGroup.setRoleType(roleType);
-    itemGroup.setSequenceNumber(group.getOperations().size() + 1);
+    AverageOperationItem itemGroup = newItemGroup(group, operation, roleType, group.getOperations().size() + 1);
     
     AverageOperationItem savedItem = itemRepository.save(itemGroup);
     log.info("✅ Novo item adicionado ao grupo: roleType={}, operationId={}", roleType, operation.getId());
@@ -365,6 +359,32 @@ public class AverageOperationService {
     return savedItem;
   }
 
+  /**
+   * ✅ NOVO: Monta o item do grupo sem gravar (usado no planejamento da saída).
+   * Vazio se o grupo ou os itens já planejados na mesma saída já tiverem o papel informado.
+   */
+  public Optional<AverageOperationItem> buildNewItemGroup(AverageOperationGroup group, Operation operation,
+      OperationRoleType roleType, List<AverageOperationItem> plannedItems) {
+    boolean alreadyPlanned = plannedItems.stream().anyMatch(item -> item.getRoleType() == roleType);
+    if (alreadyPlanned || !itemRepository.findByGroupAndRoleType(group, roleType).isEmpty()) {
+      log.warn("⚠️ Já existe um item com roleType {} no grupo {} - não criando duplicata", roleType, group.getId());
+      return Optional.empty();
+    }
+    int sequenceNumber = group.getOperations().size() + plannedItems.size() + 1;
+    return Optional.of(newItemGroup(group, operation, roleType, sequenceNumber));
+  }
+
+  private AverageOperationItem newItemGroup(AverageOperationGroup group, Operation operation,
+      OperationRoleType roleType, int sequenceNumber) {
+    AverageOperationItem itemGroup = new AverageOperationItem();
+    itemGroup.setGroup(group);
+    itemGroup.setOperation(operation);
+    itemGroup.setInclusionDate(LocalDate.now());
+    itemGroup.setRoleType(roleType);
+    itemGroup.setSequenceNumber(sequenceNumber);
+    return itemGroup;
+  }
+
   /**
    * Retorna o grupo que a operação pertence
    * @param operation
@@ -458,4 +478,36 @@ public class AverageOperationService {
     
     return consolidatedEntry;
   }
+
+  /**
+   * Preço médio de saída ponderado pela quantidade (6 casas, HALF_UP).
+   * ✅ NOVO: Em ponto fixo quando habilitado; valores fora do intervalo seguem em BigDecimal
+   */
+  private BigDecimal calculateAvgExitPrice(
+      BigDecimal prevAvgExitPrice,
+      int prevClosedQuantity,
+      BigDecimal exitUnitPrice,
+      int exitQuantity,
+      int closedQuantity) {
+
+    if (calculationProperties.isFixedPointMoney()) {
+      try {
+        long totalExitValue =
+            FixedPointMoney.add(
+                FixedPointMoney.times(FixedPointMoney.of(prevAvgExitPrice), prevClosedQuantity),
+                FixedPointMoney.times(FixedPointMoney.of(exitUnitPrice), exitQuantity));
+        return FixedPointMoney.toBigDecimal(
+            FixedPointMoney.divideHalfUp(totalExitValue, closedQuantity), AVG_EXIT_PRICE_SCALE);
+      } catch (ArithmeticException e) {
+        // Fora do intervalo do ponto fixo: segue em BigDecimal
+      }
+    }
+
+    BigDecimal prevExitTotal = prevAvgExitPrice.multiply(BigDecimal.valueOf(prevClosedQuantity));
+    BigDecimal newExitTotal = exitUnitPrice.multiply(BigDecimal.valueOf(exitQuantity));
+    BigDecimal totalExitValue = prevExitTotal.add(newExitTotal);
+
+    return totalExitValue.divide(
+        BigDecimal.valueOf(closedQuantity), AVG_EXIT_PRICE_SCALE, RoundingMode.HALF_UP);
+  }
 }
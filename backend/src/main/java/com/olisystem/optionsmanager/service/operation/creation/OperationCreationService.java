@@ -32,6 +32,11 @@ public interface OperationCreationService {
      */
     Operation createExitOperation(OperationExitPositionContext exitPositionContext, TradeType tradeType, BigDecimal profitLoss, TransactionType type, Integer totalQuantity);
 
+    /**
+     * Monta a operação de saída validada, sem gravar (planejamento da saída)
+     */
+    Operation prepareExitOperation(OperationExitPositionContext exitPositionContext, TradeType tradeType, BigDecimal profitLoss, TransactionType type, Integer totalQuantity);
+
     /**
      * Cria uma operação de saída com dados específicos calculados
      * Usado para cenários complexos onde os dados já foram calculados previamente
@@ -176,9 +176,23 @@ public class OperationCreationServiceImpl implements OperationCreationService {
     @Override
     public Operation createExitOperation(OperationExitPositionContext context, TradeType tradeType, BigDecimal profitLoss, TransactionType type, Integer totalQuantity) {
         
+        Operation operation = prepareExitOperation(context, tradeType, profitLoss, type, totalQuantity);
+
+        Operation savedOperation = operationRepository.save(operation);
+        logOperationCreation(savedOperation.getStatus(), savedOperation);
+        
+        log.debug("Operação de saída criada com sucesso: ID={}, quantidade={}, profitLoss={}, status={}",
+                savedOperation.getId(), savedOperation.getQuantity(), savedOperation.getProfitLoss(), savedOperation.getStatus());
+        
+        return savedOperation;
+    }
+
+    @Override
+    public Operation prepareExitOperation(OperationExitPositionContext context, TradeType tradeType, BigDecimal profitLoss, TransactionType type, Integer totalQuantity) {
+
         // ✅ CORREÇÃO: Validar dados antes de criar operação
         validateExitOperationData(context, tradeType, profitLoss, type, totalQuantity);
-        
+
         Operation operation = buildExitOperation(
                 OperationBuildExitData.fromRequest(context, profitLoss, tradeType, type, totalQuantity),
                 context.context().activeOperation().getOptionSeries(),
@@ -189,13 +203,7 @@ public class OperationCreationServiceImpl implements OperationCreationService {
         // ✅ CORREÇÃO: Validar operação construída antes de salvar
         validateBuiltExitOperation(operation);
 
-        Operation savedOperation = operationRepository.save(operation);
-        logOperationCreation(savedOperation.getStatus(), savedOperation);
-        
-        log.debug("Operação de saída criada com sucesso: ID={}, quantidade={}, profitLoss={}, status={}",
-                savedOperation.getId(), savedOperation.getQuantity(), savedOperation.getProfitLoss(), savedOperation.getStatus());
-        
-        return savedOperation;
+        return operation;
     }
 
     private Operation buildExitOperation(OperationBuildExitData data, OptionSerie optionSeries, OperationStatus status, User currentUser) {
@@ -1,14 +1,18 @@
 package com.olisystem.optionsmanager.service.operation.engine;
 
+import com.olisystem.optionsmanager.config.calculation.CalculationProperties;
 import com.olisystem.optionsmanager.dto.operation.OperationFinalizationRequest;
 import com.olisystem.optionsmanager.model.operation.TradeType;
 import com.olisystem.optionsmanager.model.position.EntryLot;
+import com.olisystem.optionsmanager.model.position.ExitStrategy;
 import com.olisystem.optionsmanager.model.position.Position;
 import com.olisystem.optionsmanager.record.consumption.ComplexConsumptionPlan;
 import com.olisystem.optionsmanager.record.consumption.ComplexConsumptionResult;
 import com.olisystem.optionsmanager.record.consumption.LotConsumption;
 import com.olisystem.optionsmanager.record.consumption.LotConsumptionResult;
 import com.olisystem.optionsmanager.service.operation.profit.ProfitCalculationService;
+import com.olisystem.optionsmanager.service.position.entrylots.LotBook;
+import com.olisystem.optionsmanager.util.FixedPointMoney;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -16,9 +20,7 @@ import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -26,6 +28,13 @@ import java.util.stream.Collectors;
 public class ComplexLotConsumptionEngine {
 
     private final ProfitCalculationService profitCalculationService;
+    private final CalculationProperties calculationProperties;
+
+    /**
+     * Casas decimais do preço médio de entrada e do percentual por lote
+     */
+    private static final int AVERAGE_PRICE_SCALE = 4;
+    private static final int PERCENTAGE_SCALE = 4;
 
     public ComplexConsumptionPlan createConsumptionPlan(Position position, 
                                                       OperationFinalizationRequest request) {
@@ -33,27 +42,62 @@ public class ComplexLotConsumptionEngine {
         log.info("=== CRIANDO PLANO DE CONSUMO COMPLEXO ===");
         log.info("Posição: {}, Quantidade: {}", position.getId(), request.getQuantity());
 
-        List<EntryLot> availableLots = getAvailableLots(position);
-        List<EntryLot> sameDayLots = filterSameDayLots(availableLots, request.getExitDate());
-        List<EntryLot> previousDayLots = filterPreviousDayLots(availableLots, request.getExitDate());
-
-        applySortingStrategies(sameDayLots, previousDayLots);
-
-        ComplexConsumptionPlan plan = planComplexConsumption(
-            sameDayLots, previousDayLots, request.getQuantity(), request.getExitDate()
+        // ✅ OTIMIZAÇÃO: Livro de lotes - consumo em O(lotes tocados), sem filtrar e ordenar a cada saída
+        LotBook<EntryLot> lotBook = LotBook.of(
+            position.getEntryLots(), EntryLot::getEntryDate, EntryLot::getSequenceNumber, EntryLot::getRemainingQuantity
         );
 
+        ComplexConsumptionPlan plan = planComplexConsumption(lotBook, request.getQuantity(), request.getExitDate());
+
         log.info("Plano criado: {} consumos", plan.consumptions().size());
         return plan;
     }
 
+    /**
+     * ✅ NOVO: Plano com estratégia explícita - FIFO e LIFO percorrem todos os lotes na ordem da
+     * estratégia; o tipo de trade de cada consumo segue a data de entrada do lote
+     */
+    public ComplexConsumptionPlan createConsumptionPlan(Position position,
+                                                      OperationFinalizationRequest request,
+                                                      ExitStrategy strategy) {
+
+        if (strategy == ExitStrategy.AUTO) {
+            return createConsumptionPlan(position, request);
+        }
+
+        LotBook<EntryLot> lotBook = LotBook.of(
+            position.getEntryLots(), EntryLot::getEntryDate, EntryLot::getSequenceNumber, EntryLot::getRemainingQuantity
+        );
+
+        List<LotConsumption> consumptions = new ArrayList<>();
+        LotBook.LotConsumer<EntryLot> consumer = (lot, toConsume) -> consumptions.add(new LotConsumption(
+            lot, toConsume, lot.getEntryDate().equals(request.getExitDate()) ? TradeType.DAY : TradeType.SWING));
+
+        if (strategy == ExitStrategy.FIFO) {
+            lotBook.consumeFifo(request.getQuantity(), consumer);
+        } else {
+            lotBook.consumeLifo(request.getQuantity(), consumer);
+        }
+
+        return new ComplexConsumptionPlan(consumptions, request.getQuantity(), request.getExitDate(),
+                                          strategy + "_ONLY");
+    }
+
     /**
      * Executa o plano de consumo e calcula todos os resultados
      */
     public ComplexConsumptionResult executeConsumption(ComplexConsumptionPlan plan, 
                                                      BigDecimal exitUnitPrice) {
         
-        log.info("=== EXECUTANDO PLANO DE CONSUMO ===");
+        log.debug("=== EXECUTANDO PLANO DE CONSUMO ===");
+
+        if (calculationProperties.isFixedPointMoney()) {
+            try {
+                return executeConsumptionFixed(plan, exitUnitPrice);
+            } catch (ArithmeticException e) {
+                log.debug("Valores fora do intervalo do ponto fixo, calculando em BigDecimal: {}", e.getMessage());
+            }
+        }
         
         List<LotConsumptionResult> results = new ArrayList<>();
         BigDecimal totalProfitLoss = BigDecimal.ZERO;
@@ -82,6 +126,75 @@ public class ComplexLotConsumptionEngine {
         );
     }
 
+    /**
+     * ✅ NOVO: Mesmo cálculo de executeConsumption em ponto fixo - totais acumulados em long,
+     * com as mesmas escalas e arredondamentos do caminho em BigDecimal
+     */
+    private ComplexConsumptionResult executeConsumptionFixed(ComplexConsumptionPlan plan,
+                                                             BigDecimal exitUnitPrice) {
+
+        long exitPrice = FixedPointMoney.of(exitUnitPrice);
+        List<LotConsumptionResult> results = new ArrayList<>(plan.consumptions().size());
+        long totalProfitLoss = 0;
+        long totalDayTradeProfitLoss = 0;
+        long totalSwingTradeProfitLoss = 0;
+        long totalEntryValue = 0;
+        long totalQuantity = 0;
+        // BigDecimal.ZERO.add(x) assume a maior escala entre 0 e a das parcelas
+        int totalScale = 0;
+        int dayTradeScale = 0;
+        int swingTradeScale = 0;
+
+        for (LotConsumption consumption : plan.consumptions()) {
+            EntryLot lot = consumption.lot();
+            int quantity = consumption.quantityToConsume();
+            BigDecimal entryUnitPrice = lot.getUnitPrice();
+
+            long entryTotal = FixedPointMoney.times(FixedPointMoney.of(entryUnitPrice), quantity);
+            long exitTotal = FixedPointMoney.times(exitPrice, quantity);
+            long profitLoss = FixedPointMoney.subtract(exitTotal, entryTotal);
+            int profitLossScale = FixedPointMoney.resultScale(entryUnitPrice, exitUnitPrice);
+
+            BigDecimal profitLossPercentage = entryTotal == 0
+                ? BigDecimal.ZERO
+                : FixedPointMoney.percentage(profitLoss, entryTotal, PERCENTAGE_SCALE);
+
+            results.add(new LotConsumptionResult(
+                lot, quantity, consumption.tradeType(), entryUnitPrice, exitUnitPrice,
+                FixedPointMoney.toBigDecimal(profitLoss, profitLossScale), profitLossPercentage,
+                FixedPointMoney.toBigDecimal(entryTotal, entryUnitPrice.scale()),
+                FixedPointMoney.toBigDecimal(exitTotal, exitUnitPrice.scale())
+            ));
+
+            totalProfitLoss = FixedPointMoney.add(totalProfitLoss, profitLoss);
+            totalScale = Math.max(totalScale, profitLossScale);
+            if (consumption.tradeType() == TradeType.DAY) {
+                totalDayTradeProfitLoss = FixedPointMoney.add(totalDayTradeProfitLoss, profitLoss);
+                dayTradeScale = Math.max(dayTradeScale, profitLossScale);
+            } else {
+                totalSwingTradeProfitLoss = FixedPointMoney.add(totalSwingTradeProfitLoss, profitLoss);
+                swingTradeScale = Math.max(swingTradeScale, profitLossScale);
+            }
+            totalEntryValue = FixedPointMoney.add(totalEntryValue, entryTotal);
+            totalQuantity += quantity;
+        }
+
+        // Média com 4 casas: valor (6 casas) / (quantidade × 100), HALF_UP
+        BigDecimal averageEntryPrice = totalQuantity == 0
+            ? BigDecimal.ZERO
+            : BigDecimal.valueOf(FixedPointMoney.divideHalfUp(totalEntryValue,
+                                     FixedPointMoney.times(totalQuantity, 100)), AVERAGE_PRICE_SCALE);
+
+        return new ComplexConsumptionResult(
+            results,
+            FixedPointMoney.toBigDecimal(totalProfitLoss, totalScale),
+            FixedPointMoney.toBigDecimal(totalDayTradeProfitLoss, dayTradeScale),
+            FixedPointMoney.toBigDecimal(totalSwingTradeProfitLoss, swingTradeScale),
+            plan.totalQuantity(), plan.getDayTradeQuantity(), plan.getSwingTradeQuantity(),
+            plan.exitDate(), averageEntryPrice, exitUnitPrice
+        );
+    }
+
     private LotConsumptionResult processLotConsumption(LotConsumption consumption, 
                                                      BigDecimal exitUnitPrice) {
         
@@ -108,66 +221,24 @@ public class ComplexLotConsumptionEngine {
     // MÉTODOS PRIVADOS DE APOIO
     // ======================================================================================
 
-    private List<EntryLot> getAvailableLots(Position position) {
-        return position.getEntryLots().stream()
-            .filter(lot -> lot.getRemainingQuantity() > 0)
-            .collect(Collectors.toList());
-    }
-
-    private List<EntryLot> filterSameDayLots(List<EntryLot> lots, LocalDate exitDate) {
-        return lots.stream()
-            .filter(lot -> lot.getEntryDate().equals(exitDate))
-            .collect(Collectors.toList());
-    }
-
-    private List<EntryLot> filterPreviousDayLots(List<EntryLot> lots, LocalDate exitDate) {
-        return lots.stream()
-            .filter(lot -> lot.getEntryDate().isBefore(exitDate))
-            .collect(Collectors.toList());
-    }
-
-    private void applySortingStrategies(List<EntryLot> sameDayLots, List<EntryLot> previousDayLots) {
-        // LIFO para mesmo dia (mais recente primeiro)
-        sameDayLots.sort(Comparator.comparing(EntryLot::getSequenceNumber).reversed());
-        
-        // FIFO para dias anteriores (mais antigo primeiro)
-        previousDayLots.sort(Comparator.comparing(EntryLot::getSequenceNumber));
-        
-        log.debug("Lotes ordenados: {} mesmo dia (LIFO), {} dias anteriores (FIFO)", 
-                sameDayLots.size(), previousDayLots.size());
-    }
-
-    private ComplexConsumptionPlan planComplexConsumption(List<EntryLot> sameDayLots,
-                                                        List<EntryLot> previousDayLots,
+    /**
+     * Primeiro os lotes do mesmo dia (LIFO, Day Trade), depois os de dias anteriores (FIFO, Swing Trade)
+     */
+    private ComplexConsumptionPlan planComplexConsumption(LotBook<EntryLot> lotBook,
                                                         int totalQuantityNeeded,
                                                         LocalDate exitDate) {
         
         List<LotConsumption> consumptions = new ArrayList<>();
-        int remainingToConsume = totalQuantityNeeded;
 
-        // Primeiro: consumir lotes do mesmo dia (LIFO)
-        for (EntryLot lot : sameDayLots) {
-            if (remainingToConsume <= 0) break;
-            
-            int toConsume = Math.min(lot.getRemainingQuantity(), remainingToConsume);
-            consumptions.add(new LotConsumption(lot, toConsume, TradeType.DAY));
-            remainingToConsume -= toConsume;
-            
-            log.debug("Planejado consumo Day Trade: Lote {} - {} unidades", 
-                    lot.getSequenceNumber(), toConsume);
-        }
-
-        // Segundo: consumir lotes de dias anteriores (FIFO)
-        for (EntryLot lot : previousDayLots) {
-            if (remainingToConsume <= 0) break;
-            
-            int toConsume = Math.min(lot.getRemainingQuantity(), remainingToConsume);
-            consumptions.add(new LotConsumption(lot, toConsume, TradeType.SWING));
-            remainingToConsume -= toConsume;
-            
-            log.debug("Planejado consumo Swing Trade: Lote {} - {} unidades", 
-                    lot.getSequenceNumber(), toConsume);
-        }
+        lotBook.consumeAuto(exitDate, totalQuantityNeeded,
+            (lot, toConsume) -> {
+                consumptions.add(new LotConsumption(lot, toConsume, TradeType.DAY));
+                log.debug("Planejado consumo Day Trade: Lote {} - {} unidades", lot.getSequenceNumber(), toConsume);
+            },
+            (lot, toConsume) -> {
+                consumptions.add(new LotConsumption(lot, toConsume, TradeType.SWING));
+                log.debug("Planejado consumo Swing Trade: Lote {} - {} unidades", lot.getSequenceNumber(), toConsume);
+            });
 
         return new ComplexConsumptionPlan(consumptions, totalQuantityNeeded, exitDate, "AUTO");
     }
@@ -185,6 +256,6 @@ public class ComplexLotConsumptionEngine {
             return BigDecimal.ZERO;
         }
         
-        return totalValue.divide(BigDecimal.valueOf(totalQuantity), 4, java.math.RoundingMode.HALF_UP);
+        return totalValue.divide(BigDecimal.valueOf(totalQuantity), AVERAGE_PRICE_SCALE, java.math.RoundingMode.HALF_UP);
     }
 }
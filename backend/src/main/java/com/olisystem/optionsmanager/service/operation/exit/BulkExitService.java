@@ -0,0 +1,226 @@
+package com.olisystem.optionsmanager.service.operation.exit;
+
+import com.olisystem.optionsmanager.dto.operation.BulkExitResponse;
+import com.olisystem.optionsmanager.dto.operation.OperationFinalizationRequest;
+import com.olisystem.optionsmanager.exception.ResourceNotFoundException;
+import com.olisystem.optionsmanager.model.auth.User;
+import com.olisystem.optionsmanager.model.operation.AverageOperationGroup;
+import com.olisystem.optionsmanager.model.operation.AverageOperationItem;
+import com.olisystem.optionsmanager.model.operation.Operation;
+import com.olisystem.optionsmanager.model.position.EntryLot;
+import com.olisystem.optionsmanager.model.position.Position;
+import com.olisystem.optionsmanager.record.operation.OperationExitContext;
+import com.olisystem.optionsmanager.repository.AverageOperationItemRepository;
+import com.olisystem.optionsmanager.repository.OperationRepository;
+import com.olisystem.optionsmanager.repository.position.EntryLotRepository;
+import com.olisystem.optionsmanager.repository.position.PositionRepository;
+import com.olisystem.optionsmanager.service.operation.factory.ExitContextFactory;
+import com.olisystem.optionsmanager.service.operation.strategy.processor.ExitProcessorSelector;
+import com.olisystem.optionsmanager.service.position.lock.PositionLockService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Finalização de várias operações em uma requisição (vencimento, stop de carteira)
+ * ✅ NOVO: As finalizações rodam em blocos de CHUNK_SIZE por transação; operações, grupos,
+ * posições e lotes do bloco são carregados com quatro consultas e cada saída grava seu
+ * ExitChangeSet em lote. Se uma saída do bloco falha, o bloco é desfeito e refeito item a
+ * item, para que só a finalização com erro fique de fora.
+ * ✅ CORREÇÃO: As posições do bloco ficam travadas no PositionLockService (em ordem) antes da
+ * carga e até o fim da transação do bloco, como nas finalizações avulsas.
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Service
+@Slf4j
+public class BulkExitService {
+
+    static final int CHUNK_SIZE = 25;
+
+    private final OperationRepository operationRepository;
+    private final AverageOperationItemRepository itemRepository;
+    private final PositionRepository positionRepository;
+    private final EntryLotRepository entryLotRepository;
+    private final ExitContextFactory contextFactory;
+    private final ExitProcessorSelector processorSelector;
+    private final PositionLockService positionLockService;
+    private final TransactionTemplate transactionTemplate;
+
+    public BulkExitService(OperationRepository operationRepository,
+                           AverageOperationItemRepository itemRepository,
+                           PositionRepository positionRepository,
+                           EntryLotRepository entryLotRepository,
+                           ExitContextFactory contextFactory,
+                           ExitProcessorSelector processorSelector,
+                           PositionLockService positionLockService,
+                           PlatformTransactionManager transactionManager) {
+        this.operationRepository = operationRepository;
+        this.itemRepository = itemRepository;
+        this.positionRepository = positionRepository;
+        this.entryLotRepository = entryLotRepository;
+        this.contextFactory = contextFactory;
+        this.processorSelector = processorSelector;
+        this.positionLockService = positionLockService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Finaliza as operações informadas; o resultado de cada item segue a ordem da requisição
+     */
+    public BulkExitResponse finalizeAll(List<OperationFinalizationRequest> requests, User user) {
+        long started = System.nanoTime();
+        log.info("🏁 Finalização em lote: {} operações (user: {})", requests.size(), user.getUsername());
+
+        BulkExitResponse.ItemResult[] results = new BulkExitResponse.ItemResult[requests.size()];
+        List<Integer> pending = new ArrayList<>(requests.size());
+        Set<UUID> seen = new HashSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            UUID operationId = requests.get(i).getOperationId();
+            if (!seen.add(operationId)) {
+                results[i] = failure(operationId, "Operação repetida na requisição");
+            } else {
+                pending.add(i);
+            }
+        }
+
+        for (int from = 0; from < pending.size(); from += CHUNK_SIZE) {
+            List<Integer> chunk = pending.subList(from, Math.min(from + CHUNK_SIZE, pending.size()));
+            List<OperationFinalizationRequest> chunkRequests = chunk.stream().map(requests::get).toList();
+            try {
+                List<BulkExitResponse.ItemResult> chunkResults =
+                    transactionTemplate.execute(status -> processChunk(chunkRequests, user));
+                for (int i = 0; i < chunk.size(); i++) {
+                    results[chunk.get(i)] = chunkResults.get(i);
+                }
+            } catch (RuntimeException e) {
+                log.warn("⚠️ Bloco de {} finalizações desfeito ({}) - refazendo item a item",
+                         chunk.size(), e.getMessage());
+                for (Integer index : chunk) {
+                    results[index] = processIsolated(requests.get(index), user);
+                }
+            }
+        }
+
+        List<BulkExitResponse.ItemResult> ordered = Arrays.asList(results);
+        int successful = (int) ordered.stream().filter(BulkExitResponse.ItemResult::isSuccess).count();
+        BigDecimal totalProfitLoss = ordered.stream()
+            .filter(BulkExitResponse.ItemResult::isSuccess)
+            .map(BulkExitResponse.ItemResult::getProfitLoss)
+            .filter(Objects::nonNull)
+            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        long durationMs = (System.nanoTime() - started) / 1_000_000;
+
+        log.info("✅ Finalização em lote concluída: {} sucessos, {} erros, P&L {} em {}ms",
+                 successful, ordered.size() - successful, totalProfitLoss, durationMs);
+
+        return BulkExitResponse.builder()
+            .total(ordered.size())
+            .successful(successful)
+            .failed(ordered.size() - successful)
+            .totalProfitLoss(totalProfitLoss)
+            .durationMs(durationMs)
+            .results(ordered)
+            .build();
+    }
+
+    private BulkExitResponse.ItemResult processIsolated(OperationFinalizationRequest request, User user) {
+        try {
+            return transactionTemplate.execute(status -> processChunk(List.of(request), user)).get(0);
+        } catch (RuntimeException e) {
+            log.error("❌ Erro ao finalizar operação {}: {}", request.getOperationId(), e.getMessage());
+            return failure(request.getOperationId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Processa as finalizações do bloco na transação corrente; qualquer erro desfaz o bloco inteiro
+     */
+    private List<BulkExitResponse.ItemResult> processChunk(List<OperationFinalizationRequest> chunk, User user) {
+        List<UUID> operationIds = chunk.stream()
+            .map(OperationFinalizationRequest::getOperationId)
+            .toList();
+
+        // Travar antes de carregar: o snapshot precisa ser lido com as posições já seguras
+        positionLockService.lockForTransaction(operationRepository.findOptionSeriesCodesByIdIn(operationIds).stream()
+            .map(code -> PositionLockService.keyOf(user, code))
+            .toList());
+
+        ExitBatchSnapshot snapshot = loadSnapshot(operationIds);
+
+        List<BulkExitResponse.ItemResult> results = new ArrayList<>(chunk.size());
+        for (OperationFinalizationRequest request : chunk) {
+            Operation activeOperation = snapshot.operation(request.getOperationId())
+                .orElseThrow(() -> new ResourceNotFoundException(
+                    "Operação não encontrada com ID: " + request.getOperationId()));
+
+            OperationExitContext context = new OperationExitContext(request, activeOperation, user);
+            Operation result = processorSelector.selectAndProcess(
+                contextFactory.createPositionContext(context, snapshot));
+
+            results.add(BulkExitResponse.ItemResult.builder()
+                .operationId(request.getOperationId())
+                .success(true)
+                .resultOperationId(result.getId())
+                .profitLoss(result.getProfitLoss())
+                .message("Operação finalizada com sucesso")
+                .build());
+        }
+        return results;
+    }
+
+    /**
+     * Carrega operações, grupos, posições e lotes do bloco (uma consulta por tipo)
+     */
+    ExitBatchSnapshot loadSnapshot(List<UUID> operationIds) {
+        Map<UUID, Operation> operations = operationRepository.findAllById(operationIds).stream()
+            .collect(Collectors.toMap(Operation::getId, Function.identity()));
+
+        Map<UUID, AverageOperationGroup> groupsByOperation = new LinkedHashMap<>();
+        for (AverageOperationItem item : itemRepository.findWithGroupByOperationIdIn(operationIds)) {
+            groupsByOperation.putIfAbsent(item.getOperation().getId(), item.getGroup());
+        }
+
+        Set<UUID> positionIds = groupsByOperation.values().stream()
+            .map(AverageOperationGroup::getPositionId)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet());
+        List<Position> positions = positionRepository.findAllById(positionIds);
+
+        Map<UUID, List<EntryLot>> lotsByPosition = new LinkedHashMap<>();
+        if (!positions.isEmpty()) {
+            positions.forEach(position -> lotsByPosition.put(position.getId(), new ArrayList<>()));
+            entryLotRepository.findByPositionInOrderByEntryDateAscSequenceNumberAsc(positions)
+                .forEach(lot -> lotsByPosition.get(lot.getPosition().getId()).add(lot));
+        }
+
+        return new ExitBatchSnapshot(
+            operations,
+            groupsByOperation,
+            positions.stream().collect(Collectors.toMap(Position::getId, Function.identity())),
+            lotsByPosition);
+    }
+
+    private static BulkExitResponse.ItemResult failure(UUID operationId, String message) {
+        return BulkExitResponse.ItemResult.builder()
+            .operationId(operationId)
+            .success(false)
+            .message(message)
+            .build();
+    }
+}
@@ -0,0 +1,63 @@
+package com.olisystem.optionsmanager.service.operation.exit;
+
+import com.olisystem.optionsmanager.model.operation.AverageOperationGroup;
+import com.olisystem.optionsmanager.model.operation.Operation;
+import com.olisystem.optionsmanager.model.position.EntryLot;
+import com.olisystem.optionsmanager.model.position.Position;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Operações, grupos, posições e lotes de um lote de finalizações, carregados com poucas consultas
+ * ✅ NOVO: As entidades pertencem ao contexto de persistência da transação do lote; os lotes
+ * disponíveis são filtrados na hora do uso, então saídas anteriores do mesmo lote já aparecem
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+public final class ExitBatchSnapshot {
+
+    private final Map<UUID, Operation> operations;
+    private final Map<UUID, AverageOperationGroup> groupsByOperation;
+    private final Map<UUID, Position> positions;
+    private final Map<UUID, List<EntryLot>> lotsByPosition;
+
+    public ExitBatchSnapshot(Map<UUID, Operation> operations,
+                             Map<UUID, AverageOperationGroup> groupsByOperation,
+                             Map<UUID, Position> positions,
+                             Map<UUID, List<EntryLot>> lotsByPosition) {
+        this.operations = operations;
+        this.groupsByOperation = groupsByOperation;
+        this.positions = positions;
+        this.lotsByPosition = lotsByPosition;
+    }
+
+    public Optional<Operation> operation(UUID operationId) {
+        return Optional.ofNullable(operations.get(operationId));
+    }
+
+    public Optional<AverageOperationGroup> groupOf(UUID operationId) {
+        return Optional.ofNullable(groupsByOperation.get(operationId));
+    }
+
+    public Optional<Position> position(UUID positionId) {
+        return Optional.ofNullable(positions.get(positionId));
+    }
+
+    /**
+     * Lotes com saldo da posição, em ordem de entrada; vazio se a posição não foi carregada
+     */
+    public Optional<List<EntryLot>> availableLots(UUID positionId) {
+        List<EntryLot> lots = lotsByPosition.get(positionId);
+        if (lots == null) {
+            return Optional.empty();
+        }
+        return Optional.of(lots.stream()
+            .filter(lot -> lot.getRemainingQuantity() > 0)
+            .collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,193 @@
+package com.olisystem.optionsmanager.service.operation.exit;
+
+import com.olisystem.optionsmanager.model.operation.AverageOperationGroup;
+import com.olisystem.optionsmanager.model.operation.AverageOperationGroupStatus;
+import com.olisystem.optionsmanager.model.operation.AverageOperationItem;
+import com.olisystem.optionsmanager.model.operation.Operation;
+import com.olisystem.optionsmanager.model.position.EntryLot;
+import com.olisystem.optionsmanager.model.position.ExitRecord;
+import com.olisystem.optionsmanager.model.position.Position;
+import com.olisystem.optionsmanager.model.position.PositionOperation;
+import com.olisystem.optionsmanager.model.position.PositionStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Conjunto completo de alterações de uma saída, montado pela etapa de planejamento
+ * ✅ NOVO: O planejamento só lê e calcula; nada é gravado até o ExitChangeSetWriter aplicar
+ * o conjunto inteiro em um único flush (inserts e updates em lote via JDBC batching)
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+public class ExitChangeSet {
+
+    private final Position position;
+    private final AverageOperationGroup group;
+
+    private final List<Operation> exitOperations = new ArrayList<>();
+    private final List<Operation> hiddenOperations = new ArrayList<>();
+    private final List<LotDecrement> lotDecrements = new ArrayList<>();
+    private final List<ExitRecord> exitRecords = new ArrayList<>();
+    private final List<PositionOperation> positionOperations = new ArrayList<>();
+    private final List<AverageOperationItem> groupItems = new ArrayList<>();
+
+    private PositionTotals positionTotals;
+    private GroupTotals groupTotals;
+
+    public ExitChangeSet(Position position, AverageOperationGroup group) {
+        this.position = position;
+        this.group = group;
+    }
+
+    /**
+     * Redução de saldo de um lote de entrada
+     */
+    public record LotDecrement(EntryLot lot, int quantity) {
+
+        public int newRemainingQuantity() {
+            return lot.getRemainingQuantity() - quantity;
+        }
+    }
+
+    /**
+     * Novos totais da posição após a saída
+     */
+    public record PositionTotals(BigDecimal averagePrice,
+                                 Integer remainingQuantity,
+                                 BigDecimal totalRealizedProfit,
+                                 BigDecimal totalRealizedProfitPercentage,
+                                 PositionStatus status,
+                                 LocalDate closeDate) {
+
+        public void applyTo(Position position) {
+            position.setAveragePrice(averagePrice);
+            position.setRemainingQuantity(remainingQuantity);
+            position.setTotalRealizedProfit(totalRealizedProfit);
+            position.setTotalRealizedProfitPercentage(totalRealizedProfitPercentage);
+            position.setStatus(status);
+            if (closeDate != null) {
+                position.setCloseDate(closeDate);
+            }
+        }
+    }
+
+    /**
+     * Novos totais do grupo de operações após a saída
+     */
+    public record GroupTotals(Integer remainingQuantity,
+                              BigDecimal avgExitPrice,
+                              Integer closedQuantity,
+                              BigDecimal totalProfit,
+                              AverageOperationGroupStatus status) {
+
+        public void applyTo(AverageOperationGroup group) {
+            group.setRemainingQuantity(remainingQuantity);
+            group.setAvgExitPrice(avgExitPrice);
+            group.setClosedQuantity(closedQuantity);
+            group.setTotalProfit(totalProfit);
+            group.setStatus(status);
+        }
+    }
+
+    public ExitChangeSet addExitOperation(Operation operation) {
+        exitOperations.add(operation);
+        return this;
+    }
+
+    /**
+     * Operação existente que passa para HIDDEN na aplicação
+     */
+    public ExitChangeSet hide(Operation operation) {
+        if (hiddenOperations.stream().noneMatch(op -> op == operation)) {
+            hiddenOperations.add(operation);
+        }
+        return this;
+    }
+
+    public ExitChangeSet consumeLot(EntryLot lot, int quantity) {
+        lotDecrements.add(new LotDecrement(lot, quantity));
+        return this;
+    }
+
+    public ExitChangeSet addExitRecord(ExitRecord exitRecord) {
+        exitRecords.add(exitRecord);
+        return this;
+    }
+
+    public ExitChangeSet addPositionOperation(PositionOperation positionOperation) {
+        positionOperations.add(positionOperation);
+        return this;
+    }
+
+    public ExitChangeSet addGroupItem(Optional<AverageOperationItem> item) {
+        item.ifPresent(groupItems::add);
+        return this;
+    }
+
+    public ExitChangeSet updatePosition(PositionTotals totals) {
+        this.positionTotals = totals;
+        return this;
+    }
+
+    public ExitChangeSet updateGroup(GroupTotals totals) {
+        this.groupTotals = totals;
+        return this;
+    }
+
+    public Position getPosition() {
+        return position;
+    }
+
+    public AverageOperationGroup getGroup() {
+        return group;
+    }
+
+    public List<Operation> getExitOperations() {
+        return Collections.unmodifiableList(exitOperations);
+    }
+
+    public List<Operation> getHiddenOperations() {
+        return Collections.unmodifiableList(hiddenOperations);
+    }
+
+    public List<LotDecrement> getLotDecrements() {
+        return Collections.unmodifiableList(lotDecrements);
+    }
+
+    public List<ExitRecord> getExitRecords() {
+        return Collections.unmodifiableList(exitRecords);
+    }
+
+    public List<PositionOperation> getPositionOperations() {
+        return Collections.unmodifiableList(positionOperations);
+    }
+
+    /**
+     * Itens de grupo já planejados; usados para não duplicar papéis dentro da mesma saída
+     */
+    public List<AverageOperationItem> getGroupItems() {
+        return Collections.unmodifiableList(groupItems);
+    }
+
+    public PositionTotals getPositionTotals() {
+        return positionTotals;
+    }
+
+    public GroupTotals getGroupTotals() {
+        return groupTotals;
+    }
+
+    /**
+     * Saída total segundo os totais planejados da posição
+     */
+    public boolean closesPosition() {
+        return positionTotals != null
+            && (positionTotals.status() == PositionStatus.CLOSED || positionTotals.remainingQuantity() == 0);
+    }
+}
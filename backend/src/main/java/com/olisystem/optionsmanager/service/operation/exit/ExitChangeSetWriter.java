@@ -0,0 +1,85 @@
+package com.olisystem.optionsmanager.service.operation.exit;
+
+import com.olisystem.optionsmanager.model.operation.OperationStatus;
+import com.olisystem.optionsmanager.model.position.EntryLot;
+import com.olisystem.optionsmanager.repository.AverageOperationGroupRepository;
+import com.olisystem.optionsmanager.repository.AverageOperationItemRepository;
+import com.olisystem.optionsmanager.repository.OperationRepository;
+import com.olisystem.optionsmanager.repository.position.EntryLotRepository;
+import com.olisystem.optionsmanager.repository.position.ExitRecordRepository;
+import com.olisystem.optionsmanager.repository.position.PositionOperationRepository;
+import com.olisystem.optionsmanager.repository.position.PositionRepository;
+import com.olisystem.optionsmanager.service.position.entrylots.EntryLotUpdateService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Aplica o conjunto de alterações de uma saída
+ * ✅ NOVO: Todas as entidades são registradas no contexto de persistência e gravadas em um
+ * único flush; com hibernate.jdbc.batch_size e order_inserts/order_updates, cada tabela
+ * recebe um insert/update em lote em vez de um round-trip por registro
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExitChangeSetWriter {
+
+    private final OperationRepository operationRepository;
+    private final EntryLotRepository entryLotRepository;
+    private final ExitRecordRepository exitRecordRepository;
+    private final PositionOperationRepository positionOperationRepository;
+    private final PositionRepository positionRepository;
+    private final AverageOperationItemRepository itemRepository;
+    private final AverageOperationGroupRepository groupRepository;
+    private final EntryLotUpdateService entryLotUpdateService;
+
+    /**
+     * Grava o conjunto de alterações. Os ExitRecords já foram montados com o saldo anterior
+     * dos lotes, então a redução dos lotes pode ser aplicada aqui sem afetar os registros.
+     */
+    @Transactional
+    public void apply(ExitChangeSet changeSet) {
+        // Operações de saída primeiro: ExitRecord, PositionOperation e itens do grupo referenciam elas
+        operationRepository.saveAll(changeSet.getExitOperations());
+
+        changeSet.getHiddenOperations().forEach(operation -> operation.setStatus(OperationStatus.HIDDEN));
+        operationRepository.saveAll(changeSet.getHiddenOperations());
+
+        positionOperationRepository.saveAll(changeSet.getPositionOperations());
+        exitRecordRepository.saveAll(changeSet.getExitRecords());
+
+        List<EntryLot> lots = new ArrayList<>(changeSet.getLotDecrements().size());
+        for (ExitChangeSet.LotDecrement decrement : changeSet.getLotDecrements()) {
+            entryLotUpdateService.consume(decrement.lot(), decrement.quantity());
+            lots.add(decrement.lot());
+        }
+        entryLotRepository.saveAll(lots);
+
+        if (changeSet.getPositionTotals() != null) {
+            changeSet.getPositionTotals().applyTo(changeSet.getPosition());
+            positionRepository.save(changeSet.getPosition());
+        }
+
+        itemRepository.saveAll(changeSet.getGroupItems());
+        if (changeSet.getGroupTotals() != null) {
+            changeSet.getGroupTotals().applyTo(changeSet.getGroup());
+            groupRepository.save(changeSet.getGroup());
+        }
+
+        // Único flush: as escritas acima saem agrupadas em lotes JDBC
+        operationRepository.flush();
+
+        log.info("💾 Saída gravada: {} operações, {} ocultadas, {} ExitRecords, {} PositionOperations, {} lotes, {} itens de grupo",
+                changeSet.getExitOperations().size(), changeSet.getHiddenOperations().size(),
+                changeSet.getExitRecords().size(), changeSet.getPositionOperations().size(),
+                lots.size(), changeSet.getGroupItems().size());
+    }
+}
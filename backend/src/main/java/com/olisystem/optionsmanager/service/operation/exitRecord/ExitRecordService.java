@@ -33,7 +33,23 @@ public class ExitRecordService {
     @Transactional
     public ExitRecord createExitRecord(EntryLot lot, Operation exitOperation,
                                        OperationExitContext context, Integer quantityConsumed) {
-        log.debug("Criando registro de saída para operação ID: {}, lote ID: {}, quantidade consumida: {}",
+        ExitRecord savedRecord = exitRecordRepository.save(
+                buildExitRecord(lot, exitOperation, context, quantityConsumed));
+
+        log.info("Registro de saída criado: ID={}, lucro/prejuízo={}, percentual={}%, estratégia={}",
+                savedRecord.getId(), savedRecord.getProfitLoss(), savedRecord.getProfitLossPercentage(),
+                savedRecord.getAppliedStrategy());
+
+        return savedRecord;
+    }
+
+    /**
+     * ✅ NOVO: Monta o registro de saída sem gravar (usado no planejamento da saída).
+     * O lote deve estar com a quantidade anterior ao consumo.
+     */
+    public ExitRecord buildExitRecord(EntryLot lot, Operation exitOperation,
+                                      OperationExitContext context, Integer quantityConsumed) {
+        log.debug("Montando registro de saída para operação ID: {}, lote ID: {}, quantidade consumida: {}",
                 exitOperation.getId(), lot.getId(), quantityConsumed);
 
         // CORREÇÃO: Validar quantidade consumida
@@ -74,12 +90,7 @@ public class ExitRecordService {
                 .appliedStrategy(strategy) // CORREÇÃO: Estratégia dinâmica
                 .build();
 
-        ExitRecord savedRecord = exitRecordRepository.save(exitRecord);
-
-        log.info("Registro de saída criado: ID={}, lucro/prejuízo={}, percentual={}%, estratégia={}",
-                savedRecord.getId(), lotProfitLoss, lotProfitLossPercentage, strategy);
-
-        return savedRecord;
+        return exitRecord;
     }
 
     /**
@@ -1,6 +1,7 @@
 package com.olisystem.optionsmanager.service.operation.factory;
 
 import com.olisystem.optionsmanager.model.operation.AverageOperationGroup;
+import com.olisystem.optionsmanager.model.operation.Operation;
 import com.olisystem.optionsmanager.model.position.EntryLot;
 import com.olisystem.optionsmanager.model.position.Position;
 import com.olisystem.optionsmanager.model.transaction.TransactionType;
@@ -8,6 +9,7 @@ import com.olisystem.optionsmanager.record.operation.OperationExitContext;
 import com.olisystem.optionsmanager.record.operation.OperationExitPositionContext;
 import com.olisystem.optionsmanager.resolver.transactionType.TransactionTypeResolver;
 import com.olisystem.optionsmanager.service.operation.averageOperation.finder.OperationGroupFinder;
+import com.olisystem.optionsmanager.service.operation.exit.ExitBatchSnapshot;
 import com.olisystem.optionsmanager.service.position.entrylots.EntryLotService;
 import com.olisystem.optionsmanager.service.position.finder.PositionFinder;
 import lombok.RequiredArgsConstructor;
@@ -47,4 +49,26 @@ public class ExitContextFactory {
 
         return new OperationExitPositionContext(context, group, transactionType, position, availableLots);
     }
+
+    /**
+     * ✅ NOVO: Cria o contexto de posição usando os dados já carregados de uma finalização em lote;
+     * o que não estiver no snapshot é buscado individualmente
+     */
+    public OperationExitPositionContext createPositionContext(OperationExitContext context, ExitBatchSnapshot snapshot) {
+        Operation activeOperation = context.activeOperation();
+
+        AverageOperationGroup group = snapshot.groupOf(activeOperation.getId())
+                .orElseGet(() -> operationGroupFinder.findGroupByOperation(activeOperation));
+
+        Position position = snapshot.position(group.getPositionId())
+                .orElseGet(() -> positionFinder.findPositionById(group.getPositionId()));
+
+        TransactionType transactionType = transactionTypeResolver
+                .resolveInverseTransactionType(activeOperation.getTransactionType());
+
+        List<EntryLot> availableLots = snapshot.availableLots(position.getId())
+                .orElseGet(() -> entryLotService.findAvailableLotsByPosition(position));
+
+        return new OperationExitPositionContext(context, group, transactionType, position, availableLots);
+    }
 }
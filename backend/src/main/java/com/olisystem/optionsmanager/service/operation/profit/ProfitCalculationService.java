@@ -1,6 +1,8 @@
 package com.olisystem.optionsmanager.service.operation.profit;
 
+import com.olisystem.optionsmanager.config.calculation.CalculationProperties;
 import com.olisystem.optionsmanager.service.position.PositionCalculator;
+import com.olisystem.optionsmanager.util.FixedPointMoney;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -14,6 +16,7 @@ import java.math.RoundingMode;
 public class ProfitCalculationService {
 
     private final PositionCalculator positionCalculator;
+    private final CalculationProperties calculationProperties;
 
     private static final int PRECISION = 4;
 
@@ -40,9 +43,12 @@ public class ProfitCalculationService {
         }
 
         // CORREÇÃO: Multiplicar por 100 para obter percentual real
-        BigDecimal percentage = profitLoss
-                .divide(entryTotalValue, PRECISION, RoundingMode.HALF_UP)
-                .multiply(BigDecimal.valueOf(100));
+        BigDecimal percentage = fixedPointPercentage(profitLoss, entryTotalValue);
+        if (percentage == null) {
+            percentage = profitLoss
+                    .divide(entryTotalValue, PRECISION, RoundingMode.HALF_UP)
+                    .multiply(BigDecimal.valueOf(100));
+        }
 
         log.debug("Calculando percentual: lucro={}, valor_entrada={}, percentual={}%",
                 profitLoss, entryTotalValue, percentage);
@@ -59,10 +65,13 @@ public class ProfitCalculationService {
             return BigDecimal.ZERO;
         }
 
-        BigDecimal percentage = exitUnitPrice
-                .subtract(entryUnitPrice)
-                .divide(entryUnitPrice, PRECISION, RoundingMode.HALF_UP)
-                .multiply(BigDecimal.valueOf(100));
+        BigDecimal percentage = fixedPointPercentage(exitUnitPrice.subtract(entryUnitPrice), entryUnitPrice);
+        if (percentage == null) {
+            percentage = exitUnitPrice
+                    .subtract(entryUnitPrice)
+                    .divide(entryUnitPrice, PRECISION, RoundingMode.HALF_UP)
+                    .multiply(BigDecimal.valueOf(100));
+        }
 
         log.debug("Calculando percentual por preços: entrada={}, saída={}, percentual={}%",
                 entryUnitPrice, exitUnitPrice, percentage);
@@ -70,6 +79,21 @@ public class ProfitCalculationService {
         return percentage;
     }
 
+    /**
+     * ✅ NOVO: Percentual em ponto fixo (PRECISION casas, HALF_UP); null se desligado ou fora do intervalo
+     */
+    private BigDecimal fixedPointPercentage(BigDecimal numerator, BigDecimal denominator) {
+        if (!calculationProperties.isFixedPointMoney()) {
+            return null;
+        }
+        try {
+            return FixedPointMoney.percentage(
+                    FixedPointMoney.of(numerator), FixedPointMoney.of(denominator), PRECISION);
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
     /**
      * NOVO MÉTODO: Validação de valores antes do cálculo
      */
@@ -14,10 +14,10 @@ import com.olisystem.optionsmanager.service.operation.averageOperation.AverageOp
 import com.olisystem.optionsmanager.service.operation.averageOperation.AverageOperationService;
 import com.olisystem.optionsmanager.service.operation.consolidate.ConsolidatedOperationService;
 import com.olisystem.optionsmanager.service.operation.creation.OperationCreationService;
+import com.olisystem.optionsmanager.service.operation.exit.ExitChangeSet;
+import com.olisystem.optionsmanager.service.operation.exit.ExitChangeSetWriter;
 import com.olisystem.optionsmanager.service.operation.exitRecord.ExitRecordService;
 import com.olisystem.optionsmanager.service.operation.profit.ProfitCalculationService;
-import com.olisystem.optionsmanager.service.operation.status.OperationStatusService;
-import com.olisystem.optionsmanager.service.position.entrylots.EntryLotUpdateService;
 import com.olisystem.optionsmanager.service.position.positionOperation.PositionOperationService;
 import com.olisystem.optionsmanager.service.position.update.PositionUpdateService;
 import lombok.RequiredArgsConstructor;
@@ -37,15 +37,14 @@ import java.util.stream.Collectors;
 public class MultipleLotExitProcessor {
 
     private final ProfitCalculationService profitCalculationService;
-    private final EntryLotUpdateService entryLotUpdateService;
     private final PositionUpdateService positionUpdateService;
-    private final OperationStatusService operationStatusService;
     private final ExitRecordService exitRecordService;
     private final PositionOperationService positionOperationService;
     private final AverageOperationGroupService averageOperationGroupService;
     private final OperationCreationService operationCreationService;
     private final ConsolidatedOperationService consolidatedOperationService;
     private final AverageOperationService averageOperationService;
+    private final ExitChangeSetWriter exitChangeSetWriter;
 
     /**
      * Processa a saída de operação com múltiplos lotes
@@ -67,14 +66,23 @@ public class MultipleLotExitProcessor {
             // FASE 2: ESTRATÉGIA DE CONSUMO (Passos 4-6)
             ConsumptionPlan consumptionPlan = createConsumptionPlan(lotAnalysis, context);
 
+            // ✅ Fases 3 a 5 apenas planejam: todas as alterações vão para o ExitChangeSet
+            ExitChangeSet changeSet = new ExitChangeSet(context.position(), context.group());
+
             // FASE 3: EXECUÇÃO DO CONSUMO (Passos 7-9)
-            ConsumptionResult consumptionResult = executeConsumption(consumptionPlan, context);
+            ConsumptionResult consumptionResult = executeConsumption(consumptionPlan, context, changeSet);
 
             // FASE 4: CRIAÇÃO DE OPERAÇÕES DE SAÍDA (Passos 10-12)
-            List<Operation> exitOperations = createExitOperations(consumptionResult, context);
+            List<Operation> exitOperations = createExitOperations(consumptionResult, context, changeSet);
 
             // FASE 5: REGISTROS E RASTREABILIDADE (Passos 13-15)
-            finalizeProcessing(exitOperations, consumptionResult, context);
+            planRecords(exitOperations, consumptionResult, context, changeSet);
+
+            // ✅ APLICAÇÃO: grava o conjunto inteiro em um único flush
+            exitChangeSetWriter.apply(changeSet);
+
+            // CONSOLIDAÇÃO: depende do grupo já gravado
+            consolidate(exitOperations, changeSet.closesPosition(), context);
 
             log.info("=== PROCESSAMENTO DE MÚLTIPLOS LOTES CONCLUÍDO COM SUCESSO ===");
 
@@ -306,7 +314,8 @@ public class MultipleLotExitProcessor {
      * PASSO 8: Consolidar resultados financeiros totais
      * PASSO 9: Atualizar Position consolidadamente
      */
-    private ConsumptionResult executeConsumption(ConsumptionPlan plan, OperationExitPositionContext context) {
+    private ConsumptionResult executeConsumption(ConsumptionPlan plan, OperationExitPositionContext context,
+                                                 ExitChangeSet changeSet) {
         log.debug("Executando consumo de {} lotes", plan.consumptions.size());
 
         OperationFinalizationRequest request = context.context().request();
@@ -346,20 +355,21 @@ public class MultipleLotExitProcessor {
         log.info("🔍 Detecção de saída total (ANTES da atualização): quantidade_solicitada={}, remaining_quantity={}, isTotalExit={}", 
                 totalQuantityConsumed, context.position().getRemainingQuantity(), isTotalExit);
 
-        // ✅ CORREÇÃO: Usar método apropriado baseado no tipo de saída
+        // ✅ CORREÇÃO: Usar cálculo apropriado baseado no tipo de saída
         if (isTotalExit) {
-            // Saída total - usar updatePosition (que fecha a posição)
-            log.info("🎯 Processando como SAÍDA TOTAL - usando updatePosition()");
-            positionUpdateService.updatePosition(context.position(), request, totalProfitLoss, consolidatedPercentage);
+            // Saída total - fecha a posição
+            log.info("🎯 Processando como SAÍDA TOTAL - planTotalExit()");
+            changeSet.updatePosition(positionUpdateService.planTotalExit(
+                    context.position(), request, totalProfitLoss, consolidatedPercentage));
         } else {
-            // Saída parcial - usar updatePositionPartial (que mantém posição aberta)
-            log.info("🎯 Processando como SAÍDA PARCIAL - usando updatePositionPartial()");
-            positionUpdateService.updatePositionPartial(context.position(), request, totalProfitLoss, consolidatedPercentage, totalQuantityConsumed);
+            // Saída parcial - mantém posição aberta
+            log.info("🎯 Processando como SAÍDA PARCIAL - planPartialExit()");
+            changeSet.updatePosition(positionUpdateService.planPartialExit(
+                    context.position(), request, totalProfitLoss, totalQuantityConsumed));
         }
 
         // Atualizar status da operação de entrada original
-        operationStatusService.updateOperationStatus(
-                context.context().activeOperation(), OperationStatus.HIDDEN);
+        changeSet.hide(context.context().activeOperation());
 
         log.info("Consumo calculado: {} lotes processados, total: {} unidades, lucro/prejuízo: {}",
                 lotResults.size(), totalQuantityConsumed, totalProfitLoss);
@@ -414,7 +424,8 @@ public class MultipleLotExitProcessor {
      * PASSO 11: Criar operação(ões) de saída conforme necessário
      * PASSO 12: Atualizar status da operação de entrada original (já feito na fase 3)
      */
-    private List<Operation> createExitOperations(ConsumptionResult result, OperationExitPositionContext context) {
+    private List<Operation> createExitOperations(ConsumptionResult result, OperationExitPositionContext context,
+                                                 ExitChangeSet changeSet) {
         List<Operation> exitOperations = new ArrayList<>();
 
         // Criar operações baseadas nos tipos de trade processados
@@ -432,9 +443,10 @@ public class MultipleLotExitProcessor {
                         context, tradeType, operationData);
 
                 exitOperations.add(exitOperation);
+                changeSet.addExitOperation(exitOperation);
 
-                log.info("Operação de saída {} criada: tipo={}, quantidade={}, preço_médio_entrada={}, lucro/prejuízo={}, percentual={}%",
-                        exitOperation.getId(), tradeType, operationData.quantity,
+                log.info("Operação de saída planejada: tipo={}, quantidade={}, preço_médio_entrada={}, lucro/prejuízo={}, percentual={}%",
+                        tradeType, operationData.quantity,
                         operationData.averageEntryPrice, operationData.profitLoss, operationData.profitLossPercentage);
             } else {
                 log.warn("⚠️ Ignorando criação de operação para tradeType={} com quantidade=0", tradeType);
@@ -509,7 +521,7 @@ public class MultipleLotExitProcessor {
         Operation activeOperation = context.context().activeOperation();
 
         // Usar OperationCreationService básico e depois ajustar os dados
-        Operation exitOperation = operationCreationService.createExitOperation(
+        Operation exitOperation = operationCreationService.prepareExitOperation(
                 context, tradeType, operationData.profitLoss,
                 context.transactionType(), operationData.quantity);
 
@@ -536,10 +548,7 @@ public class MultipleLotExitProcessor {
         // ✅ CORREÇÃO: Operações individuais devem ser HIDDEN
         exitOperation.setStatus(OperationStatus.HIDDEN);
 
-        // ✅ IMPORTANTE: Salvar a operação com os dados corretos
-        // (O OperationCreationService já salva, mas precisamos salvar novamente após as alterações)
-        // Assumindo que existe um repository injetado ou o service faz o save
-
+        // ✅ A operação é gravada já com os dados corretos, na aplicação do ExitChangeSet
         return exitOperation;
     }
 
@@ -552,8 +561,8 @@ public class MultipleLotExitProcessor {
      * PASSO 14: Criar ExitRecords individuais
      * PASSO 15: Atualizar AverageOperationGroup
      */
-    private void finalizeProcessing(List<Operation> exitOperations, ConsumptionResult result,
-                                    OperationExitPositionContext context) {
+    private void planRecords(List<Operation> exitOperations, ConsumptionResult result,
+                             OperationExitPositionContext context, ExitChangeSet changeSet) {
 
         OperationFinalizationRequest request = context.context().request();
 
@@ -562,17 +571,14 @@ public class MultipleLotExitProcessor {
                 context.position().getTotalQuantity()) ?
                 PositionOperationType.FULL_EXIT : PositionOperationType.PARTIAL_EXIT;
 
-        // Consolidar operações de saída
-        // consolidatedOperationService.consolidateExitOperations(exitOperations, context.context());
-
         // Criar PositionOperations para cada operação de saída
         for (Operation exitOperation : exitOperations) {
-            positionOperationService.createPositionOperation(
-                    context.position(), exitOperation, request, positionOpType);
+            changeSet.addPositionOperation(positionOperationService.buildPositionOperation(
+                    context.position(), exitOperation, request, positionOpType));
         }
 
         // ✅ CORREÇÃO: Criar ExitRecords ANTES de atualizar os lotes
-        log.debug("Criando ExitRecords para {} lotes consumidos", result.lotResults.size());
+        log.debug("Planejando ExitRecords para {} lotes consumidos", result.lotResults.size());
         for (LotConsumptionResult lotResult : result.lotResults) {
             // Encontrar a operação de saída correspondente ao tipo de trade
             Operation correspondingOperation = exitOperations.stream()
@@ -581,78 +587,69 @@ public class MultipleLotExitProcessor {
                     .orElseThrow(() -> new BusinessException("Operação correspondente não encontrada para " + lotResult.tradeType));
 
             // Criar ExitRecord com a quantidade consumida (lote ainda não foi atualizado)
-            exitRecordService.createExitRecord(
-                    lotResult.lot, correspondingOperation, context.context(), lotResult.quantityConsumed);
+            changeSet.addExitRecord(exitRecordService.buildExitRecord(
+                    lotResult.lot, correspondingOperation, context.context(), lotResult.quantityConsumed));
         }
 
-        // ✅ CORREÇÃO CRÍTICA: Usar a detecção já feita anteriormente - posição foi atualizada
-        // A detecção deve ser baseada no estado ATUAL da posição (após atualização)
-        boolean isTotalExit = context.position().getStatus() == com.olisystem.optionsmanager.model.position.PositionStatus.CLOSED 
-                           || context.position().getRemainingQuantity() == 0;
-        
-        log.info("🔍 Detecção de saída total (APÓS atualização da posição): positionStatus={}, remainingQuantity={}, isTotalExit={}", 
-                context.position().getStatus(), context.position().getRemainingQuantity(), isTotalExit);
-
-        // ✅ CORREÇÃO: AGORA sim atualizar os lotes (após calcular total disponível)
-        log.info("Atualizando {} lotes após cálculo do total disponível", result.lotResults.size());
+        // ✅ CORREÇÃO: Redução dos lotes aplicada depois dos ExitRecords
         for (LotConsumptionResult lotResult : result.lotResults) {
-            log.info("Atualizando lote {}: consumindo {} unidades (quantidade atual: {})", 
-                    lotResult.lot.getId(), lotResult.quantityConsumed, lotResult.lot.getRemainingQuantity());
-            entryLotUpdateService.updateEntryLot(lotResult.lot, lotResult.quantityConsumed);
+            changeSet.consumeLot(lotResult.lot, lotResult.quantityConsumed);
         }
 
-        // ✅ CORREÇÃO: Atualizar AverageOperationGroup com todas as operações
-        // (Removido para evitar duplicação - será feito na lógica de consolidação abaixo)
-        
-        log.info("Processamento finalizado: {} operações criadas, {} ExitRecords criados, {} lotes atualizados",
-                exitOperations.size(), result.lotResults.size(), result.lotResults.size());
+        // ✅ CORREÇÃO CRÍTICA: Marcar todas as operações de saída como HIDDEN
+        for (Operation exitOperation : exitOperations) {
+            changeSet.hide(exitOperation);
+        }
 
-        // ================= LÓGICA DE CONSOLIDAÇÃO =================
-        
-        // ✅ CORREÇÃO CRÍTICA: Marcar todas as operações de saída como HIDDEN primeiro
+        // Itens do grupo: TOTAL_EXIT se a posição fecha, senão PARTIAL_EXIT
+        com.olisystem.optionsmanager.model.operation.OperationRoleType roleType = changeSet.closesPosition() ?
+                com.olisystem.optionsmanager.model.operation.OperationRoleType.TOTAL_EXIT :
+                com.olisystem.optionsmanager.model.operation.OperationRoleType.PARTIAL_EXIT;
         for (Operation exitOperation : exitOperations) {
-            log.info("Marcando operação de saída como HIDDEN: {}", exitOperation.getId());
-            consolidatedOperationService.markOperationAsHidden(exitOperation);
+            changeSet.addGroupItem(averageOperationService.buildNewItemGroup(
+                    context.group(), exitOperation, roleType, changeSet.getGroupItems()));
         }
-        
+
+        log.info("Saída planejada: {} operações, {} ExitRecords, {} lotes, itens de grupo como {}",
+                exitOperations.size(), result.lotResults.size(), result.lotResults.size(), roleType);
+    }
+
+    /**
+     * ✅ Gerenciamento das operações consolidadas, após a aplicação do ExitChangeSet
+     * (ConsolidatedOperationService recarrega o grupo e grava por conta própria)
+     */
+    private void consolidate(List<Operation> exitOperations, boolean isTotalExit,
+                             OperationExitPositionContext context) {
+
+        log.info("🔍 Detecção de saída total (APÓS atualização da posição): positionStatus={}, remainingQuantity={}, isTotalExit={}", 
+                context.position().getStatus(), context.position().getRemainingQuantity(), isTotalExit);
+
+        Operation firstExitOp = exitOperations.get(0);
+        Optional<Operation> existingConsolidatedResult = consolidatedOperationService.findExistingConsolidatedResult(context.group());
+
         if (isTotalExit) {
-            // ✅ CORREÇÃO: Marcar a última operação de saída como HIDDEN e TOTAL_EXIT
-            for (Operation exitOperation : exitOperations) {
-                consolidatedOperationService.markOperationAsHidden(exitOperation);
-                averageOperationService.addNewItemGroup(context.group(), exitOperation, com.olisystem.optionsmanager.model.operation.OperationRoleType.TOTAL_EXIT);
-                log.info("Operação de saída final adicionada ao grupo como TOTAL_EXIT e marcada como HIDDEN: {}", exitOperation.getId());
-            }
             // ✅ CORREÇÃO: Transformar CONSOLIDATED_RESULT existente em TOTAL_EXIT com valores corretos
-            Optional<Operation> existingConsolidatedResult = consolidatedOperationService.findExistingConsolidatedResult(context.group());
             if (existingConsolidatedResult.isPresent()) {
                 log.info("Transformando CONSOLIDATED_RESULT existente em TOTAL_EXIT com valores corretos: {}", existingConsolidatedResult.get().getId());
                 consolidatedOperationService.transformToTotalExit(existingConsolidatedResult.get(), context.group());
             } else {
                 log.info("Criando CONSOLIDATED_RESULT final");
-                Operation firstExitOp = exitOperations.get(0);
                 consolidatedOperationService.createConsolidatedExit(context.group(), firstExitOp, 
                     firstExitOp.getExitUnitPrice(), firstExitOp.getExitDate());
             }
             // Marcar CONSOLIDATED_ENTRY como HIDDEN
             markConsolidatedEntryAsHidden(context);
         } else {
-            // Adicionar como PARTIAL_EXIT
-            for (Operation exitOperation : exitOperations) {
-                averageOperationService.addNewItemGroup(context.group(), exitOperation, com.olisystem.optionsmanager.model.operation.OperationRoleType.PARTIAL_EXIT);
-                log.info("Operação de saída parcial adicionada ao grupo como PARTIAL_EXIT: {}", exitOperation.getId());
-            }
             // Atualizar ou criar CONSOLIDATED_RESULT
-            Optional<Operation> existingConsolidatedResult = consolidatedOperationService.findExistingConsolidatedResult(context.group());
             if (existingConsolidatedResult.isPresent()) {
                 log.info("Atualizando CONSOLIDATED_RESULT parcial: {}", existingConsolidatedResult.get().getId());
                 consolidatedOperationService.updateConsolidatedResult(
                     existingConsolidatedResult.get(),
-                    exitOperations.get(0),
+                    firstExitOp,
                     context.group()
                 );
             } else {
                 log.info("Criando CONSOLIDATED_RESULT parcial");
-                Operation firstExitOp = exitOperations.get(0);
                 consolidatedOperationService.createConsolidatedExit(context.group(), firstExitOp, 
                     firstExitOp.getExitUnitPrice(), firstExitOp.getExitDate());
             }
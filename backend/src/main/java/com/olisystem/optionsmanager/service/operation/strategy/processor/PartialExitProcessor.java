@@ -21,10 +21,11 @@ import com.olisystem.optionsmanager.service.operation.average.AveragePriceCalcul
 import com.olisystem.optionsmanager.service.operation.consolidate.ConsolidatedOperationService;
 import com.olisystem.optionsmanager.service.operation.creation.OperationCreationService;
 import com.olisystem.optionsmanager.service.operation.detector.PartialExitDetector;
+import com.olisystem.optionsmanager.service.operation.exit.ExitChangeSet;
+import com.olisystem.optionsmanager.service.operation.exit.ExitChangeSetWriter;
 import com.olisystem.optionsmanager.service.operation.exitRecord.ExitRecordService;
 import com.olisystem.optionsmanager.service.operation.profit.ProfitCalculationService;
 import com.olisystem.optionsmanager.service.operation.averageOperation.AverageOperationService;
-import com.olisystem.optionsmanager.service.position.entrylots.EntryLotUpdateService;
 import com.olisystem.optionsmanager.service.position.positionOperation.PositionOperationService;
 import com.olisystem.optionsmanager.service.position.update.PositionUpdateService;
 import com.olisystem.optionsmanager.record.consumption.LotConsumption;
@@ -50,7 +51,7 @@ public class PartialExitProcessor {
     private final AveragePriceCalculator averagePriceCalculator;
     private final ConsolidatedOperationService consolidatedOperationService;
     private final OperationCreationService operationCreationService;
-    private final EntryLotUpdateService entryLotUpdateService;
+    private final ExitChangeSetWriter exitChangeSetWriter;
     private final PositionOperationService positionOperationService;
     private final ExitRecordService exitRecordService;
     private final PositionUpdateService positionUpdateService;
@@ -437,8 +438,11 @@ public class PartialExitProcessor {
         log.info("🔧 Criando operação de saída com TransactionType: {} (context: {})", 
                 context.transactionType(), context.transactionType());
         
+        // ✅ Planejar as gravações da saída; tudo é aplicado de uma vez no final
+        ExitChangeSet changeSet = new ExitChangeSet(context.position(), context.group());
+
         // Criar operação de saída consolidada
-        Operation exitOperation = operationCreationService.createExitOperation(
+        Operation exitOperation = operationCreationService.prepareExitOperation(
                 context, tradeType, totalProfitLoss, TransactionType.SELL, totalQuantityConsumed);
         
         // ✅ CORREÇÃO: Verificar se TransactionType foi definido corretamente
@@ -455,27 +459,32 @@ public class PartialExitProcessor {
             exitOperation.setProfitLossPercentage(profitLossPercentage);
         }
 
+        changeSet.addExitOperation(exitOperation);
+
         // Criar registros relacionados
-        positionOperationService.createPositionOperation(
+        changeSet.addPositionOperation(positionOperationService.buildPositionOperation(
                 context.position(), exitOperation, request,
                 partialExitDetector.isFinalExit(context.position(), request.getQuantity()) ?
-                        PositionOperationType.FULL_EXIT : PositionOperationType.PARTIAL_EXIT);
+                        PositionOperationType.FULL_EXIT : PositionOperationType.PARTIAL_EXIT));
 
         // ✅ NOVO: Criar ExitRecord para cada lote consumido
         for (LotConsumption consumption : consumptions) {
-            exitRecordService.createExitRecord(
+            changeSet.addExitRecord(exitRecordService.buildExitRecord(
                     consumption.lot(), 
                     exitOperation, 
                     context.context(), 
                     consumption.quantityToConsume()
-            );
+            ));
         }
 
-        // ✅ NOVO: Atualizar todos os lotes consumidos
+        // ✅ NOVO: Atualizar todos os lotes consumidos (depois dos ExitRecords)
         for (LotConsumption consumption : consumptions) {
-            entryLotUpdateService.updateEntryLot(consumption.lot(), consumption.quantityToConsume());
+            changeSet.consumeLot(consumption.lot(), consumption.quantityToConsume());
         }
 
+        // ✅ Operação, PositionOperation, ExitRecords e lotes em um único flush
+        exitChangeSetWriter.apply(changeSet);
+
         log.info("✅ Saída processada com múltiplos lotes: {} lotes, {} unidades, P&L={}, Percentual={}%",
                 consumptions.size(), totalQuantityConsumed, totalProfitLoss, profitLossPercentage);
 
@@ -15,10 +15,11 @@ import com.olisystem.optionsmanager.service.operation.averageOperation.AverageOp
 import com.olisystem.optionsmanager.service.operation.averageOperation.AverageOperationService;
 import com.olisystem.optionsmanager.service.operation.consolidate.ConsolidatedOperationService;
 import com.olisystem.optionsmanager.service.operation.creation.OperationCreationService;
+import com.olisystem.optionsmanager.service.operation.exit.ExitChangeSet;
+import com.olisystem.optionsmanager.service.operation.exit.ExitChangeSetWriter;
 import com.olisystem.optionsmanager.service.operation.exitRecord.ExitRecordService;
 import com.olisystem.optionsmanager.service.operation.profit.ProfitCalculationService;
 import com.olisystem.optionsmanager.service.operation.status.OperationStatusService;
-import com.olisystem.optionsmanager.service.position.entrylots.EntryLotUpdateService;
 import com.olisystem.optionsmanager.service.position.positionOperation.PositionOperationService;
 import com.olisystem.optionsmanager.service.position.update.PositionUpdateService;
 import com.olisystem.optionsmanager.repository.OperationRepository;
@@ -37,7 +38,6 @@ public class SingleLotExitProcessor {
 
     private final TradeTypeResolver tradeTypeResolver;
     private final ProfitCalculationService profitCalculationService;
-    private final EntryLotUpdateService entryLotUpdateService;
     private final PositionUpdateService positionUpdateService;
     private final OperationStatusService operationStatusService;
     private final ExitRecordService exitRecordService;
@@ -47,6 +47,7 @@ public class SingleLotExitProcessor {
     private final OperationCreationService operationCreationService;
     private final ConsolidatedOperationService consolidatedOperationService;
     private final OperationRepository operationRepository;
+    private final ExitChangeSetWriter exitChangeSetWriter;
 
     /**
      * Processa a saída de operação com lote único
@@ -119,49 +120,16 @@ public class SingleLotExitProcessor {
             log.info("Resultados financeiros calculados: lucro/prejuízo={}, percentual={}%, preço_entrada_usado={}",
                     profitLoss, profitLossPercentage, entryPriceToUse);
 
-            // 6. ATUALIZAR POSIÇÃO (não afeta o lote)
-            log.debug("Atualizando posição...");
-            boolean isTotalExit = request.getQuantity().equals(context.position().getRemainingQuantity());
-            
-            if (isTotalExit) {
-                log.debug("Saída TOTAL detectada - usando updatePosition()");
-                positionUpdateService.updatePosition(context.position(), request, profitLoss, profitLossPercentage);
-            } else {
-                log.debug("Saída PARCIAL detectada - usando updatePositionPartial()");
-                positionUpdateService.updatePositionPartial(context.position(), request, profitLoss, profitLossPercentage, request.getQuantity());
-            }
+            // 6-12. ✅ PLANEJAR A SAÍDA: nada é gravado até a aplicação do conjunto de alterações
+            ExitChangeSet changeSet = planExit(context, lot, tradeType, profitLoss, profitLossPercentage);
+            Operation exitOperation = changeSet.getExitOperations().get(0);
 
-            // 7. ATUALIZAR STATUS DA OPERAÇÃO DE ENTRADA
-            log.debug("Atualizando status da operação de entrada para HIDDEN...");
-            operationStatusService.updateOperationStatus(activeOperation, OperationStatus.HIDDEN);
-
-            // 8. CRIAR OPERAÇÃO DE SAÍDA
-            log.debug("Criando operação de saída...");
-            Operation exitOperation = operationCreationService.createExitOperation(
-                    context, tradeType, profitLoss, context.transactionType(), request.getQuantity());
+            // ✅ APLICAR: operação, ExitRecord, PositionOperation, lote, posição e grupo em um único flush
+            exitChangeSetWriter.apply(changeSet);
 
             log.info("Operação de saída criada: ID={}, status={}, P&L={}", 
                     exitOperation.getId(), exitOperation.getStatus(), profitLoss);
 
-            // 9. ✅ CRIAR EXIT RECORD IMEDIATAMENTE (preservar estado do lote)
-            log.debug("Criando ExitRecord ANTES de atualizar lote...");
-            exitRecordService.createExitRecord(lot, exitOperation, context.context(), request.getQuantity());
-            log.info("✅ ExitRecord criado com sucesso com lote intacto");
-
-            // 10. CRIAR POSITION OPERATION (também antes de atualizar lote)
-            log.debug("Criando PositionOperation...");
-            positionOperationService.createPositionOperation(
-                    context.position(), exitOperation, request, PositionOperationType.FULL_EXIT);
-
-            // 11. ✅ ATUALIZAR LOTE DE ENTRADA (POR ÚLTIMO!)
-            log.debug("Atualizando lote de entrada...");
-            entryLotUpdateService.updateEntryLot(lot, request.getQuantity());
-
-            // 12. ATUALIZAR AVERAGE OPERATION GROUP (final)
-            log.debug("Atualizando AverageOperationGroup...");
-            averageOperationGroupService.updateOperationGroup(
-                    context.group(), context.position(), exitOperation, profitLoss);
-
             // 13. ✅ CONSOLIDAÇÃO FINAL (se posição foi totalmente fechada)
             Operation finalOperation = exitOperation;
             // ✅ CORREÇÃO: Verificar se é saída total APÓS a atualização da posição
@@ -190,6 +158,52 @@ public class SingleLotExitProcessor {
         }
     }
 
+    /**
+     * ✅ NOVO: Monta o conjunto de alterações da saída com lote único (sem gravar)
+     */
+    private ExitChangeSet planExit(OperationExitPositionContext context, EntryLot lot, TradeType tradeType,
+                                   BigDecimal profitLoss, BigDecimal profitLossPercentage) {
+        OperationFinalizationRequest request = context.context().request();
+        ExitChangeSet changeSet = new ExitChangeSet(context.position(), context.group());
+
+        // 6. TOTAIS DA POSIÇÃO (não afeta o lote)
+        boolean isTotalExit = request.getQuantity().equals(context.position().getRemainingQuantity());
+        if (isTotalExit) {
+            log.debug("Saída TOTAL detectada - fechando posição");
+            changeSet.updatePosition(positionUpdateService.planTotalExit(
+                    context.position(), request, profitLoss, profitLossPercentage));
+        } else {
+            log.debug("Saída PARCIAL detectada - mantendo posição aberta");
+            changeSet.updatePosition(positionUpdateService.planPartialExit(
+                    context.position(), request, profitLoss, request.getQuantity()));
+        }
+
+        // 7. STATUS DA OPERAÇÃO DE ENTRADA
+        changeSet.hide(context.context().activeOperation());
+
+        // 8. OPERAÇÃO DE SAÍDA
+        Operation exitOperation = operationCreationService.prepareExitOperation(
+                context, tradeType, profitLoss, context.transactionType(), request.getQuantity());
+        changeSet.addExitOperation(exitOperation);
+
+        // 9-10. ✅ EXIT RECORD E POSITION OPERATION com o lote ainda intacto
+        changeSet.addExitRecord(exitRecordService.buildExitRecord(
+                lot, exitOperation, context.context(), request.getQuantity()));
+        changeSet.addPositionOperation(positionOperationService.buildPositionOperation(
+                context.position(), exitOperation, request, PositionOperationType.FULL_EXIT));
+
+        // 11. ✅ REDUÇÃO DO LOTE (aplicada depois dos registros)
+        changeSet.consumeLot(lot, request.getQuantity());
+
+        // 12. AVERAGE OPERATION GROUP
+        changeSet.addGroupItem(averageOperationService.buildNewItemGroup(
+                context.group(), exitOperation, OperationRoleType.TOTAL_EXIT, changeSet.getGroupItems()));
+        changeSet.updateGroup(averageOperationGroupService.planGroupClose(
+                changeSet.getPositionTotals().remainingQuantity(), exitOperation, profitLoss));
+
+        return changeSet;
+    }
+
     /**
      * NOVO MÉTODO: Validações do contexto de processamento
      */
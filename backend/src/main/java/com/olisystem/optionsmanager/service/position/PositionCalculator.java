@@ -1,5 +1,6 @@
 package com.olisystem.optionsmanager.service.position;
 
+import com.olisystem.optionsmanager.config.calculation.CalculationProperties;
 import com.olisystem.optionsmanager.dto.position.EntryLotDto;
 import com.olisystem.optionsmanager.dto.position.ExitRecordDto;
 import com.olisystem.optionsmanager.dto.position.PositionDto;
@@ -9,13 +10,13 @@ import com.olisystem.optionsmanager.model.position.EntryLot;
 import com.olisystem.optionsmanager.model.position.ExitStrategy;
 import com.olisystem.optionsmanager.model.position.PositionStatus;
 import com.olisystem.optionsmanager.model.transaction.TransactionType;
+import com.olisystem.optionsmanager.service.position.entrylots.LotBook;
+import com.olisystem.optionsmanager.util.FixedPointMoney;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -23,8 +24,22 @@ public class PositionCalculator {
 
   private static final int PRECISION = 6;
 
+  private final CalculationProperties calculationProperties;
+
+  public PositionCalculator(CalculationProperties calculationProperties) {
+    this.calculationProperties = calculationProperties;
+  }
+
   /** Calcula o preço médio de entrada com base nos lotes restantes */
   public BigDecimal calculateRemainingAveragePrice(List<EntryLot> entryLots) {
+    if (calculationProperties.isFixedPointMoney()) {
+      try {
+        return calculateRemainingAveragePriceFixed(entryLots);
+      } catch (ArithmeticException e) {
+        // Fora do intervalo do ponto fixo: segue em BigDecimal
+      }
+    }
+
     BigDecimal totalRemainingQuantity = BigDecimal.ZERO;
     BigDecimal weightedSum = BigDecimal.ZERO;
 
@@ -43,6 +58,30 @@ public class PositionCalculator {
     return BigDecimal.ZERO;
   }
 
+  /** ✅ NOVO: Mesmo cálculo em ponto fixo (PRECISION casas, HALF_UP) */
+  private BigDecimal calculateRemainingAveragePriceFixed(List<EntryLot> entryLots) {
+    long totalRemainingQuantity = 0;
+    long weightedSum = 0;
+
+    for (EntryLot lot : entryLots) {
+      if (lot.getRemainingQuantity() > 0) {
+        totalRemainingQuantity += lot.getRemainingQuantity();
+        weightedSum =
+            FixedPointMoney.add(
+                weightedSum,
+                FixedPointMoney.times(
+                    FixedPointMoney.of(lot.getUnitPrice()), lot.getRemainingQuantity()));
+      }
+    }
+
+    if (totalRemainingQuantity > 0) {
+      return FixedPointMoney.toBigDecimal(
+          FixedPointMoney.divideHalfUp(weightedSum, totalRemainingQuantity), PRECISION);
+    }
+
+    return BigDecimal.ZERO;
+  }
+
   /** Processa lotes para saída usando a estratégia FIFO */
   public List<ExitRecordDto> processExitFIFO(
       List<EntryLotDto> availableLots,
@@ -51,51 +90,11 @@ public class PositionCalculator {
       LocalDate exitDate) {
     List<ExitRecordDto> exitRecords = new ArrayList<>();
 
-    // Ordenar por data de entrada (mais antiga primeiro)
-    List<EntryLotDto> sortedLots = new ArrayList<>(availableLots);
-    sortedLots.sort(
-        Comparator.comparing(EntryLotDto::getEntryDate)
-            .thenComparing(EntryLotDto::getSequenceNumber));
-
-    int remainingToExit = totalExitQuantity;
-
-    for (EntryLotDto lot : sortedLots) {
-      if (remainingToExit <= 0) break;
-
-      // Quantidade a ser consumida deste lote
-      int quantityFromThisLot = Math.min(lot.getRemainingQuantity(), remainingToExit);
-
-      if (quantityFromThisLot > 0) {
-        // Calcular lucro/prejuízo
-        BigDecimal profitLoss =
-            calculateProfitLoss(lot.getUnitPrice(), exitUnitPrice, quantityFromThisLot);
-        BigDecimal profitLossPercentage =
-            calculateProfitLossPercentage(lot.getUnitPrice(), exitUnitPrice);
-
-        ExitRecordDto exitRecord =
-            ExitRecordDto.builder()
-                .entryLotId(lot.getId())
-                .exitDate(exitDate)
-                .quantity(quantityFromThisLot)
-                .entryUnitPrice(lot.getUnitPrice())
-                .exitUnitPrice(exitUnitPrice)
-                .profitLoss(profitLoss)
-                .profitLossPercentage(profitLossPercentage)
-                .appliedStrategy(ExitStrategy.FIFO)
-                .entryDate(lot.getEntryDate())
-                .sequenceNumber(lot.getSequenceNumber())
-                .build();
-
-        exitRecords.add(exitRecord);
-
-        // Atualizar quantidade restante do lote
-        lot.setRemainingQuantity(lot.getRemainingQuantity() - quantityFromThisLot);
-        lot.setIsFullyConsumed(lot.getRemainingQuantity() == 0);
-
-        // Atualizar quantidade restante a sair
-        remainingToExit -= quantityFromThisLot;
-      }
-    }
+    // Mais antiga primeiro (data de entrada, sequência)
+    lotBook(availableLots)
+        .consumeFifo(
+            totalExitQuantity,
+            exitConsumer(exitRecords, exitUnitPrice, exitDate, ExitStrategy.FIFO));
 
     return exitRecords;
   }
@@ -108,52 +107,11 @@ public class PositionCalculator {
       LocalDate exitDate) {
     List<ExitRecordDto> exitRecords = new ArrayList<>();
 
-    // Ordenar por data de entrada (mais recente primeiro)
-    List<EntryLotDto> sortedLots = new ArrayList<>(availableLots);
-    sortedLots.sort(
-        Comparator.comparing(EntryLotDto::getEntryDate)
-            .reversed()
-            .thenComparing(Comparator.comparing(EntryLotDto::getSequenceNumber).reversed()));
-
-    int remainingToExit = totalExitQuantity;
-
-    for (EntryLotDto lot : sortedLots) {
-      if (remainingToExit <= 0) break;
-
-      // Quantidade a ser consumida deste lote
-      int quantityFromThisLot = Math.min(lot.getRemainingQuantity(), remainingToExit);
-
-      if (quantityFromThisLot > 0) {
-        // Calcular lucro/prejuízo
-        BigDecimal profitLoss =
-            calculateProfitLoss(lot.getUnitPrice(), exitUnitPrice, quantityFromThisLot);
-        BigDecimal profitLossPercentage =
-            calculateProfitLossPercentage(lot.getUnitPrice(), exitUnitPrice);
-
-        ExitRecordDto exitRecord =
-            ExitRecordDto.builder()
-                .entryLotId(lot.getId())
-                .exitDate(exitDate)
-                .quantity(quantityFromThisLot)
-                .entryUnitPrice(lot.getUnitPrice())
-                .exitUnitPrice(exitUnitPrice)
-                .profitLoss(profitLoss)
-                .profitLossPercentage(profitLossPercentage)
-                .appliedStrategy(ExitStrategy.LIFO)
-                .entryDate(lot.getEntryDate())
-                .sequenceNumber(lot.getSequenceNumber())
-                .build();
-
-        exitRecords.add(exitRecord);
-
-        // Atualizar quantidade restante do lote
-        lot.setRemainingQuantity(lot.getRemainingQuantity() - quantityFromThisLot);
-        lot.setIsFullyConsumed(lot.getRemainingQuantity() == 0);
-
-        // Atualizar quantidade restante a sair
-        remainingToExit -= quantityFromThisLot;
-      }
-    }
+    // Mais recente primeiro (data de entrada, sequência)
+    lotBook(availableLots)
+        .consumeLifo(
+            totalExitQuantity,
+            exitConsumer(exitRecords, exitUnitPrice, exitDate, ExitStrategy.LIFO));
 
     return exitRecords;
   }
@@ -161,6 +119,7 @@ public class PositionCalculator {
   /**
    * Processa lotes para saída usando a estratégia AUTO (LIFO para mesmo dia, FIFO para dias
    * anteriores)
+   * ✅ OTIMIZAÇÃO: Um único LotBook - sem filtrar e reordenar os lotes por grupo
    */
   public List<ExitRecordDto> processExitAuto(
       List<EntryLotDto> availableLots,
@@ -169,46 +128,74 @@ public class PositionCalculator {
       LocalDate exitDate) {
     List<ExitRecordDto> exitRecords = new ArrayList<>();
 
-    // Separar lotes do mesmo dia e de dias anteriores
-    List<EntryLotDto> sameDayLots =
-        availableLots.stream()
-            .filter(lot -> lot.getEntryDate().equals(exitDate))
-            .collect(Collectors.toList());
-
-    List<EntryLotDto> previousDaysLots =
-        availableLots.stream()
-            .filter(lot -> lot.getEntryDate().isBefore(exitDate))
-            .collect(Collectors.toList());
-
-    int remainingToExit = totalExitQuantity;
-
-    // Se houver lote do mesmo dia suficiente, só consome ele (day trade puro)
-    int totalSameDayQty = sameDayLots.stream().mapToInt(EntryLotDto::getRemainingQuantity).sum();
-    if (totalSameDayQty >= remainingToExit) {
-      List<ExitRecordDto> lifoRecords =
-          processExitLIFO(sameDayLots, remainingToExit, exitUnitPrice, exitDate);
-      exitRecords.addAll(lifoRecords);
-      remainingToExit = 0;
-    } else {
-      // Primeiro consome o que tem do mesmo dia (se houver)
-      if (!sameDayLots.isEmpty()) {
-        List<ExitRecordDto> lifoRecords =
-            processExitLIFO(sameDayLots, totalSameDayQty, exitUnitPrice, exitDate);
-        exitRecords.addAll(lifoRecords);
-        remainingToExit -= totalSameDayQty;
-      }
-      // Depois consome lotes de dias anteriores (FIFO)
-      if (remainingToExit > 0 && !previousDaysLots.isEmpty()) {
-        List<ExitRecordDto> fifoRecords =
-            processExitFIFO(previousDaysLots, remainingToExit, exitUnitPrice, exitDate);
-        exitRecords.addAll(fifoRecords);
-      }
-    }
+    // Mesmo dia primeiro (day trade, LIFO); o restante dos dias anteriores (FIFO)
+    lotBook(availableLots)
+        .consumeAuto(
+            exitDate,
+            totalExitQuantity,
+            exitConsumer(exitRecords, exitUnitPrice, exitDate, ExitStrategy.LIFO),
+            exitConsumer(exitRecords, exitUnitPrice, exitDate, ExitStrategy.FIFO));
+
     return exitRecords;
   }
 
+  private LotBook<EntryLotDto> lotBook(List<EntryLotDto> lots) {
+    return LotBook.of(
+        lots,
+        EntryLotDto::getEntryDate,
+        EntryLotDto::getSequenceNumber,
+        EntryLotDto::getRemainingQuantity);
+  }
+
+  /** Gera o registro de saída de cada consumo e atualiza o saldo do lote */
+  private LotBook.LotConsumer<EntryLotDto> exitConsumer(
+      List<ExitRecordDto> exitRecords,
+      BigDecimal exitUnitPrice,
+      LocalDate exitDate,
+      ExitStrategy strategy) {
+    return (lot, quantityFromThisLot) -> {
+      // Calcular lucro/prejuízo
+      BigDecimal profitLoss =
+          calculateProfitLoss(lot.getUnitPrice(), exitUnitPrice, quantityFromThisLot);
+      BigDecimal profitLossPercentage =
+          calculateProfitLossPercentage(lot.getUnitPrice(), exitUnitPrice);
+
+      exitRecords.add(
+          ExitRecordDto.builder()
+              .entryLotId(lot.getId())
+              .exitDate(exitDate)
+              .quantity(quantityFromThisLot)
+              .entryUnitPrice(lot.getUnitPrice())
+              .exitUnitPrice(exitUnitPrice)
+              .profitLoss(profitLoss)
+              .profitLossPercentage(profitLossPercentage)
+              .appliedStrategy(strategy)
+              .entryDate(lot.getEntryDate())
+              .sequenceNumber(lot.getSequenceNumber())
+              .build());
+
+      // Atualizar quantidade restante do lote
+      lot.setRemainingQuantity(lot.getRemainingQuantity() - quantityFromThisLot);
+      lot.setIsFullyConsumed(lot.getRemainingQuantity() == 0);
+    };
+  }
+
   /** Calcula o lucro/prejuízo para uma saída */
   public BigDecimal calculateProfitLoss(BigDecimal entryPrice, BigDecimal exitPrice, int quantity) {
+    if (calculationProperties.isFixedPointMoney()) {
+      try {
+        long profitLoss =
+            FixedPointMoney.times(
+                FixedPointMoney.subtract(
+                    FixedPointMoney.of(exitPrice), FixedPointMoney.of(entryPrice)),
+                quantity);
+        return FixedPointMoney.toBigDecimal(
+            profitLoss, FixedPointMoney.resultScale(entryPrice, exitPrice));
+      } catch (ArithmeticException e) {
+        // Fora do intervalo do ponto fixo: segue em BigDecimal
+      }
+    }
+
     BigDecimal entryValue = entryPrice.multiply(BigDecimal.valueOf(quantity));
     BigDecimal exitValue = exitPrice.multiply(BigDecimal.valueOf(quantity));
 
@@ -221,6 +208,16 @@ public class PositionCalculator {
       return BigDecimal.ZERO;
     }
 
+    if (calculationProperties.isFixedPointMoney()) {
+      try {
+        long entry = FixedPointMoney.of(entryPrice);
+        return FixedPointMoney.percentage(
+            FixedPointMoney.subtract(FixedPointMoney.of(exitPrice), entry), entry, PRECISION);
+      } catch (ArithmeticException e) {
+        // Fora do intervalo do ponto fixo: segue em BigDecimal
+      }
+    }
+
     return exitPrice
         .subtract(entryPrice)
         .divide(entryPrice, PRECISION, RoundingMode.HALF_UP)
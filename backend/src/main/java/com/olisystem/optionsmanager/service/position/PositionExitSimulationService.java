@@ -0,0 +1,175 @@
+package com.olisystem.optionsmanager.service.position;
+
+import com.olisystem.optionsmanager.dto.operation.OperationFinalizationRequest;
+import com.olisystem.optionsmanager.dto.position.ExitSimulationRequest;
+import com.olisystem.optionsmanager.dto.position.ExitSimulationResponse;
+import com.olisystem.optionsmanager.exception.BusinessException;
+import com.olisystem.optionsmanager.exception.ResourceNotFoundException;
+import com.olisystem.optionsmanager.model.auth.User;
+import com.olisystem.optionsmanager.model.position.EntryLot;
+import com.olisystem.optionsmanager.model.position.ExitStrategy;
+import com.olisystem.optionsmanager.model.position.Position;
+import com.olisystem.optionsmanager.record.consumption.ComplexConsumptionPlan;
+import com.olisystem.optionsmanager.record.consumption.ComplexConsumptionResult;
+import com.olisystem.optionsmanager.record.consumption.LotConsumption;
+import com.olisystem.optionsmanager.record.consumption.LotConsumptionResult;
+import com.olisystem.optionsmanager.repository.position.EntryLotRepository;
+import com.olisystem.optionsmanager.repository.position.PositionRepository;
+import com.olisystem.optionsmanager.service.operation.engine.ComplexLotConsumptionEngine;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Simulação de saída sem persistência: P&L por estratégia (FIFO, LIFO, AUTO), por lote e
+ * separado em Day Trade e Swing Trade, para vários preços de saída em uma chamada
+ * ✅ NOVO: Os motores rodam sobre cópias destacadas da posição e dos lotes. O consumo dos lotes
+ * não depende do preço, então cada estratégia é planejada uma vez e só o cálculo de P&L se
+ * repete por preço candidato.
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PositionExitSimulationService {
+
+    private static final List<ExitStrategy> ALL_STRATEGIES =
+        List.of(ExitStrategy.FIFO, ExitStrategy.LIFO, ExitStrategy.AUTO);
+
+    private final PositionRepository positionRepository;
+    private final EntryLotRepository entryLotRepository;
+    private final ComplexLotConsumptionEngine consumptionEngine;
+    private final PositionCalculator positionCalculator;
+
+    @Transactional(readOnly = true)
+    public ExitSimulationResponse simulate(UUID positionId, ExitSimulationRequest request, User user) {
+        Position position = positionRepository.findById(positionId)
+            .filter(p -> p.getUser().equals(user))
+            .orElseThrow(() -> new ResourceNotFoundException("Posição não encontrada"));
+
+        Position snapshot = detach(position,
+            entryLotRepository.findByPositionInOrderByEntryDateAscSequenceNumberAsc(List.of(position)));
+
+        int available = snapshot.getEntryLots().stream().mapToInt(EntryLot::getRemainingQuantity).sum();
+        if (request.getQuantity() > available) {
+            throw new BusinessException(String.format(
+                "Quantidade solicitada (%d) maior que a disponível na posição (%d)", request.getQuantity(), available));
+        }
+
+        List<ExitStrategy> strategies = request.getStrategies() == null || request.getStrategies().isEmpty()
+            ? ALL_STRATEGIES
+            : request.getStrategies().stream().distinct().toList();
+
+        log.info("🧪 Simulando saída da posição {}: {} unidades, {} preços, estratégias {}",
+                 positionId, request.getQuantity(), request.getExitUnitPrices().size(), strategies);
+
+        OperationFinalizationRequest exit = OperationFinalizationRequest.builder()
+            .exitDate(request.getExitDate())
+            .quantity(request.getQuantity())
+            .build();
+
+        List<ExitSimulationResponse.StrategySimulation> simulations = new ArrayList<>(strategies.size());
+        for (ExitStrategy strategy : strategies) {
+            ComplexConsumptionPlan plan = consumptionEngine.createConsumptionPlan(snapshot, exit, strategy);
+            simulations.add(simulateStrategy(strategy, plan, snapshot.getEntryLots(), request.getExitUnitPrices()));
+        }
+
+        return ExitSimulationResponse.builder()
+            .positionId(positionId)
+            .exitDate(request.getExitDate())
+            .quantity(request.getQuantity())
+            .availableQuantity(available)
+            .averagePrice(position.getAveragePrice())
+            .simulations(simulations)
+            .build();
+    }
+
+    private ExitSimulationResponse.StrategySimulation simulateStrategy(ExitStrategy strategy,
+                                                                      ComplexConsumptionPlan plan,
+                                                                      List<EntryLot> lots,
+                                                                      List<BigDecimal> exitUnitPrices) {
+        List<ExitSimulationResponse.SimulatedLot> simulatedLots = new ArrayList<>(plan.consumptions().size());
+        Map<EntryLot, Integer> consumedByLot = new IdentityHashMap<>();
+        for (LotConsumption consumption : plan.consumptions()) {
+            EntryLot lot = consumption.lot();
+            simulatedLots.add(ExitSimulationResponse.SimulatedLot.builder()
+                .entryLotId(lot.getId())
+                .sequenceNumber(lot.getSequenceNumber())
+                .entryDate(lot.getEntryDate())
+                .entryUnitPrice(lot.getUnitPrice())
+                .quantity(consumption.quantityToConsume())
+                .tradeType(consumption.tradeType())
+                .build());
+            consumedByLot.merge(lot, consumption.quantityToConsume(), Integer::sum);
+        }
+
+        List<EntryLot> remainingLots = lots.stream()
+            .map(lot -> EntryLot.builder()
+                .unitPrice(lot.getUnitPrice())
+                .remainingQuantity(lot.getRemainingQuantity() - consumedByLot.getOrDefault(lot, 0))
+                .build())
+            .toList();
+
+        List<ExitSimulationResponse.PricePoint> points = new ArrayList<>(exitUnitPrices.size());
+        for (BigDecimal exitUnitPrice : exitUnitPrices) {
+            ComplexConsumptionResult result = consumptionEngine.executeConsumption(plan, exitUnitPrice);
+            points.add(ExitSimulationResponse.PricePoint.builder()
+                .exitUnitPrice(exitUnitPrice)
+                .totalProfitLoss(result.totalProfitLoss())
+                .dayTradeProfitLoss(result.totalDayTradeProfitLoss())
+                .swingTradeProfitLoss(result.totalSwingTradeProfitLoss())
+                .profitLossPercentage(result.getTotalProfitLossPercentage())
+                .lotProfitLoss(result.results().stream().map(LotConsumptionResult::profitLoss).toList())
+                .build());
+        }
+
+        return ExitSimulationResponse.StrategySimulation.builder()
+            .strategy(strategy)
+            .dayTradeQuantity(plan.getDayTradeQuantity())
+            .swingTradeQuantity(plan.getSwingTradeQuantity())
+            .remainingQuantity(remainingLots.stream().mapToInt(EntryLot::getRemainingQuantity).sum())
+            .remainingAveragePrice(positionCalculator.calculateRemainingAveragePrice(remainingLots))
+            .lots(simulatedLots)
+            .points(points)
+            .build();
+    }
+
+    /**
+     * Cópia da posição e dos lotes com saldo, fora do contexto de persistência
+     */
+    private Position detach(Position position, List<EntryLot> lots) {
+        Position snapshot = Position.builder()
+            .id(position.getId())
+            .averagePrice(position.getAveragePrice())
+            .remainingQuantity(position.getRemainingQuantity())
+            .status(position.getStatus())
+            .build();
+
+        for (EntryLot lot : lots) {
+            if (lot.getRemainingQuantity() > 0) {
+                snapshot.getEntryLots().add(EntryLot.builder()
+                    .id(lot.getId())
+                    .position(snapshot)
+                    .entryDate(lot.getEntryDate())
+                    .quantity(lot.getQuantity())
+                    .unitPrice(lot.getUnitPrice())
+                    .totalValue(lot.getTotalValue())
+                    .remainingQuantity(lot.getRemainingQuantity())
+                    .sequenceNumber(lot.getSequenceNumber())
+                    .isFullyConsumed(false)
+                    .build());
+            }
+        }
+        return snapshot;
+    }
+}
@@ -21,12 +21,22 @@ public class EntryLotUpdateService {
     public void updateEntryLot(EntryLot lot, int quantityToReduce) {
         log.debug("Atualizando lote de entrada ID: {}", lot.getId());
 
-        int newRemainingQuantity = lot.getRemainingQuantity() - quantityToReduce;
-        lot.setRemainingQuantity(newRemainingQuantity);
-        lot.setIsFullyConsumed(newRemainingQuantity == 0);
+        int newRemainingQuantity = consume(lot, quantityToReduce);
 
         entryLotRepository.save(lot);
 
         log.debug("Lote de entrada atualizado. Quantidade restante: {}", newRemainingQuantity);
     }
+
+    /**
+     * ✅ NOVO: Reduz a quantidade disponível do lote sem gravar (a gravação fica com quem chama)
+     *
+     * @return nova quantidade restante
+     */
+    public int consume(EntryLot lot, int quantityToReduce) {
+        int newRemainingQuantity = lot.getRemainingQuantity() - quantityToReduce;
+        lot.setRemainingQuantity(newRemainingQuantity);
+        lot.setIsFullyConsumed(newRemainingQuantity == 0);
+        return newRemainingQuantity;
+    }
 }
@@ -0,0 +1,235 @@
+package com.olisystem.optionsmanager.service.position.entrylots;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Livro de lotes de uma posição: lotes com saldo em uma fila FIFO (data, sequência) e,
+ * por data de entrada, uma pilha LIFO dos lotes do dia
+ * ✅ NOVO: Montado uma vez por saída (sem reordenar quando os lotes já vêm ordenados);
+ * cada consumo custa O(lotes tocados). Lotes esgotados por um lado são descartados
+ * do outro de forma preguiçosa, ao chegarem ao topo.
+ *
+ * <p>O livro mantém o próprio saldo dos lotes; os objetos de lote não são alterados.
+ *
+ * @param <L> tipo do lote (EntryLot, EntryLotDto)
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+public final class LotBook<L> {
+
+    /**
+     * Recebe cada consumo planejado: lote e quantidade retirada dele
+     */
+    @FunctionalInterface
+    public interface LotConsumer<L> {
+        void accept(L lot, int quantity);
+    }
+
+    private final ArrayDeque<Node<L>> fifo;
+    private final Map<LocalDate, ArrayDeque<Node<L>>> byDay;
+    private final Map<LocalDate, Integer> remainingByDay;
+    private int totalRemaining;
+
+    private LotBook(int expectedLots) {
+        this.fifo = new ArrayDeque<>(Math.max(expectedLots, 1));
+        this.byDay = new HashMap<>();
+        this.remainingByDay = new HashMap<>();
+    }
+
+    /**
+     * Monta o livro com os lotes que têm saldo; ordena apenas se a coleção não estiver
+     * em ordem de (data de entrada, sequência)
+     */
+    public static <L> LotBook<L> of(Collection<L> lots,
+                                    Function<L, LocalDate> entryDate,
+                                    ToIntFunction<L> sequenceNumber,
+                                    ToIntFunction<L> remainingQuantity) {
+        List<Node<L>> nodes = new ArrayList<>(lots.size());
+        boolean sorted = true;
+        Node<L> previous = null;
+        for (L lot : lots) {
+            int remaining = remainingQuantity.applyAsInt(lot);
+            if (remaining <= 0) {
+                continue;
+            }
+            Node<L> node = new Node<>(lot, entryDate.apply(lot), sequenceNumber.applyAsInt(lot), remaining);
+            if (previous != null && Node.ORDER.compare(previous, node) > 0) {
+                sorted = false;
+            }
+            nodes.add(node);
+            previous = node;
+        }
+        if (!sorted) {
+            nodes.sort(Node.ORDER);
+        }
+
+        LotBook<L> book = new LotBook<>(nodes.size());
+        for (Node<L> node : nodes) {
+            book.fifo.addLast(node);
+            book.byDay.computeIfAbsent(node.entryDate, day -> new ArrayDeque<>()).addLast(node);
+            book.remainingByDay.merge(node.entryDate, node.remaining, Integer::sum);
+            book.totalRemaining += node.remaining;
+        }
+        return book;
+    }
+
+    public int totalRemaining() {
+        return totalRemaining;
+    }
+
+    /**
+     * Saldo dos lotes com entrada no dia informado
+     */
+    public int remainingOn(LocalDate day) {
+        return remainingByDay.getOrDefault(day, 0);
+    }
+
+    /**
+     * Saldo dos lotes com entrada antes do dia informado
+     */
+    public int remainingBefore(LocalDate day) {
+        int total = 0;
+        for (Map.Entry<LocalDate, Integer> entry : remainingByDay.entrySet()) {
+            if (entry.getKey().isBefore(day)) {
+                total += entry.getValue();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Consome do lote mais recente para o mais antigo dentro do dia (LIFO)
+     *
+     * @return quantidade efetivamente consumida
+     */
+    public int consumeLifoOn(LocalDate day, int quantity, LotConsumer<L> consumer) {
+        ArrayDeque<Node<L>> stack = byDay.get(day);
+        int consumed = 0;
+        while (stack != null && consumed < quantity) {
+            Node<L> node = stack.peekLast();
+            if (node == null) {
+                break;
+            }
+            if (node.remaining == 0) {
+                stack.pollLast();
+                continue;
+            }
+            consumed += take(node, quantity - consumed, consumer);
+            if (node.remaining == 0) {
+                stack.pollLast();
+            }
+        }
+        return consumed;
+    }
+
+    /**
+     * Consome do lote mais antigo para o mais novo, apenas entre lotes com entrada antes do dia (FIFO)
+     *
+     * @return quantidade efetivamente consumida
+     */
+    public int consumeFifoBefore(LocalDate day, int quantity, LotConsumer<L> consumer) {
+        int consumed = 0;
+        while (consumed < quantity) {
+            Node<L> node = fifo.peekFirst();
+            if (node == null) {
+                break;
+            }
+            if (node.remaining == 0) {
+                fifo.pollFirst();
+                continue;
+            }
+            if (day != null && !node.entryDate.isBefore(day)) {
+                break;
+            }
+            consumed += take(node, quantity - consumed, consumer);
+            if (node.remaining == 0) {
+                fifo.pollFirst();
+            }
+        }
+        return consumed;
+    }
+
+    /**
+     * Consome do lote mais antigo para o mais novo, sem restrição de data (FIFO)
+     */
+    public int consumeFifo(int quantity, LotConsumer<L> consumer) {
+        return consumeFifoBefore(null, quantity, consumer);
+    }
+
+    /**
+     * Consome do lote mais recente para o mais antigo, sem restrição de data (LIFO)
+     *
+     * @return quantidade efetivamente consumida
+     */
+    public int consumeLifo(int quantity, LotConsumer<L> consumer) {
+        int consumed = 0;
+        while (consumed < quantity) {
+            Node<L> node = fifo.peekLast();
+            if (node == null) {
+                break;
+            }
+            if (node.remaining == 0) {
+                fifo.pollLast();
+                continue;
+            }
+            consumed += take(node, quantity - consumed, consumer);
+            if (node.remaining == 0) {
+                fifo.pollLast();
+            }
+        }
+        return consumed;
+    }
+
+    /**
+     * Estratégia automática: primeiro os lotes do próprio dia (LIFO, day trade),
+     * depois os lotes de dias anteriores (FIFO, swing trade)
+     *
+     * @param sameDay  recebe os consumos do dia da saída
+     * @param previous recebe os consumos de dias anteriores
+     * @return quantidade efetivamente consumida
+     */
+    public int consumeAuto(LocalDate exitDate, int quantity, LotConsumer<L> sameDay, LotConsumer<L> previous) {
+        int consumed = consumeLifoOn(exitDate, quantity, sameDay);
+        if (consumed < quantity) {
+            consumed += consumeFifoBefore(exitDate, quantity - consumed, previous);
+        }
+        return consumed;
+    }
+
+    private int take(Node<L> node, int wanted, LotConsumer<L> consumer) {
+        int taken = Math.min(node.remaining, wanted);
+        node.remaining -= taken;
+        totalRemaining -= taken;
+        remainingByDay.merge(node.entryDate, -taken, Integer::sum);
+        consumer.accept(node.lot, taken);
+        return taken;
+    }
+
+    private static final class Node<L> {
+
+        private static final Comparator<Node<?>> ORDER = Comparator
+            .<Node<?>, LocalDate>comparing(node -> node.entryDate)
+            .thenComparingInt(node -> node.sequenceNumber);
+
+        private final L lot;
+        private final LocalDate entryDate;
+        private final int sequenceNumber;
+        private int remaining;
+
+        private Node(L lot, LocalDate entryDate, int sequenceNumber, int remaining) {
+            this.lot = lot;
+            this.entryDate = entryDate;
+            this.sequenceNumber = sequenceNumber;
+            this.remaining = remaining;
+        }
+    }
+}
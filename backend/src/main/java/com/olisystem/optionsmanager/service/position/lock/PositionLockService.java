@@ -0,0 +1,148 @@
+package com.olisystem.optionsmanager.service.position.lock;
+
+import com.olisystem.optionsmanager.exception.BusinessException;
+import com.olisystem.optionsmanager.model.auth.User;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serializa entradas e saídas de uma mesma posição dentro da JVM
+ * ✅ NOVO: Locks listrados pela chave natural da posição (usuário + série); a transação é aberta
+ * e confirmada com o lock seguro, e conflitos de versão otimista (outra instância gravou antes)
+ * são refeitos automaticamente em uma transação nova. Dentro de uma transação já aberta o lock
+ * fica com a transação e só é liberado depois do commit/rollback.
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Service
+@Slf4j
+public class PositionLockService {
+
+    static final int STRIPES = 64;
+    static final int MAX_ATTEMPTS = 3;
+    private static final long LOCK_TIMEOUT_SECONDS = 30;
+    private static final long BACKOFF_MILLIS = 50;
+
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final TransactionTemplate transactionTemplate;
+
+    public PositionLockService(PlatformTransactionManager transactionManager) {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Chave da posição: uma série tem no máximo uma posição aberta por usuário e corretora,
+     * então usuário + série cobre todas as corretoras
+     */
+    public static String keyOf(User user, String optionSeriesCode) {
+        return user.getId() + ":" + optionSeriesCode.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Executa a ação com o lock da posição.
+     * Sem transação ativa, abre uma transação por tentativa e refaz em conflito de versão;
+     * dentro de uma transação existente o lock é mantido até ela terminar - o commit e o
+     * tratamento de conflitos com outras instâncias ficam com quem abriu a transação.
+     */
+    public <T> T executeLocked(String positionKey, Supplier<T> action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            lockForTransaction(List.of(positionKey));
+            return action.get();
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return withLock(positionKey, () -> transactionTemplate.execute(status -> action.get()));
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    log.error("❌ Conflito de versão na posição {} após {} tentativas", positionKey, attempt);
+                    throw e;
+                }
+                log.warn("⚠️ Conflito de versão na posição {} (tentativa {}/{}) - refazendo",
+                         positionKey, attempt, MAX_ATTEMPTS);
+                backoff(attempt);
+            }
+        }
+    }
+
+    /**
+     * Trava as posições até o fim da transação corrente (liberadas em afterCompletion).
+     * Chamar antes de ler as posições; as listras são tomadas em ordem crescente para que
+     * lotes concorrentes com as mesmas posições não se bloqueiem mutuamente.
+     */
+    public void lockForTransaction(Collection<String> positionKeys) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("lockForTransaction exige uma transação com sincronização ativa");
+        }
+
+        List<ReentrantLock> acquired = new ArrayList<>();
+        try {
+            for (int stripe : new TreeSet<>(positionKeys.stream().map(PositionLockService::stripeOf).toList())) {
+                ReentrantLock lock = stripes[stripe];
+                acquire(lock, positionKeys);
+                acquired.add(lock);
+            }
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    acquired.forEach(ReentrantLock::unlock);
+                }
+            });
+        } catch (RuntimeException e) {
+            acquired.forEach(ReentrantLock::unlock);
+            throw e;
+        }
+    }
+
+    private <T> T withLock(String positionKey, Supplier<T> action) {
+        ReentrantLock lock = stripes[stripeOf(positionKey)];
+        acquire(lock, List.of(positionKey));
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void acquire(ReentrantLock lock, Collection<String> positionKeys) {
+        try {
+            if (!lock.tryLock(LOCK_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new BusinessException("Posição em atualização por outra operação, tente novamente: " + positionKeys);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("Interrompido aguardando a posição: " + positionKeys);
+        }
+    }
+
+    private static int stripeOf(String positionKey) {
+        return Math.floorMod(positionKey.hashCode(), STRIPES);
+    }
+
+    private static void backoff(int attempt) {
+        try {
+            Thread.sleep(BACKOFF_MILLIS * attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("Interrompido aguardando nova tentativa");
+        }
+    }
+}
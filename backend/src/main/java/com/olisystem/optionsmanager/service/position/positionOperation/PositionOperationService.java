@@ -27,14 +27,21 @@ public class PositionOperationService {
                                                      PositionOperationType type) {
         log.debug("Criando registro de operação de posição tipo: {}", type);
 
-        PositionOperation operation = PositionOperation.builder()
+        return positionOperationRepository.save(buildPositionOperation(position, exitOperation, request, type));
+    }
+
+    /**
+     * ✅ NOVO: Monta o registro de operação de posição sem gravar (usado no planejamento da saída)
+     */
+    public PositionOperation buildPositionOperation(Position position, Operation exitOperation,
+                                                    OperationFinalizationRequest request,
+                                                    PositionOperationType type) {
+        return PositionOperation.builder()
                 .position(position)
                 .operation(exitOperation)
                 .type(type)
                 .timestamp(request.getExitDate().atStartOfDay())
                 .sequenceNumber(1)
                 .build();
-
-        return positionOperationRepository.save(operation);
     }
 }
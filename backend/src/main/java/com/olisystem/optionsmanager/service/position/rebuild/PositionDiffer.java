@@ -0,0 +1,93 @@
+package com.olisystem.optionsmanager.service.position.rebuild;
+
+import com.olisystem.optionsmanager.model.operation.AverageOperationGroup;
+import com.olisystem.optionsmanager.model.position.EntryLot;
+import com.olisystem.optionsmanager.model.position.ExitRecord;
+import com.olisystem.optionsmanager.model.position.Position;
+import com.olisystem.optionsmanager.model.position.PositionOperation;
+import com.olisystem.optionsmanager.service.operation.exit.ExitChangeSet;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Diferenças entre o estado atual de uma posição e o estado reconstruído ("campo: atual → reconstruído")
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+final class PositionDiffer {
+
+    private PositionDiffer() {
+    }
+
+    static List<String> diff(Position current, AverageOperationGroup group, List<EntryLot> lots,
+                             List<ExitRecord> exitRecords, List<PositionOperation> positionOperations,
+                             PositionReplay replay) {
+        List<String> changes = new ArrayList<>();
+        Position rebuilt = replay.position();
+
+        compare(changes, "status", current.getStatus(), rebuilt.getStatus());
+        compare(changes, "openDate", current.getOpenDate(), rebuilt.getOpenDate());
+        compare(changes, "closeDate", current.getCloseDate(), rebuilt.getCloseDate());
+        compare(changes, "totalQuantity", current.getTotalQuantity(), rebuilt.getTotalQuantity());
+        compare(changes, "remainingQuantity", current.getRemainingQuantity(), rebuilt.getRemainingQuantity());
+        compareAmount(changes, "averagePrice", current.getAveragePrice(), rebuilt.getAveragePrice());
+        compareAmount(changes, "totalRealizedProfit", current.getTotalRealizedProfit(), rebuilt.getTotalRealizedProfit());
+        compareAmount(changes, "totalRealizedProfitPercentage",
+            current.getTotalRealizedProfitPercentage(), rebuilt.getTotalRealizedProfitPercentage());
+
+        compare(changes, "entryLots", lots.size(), replay.entryLots().size());
+        for (int i = 0; i < Math.min(lots.size(), replay.entryLots().size()); i++) {
+            EntryLot before = lots.get(i);
+            EntryLot after = replay.entryLots().get(i);
+            String lot = "entryLot[" + (i + 1) + "].";
+            compare(changes, lot + "entryDate", before.getEntryDate(), after.getEntryDate());
+            compare(changes, lot + "quantity", before.getQuantity(), after.getQuantity());
+            compareAmount(changes, lot + "unitPrice", before.getUnitPrice(), after.getUnitPrice());
+            compare(changes, lot + "remainingQuantity", before.getRemainingQuantity(), after.getRemainingQuantity());
+        }
+
+        compare(changes, "exitRecords", exitRecords.size(), replay.exitRecords().size());
+        compare(changes, "exitRecords.quantity", quantity(exitRecords), quantity(replay.exitRecords()));
+        compareAmount(changes, "exitRecords.profitLoss", profitLoss(exitRecords), profitLoss(replay.exitRecords()));
+        compare(changes, "positionOperations", positionOperations.size(), replay.positionOperations().size());
+
+        ExitChangeSet.GroupTotals totals = replay.groupTotals();
+        if (group != null && totals != null) {
+            compare(changes, "group.status", group.getStatus(), totals.status());
+            compare(changes, "group.totalQuantity", group.getTotalQuantity(), rebuilt.getTotalQuantity());
+            compare(changes, "group.remainingQuantity", group.getRemainingQuantity(), totals.remainingQuantity());
+            compare(changes, "group.closedQuantity", group.getClosedQuantity(), totals.closedQuantity());
+            compareAmount(changes, "group.totalProfit", group.getTotalProfit(), totals.totalProfit());
+            compareAmount(changes, "group.avgExitPrice", group.getAvgExitPrice(), totals.avgExitPrice());
+        }
+        return changes;
+    }
+
+    private static int quantity(List<ExitRecord> records) {
+        return records.stream().mapToInt(ExitRecord::getQuantity).sum();
+    }
+
+    private static BigDecimal profitLoss(List<ExitRecord> records) {
+        return records.stream().map(ExitRecord::getProfitLoss).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private static void compare(List<String> changes, String field, Object current, Object rebuilt) {
+        if (!Objects.equals(current, rebuilt)) {
+            changes.add(field + ": " + current + " → " + rebuilt);
+        }
+    }
+
+    /**
+     * Valores monetários comparados sem considerar a escala (1.50 = 1.500000)
+     */
+    private static void compareAmount(List<String> changes, String field, BigDecimal current, BigDecimal rebuilt) {
+        boolean equal = current == null || rebuilt == null ? current == rebuilt : current.compareTo(rebuilt) == 0;
+        if (!equal) {
+            changes.add(field + ": " + current + " → " + rebuilt);
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package com.olisystem.optionsmanager.service.position.rebuild;
+
+import com.olisystem.optionsmanager.dto.position.PositionRebuildReport;
+import com.olisystem.optionsmanager.model.auth.User;
+import com.olisystem.optionsmanager.model.operation.AverageOperationGroup;
+import com.olisystem.optionsmanager.model.operation.AverageOperationItem;
+import com.olisystem.optionsmanager.model.operation.Operation;
+import com.olisystem.optionsmanager.model.operation.OperationStatus;
+import com.olisystem.optionsmanager.model.operation.OperationSourceMapping;
+import com.olisystem.optionsmanager.model.position.EntryLot;
+import com.olisystem.optionsmanager.model.position.ExitRecord;
+import com.olisystem.optionsmanager.model.position.Position;
+import com.olisystem.optionsmanager.model.position.PositionOperation;
+import com.olisystem.optionsmanager.repository.AverageOperationGroupRepository;
+import com.olisystem.optionsmanager.repository.AverageOperationItemRepository;
+import com.olisystem.optionsmanager.repository.OperationSourceMappingRepository;
+import com.olisystem.optionsmanager.repository.position.EntryLotRepository;
+import com.olisystem.optionsmanager.repository.position.ExitRecordRepository;
+import com.olisystem.optionsmanager.repository.position.PositionOperationRepository;
+import com.olisystem.optionsmanager.repository.position.PositionRepository;
+import com.olisystem.optionsmanager.service.position.lock.PositionLockService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Reconstrução de posições, lotes, ExitRecords, PositionOperations e grupos de operações
+ * a partir das operações de origem (entradas e saídas do grupo, na ordem da nota de corretagem)
+ * ✅ NOVO: Carrega tudo com uma consulta por tabela, reaplica as séries em paralelo sobre cópias
+ * (estado "sombra") e compara com o estado atual. Ao aplicar, o estado das posições com
+ * diferença é trocado em uma única transação: remoção e inserção em lote, visível de uma vez.
+ * ✅ CORREÇÃO: Ao aplicar, as posições ficam travadas no PositionLockService desde antes da
+ * leitura até o fim da transação, então entradas e saídas concorrentes esperam a troca.
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Service
+@Slf4j
+public class PositionRebuildService {
+
+    private final PositionRepository positionRepository;
+    private final EntryLotRepository entryLotRepository;
+    private final ExitRecordRepository exitRecordRepository;
+    private final PositionOperationRepository positionOperationRepository;
+    private final AverageOperationGroupRepository groupRepository;
+    private final AverageOperationItemRepository itemRepository;
+    private final OperationSourceMappingRepository sourceMappingRepository;
+    private final PositionReplayer replayer;
+    private final PositionLockService positionLockService;
+    private final TransactionTemplate transactionTemplate;
+
+    private static final AtomicInteger THREADS = new AtomicInteger();
+
+    private final ExecutorService replayExecutor = Executors.newFixedThreadPool(
+        Math.max(2, Runtime.getRuntime().availableProcessors()), runnable -> {
+            Thread thread = new Thread(runnable, "position-replay-" + THREADS.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    public PositionRebuildService(PositionRepository positionRepository,
+                                  EntryLotRepository entryLotRepository,
+                                  ExitRecordRepository exitRecordRepository,
+                                  PositionOperationRepository positionOperationRepository,
+                                  AverageOperationGroupRepository groupRepository,
+                                  AverageOperationItemRepository itemRepository,
+                                  OperationSourceMappingRepository sourceMappingRepository,
+                                  PositionReplayer replayer,
+                                  PositionLockService positionLockService,
+                                  PlatformTransactionManager transactionManager) {
+        this.positionRepository = positionRepository;
+        this.entryLotRepository = entryLotRepository;
+        this.exitRecordRepository = exitRecordRepository;
+        this.positionOperationRepository = positionOperationRepository;
+        this.groupRepository = groupRepository;
+        this.itemRepository = itemRepository;
+        this.sourceMappingRepository = sourceMappingRepository;
+        this.replayer = replayer;
+        this.positionLockService = positionLockService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        replayExecutor.shutdownNow();
+    }
+
+    /**
+     * Reconstrói as posições do usuário (ou de uma série) e devolve o relatório de diferenças
+     *
+     * @param apply false = só relatório (a transação é desfeita); true = troca o estado das posições com diferença
+     */
+    public PositionRebuildReport rebuild(User user, String optionSeriesCode, boolean apply) {
+        long started = System.nanoTime();
+        log.info("🔄 Reconstrução de posições (user: {}, série: {}, aplicar: {})",
+                 user.getUsername(), optionSeriesCode != null ? optionSeriesCode : "todas", apply);
+
+        List<PositionRebuildReport.PositionDiff> diffs = transactionTemplate.execute(status -> {
+            List<PositionRebuildReport.PositionDiff> result = rebuildInTransaction(user, optionSeriesCode, apply);
+            if (!apply) {
+                status.setRollbackOnly();
+            }
+            return result;
+        });
+
+        int analyzed = diffs.size();
+        List<PositionRebuildReport.PositionDiff> reported = diffs.stream()
+            .filter(diff -> diff.getError() != null || !diff.getChanges().isEmpty())
+            .toList();
+        int failed = (int) reported.stream().filter(diff -> diff.getError() != null).count();
+        long durationMs = (System.nanoTime() - started) / 1_000_000;
+
+        log.info("✅ Reconstrução concluída: {} posições, {} com diferença, {} com falha em {}ms",
+                 analyzed, reported.size() - failed, failed, durationMs);
+
+        return PositionRebuildReport.builder()
+            .optionSeriesCode(optionSeriesCode)
+            .applied(apply)
+            .positionsAnalyzed(analyzed)
+            .positionsChanged(reported.size() - failed)
+            .positionsFailed(failed)
+            .durationMs(durationMs)
+            .positions(reported)
+            .build();
+    }
+
+    private List<PositionRebuildReport.PositionDiff> rebuildInTransaction(User user, String optionSeriesCode,
+                                                                         boolean apply) {
+        if (apply) {
+            List<String> seriesCodes = optionSeriesCode == null
+                ? positionRepository.findOptionSeriesCodesByUser(user)
+                : List.of(optionSeriesCode);
+            positionLockService.lockForTransaction(seriesCodes.stream()
+                .map(code -> PositionLockService.keyOf(user, code))
+                .toList());
+        }
+
+        List<Position> positions = optionSeriesCode == null
+            ? positionRepository.findByUser(user)
+            : positionRepository.findByUserAndOptionSeries_Code(user, optionSeriesCode);
+        if (positions.isEmpty()) {
+            return List.of();
+        }
+
+        RebuildSource source = loadSource(positions);
+
+        // Séries diferentes não compartilham lotes: cada série é reaplicada em uma thread
+        Map<UUID, List<Position>> bySeries = positions.stream()
+            .collect(Collectors.groupingBy(p -> p.getOptionSeries().getId(), LinkedHashMap::new, Collectors.toList()));
+        List<CompletableFuture<List<PositionReplay>>> futures = bySeries.values().stream()
+            .map(series -> CompletableFuture.supplyAsync(
+                () -> series.stream().map(position -> replay(position, source)).toList(), replayExecutor))
+            .toList();
+
+        Map<UUID, PositionReplay> replays = new HashMap<>();
+        futures.forEach(future -> future.join().forEach(replay -> replays.put(replay.position().getId(), replay)));
+
+        List<PositionRebuildReport.PositionDiff> diffs = new ArrayList<>(positions.size());
+        List<Position> changed = new ArrayList<>();
+        for (Position position : positions) {
+            PositionReplay replay = replays.get(position.getId());
+            List<String> changes = replay.failed() ? List.of() : PositionDiffer.diff(
+                position, source.group(position.getId()),
+                source.lots(position.getId()), source.exitRecords(position.getId()),
+                source.positionOperations(position.getId()), replay);
+            if (!replay.failed() && !changes.isEmpty()) {
+                changed.add(position);
+            }
+            diffs.add(PositionRebuildReport.PositionDiff.builder()
+                .positionId(position.getId())
+                .optionSeriesCode(position.getOptionSeries().getCode())
+                .changes(changes)
+                .error(replay.error())
+                .applied(apply && !replay.failed() && !changes.isEmpty())
+                .build());
+        }
+
+        if (apply && !changed.isEmpty()) {
+            swap(changed, source, replays);
+        }
+        return diffs;
+    }
+
+    private PositionReplay replay(Position position, RebuildSource source) {
+        List<AverageOperationGroup> groups = source.groupsByPosition.getOrDefault(position.getId(), List.of());
+        if (groups.size() != 1) {
+            return new PositionReplay(position, List.of(), List.of(), List.of(), null,
+                groups.isEmpty() ? "Posição sem grupo de operações" : "Posição com " + groups.size() + " grupos de operações");
+        }
+
+        try {
+            List<ReplayEvent> events = replayEvents(position,
+                source.itemsByGroup.getOrDefault(groups.get(0).getId(), List.of()), source);
+            return replayer.replay(position, events, source.timestampsByOperation);
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Falha ao reaplicar posição {}: {}", position.getId(), e.getMessage());
+            return new PositionReplay(position, List.of(), List.of(), List.of(), null, e.getMessage());
+        }
+    }
+
+    /**
+     * ✅ CORREÇÃO: Entrada ou saída pela direção da operação em relação à posição, não pelo papel no grupo -
+     * a venda oculta da consolidação fica como NEW_ENTRY e o CONSOLIDATED_RESULT transformado fica como
+     * TOTAL_EXIT. Itens de consolidação ficam de fora; uma saída visível sem ExitRecord nem PositionOperation
+     * é o resultado transformado (soma das saídas reais) e também fica de fora. O que não dá para classificar
+     * lança exceção: a posição aparece com erro no relatório e nunca é aplicada.
+     */
+    private List<ReplayEvent> replayEvents(Position position, List<AverageOperationItem> items, RebuildSource source) {
+        if (position.getDirection() == null) {
+            throw new IllegalStateException("Posição sem direção - operações não podem ser classificadas");
+        }
+
+        Set<UUID> recorded = new HashSet<>();
+        source.exitRecords(position.getId()).stream()
+            .filter(record -> record.getExitOperation() != null)
+            .forEach(record -> recorded.add(record.getExitOperation().getId()));
+        source.positionOperations(position.getId()).stream()
+            .filter(operation -> operation.getOperation() != null)
+            .forEach(operation -> recorded.add(operation.getOperation().getId()));
+
+        List<AverageOperationItem> legs = new ArrayList<>();
+        List<Operation> transformed = new ArrayList<>();
+        for (AverageOperationItem item : items) {
+            Operation operation = item.getOperation();
+            if (item.getRoleType().isConsolidation()) {
+                continue;
+            }
+            if (operation.getTransactionType() == null) {
+                throw new IllegalStateException("Operação " + operation.getId() + " sem tipo de transação");
+            }
+            boolean exit = operation.getTransactionType() != position.getDirection();
+            if (exit && operation.getStatus() != OperationStatus.HIDDEN && !recorded.contains(operation.getId())) {
+                transformed.add(operation);
+            } else {
+                legs.add(item);
+            }
+        }
+
+        // O resultado transformado soma saídas reais do grupo; sem elas, é uma saída sem registros que não sabemos tratar
+        int exitLegQuantity = legs.stream()
+            .map(AverageOperationItem::getOperation)
+            .filter(operation -> operation.getTransactionType() != position.getDirection())
+            .mapToInt(operation -> operation.getQuantity() != null ? operation.getQuantity() : 0)
+            .sum();
+        for (Operation operation : transformed) {
+            if (operation.getQuantity() == null || operation.getQuantity() > exitLegQuantity) {
+                throw new IllegalStateException("Saída " + operation.getId()
+                    + " sem ExitRecord/PositionOperation e sem saídas reais que ela consolide");
+            }
+        }
+
+        return legs.stream()
+            .map(item -> new ReplayEvent(item.getOperation(),
+                item.getOperation().getTransactionType() == position.getDirection(),
+                source.invoiceSequenceByOperation.get(item.getOperation().getId()), item.getSequenceNumber()))
+            .toList();
+    }
+
+    /**
+     * Troca o estado atual pelo reconstruído: remoções em lote (ExitRecords, PositionOperations, lotes)
+     * e inserções em lote dos novos registros, tudo na transação corrente
+     */
+    private void swap(List<Position> changed, RebuildSource source, Map<UUID, PositionReplay> replays) {
+        List<UUID> exitRecordIds = new ArrayList<>();
+        List<UUID> positionOperationIds = new ArrayList<>();
+        List<UUID> lotIds = new ArrayList<>();
+        List<EntryLot> newLots = new ArrayList<>();
+        List<PositionOperation> newPositionOperations = new ArrayList<>();
+        List<ExitRecord> newExitRecords = new ArrayList<>();
+
+        for (Position position : changed) {
+            UUID positionId = position.getId();
+            source.exitRecords(positionId).forEach(record -> exitRecordIds.add(record.getId()));
+            source.positionOperations(positionId).forEach(operation -> positionOperationIds.add(operation.getId()));
+            source.lots(positionId).forEach(lot -> lotIds.add(lot.getId()));
+
+            PositionReplay replay = replays.get(positionId);
+            Position shadow = replay.position();
+            position.setStatus(shadow.getStatus());
+            position.setOpenDate(shadow.getOpenDate());
+            position.setCloseDate(shadow.getCloseDate());
+            position.setTotalQuantity(shadow.getTotalQuantity());
+            position.setRemainingQuantity(shadow.getRemainingQuantity());
+            position.setAveragePrice(shadow.getAveragePrice());
+            position.setTotalRealizedProfit(shadow.getTotalRealizedProfit());
+            position.setTotalRealizedProfitPercentage(shadow.getTotalRealizedProfitPercentage());
+
+            replay.entryLots().forEach(lot -> lot.setPosition(position));
+            replay.positionOperations().forEach(operation -> operation.setPosition(position));
+            newLots.addAll(replay.entryLots());
+            newPositionOperations.addAll(replay.positionOperations());
+            newExitRecords.addAll(replay.exitRecords());
+
+            AverageOperationGroup group = source.group(positionId);
+            replay.groupTotals().applyTo(group);
+            group.setTotalQuantity(shadow.getTotalQuantity());
+        }
+
+        // ExitRecords referenciam os lotes: removidos antes deles
+        exitRecordRepository.deleteAllByIdInBatch(exitRecordIds);
+        positionOperationRepository.deleteAllByIdInBatch(positionOperationIds);
+        entryLotRepository.deleteAllByIdInBatch(lotIds);
+
+        entryLotRepository.saveAll(newLots);
+        positionOperationRepository.saveAll(newPositionOperations);
+        exitRecordRepository.saveAll(newExitRecords);
+        positionRepository.flush();
+
+        log.info("💾 Estado trocado em {} posições: {} lotes, {} ExitRecords, {} PositionOperations",
+                 changed.size(), newLots.size(), newExitRecords.size(), newPositionOperations.size());
+    }
+
+    /**
+     * Estado atual e operações de origem das posições (uma consulta por tabela)
+     */
+    private RebuildSource loadSource(List<Position> positions) {
+        List<UUID> positionIds = positions.stream().map(Position::getId).toList();
+
+        Map<UUID, List<AverageOperationGroup>> groupsByPosition = groupRepository.findByPositionIdIn(positionIds).stream()
+            .collect(Collectors.groupingBy(AverageOperationGroup::getPositionId));
+
+        List<UUID> groupIds = groupsByPosition.values().stream().flatMap(List::stream)
+            .map(AverageOperationGroup::getId).toList();
+        Map<UUID, List<AverageOperationItem>> itemsByGroup = groupIds.isEmpty() ? Map.of()
+            : itemRepository.findWithOperationByGroupIdIn(groupIds).stream()
+                .collect(Collectors.groupingBy(item -> item.getGroup().getId()));
+
+        List<UUID> operationIds = itemsByGroup.values().stream().flatMap(List::stream)
+            .map(item -> item.getOperation().getId()).distinct().toList();
+        Map<UUID, Integer> invoiceSequenceByOperation = new HashMap<>();
+        if (!operationIds.isEmpty()) {
+            for (OperationSourceMapping mapping : sourceMappingRepository.findWithInvoiceItemByOperationIdIn(operationIds)) {
+                Integer sequence = mapping.getInvoiceItem().getSequenceNumber();
+                if (sequence != null) {
+                    invoiceSequenceByOperation.merge(mapping.getOperation().getId(), sequence, Math::min);
+                }
+            }
+        }
+
+        Map<UUID, List<EntryLot>> lotsByPosition = entryLotRepository
+            .findByPositionInOrderByEntryDateAscSequenceNumberAsc(positions).stream()
+            .collect(Collectors.groupingBy(lot -> lot.getPosition().getId()));
+        Map<UUID, List<ExitRecord>> exitRecordsByPosition = exitRecordRepository.findByPositionIn(positions).stream()
+            .collect(Collectors.groupingBy(record -> record.getEntryLot().getPosition().getId()));
+        List<PositionOperation> positionOperations = positionOperationRepository.findByPositionIn(positions);
+        Map<UUID, List<PositionOperation>> positionOperationsByPosition = positionOperations.stream()
+            .collect(Collectors.groupingBy(operation -> operation.getPosition().getId()));
+        Map<UUID, LocalDateTime> timestampsByOperation = positionOperations.stream()
+            .filter(operation -> operation.getTimestamp() != null)
+            .collect(Collectors.toMap(operation -> operation.getOperation().getId(), PositionOperation::getTimestamp,
+                                      (first, second) -> first.isBefore(second) ? first : second));
+
+        return new RebuildSource(groupsByPosition, itemsByGroup, invoiceSequenceByOperation,
+            lotsByPosition, exitRecordsByPosition, positionOperationsByPosition, timestampsByOperation);
+    }
+
+    private record RebuildSource(Map<UUID, List<AverageOperationGroup>> groupsByPosition,
+                                 Map<UUID, List<AverageOperationItem>> itemsByGroup,
+                                 Map<UUID, Integer> invoiceSequenceByOperation,
+                                 Map<UUID, List<EntryLot>> lotsByPosition,
+                                 Map<UUID, List<ExitRecord>> exitRecordsByPosition,
+                                 Map<UUID, List<PositionOperation>> positionOperationsByPosition,
+                                 Map<UUID, LocalDateTime> timestampsByOperation) {
+
+        AverageOperationGroup group(UUID positionId) {
+            return groupsByPosition.getOrDefault(positionId, List.of()).stream().findFirst().orElse(null);
+        }
+
+        List<EntryLot> lots(UUID positionId) {
+            return lotsByPosition.getOrDefault(positionId, List.of());
+        }
+
+        List<ExitRecord> exitRecords(UUID positionId) {
+            return exitRecordsByPosition.getOrDefault(positionId, List.of());
+        }
+
+        List<PositionOperation> positionOperations(UUID positionId) {
+            return positionOperationsByPosition.getOrDefault(positionId, List.of());
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.olisystem.optionsmanager.service.position.rebuild;
+
+import com.olisystem.optionsmanager.model.position.EntryLot;
+import com.olisystem.optionsmanager.model.position.ExitRecord;
+import com.olisystem.optionsmanager.model.position.Position;
+import com.olisystem.optionsmanager.model.position.PositionOperation;
+import com.olisystem.optionsmanager.service.operation.exit.ExitChangeSet;
+
+import java.util.List;
+
+/**
+ * Estado reconstruído de uma posição (entidades novas, fora do contexto de persistência)
+ *
+ * @param position  cópia da posição com os totais reconstruídos
+ * @param error     motivo da falha quando as operações de origem não fecham (null se ok)
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+public record PositionReplay(Position position,
+                             List<EntryLot> entryLots,
+                             List<ExitRecord> exitRecords,
+                             List<PositionOperation> positionOperations,
+                             ExitChangeSet.GroupTotals groupTotals,
+                             String error) {
+
+    public boolean failed() {
+        return error != null;
+    }
+}
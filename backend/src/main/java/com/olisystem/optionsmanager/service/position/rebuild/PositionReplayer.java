@@ -0,0 +1,230 @@
+package com.olisystem.optionsmanager.service.position.rebuild;
+
+import com.olisystem.optionsmanager.dto.operation.OperationFinalizationRequest;
+import com.olisystem.optionsmanager.model.operation.AverageOperationGroupStatus;
+import com.olisystem.optionsmanager.model.operation.Operation;
+import com.olisystem.optionsmanager.model.operation.TradeType;
+import com.olisystem.optionsmanager.model.position.EntryLot;
+import com.olisystem.optionsmanager.model.position.ExitRecord;
+import com.olisystem.optionsmanager.model.position.Position;
+import com.olisystem.optionsmanager.model.position.PositionOperation;
+import com.olisystem.optionsmanager.model.position.PositionOperationType;
+import com.olisystem.optionsmanager.model.position.PositionStatus;
+import com.olisystem.optionsmanager.record.operation.OperationExitContext;
+import com.olisystem.optionsmanager.service.operation.exit.ExitChangeSet;
+import com.olisystem.optionsmanager.service.operation.exitRecord.ExitRecordService;
+import com.olisystem.optionsmanager.service.position.entrylots.LotBook;
+import com.olisystem.optionsmanager.service.position.positionOperation.PositionOperationService;
+import com.olisystem.optionsmanager.service.position.update.PositionUpdateService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Reaplica as operações de origem de uma posição e monta o estado resultante
+ * ✅ NOVO: Não lê nem grava no banco - usa as mesmas regras da entrada (preço médio efetivo),
+ * do consumo de lotes (mesmo dia LIFO, dias anteriores FIFO) e dos planejadores de saída, então
+ * pode rodar em paralelo para séries diferentes
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PositionReplayer {
+
+    private static final int PRECISION = 6;
+
+    private final ExitRecordService exitRecordService;
+    private final PositionOperationService positionOperationService;
+    private final PositionUpdateService positionUpdateService;
+
+    /**
+     * @param position   posição atual (só os dados de identificação são lidos)
+     * @param events     entradas e saídas de origem, em qualquer ordem
+     * @param timestamps timestamps atuais dos PositionOperations por operação, preservados na reconstrução
+     */
+    public PositionReplay replay(Position position, List<ReplayEvent> events, Map<UUID, LocalDateTime> timestamps) {
+        Position shadow = Position.builder()
+            .id(position.getId())
+            .optionSeries(position.getOptionSeries())
+            .brokerage(position.getBrokerage())
+            .direction(position.getDirection())
+            .user(position.getUser())
+            .status(PositionStatus.OPEN)
+            .totalQuantity(0)
+            .remainingQuantity(0)
+            .averagePrice(BigDecimal.ZERO)
+            .totalRealizedProfit(BigDecimal.ZERO)
+            .totalRealizedProfitPercentage(BigDecimal.ZERO)
+            .build();
+
+        List<EntryLot> lots = new ArrayList<>();
+        List<ExitRecord> exitRecords = new ArrayList<>();
+        List<PositionOperation> positionOperations = new ArrayList<>();
+        Map<EntryLot, BigDecimal> exitValueByLot = new IdentityHashMap<>();
+        BigDecimal exitValue = BigDecimal.ZERO;
+        int exitQuantity = 0;
+
+        for (ReplayEvent event : events.stream().sorted(ReplayEvent.ORDER).toList()) {
+            Operation operation = event.operation();
+            if (event.eventDate() == null || operation.getQuantity() == null || operation.getQuantity() <= 0) {
+                return failed(shadow, "Operação " + operation.getId() + " sem data ou quantidade");
+            }
+
+            if (event.isEntry()) {
+                EntryLot lot = applyEntry(shadow, lots, exitValueByLot, operation);
+                positionOperations.add(PositionOperation.builder()
+                    .position(shadow)
+                    .operation(operation)
+                    .type(PositionOperationType.ENTRY)
+                    .timestamp(timestamps.getOrDefault(operation.getId(), operation.getEntryDate().atStartOfDay()))
+                    .sequenceNumber(lot.getSequenceNumber())
+                    .build());
+                continue;
+            }
+
+            if (operation.getQuantity() > shadow.getRemainingQuantity()) {
+                return failed(shadow, String.format("Saída %s de %d unidades com apenas %d em aberto",
+                    operation.getId(), operation.getQuantity(), shadow.getRemainingQuantity()));
+            }
+
+            OperationFinalizationRequest request = OperationFinalizationRequest.builder()
+                .operationId(operation.getId())
+                .exitDate(event.eventDate())
+                .exitUnitPrice(event.exitUnitPrice())
+                .quantity(operation.getQuantity())
+                .build();
+
+            List<ExitRecord> records = applyExit(shadow, lots, operation, request);
+            BigDecimal profitLoss = BigDecimal.ZERO;
+            for (ExitRecord record : records) {
+                profitLoss = profitLoss.add(record.getProfitLoss());
+                exitValueByLot.merge(record.getEntryLot(),
+                    record.getExitUnitPrice().multiply(BigDecimal.valueOf(record.getQuantity())), BigDecimal::add);
+            }
+            exitRecords.addAll(records);
+            exitValue = exitValue.add(request.getExitUnitPrice().multiply(BigDecimal.valueOf(request.getQuantity())));
+            exitQuantity += request.getQuantity();
+
+            boolean totalExit = request.getQuantity().equals(shadow.getRemainingQuantity());
+            ExitChangeSet.PositionTotals totals = totalExit
+                ? positionUpdateService.planTotalExit(shadow, request, profitLoss, BigDecimal.ZERO)
+                : positionUpdateService.planPartialExit(shadow, request, profitLoss, request.getQuantity());
+            totals.applyTo(shadow);
+
+            positionOperations.add(positionOperationService.buildPositionOperation(shadow, operation, request,
+                shadow.getRemainingQuantity() == 0 ? PositionOperationType.FULL_EXIT : PositionOperationType.PARTIAL_EXIT));
+        }
+
+        if (shadow.getRemainingQuantity() > 0) {
+            shadow.setCloseDate(null);
+        }
+
+        return new PositionReplay(shadow, lots, exitRecords, positionOperations,
+            groupTotals(shadow, exitValue, exitQuantity), null);
+    }
+
+    /**
+     * Mesma regra de PositionEntryService: preço médio pelo valor efetivo dos lotes em aberto
+     * (valor original menos o valor já recebido nas saídas) mais o valor da nova entrada
+     */
+    private EntryLot applyEntry(Position shadow, List<EntryLot> lots, Map<EntryLot, BigDecimal> exitValueByLot,
+                                Operation operation) {
+        if (lots.isEmpty()) {
+            shadow.setOpenDate(operation.getEntryDate());
+            shadow.setAveragePrice(operation.getEntryUnitPrice());
+        } else {
+            BigDecimal effectiveValue = BigDecimal.ZERO;
+            for (EntryLot lot : lots) {
+                if (lot.getRemainingQuantity() > 0) {
+                    effectiveValue = effectiveValue
+                        .add(lot.getUnitPrice().multiply(BigDecimal.valueOf(lot.getQuantity())))
+                        .subtract(exitValueByLot.getOrDefault(lot, BigDecimal.ZERO));
+                }
+            }
+            int remainingAfterEntry = shadow.getRemainingQuantity() + operation.getQuantity();
+            shadow.setAveragePrice(effectiveValue.add(operation.getEntryTotalValue())
+                .divide(BigDecimal.valueOf(remainingAfterEntry), PRECISION, RoundingMode.HALF_UP));
+            if (shadow.getStatus() != PositionStatus.PARTIAL) {
+                shadow.setStatus(PositionStatus.OPEN);
+            }
+        }
+
+        shadow.setTotalQuantity(shadow.getTotalQuantity() + operation.getQuantity());
+        shadow.setRemainingQuantity(shadow.getRemainingQuantity() + operation.getQuantity());
+
+        EntryLot lot = EntryLot.builder()
+            .position(shadow)
+            .entryDate(operation.getEntryDate())
+            .quantity(operation.getQuantity())
+            .unitPrice(operation.getEntryUnitPrice())
+            .totalValue(operation.getEntryTotalValue())
+            .remainingQuantity(operation.getQuantity())
+            .sequenceNumber(lots.size() + 1)
+            .isFullyConsumed(false)
+            .build();
+        lots.add(lot);
+        return lot;
+    }
+
+    /**
+     * Consome os lotes como a saída original: Swing Trade pelos dias anteriores (FIFO),
+     * demais pelo automático (mesmo dia LIFO, depois dias anteriores FIFO)
+     */
+    private List<ExitRecord> applyExit(Position shadow, List<EntryLot> lots, Operation operation,
+                                       OperationFinalizationRequest request) {
+        LotBook<EntryLot> lotBook = LotBook.of(
+            lots, EntryLot::getEntryDate, EntryLot::getSequenceNumber, EntryLot::getRemainingQuantity);
+        OperationExitContext context = new OperationExitContext(request, operation, shadow.getUser());
+
+        List<ExitRecord> records = new ArrayList<>();
+        LotBook.LotConsumer<EntryLot> consumer = (lot, quantity) ->
+            records.add(exitRecordService.buildExitRecord(lot, operation, context, quantity));
+
+        int consumed = 0;
+        if (operation.getTradeType() == TradeType.SWING) {
+            consumed = lotBook.consumeFifoBefore(request.getExitDate(), request.getQuantity(), consumer);
+        }
+        if (consumed < request.getQuantity()) {
+            lotBook.consumeAuto(request.getExitDate(), request.getQuantity() - consumed, consumer, consumer);
+        }
+
+        // O livro mantém o próprio saldo: os lotes só são reduzidos depois de montar os registros
+        for (ExitRecord record : records) {
+            EntryLot lot = record.getEntryLot();
+            lot.setRemainingQuantity(lot.getRemainingQuantity() - record.getQuantity());
+            lot.setIsFullyConsumed(lot.getRemainingQuantity() == 0);
+        }
+        return records;
+    }
+
+    private ExitChangeSet.GroupTotals groupTotals(Position shadow, BigDecimal exitValue, int exitQuantity) {
+        AverageOperationGroupStatus status = shadow.getStatus() == PositionStatus.CLOSED
+            ? AverageOperationGroupStatus.CLOSED
+            : exitQuantity > 0 ? AverageOperationGroupStatus.PARTIALLY_CLOSED : AverageOperationGroupStatus.ACTIVE;
+
+        return new ExitChangeSet.GroupTotals(
+            shadow.getRemainingQuantity(),
+            exitQuantity > 0
+                ? exitValue.divide(BigDecimal.valueOf(exitQuantity), PRECISION, RoundingMode.HALF_UP)
+                : null,
+            shadow.getTotalQuantity() - shadow.getRemainingQuantity(),
+            shadow.getTotalRealizedProfit(),
+            status);
+    }
+
+    private static PositionReplay failed(Position shadow, String error) {
+        return new PositionReplay(shadow, List.of(), List.of(), List.of(), null, error);
+    }
+}
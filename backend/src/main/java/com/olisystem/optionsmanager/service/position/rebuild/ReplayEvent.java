@@ -0,0 +1,51 @@
+package com.olisystem.optionsmanager.service.position.rebuild;
+
+import com.olisystem.optionsmanager.model.operation.Operation;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Comparator;
+
+/**
+ * Operação de origem de uma posição, na ordem em que deve ser reaplicada
+ *
+ * @param entry           true se a operação tem a direção da posição (entrada), false se é a direção oposta (saída)
+ * @param invoiceSequence sequência do negócio na nota de corretagem (null se a operação não veio de nota)
+ * @param itemSequence    sequência do item no grupo de operações (ordem de processamento original)
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+public record ReplayEvent(Operation operation,
+                          boolean entry,
+                          Integer invoiceSequence,
+                          int itemSequence) {
+
+    /**
+     * Data do evento, sequência na nota e sequência no grupo
+     */
+    public static final Comparator<ReplayEvent> ORDER = Comparator
+        .comparing(ReplayEvent::eventDate)
+        .thenComparing(ReplayEvent::invoiceSequence, Comparator.nullsLast(Comparator.naturalOrder()))
+        .thenComparingInt(ReplayEvent::itemSequence);
+
+    public boolean isEntry() {
+        return entry;
+    }
+
+    /**
+     * Saídas usam a data de saída; a venda oculta da consolidação só tem os campos de entrada preenchidos
+     */
+    public LocalDate eventDate() {
+        if (entry || operation.getExitDate() == null) {
+            return operation.getEntryDate();
+        }
+        return operation.getExitDate();
+    }
+
+    /**
+     * Preço de saída, com o mesmo fallback para o preço de entrada da venda oculta
+     */
+    public BigDecimal exitUnitPrice() {
+        return operation.getExitUnitPrice() != null ? operation.getExitUnitPrice() : operation.getEntryUnitPrice();
+    }
+}
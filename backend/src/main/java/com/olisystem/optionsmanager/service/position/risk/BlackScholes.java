@@ -0,0 +1,136 @@
+package com.olisystem.optionsmanager.service.position.risk;
+
+import com.olisystem.optionsmanager.model.option_serie.OptionType;
+
+/**
+ * Modelo de Black-Scholes-Merton com dividend yield contínuo
+ * ✅ NOVO: Funções puras em double - preço, gregas e volatilidade implícita. Prazo em anos,
+ * taxas e volatilidade anuais. Theta por dia corrido, vega por ponto de volatilidade.
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+public final class BlackScholes {
+
+    public static final double DAYS_PER_YEAR = 365.0;
+
+    static final double MIN_VOLATILITY = 1e-4;
+    static final double MAX_VOLATILITY = 5.0;
+    private static final double IV_TOLERANCE = 1e-7;
+    private static final int IV_MAX_ITERATIONS = 100;
+    private static final double INV_SQRT_2PI = 1.0 / Math.sqrt(2.0 * Math.PI);
+
+    private BlackScholes() {
+    }
+
+    public static double price(OptionType type, double spot, double strike, double years,
+                               double rate, double dividendYield, double volatility) {
+        if (years <= 0 || volatility <= 0) {
+            return intrinsic(type, spot, strike);
+        }
+        double sqrtT = Math.sqrt(years);
+        double d1 = d1(spot, strike, years, rate, dividendYield, volatility, sqrtT);
+        double d2 = d1 - volatility * sqrtT;
+        double spotDiscounted = spot * Math.exp(-dividendYield * years);
+        double strikeDiscounted = strike * Math.exp(-rate * years);
+
+        return type == OptionType.CALL
+            ? spotDiscounted * cdf(d1) - strikeDiscounted * cdf(d2)
+            : strikeDiscounted * cdf(-d2) - spotDiscounted * cdf(-d1);
+    }
+
+    public static OptionGreeks greeks(OptionType type, double spot, double strike, double years,
+                                      double rate, double dividendYield, double volatility) {
+        if (years <= 0 || volatility <= 0) {
+            double intrinsic = intrinsic(type, spot, strike);
+            double delta = intrinsic > 0 ? (type == OptionType.CALL ? 1.0 : -1.0) : 0.0;
+            return new OptionGreeks(intrinsic, delta, 0.0, 0.0, 0.0);
+        }
+
+        double sqrtT = Math.sqrt(years);
+        double d1 = d1(spot, strike, years, rate, dividendYield, volatility, sqrtT);
+        double d2 = d1 - volatility * sqrtT;
+        double dividendDiscount = Math.exp(-dividendYield * years);
+        double rateDiscount = Math.exp(-rate * years);
+        double density = pdf(d1);
+
+        double gamma = dividendDiscount * density / (spot * volatility * sqrtT);
+        double vega = spot * dividendDiscount * density * sqrtT / 100.0;
+        double decay = -spot * dividendDiscount * density * volatility / (2.0 * sqrtT);
+
+        double price;
+        double delta;
+        double theta;
+        if (type == OptionType.CALL) {
+            price = spot * dividendDiscount * cdf(d1) - strike * rateDiscount * cdf(d2);
+            delta = dividendDiscount * cdf(d1);
+            theta = decay - rate * strike * rateDiscount * cdf(d2) + dividendYield * spot * dividendDiscount * cdf(d1);
+        } else {
+            price = strike * rateDiscount * cdf(-d2) - spot * dividendDiscount * cdf(-d1);
+            delta = -dividendDiscount * cdf(-d1);
+            theta = decay + rate * strike * rateDiscount * cdf(-d2) - dividendYield * spot * dividendDiscount * cdf(-d1);
+        }
+        return new OptionGreeks(price, delta, gamma, theta / DAYS_PER_YEAR, vega);
+    }
+
+    /**
+     * Volatilidade implícita pelo preço de mercado: Newton-Raphson com bissecção quando o passo
+     * sai do intervalo; NaN se o preço está fora dos limites de arbitragem
+     */
+    public static double impliedVolatility(OptionType type, double marketPrice, double spot, double strike,
+                                           double years, double rate, double dividendYield) {
+        if (years <= 0 || marketPrice <= 0) {
+            return Double.NaN;
+        }
+        double low = MIN_VOLATILITY;
+        double high = MAX_VOLATILITY;
+        if (marketPrice < price(type, spot, strike, years, rate, dividendYield, low) - IV_TOLERANCE
+                || marketPrice > price(type, spot, strike, years, rate, dividendYield, high) + IV_TOLERANCE) {
+            return Double.NaN;
+        }
+
+        double volatility = 0.3;
+        for (int i = 0; i < IV_MAX_ITERATIONS; i++) {
+            double diff = price(type, spot, strike, years, rate, dividendYield, volatility) - marketPrice;
+            if (Math.abs(diff) < IV_TOLERANCE) {
+                return volatility;
+            }
+            if (diff > 0) {
+                high = volatility;
+            } else {
+                low = volatility;
+            }
+
+            double vega = greeks(type, spot, strike, years, rate, dividendYield, volatility).vega() * 100.0;
+            double next = vega > 1e-10 ? volatility - diff / vega : Double.NaN;
+            volatility = next > low && next < high ? next : (low + high) / 2.0;
+        }
+        return volatility;
+    }
+
+    public static double intrinsic(OptionType type, double spot, double strike) {
+        return Math.max(type == OptionType.CALL ? spot - strike : strike - spot, 0.0);
+    }
+
+    private static double d1(double spot, double strike, double years, double rate, double dividendYield,
+                             double volatility, double sqrtT) {
+        return (Math.log(spot / strike) + (rate - dividendYield + volatility * volatility / 2.0) * years)
+            / (volatility * sqrtT);
+    }
+
+    static double pdf(double x) {
+        return INV_SQRT_2PI * Math.exp(-0.5 * x * x);
+    }
+
+    /**
+     * Normal acumulada (Abramowitz-Stegun 26.2.17, erro < 7.5e-8)
+     */
+    static double cdf(double x) {
+        if (x < 0) {
+            return 1.0 - cdf(-x);
+        }
+        double t = 1.0 / (1.0 + 0.2316419 * x);
+        double poly = t * (0.319381530 + t * (-0.356563782 + t * (1.781477937 + t * (-1.821255978 + t * 1.330274429))));
+        return 1.0 - pdf(x) * poly;
+    }
+}
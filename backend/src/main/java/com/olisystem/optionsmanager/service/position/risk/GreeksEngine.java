@@ -0,0 +1,229 @@
+package com.olisystem.optionsmanager.service.position.risk;
+
+import com.olisystem.optionsmanager.config.risk.RiskProperties;
+import com.olisystem.optionsmanager.dto.position.PortfolioRiskResponse;
+import com.olisystem.optionsmanager.model.option_serie.OptionSerie;
+import com.olisystem.optionsmanager.model.position.Position;
+import com.olisystem.optionsmanager.model.transaction.TransactionType;
+import com.olisystem.optionsmanager.service.marketdata.PriceSnapshot;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Gregas (Black-Scholes com dividend yield) das posições abertas
+ * ✅ NOVO: Resolve spot e volatilidade implícita uma vez por série, avalia as posições em paralelo
+ * e agrega a exposição por ativo-objeto. Volatilidades implícitas e gregas ficam memorizadas por
+ * (série, preços, data) - atualizações a cada poucos segundos só recalculam o que mudou.
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class GreeksEngine {
+
+    static final int MAX_MEMO_ENTRIES = 50_000;
+    private static final int GREEK_SCALE = 6;
+    private static final int MONEY_SCALE = 2;
+
+    private final RiskProperties riskProperties;
+
+    private final Map<VolatilityKey, Double> volatilityMemo = new ConcurrentHashMap<>();
+    private final Map<GreeksKey, OptionGreeks> greeksMemo = new ConcurrentHashMap<>();
+
+    private record VolatilityKey(String seriesCode, double optionPrice, double spot, LocalDate date) {
+    }
+
+    private record GreeksKey(String seriesCode, double spot, double volatility, LocalDate date) {
+    }
+
+    /**
+     * Parâmetros por código de série; séries sem preço da opção, sem preço do ativo-objeto ou sem
+     * volatilidade implícita ficam de fora
+     */
+    public Map<String, SeriesParameters> resolveParameters(Collection<OptionSerie> series,
+                                                           Function<String, Optional<PriceSnapshot>> prices,
+                                                           LocalDate date) {
+        trimMemo();
+        return series.parallelStream()
+            .map(serie -> resolve(serie, prices, date))
+            .flatMap(Optional::stream)
+            .collect(Collectors.toConcurrentMap(SeriesParameters::seriesCode, Function.identity(), (a, b) -> a));
+    }
+
+    public PortfolioRiskResponse evaluate(List<Position> positions,
+                                          Function<String, Optional<PriceSnapshot>> prices,
+                                          LocalDate date) {
+        List<OptionSerie> series = positions.stream()
+            .map(Position::getOptionSeries)
+            .collect(Collectors.toMap(OptionSerie::getCode, Function.identity(), (a, b) -> a))
+            .values().stream().toList();
+        Map<String, SeriesParameters> parameters = resolveParameters(series, prices, date);
+
+        List<PositionRisk> risks = positions.parallelStream()
+            .map(position -> evaluate(position, parameters.get(position.getOptionSeries().getCode()), date))
+            .toList();
+
+        Map<String, List<PositionRisk>> byUnderlying = new LinkedHashMap<>();
+        for (PositionRisk risk : risks) {
+            if (risk.parameters() != null) {
+                byUnderlying.computeIfAbsent(risk.parameters().underlyingCode(), code -> new ArrayList<>()).add(risk);
+            }
+        }
+
+        List<PortfolioRiskResponse.UnderlyingExposure> underlyings = new ArrayList<>(byUnderlying.size());
+        double totalDeltaNotional = 0;
+        double totalTheta = 0;
+        double totalVega = 0;
+        for (Map.Entry<String, List<PositionRisk>> entry : byUnderlying.entrySet()) {
+            double spot = entry.getValue().get(0).parameters().spot();
+            double delta = 0;
+            double gamma = 0;
+            double theta = 0;
+            double vega = 0;
+            for (PositionRisk risk : entry.getValue()) {
+                delta += risk.quantity() * risk.greeks().delta();
+                gamma += risk.quantity() * risk.greeks().gamma();
+                theta += risk.quantity() * risk.greeks().theta();
+                vega += risk.quantity() * risk.greeks().vega();
+            }
+            totalDeltaNotional += delta * spot;
+            totalTheta += theta;
+            totalVega += vega;
+            underlyings.add(PortfolioRiskResponse.UnderlyingExposure.builder()
+                .underlyingCode(entry.getKey())
+                .spot(scaled(spot, MONEY_SCALE))
+                .positions(entry.getValue().size())
+                .delta(scaled(delta, MONEY_SCALE))
+                .deltaNotional(scaled(delta * spot, MONEY_SCALE))
+                .gamma(scaled(gamma, GREEK_SCALE))
+                .theta(scaled(theta, MONEY_SCALE))
+                .vega(scaled(vega, MONEY_SCALE))
+                .build());
+        }
+
+        int priced = (int) risks.stream().filter(risk -> risk.parameters() != null).count();
+        return PortfolioRiskResponse.builder()
+            .valuationDate(date)
+            .riskFreeRate(BigDecimal.valueOf(riskProperties.getRiskFreeRate()))
+            .pricedPositions(priced)
+            .unpricedPositions(risks.size() - priced)
+            .deltaNotional(scaled(totalDeltaNotional, MONEY_SCALE))
+            .theta(scaled(totalTheta, MONEY_SCALE))
+            .vega(scaled(totalVega, MONEY_SCALE))
+            .underlyings(underlyings)
+            .positions(risks.stream().map(PositionRisk::response).toList())
+            .build();
+    }
+
+    private Optional<SeriesParameters> resolve(OptionSerie serie, Function<String, Optional<PriceSnapshot>> prices,
+                                               LocalDate date) {
+        if (serie.getAsset() == null) {
+            return Optional.empty();
+        }
+        Optional<PriceSnapshot> optionPrice = prices.apply(serie.getCode());
+        Optional<PriceSnapshot> spotPrice = prices.apply(serie.getAsset().getCode());
+        if (optionPrice.isEmpty() || spotPrice.isEmpty()) {
+            return Optional.empty();
+        }
+
+        double option = optionPrice.get().price().doubleValue();
+        double spot = spotPrice.get().price().doubleValue();
+        double strike = serie.getStrikePrice().doubleValue();
+        double rate = riskProperties.getRiskFreeRate();
+        double dividendYield = riskProperties.dividendYieldOf(serie.getAsset().getCode());
+
+        SeriesParameters unsolved = new SeriesParameters(serie.getCode(), serie.getAsset().getCode(), serie.getType(),
+            strike, serie.getExpirationDate(), option, spot, Double.NaN, rate, dividendYield);
+        if (unsolved.daysToExpiration(date) == 0) {
+            // No vencimento vale o intrínseco - não há volatilidade a resolver
+            return Optional.of(unsolved.withVolatility(0));
+        }
+        double volatility = volatilityMemo.computeIfAbsent(
+            new VolatilityKey(serie.getCode(), option, spot, date),
+            key -> BlackScholes.impliedVolatility(serie.getType(), option, spot, strike,
+                unsolved.yearsToExpiration(date), rate, dividendYield));
+        if (Double.isNaN(volatility)) {
+            log.debug("⚠️ Volatilidade implícita não encontrada para {} (opção {}, spot {})", serie.getCode(), option, spot);
+            return Optional.empty();
+        }
+        return Optional.of(unsolved.withVolatility(volatility));
+    }
+
+    private PositionRisk evaluate(Position position, SeriesParameters parameters, LocalDate date) {
+        OptionSerie serie = position.getOptionSeries();
+        int quantity = (position.getDirection() == TransactionType.SELL ? -1 : 1) * position.getRemainingQuantity();
+        PortfolioRiskResponse.PositionRisk.PositionRiskBuilder builder = PortfolioRiskResponse.PositionRisk.builder()
+            .positionId(position.getId())
+            .optionSeriesCode(serie.getCode())
+            .underlyingCode(serie.getAsset() != null ? serie.getAsset().getCode() : null)
+            .optionType(serie.getType())
+            .direction(position.getDirection())
+            .quantity(quantity)
+            .strikePrice(serie.getStrikePrice())
+            .expirationDate(serie.getExpirationDate());
+
+        if (parameters == null) {
+            return new PositionRisk(builder
+                .message("Sem preço da opção ou do ativo-objeto, ou volatilidade implícita fora dos limites")
+                .build(), null, null, quantity);
+        }
+
+        OptionGreeks greeks = greeksMemo.computeIfAbsent(
+            new GreeksKey(parameters.seriesCode(), parameters.spot(), parameters.volatility(), date),
+            key -> BlackScholes.greeks(parameters.type(), parameters.spot(), parameters.strike(),
+                parameters.yearsToExpiration(date), parameters.rate(), parameters.dividendYield(),
+                parameters.volatility()));
+
+        return new PositionRisk(builder
+            .daysToExpiration(parameters.daysToExpiration(date))
+            .spot(scaled(parameters.spot(), MONEY_SCALE))
+            .optionPrice(scaled(parameters.optionPrice(), MONEY_SCALE))
+            .impliedVolatility(scaled(parameters.volatility(), GREEK_SCALE))
+            .theoreticalPrice(scaled(greeks.price(), GREEK_SCALE))
+            .delta(scaled(greeks.delta(), GREEK_SCALE))
+            .gamma(scaled(greeks.gamma(), GREEK_SCALE))
+            .theta(scaled(greeks.theta(), GREEK_SCALE))
+            .vega(scaled(greeks.vega(), GREEK_SCALE))
+            .positionDelta(scaled(quantity * greeks.delta(), MONEY_SCALE))
+            .positionGamma(scaled(quantity * greeks.gamma(), GREEK_SCALE))
+            .positionTheta(scaled(quantity * greeks.theta(), MONEY_SCALE))
+            .positionVega(scaled(quantity * greeks.vega(), MONEY_SCALE))
+            .build(), parameters, greeks, quantity);
+    }
+
+    /**
+     * Memória simples: descartada inteira quando passa do limite (preços antigos não voltam)
+     */
+    private void trimMemo() {
+        if (volatilityMemo.size() > MAX_MEMO_ENTRIES) {
+            volatilityMemo.clear();
+        }
+        if (greeksMemo.size() > MAX_MEMO_ENTRIES) {
+            greeksMemo.clear();
+        }
+    }
+
+    private static BigDecimal scaled(double value, int scale) {
+        return Double.isFinite(value) ? BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_UP) : null;
+    }
+
+    private record PositionRisk(PortfolioRiskResponse.PositionRisk response, SeriesParameters parameters,
+                                OptionGreeks greeks, int quantity) {
+    }
+}
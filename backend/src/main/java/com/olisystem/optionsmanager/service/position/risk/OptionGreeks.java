@@ -0,0 +1,13 @@
+package com.olisystem.optionsmanager.service.position.risk;
+
+/**
+ * Preço teórico e gregas de uma unidade da opção
+ *
+ * @param price preço teórico
+ * @param delta variação do preço por R$ 1 no ativo-objeto
+ * @param gamma variação do delta por R$ 1 no ativo-objeto
+ * @param theta variação do preço por dia corrido
+ * @param vega  variação do preço por ponto (1%) de volatilidade
+ */
+public record OptionGreeks(double price, double delta, double gamma, double theta, double vega) {
+}
@@ -0,0 +1,48 @@
+package com.olisystem.optionsmanager.service.position.risk;
+
+import com.olisystem.optionsmanager.dto.position.PortfolioRiskResponse;
+import com.olisystem.optionsmanager.model.auth.User;
+import com.olisystem.optionsmanager.model.position.Position;
+import com.olisystem.optionsmanager.model.position.PositionStatus;
+import com.olisystem.optionsmanager.repository.position.PositionRepository;
+import com.olisystem.optionsmanager.service.marketdata.PriceSnapshotStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Visão de risco (gregas) das posições abertas do usuário com os últimos preços conhecidos
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PortfolioRiskService {
+
+    static final List<PositionStatus> OPEN_STATUSES = List.of(PositionStatus.OPEN, PositionStatus.PARTIAL);
+
+    private final PositionRepository positionRepository;
+    private final PriceSnapshotStore priceStore;
+    private final GreeksEngine greeksEngine;
+
+    @Transactional(readOnly = true)
+    public PortfolioRiskResponse risk(User user, LocalDate valuationDate) {
+        long started = System.nanoTime();
+        long priceVersion = priceStore.version();
+
+        List<Position> positions = positionRepository.findByUserAndStatusIn(user, OPEN_STATUSES);
+        PortfolioRiskResponse response = greeksEngine.evaluate(positions, priceStore::get, valuationDate);
+        response.setPriceVersion(priceVersion);
+        response.setDurationMs((System.nanoTime() - started) / 1_000_000);
+
+        log.debug("📐 Gregas calculadas: {} posições ({} sem preço) em {}ms",
+                  positions.size(), response.getUnpricedPositions(), response.getDurationMs());
+        return response;
+    }
+}
@@ -0,0 +1,201 @@
+package com.olisystem.optionsmanager.service.position.risk;
+
+import com.olisystem.optionsmanager.dto.position.ScenarioGridResponse;
+import com.olisystem.optionsmanager.model.option_serie.OptionType;
+import com.olisystem.optionsmanager.model.position.Position;
+import com.olisystem.optionsmanager.model.transaction.TransactionType;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Reavaliação da carteira em uma grade de cenários (ativo-objeto x volatilidade x prazo)
+ * ✅ NOVO: Posições da mesma série são somadas em uma quantidade líquida e os parâmetros de cada
+ * série (spot, volatilidade implícita, taxas) vêm prontos do GreeksEngine. Os pontos da grade são
+ * divididos entre tarefas fork/join; cada ponto só é escrito pela tarefa dona, sem sincronização.
+ * P&L medido contra o valor teórico atual, então o ponto sem variação é zero.
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Component
+public class ScenarioGridEngine {
+
+    static final int POINTS_PER_TASK = 16;
+
+    public ScenarioGridResponse evaluate(List<Position> positions, Map<String, SeriesParameters> parameters,
+                                         LocalDate valuationDate, double[] spotShifts, double[] volatilityShifts,
+                                         int[] daysForward) {
+        // Quantidade líquida por série (vendidas negativas) e posições por ativo-objeto
+        Map<String, Integer> netQuantity = new LinkedHashMap<>();
+        Map<String, Integer> positionsByUnderlying = new LinkedHashMap<>();
+        TreeSet<String> unpricedSeries = new TreeSet<>();
+        int priced = 0;
+        for (Position position : positions) {
+            String code = position.getOptionSeries().getCode();
+            SeriesParameters series = parameters.get(code);
+            if (series == null) {
+                unpricedSeries.add(code);
+                continue;
+            }
+            int sign = position.getDirection() == TransactionType.SELL ? -1 : 1;
+            netQuantity.merge(code, sign * position.getRemainingQuantity(), Integer::sum);
+            positionsByUnderlying.merge(series.underlyingCode(), 1, Integer::sum);
+            priced++;
+        }
+
+        List<String> underlyings = new ArrayList<>(positionsByUnderlying.keySet());
+        SeriesBook book = SeriesBook.of(netQuantity, parameters, underlyings, valuationDate);
+
+        int gridPoints = daysForward.length * spotShifts.length * volatilityShifts.length;
+        double[][] profitLoss = new double[underlyings.size()][gridPoints];
+        ForkJoinPool.commonPool().invoke(
+            new GridTask(book, spotShifts, volatilityShifts, daysForward, profitLoss, 0, gridPoints));
+
+        double[] portfolio = new double[gridPoints];
+        List<ScenarioGridResponse.UnderlyingScenario> scenarios = new ArrayList<>(underlyings.size());
+        for (int u = 0; u < underlyings.size(); u++) {
+            for (int point = 0; point < gridPoints; point++) {
+                portfolio[point] += profitLoss[u][point];
+            }
+            String underlying = underlyings.get(u);
+            scenarios.add(ScenarioGridResponse.UnderlyingScenario.builder()
+                .underlyingCode(underlying)
+                .spot(BigDecimal.valueOf(book.spotOf(u)).setScale(2, RoundingMode.HALF_UP))
+                .positions(positionsByUnderlying.get(underlying))
+                .profitLoss(reshape(profitLoss[u], daysForward.length, spotShifts.length, volatilityShifts.length))
+                .build());
+        }
+
+        return ScenarioGridResponse.builder()
+            .valuationDate(valuationDate)
+            .gridPoints(gridPoints)
+            .pricedPositions(priced)
+            .unpricedPositions(positions.size() - priced)
+            .unpricedSeries(List.copyOf(unpricedSeries))
+            .portfolio(reshape(portfolio, daysForward.length, spotShifts.length, volatilityShifts.length))
+            .underlyings(scenarios)
+            .build();
+    }
+
+    /**
+     * Ponto linear = (prazo x variações do ativo + variação do ativo) x variações de vol + variação de vol
+     */
+    private static double[][][] reshape(double[] values, int days, int spots, int volatilities) {
+        double[][][] matrix = new double[days][spots][volatilities];
+        int point = 0;
+        for (int d = 0; d < days; d++) {
+            for (int s = 0; s < spots; s++) {
+                for (int v = 0; v < volatilities; v++) {
+                    matrix[d][s][v] = Math.round(values[point++] * 100.0) / 100.0;
+                }
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Parâmetros das séries em vetores, para o laço de reavaliação não tocar em objetos
+     */
+    private record SeriesBook(boolean[] call, double[] strike, double[] spot, double[] volatility, double[] rate,
+                              double[] dividendYield, int[] daysToExpiration, double[] quantity, double[] baseValue,
+                              int[] underlying, double[] underlyingSpot) {
+
+        static SeriesBook of(Map<String, Integer> netQuantity, Map<String, SeriesParameters> parameters,
+                             List<String> underlyings, LocalDate valuationDate) {
+            int size = netQuantity.size();
+            SeriesBook book = new SeriesBook(new boolean[size], new double[size], new double[size], new double[size],
+                new double[size], new double[size], new int[size], new double[size], new double[size],
+                new int[size], new double[underlyings.size()]);
+
+            int k = 0;
+            for (Map.Entry<String, Integer> entry : netQuantity.entrySet()) {
+                SeriesParameters series = parameters.get(entry.getKey());
+                book.call[k] = series.type() == OptionType.CALL;
+                book.strike[k] = series.strike();
+                book.spot[k] = series.spot();
+                book.volatility[k] = series.volatility();
+                book.rate[k] = series.rate();
+                book.dividendYield[k] = series.dividendYield();
+                book.daysToExpiration[k] = series.daysToExpiration(valuationDate);
+                book.quantity[k] = entry.getValue();
+                book.baseValue[k] = series.priceAt(series.spot(), series.volatility(), valuationDate);
+                book.underlying[k] = underlyings.indexOf(series.underlyingCode());
+                book.underlyingSpot[book.underlying[k]] = series.spot();
+                k++;
+            }
+            return book;
+        }
+
+        int size() {
+            return quantity.length;
+        }
+
+        double spotOf(int underlyingIndex) {
+            return underlyingSpot[underlyingIndex];
+        }
+    }
+
+    private static final class GridTask extends RecursiveAction {
+
+        private final SeriesBook book;
+        private final double[] spotShifts;
+        private final double[] volatilityShifts;
+        private final int[] daysForward;
+        private final double[][] profitLoss;
+        private final int from;
+        private final int to;
+
+        GridTask(SeriesBook book, double[] spotShifts, double[] volatilityShifts, int[] daysForward,
+                 double[][] profitLoss, int from, int to) {
+            this.book = book;
+            this.spotShifts = spotShifts;
+            this.volatilityShifts = volatilityShifts;
+            this.daysForward = daysForward;
+            this.profitLoss = profitLoss;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= POINTS_PER_TASK) {
+                for (int point = from; point < to; point++) {
+                    revalue(point);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new GridTask(book, spotShifts, volatilityShifts, daysForward, profitLoss, from, middle),
+                new GridTask(book, spotShifts, volatilityShifts, daysForward, profitLoss, middle, to));
+        }
+
+        private void revalue(int point) {
+            int v = point % volatilityShifts.length;
+            int s = (point / volatilityShifts.length) % spotShifts.length;
+            int d = point / (volatilityShifts.length * spotShifts.length);
+
+            for (int k = 0; k < book.size(); k++) {
+                double years = Math.max(book.daysToExpiration()[k] - daysForward[d], 0) / BlackScholes.DAYS_PER_YEAR;
+                double value = BlackScholes.price(
+                    book.call()[k] ? OptionType.CALL : OptionType.PUT,
+                    book.spot()[k] * (1.0 + spotShifts[s]),
+                    book.strike()[k],
+                    years,
+                    book.rate()[k],
+                    book.dividendYield()[k],
+                    Math.max(book.volatility()[k] + volatilityShifts[v], 0.0));
+                profitLoss[book.underlying()[k]][point] += book.quantity()[k] * (value - book.baseValue()[k]);
+            }
+        }
+    }
+}
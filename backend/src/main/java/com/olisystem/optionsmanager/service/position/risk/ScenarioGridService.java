@@ -0,0 +1,71 @@
+package com.olisystem.optionsmanager.service.position.risk;
+
+import com.olisystem.optionsmanager.dto.position.ScenarioGridRequest;
+import com.olisystem.optionsmanager.dto.position.ScenarioGridResponse;
+import com.olisystem.optionsmanager.exception.BusinessException;
+import com.olisystem.optionsmanager.model.auth.User;
+import com.olisystem.optionsmanager.model.option_serie.OptionSerie;
+import com.olisystem.optionsmanager.model.position.Position;
+import com.olisystem.optionsmanager.repository.position.PositionRepository;
+import com.olisystem.optionsmanager.service.marketdata.PriceSnapshotStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Análise de cenários (what-if) das posições abertas do usuário
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ScenarioGridService {
+
+    static final int MAX_GRID_POINTS = 20_000;
+
+    private final PositionRepository positionRepository;
+    private final PriceSnapshotStore priceStore;
+    private final GreeksEngine greeksEngine;
+    private final ScenarioGridEngine scenarioGridEngine;
+
+    @Transactional(readOnly = true)
+    public ScenarioGridResponse run(User user, ScenarioGridRequest request) {
+        long started = System.nanoTime();
+        int gridPoints = request.getSpotShifts().size() * request.getVolatilityShifts().size()
+            * request.getDaysForward().size();
+        if (gridPoints > MAX_GRID_POINTS) {
+            throw new BusinessException("Grade com " + gridPoints + " pontos excede o máximo de " + MAX_GRID_POINTS);
+        }
+        LocalDate date = request.getValuationDate() != null ? request.getValuationDate() : LocalDate.now();
+
+        List<Position> positions = positionRepository.findByUserAndStatusIn(user, PortfolioRiskService.OPEN_STATUSES);
+        List<OptionSerie> series = positions.stream()
+            .map(Position::getOptionSeries)
+            .collect(Collectors.toMap(OptionSerie::getCode, Function.identity(), (a, b) -> a))
+            .values().stream().toList();
+        Map<String, SeriesParameters> parameters = greeksEngine.resolveParameters(series, priceStore::get, date);
+
+        ScenarioGridResponse response = scenarioGridEngine.evaluate(positions, parameters, date,
+            request.getSpotShifts().stream().mapToDouble(BigDecimal::doubleValue).toArray(),
+            request.getVolatilityShifts().stream().mapToDouble(BigDecimal::doubleValue).toArray(),
+            request.getDaysForward().stream().mapToInt(Integer::intValue).toArray());
+        response.setSpotShifts(request.getSpotShifts());
+        response.setVolatilityShifts(request.getVolatilityShifts());
+        response.setDaysForward(request.getDaysForward());
+        response.setDurationMs((System.nanoTime() - started) / 1_000_000);
+
+        log.info("🧮 Grade de cenários: {} pontos x {} séries em {}ms",
+                 gridPoints, parameters.size(), response.getDurationMs());
+        return response;
+    }
+}
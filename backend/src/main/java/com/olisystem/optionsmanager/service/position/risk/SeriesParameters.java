@@ -0,0 +1,46 @@
+package com.olisystem.optionsmanager.service.position.risk;
+
+import com.olisystem.optionsmanager.model.option_serie.OptionType;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Parâmetros de precificação de uma série, resolvidos uma vez por cálculo
+ * ✅ NOVO: Spot e volatilidade implícita já resolvidos; reaproveitado pelas gregas e pelos cenários
+ *
+ * @param seriesCode     código da série
+ * @param underlyingCode código do ativo-objeto
+ * @param type           CALL ou PUT
+ * @param strike         preço de exercício
+ * @param expirationDate vencimento
+ * @param optionPrice    último preço da opção
+ * @param spot           último preço do ativo-objeto
+ * @param volatility     volatilidade implícita anual
+ * @param rate           taxa livre de risco anual
+ * @param dividendYield  dividend yield anual do ativo-objeto
+ */
+public record SeriesParameters(String seriesCode, String underlyingCode, OptionType type, double strike,
+                               LocalDate expirationDate, double optionPrice, double spot, double volatility,
+                               double rate, double dividendYield) {
+
+    public SeriesParameters withVolatility(double volatility) {
+        return new SeriesParameters(seriesCode, underlyingCode, type, strike, expirationDate, optionPrice, spot,
+            volatility, rate, dividendYield);
+    }
+
+    public int daysToExpiration(LocalDate date) {
+        return (int) Math.max(ChronoUnit.DAYS.between(date, expirationDate), 0);
+    }
+
+    public double yearsToExpiration(LocalDate date) {
+        return daysToExpiration(date) / BlackScholes.DAYS_PER_YEAR;
+    }
+
+    /**
+     * Preço teórico com spot, volatilidade e data informados (demais parâmetros da série)
+     */
+    public double priceAt(double spot, double volatility, LocalDate date) {
+        return BlackScholes.price(type, spot, strike, yearsToExpiration(date), rate, dividendYield, volatility);
+    }
+}
@@ -5,6 +5,7 @@ import com.olisystem.optionsmanager.exception.BusinessException;
 import com.olisystem.optionsmanager.model.position.Position;
 import com.olisystem.optionsmanager.model.position.PositionStatus;
 import com.olisystem.optionsmanager.repository.position.PositionRepository;
+import com.olisystem.optionsmanager.service.operation.exit.ExitChangeSet;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -30,14 +31,39 @@ public class PositionUpdateService {
                                BigDecimal profitLoss, BigDecimal profitLossPercentage) {
         log.info("Iniciando atualização da posição ID: {} - Saída TOTAL", position.getId());
 
-        // CORREÇÃO: Validações antes da atualização
-        validatePositionUpdate(position, request, profitLoss, profitLossPercentage);
-
         // Capturar valores originais para log
         Integer originalRemainingQuantity = position.getRemainingQuantity();
         PositionStatus originalStatus = position.getStatus();
         BigDecimal originalProfit = position.getTotalRealizedProfit();
 
+        ExitChangeSet.PositionTotals totals = planTotalExit(position, request, profitLoss, profitLossPercentage);
+        totals.applyTo(position);
+
+        // Salvar posição
+        Position savedPosition = positionRepository.save(position);
+
+        log.info("Posição {} atualizada com sucesso: " +
+                        "Quantidade: {} → {}, " +
+                        "Status: {} → {}, " +
+                        "Lucro/Prejuízo: {} → {}, " +
+                        "Percentual Consolidado: {}%",
+                savedPosition.getId(),
+                originalRemainingQuantity, savedPosition.getRemainingQuantity(),
+                originalStatus, savedPosition.getStatus(),
+                originalProfit, savedPosition.getTotalRealizedProfit(),
+                totals.totalRealizedProfitPercentage());
+    }
+
+    /**
+     * ✅ NOVO: Calcula os totais da posição após uma saída TOTAL, sem alterar nem gravar a posição
+     */
+    public ExitChangeSet.PositionTotals planTotalExit(Position position, OperationFinalizationRequest request,
+                                                      BigDecimal profitLoss, BigDecimal profitLossPercentage) {
+        // CORREÇÃO: Validações antes da atualização
+        validatePositionUpdate(position, request, profitLoss, profitLossPercentage);
+
+        BigDecimal originalProfit = position.getTotalRealizedProfit();
+
         // ✅ CORREÇÃO: Calcular percentual consolidado baseado no valor total original
         BigDecimal totalOriginalInvestment = position.getAveragePrice()
                 .multiply(BigDecimal.valueOf(position.getTotalQuantity()));
@@ -52,26 +78,13 @@ public class PositionUpdateService {
                 .divide(totalOriginalInvestment, PRECISION, RoundingMode.HALF_UP)
                 .multiply(BigDecimal.valueOf(100));
 
-        // Atualizar campos da posição
-        position.setTotalRealizedProfit(totalConsolidatedProfit);
-        position.setTotalRealizedProfitPercentage(consolidatedPercentage); // ✅ CORREÇÃO: Percentual consolidado
-        position.setRemainingQuantity(0); // CORREÇÃO: Saída total = 0
-        position.setStatus(PositionStatus.CLOSED);
-        position.setCloseDate(request.getExitDate());
-
-        // Salvar posição
-        Position savedPosition = positionRepository.save(position);
-
-        log.info("Posição {} atualizada com sucesso: " +
-                        "Quantidade: {} → {}, " +
-                        "Status: {} → {}, " +
-                        "Lucro/Prejuízo: {} → {}, " +
-                        "Percentual Consolidado: {}%",
-                savedPosition.getId(),
-                originalRemainingQuantity, savedPosition.getRemainingQuantity(),
-                originalStatus, savedPosition.getStatus(),
-                originalProfit, savedPosition.getTotalRealizedProfit(),
-                consolidatedPercentage);
+        return new ExitChangeSet.PositionTotals(
+                position.getAveragePrice(),
+                0, // CORREÇÃO: Saída total = 0
+                totalConsolidatedProfit,
+                consolidatedPercentage, // ✅ CORREÇÃO: Percentual consolidado
+                PositionStatus.CLOSED,
+                request.getExitDate());
     }
 
     /**
@@ -85,17 +98,45 @@ public class PositionUpdateService {
         log.info("Iniciando atualização da posição ID: {} - Saída PARCIAL de {} unidades",
                 position.getId(), quantityExited);
 
+        // Capturar valores originais
+        Integer originalRemainingQuantity = position.getRemainingQuantity();
+        BigDecimal originalProfit = position.getTotalRealizedProfit() != null ?
+                position.getTotalRealizedProfit() : BigDecimal.ZERO;
+        BigDecimal originalAveragePrice = position.getAveragePrice();
+
+        ExitChangeSet.PositionTotals totals = planPartialExit(position, request, profitLoss, quantityExited);
+        totals.applyTo(position);
+
+        Position savedPosition = positionRepository.save(position);
+
+        log.info("Posição {} atualizada (PARCIAL): " +
+                        "Quantidade: {} → {}, " +
+                        "Preço Médio: {} → {} (break-even), " +
+                        "Status: {}, " +
+                        "Lucro Acumulado: {} → {}, " +
+                        "Percentual Consolidado: {}%",
+                savedPosition.getId(),
+                originalRemainingQuantity, totals.remainingQuantity(),
+                originalAveragePrice, totals.averagePrice(),
+                savedPosition.getStatus(),
+                originalProfit, totals.totalRealizedProfit(),
+                totals.totalRealizedProfitPercentage());
+    }
+
+    /**
+     * ✅ NOVO: Calcula os totais da posição após uma saída PARCIAL, sem alterar nem gravar a posição
+     */
+    public ExitChangeSet.PositionTotals planPartialExit(Position position, OperationFinalizationRequest request,
+                                                        BigDecimal profitLoss, Integer quantityExited) {
         // Validações específicas para saída parcial
         validatePartialPositionUpdate(position, request, quantityExited);
 
-        // Capturar valores originais
-        Integer originalRemainingQuantity = position.getRemainingQuantity();
         BigDecimal originalProfit = position.getTotalRealizedProfit() != null ?
                 position.getTotalRealizedProfit() : BigDecimal.ZERO;
         BigDecimal originalAveragePrice = position.getAveragePrice();
 
         // Calcular nova quantidade restante
-        Integer newRemainingQuantity = originalRemainingQuantity - quantityExited;
+        Integer newRemainingQuantity = position.getRemainingQuantity() - quantityExited;
 
         // ✅ CORREÇÃO PRINCIPAL: Calcular e atualizar preço médio break-even
         BigDecimal newBreakEvenPrice = calculateBreakEvenPrice(position, request, quantityExited);
@@ -109,34 +150,16 @@ public class PositionUpdateService {
                 .divide(totalOriginalInvestment, PRECISION, RoundingMode.HALF_UP)
                 .multiply(BigDecimal.valueOf(100));
 
-        // Atualizar campos
-        position.setAveragePrice(newBreakEvenPrice); // ✅ NOVO: Atualizar preço médio break-even
-        position.setTotalRealizedProfit(newTotalRealizedProfit);
-        position.setTotalRealizedProfitPercentage(consolidatedPercentage); // ✅ CORREÇÃO: Percentual consolidado
-        position.setRemainingQuantity(newRemainingQuantity);
-
         // Determinar status baseado na quantidade restante
-        if (newRemainingQuantity == 0) {
-            position.setStatus(PositionStatus.CLOSED);
-            position.setCloseDate(request.getExitDate());
-        } else {
-            position.setStatus(PositionStatus.PARTIAL);
-        }
-
-        Position savedPosition = positionRepository.save(position);
-
-        log.info("Posição {} atualizada (PARCIAL): " +
-                        "Quantidade: {} → {}, " +
-                        "Preço Médio: {} → {} (break-even), " +
-                        "Status: {}, " +
-                        "Lucro Acumulado: {} → {}, " +
-                        "Percentual Consolidado: {}%",
-                savedPosition.getId(),
-                originalRemainingQuantity, newRemainingQuantity,
-                originalAveragePrice, newBreakEvenPrice,
-                savedPosition.getStatus(),
-                originalProfit, newTotalRealizedProfit,
-                consolidatedPercentage);
+        boolean closed = newRemainingQuantity == 0;
+
+        return new ExitChangeSet.PositionTotals(
+                newBreakEvenPrice, // ✅ NOVO: Atualizar preço médio break-even
+                newRemainingQuantity,
+                newTotalRealizedProfit,
+                consolidatedPercentage, // ✅ CORREÇÃO: Percentual consolidado
+                closed ? PositionStatus.CLOSED : PositionStatus.PARTIAL,
+                closed ? request.getExitDate() : null);
     }
 
     /**
@@ -0,0 +1,119 @@
+package com.olisystem.optionsmanager.service.position.valuation;
+
+import com.olisystem.optionsmanager.dto.position.MarkToMarketResponse;
+import com.olisystem.optionsmanager.model.position.Position;
+import com.olisystem.optionsmanager.model.transaction.TransactionType;
+import com.olisystem.optionsmanager.service.marketdata.PriceSnapshot;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Marcação a mercado das posições abertas
+ * ✅ NOVO: Monta vetores de quantidade com sinal, preço médio e último preço e calcula valor
+ * de mercado e P&L não realizado de todas as posições em uma única passada (double); os
+ * valores só viram BigDecimal na resposta. Vendidas têm quantidade negativa.
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Component
+public class MarkToMarketEngine {
+
+    private static final int MONEY_SCALE = 2;
+    private static final int PERCENTAGE_SCALE = 4;
+
+    public MarkToMarketResponse value(List<Position> positions,
+                                      Function<String, Optional<PriceSnapshot>> prices,
+                                      long priceVersion) {
+        int size = positions.size();
+        double[] quantity = new double[size];
+        double[] averagePrice = new double[size];
+        double[] lastPrice = new double[size];
+        boolean[] priced = new boolean[size];
+        PriceSnapshot[] snapshots = new PriceSnapshot[size];
+
+        for (int i = 0; i < size; i++) {
+            Position position = positions.get(i);
+            int sign = position.getDirection() == TransactionType.SELL ? -1 : 1;
+            quantity[i] = sign * position.getRemainingQuantity();
+            averagePrice[i] = position.getAveragePrice().doubleValue();
+            snapshots[i] = prices.apply(position.getOptionSeries().getCode()).orElse(null);
+            priced[i] = snapshots[i] != null;
+            lastPrice[i] = priced[i] ? snapshots[i].price().doubleValue() : 0d;
+        }
+
+        double[] marketValue = new double[size];
+        double[] profitLoss = new double[size];
+        double totalCost = 0d;
+        double grossCost = 0d;
+        double totalMarket = 0d;
+        int pricedCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (!priced[i]) {
+                continue;
+            }
+            marketValue[i] = quantity[i] * lastPrice[i];
+            profitLoss[i] = quantity[i] * (lastPrice[i] - averagePrice[i]);
+            totalCost += quantity[i] * averagePrice[i];
+            grossCost += Math.abs(quantity[i] * averagePrice[i]);
+            totalMarket += marketValue[i];
+            pricedCount++;
+        }
+
+        List<MarkToMarketResponse.PositionMark> marks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Position position = positions.get(i);
+            double cost = Math.abs(quantity[i] * averagePrice[i]);
+            String underlyingCode = position.getOptionSeries().getAsset() != null
+                ? position.getOptionSeries().getAsset().getCode()
+                : null;
+            marks.add(MarkToMarketResponse.PositionMark.builder()
+                .positionId(position.getId())
+                .optionSeriesCode(position.getOptionSeries().getCode())
+                .underlyingCode(underlyingCode)
+                .direction(position.getDirection())
+                .status(position.getStatus())
+                .remainingQuantity(position.getRemainingQuantity())
+                .averagePrice(position.getAveragePrice())
+                .lastPrice(priced[i] ? snapshots[i].price() : null)
+                .priceAsOf(priced[i] ? snapshots[i].asOf() : null)
+                .underlyingPrice(underlyingCode == null ? null
+                    : prices.apply(underlyingCode).map(PriceSnapshot::price).orElse(null))
+                .marketValue(priced[i] ? money(marketValue[i]) : null)
+                .unrealizedProfitLoss(priced[i] ? money(profitLoss[i]) : null)
+                .unrealizedProfitLossPercentage(priced[i] ? percentage(profitLoss[i], cost) : null)
+                .build());
+        }
+
+        double totalProfitLoss = totalMarket - totalCost;
+        return MarkToMarketResponse.builder()
+            .costBasis(money(totalCost))
+            .marketValue(money(totalMarket))
+            .unrealizedProfitLoss(money(totalProfitLoss))
+            .unrealizedProfitLossPercentage(percentage(totalProfitLoss, grossCost))
+            .pricedPositions(pricedCount)
+            .unpricedPositions(size - pricedCount)
+            .priceVersion(priceVersion)
+            .computedAt(LocalDateTime.now())
+            .positions(marks)
+            .build();
+    }
+
+    private static BigDecimal money(double value) {
+        return BigDecimal.valueOf(value).setScale(MONEY_SCALE, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal percentage(double profitLoss, double cost) {
+        if (cost == 0d) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(profitLoss / cost * 100d).setScale(PERCENTAGE_SCALE, RoundingMode.HALF_UP);
+    }
+}
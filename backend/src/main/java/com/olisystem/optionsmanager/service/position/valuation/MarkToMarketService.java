@@ -0,0 +1,63 @@
+package com.olisystem.optionsmanager.service.position.valuation;
+
+import com.olisystem.optionsmanager.dto.position.MarkToMarketResponse;
+import com.olisystem.optionsmanager.model.auth.User;
+import com.olisystem.optionsmanager.model.position.Position;
+import com.olisystem.optionsmanager.model.position.PositionStatus;
+import com.olisystem.optionsmanager.repository.position.PositionRepository;
+import com.olisystem.optionsmanager.service.marketdata.PriceSnapshotStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Marcação a mercado da carteira do usuário, servida a partir de cache
+ * ✅ NOVO: O resultado é reaproveitado enquanto a versão do PriceSnapshotStore não muda; como
+ * entradas e saídas não avisam o cache, ele também expira após POSITIONS_TTL_MILLIS
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MarkToMarketService {
+
+    static final long POSITIONS_TTL_MILLIS = 15_000;
+    private static final List<PositionStatus> OPEN_STATUSES = List.of(PositionStatus.OPEN, PositionStatus.PARTIAL);
+
+    private final PositionRepository positionRepository;
+    private final PriceSnapshotStore priceStore;
+    private final MarkToMarketEngine engine;
+
+    private final Map<UUID, CachedMark> cache = new ConcurrentHashMap<>();
+
+    private record CachedMark(long priceVersion, long computedAtMillis, MarkToMarketResponse response) {
+    }
+
+    @Transactional(readOnly = true)
+    public MarkToMarketResponse markToMarket(User user, boolean forceRefresh) {
+        long priceVersion = priceStore.version();
+        long now = System.currentTimeMillis();
+
+        CachedMark cached = cache.get(user.getId());
+        if (!forceRefresh && cached != null && cached.priceVersion() == priceVersion
+                && now - cached.computedAtMillis() < POSITIONS_TTL_MILLIS) {
+            return cached.response();
+        }
+
+        List<Position> positions = positionRepository.findByUserAndStatusIn(user, OPEN_STATUSES);
+        MarkToMarketResponse response = engine.value(positions, priceStore::get, priceVersion);
+        cache.put(user.getId(), new CachedMark(priceVersion, now, response));
+
+        log.debug("📊 Marcação a mercado recalculada: {} posições, P&L não realizado {} (versão de preços {})",
+                  positions.size(), response.getUnrealizedProfitLoss(), priceVersion);
+        return response;
+    }
+}
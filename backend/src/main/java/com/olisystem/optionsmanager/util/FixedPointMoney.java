@@ -0,0 +1,111 @@
+package com.olisystem.optionsmanager.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Valores monetários em ponto fixo: um long com 6 casas decimais (centavos × 10⁴)
+ * ✅ NOVO: Operações sobre long, sem alocação; regras de arredondamento explícitas:
+ * <ul>
+ *   <li>conversão de BigDecimal só é aceita quando exata (até 6 casas);</li>
+ *   <li>soma, subtração e multiplicação por quantidade são exatas;</li>
+ *   <li>divisões arredondam HALF_UP (metade se afasta do zero), como os cálculos em BigDecimal;</li>
+ *   <li>qualquer estouro de long lança ArithmeticException - o chamador deve usar BigDecimal.</li>
+ * </ul>
+ *
+ * @author Sistema de Gestão de Opções
+ * @since 2025-07-21
+ */
+public final class FixedPointMoney {
+
+    /**
+     * Casas decimais do valor representado
+     */
+    public static final int SCALE = 6;
+
+    /**
+     * 1,00 em ponto fixo
+     */
+    public static final long ONE = 1_000_000L;
+
+    private static final long[] POWERS_OF_TEN = {
+        1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L
+    };
+
+    private static final long PERCENT = 100L;
+
+    private FixedPointMoney() {
+    }
+
+    /**
+     * Converte de BigDecimal; lança ArithmeticException se houver mais de 6 casas ou estouro
+     */
+    public static long of(BigDecimal value) {
+        return value.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Converte para BigDecimal na escala informada, arredondando HALF_UP quando a escala é menor que 6
+     */
+    public static BigDecimal toBigDecimal(long value, int scale) {
+        BigDecimal decimal = BigDecimal.valueOf(value, SCALE);
+        return scale == SCALE ? decimal : decimal.setScale(scale, RoundingMode.HALF_UP);
+    }
+
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    /**
+     * Valor × quantidade (exato)
+     */
+    public static long times(long value, long quantity) {
+        return Math.multiplyExact(value, quantity);
+    }
+
+    /**
+     * Divisão inteira com arredondamento HALF_UP
+     */
+    public static long divideHalfUp(long dividend, long divisor) {
+        if (divisor == 0) {
+            throw new ArithmeticException("Divisão por zero");
+        }
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder != 0) {
+            long absRemainder = Math.abs(remainder);
+            long absDivisor = Math.abs(divisor);
+            // |resto| >= |divisor| / 2, sem estourar ao dobrar o resto
+            if (absRemainder >= absDivisor - absRemainder) {
+                quotient += (dividend < 0) == (divisor < 0) ? 1 : -1;
+            }
+        }
+        return quotient;
+    }
+
+    /**
+     * numerator / denominator com {@code scale} casas (HALF_UP), como unscaled value na escala informada
+     */
+    public static long ratio(long numerator, long denominator, int scale) {
+        return divideHalfUp(Math.multiplyExact(numerator, POWERS_OF_TEN[scale]), denominator);
+    }
+
+    /**
+     * Percentual (numerator / denominator × 100) equivalente a
+     * {@code numerator.divide(denominator, scale, HALF_UP).multiply(100)}
+     */
+    public static BigDecimal percentage(long numerator, long denominator, int scale) {
+        return BigDecimal.valueOf(Math.multiplyExact(ratio(numerator, denominator, scale), PERCENT), scale);
+    }
+
+    /**
+     * Escala do resultado de soma/subtração/multiplicação por inteiro em BigDecimal
+     */
+    public static int resultScale(BigDecimal a, BigDecimal b) {
+        return Math.max(a.scale(), b.scale());
+    }
+}
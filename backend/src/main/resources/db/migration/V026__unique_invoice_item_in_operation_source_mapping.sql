@@ -0,0 +1,21 @@
+-- Migration para processamento idempotente por item de invoice
+-- Criada em: 2025-07-20
+-- Objetivo: Cada invoice item gera no máximo uma operação; o mapeamento funciona como reserva (claim)
+
+-- Remover mapeamentos duplicados do mesmo item, mantendo o mais antigo
+DELETE FROM operation_source_mapping osm
+USING operation_source_mapping older
+WHERE osm.invoice_item_id = older.invoice_item_id
+  AND (osm.created_at > older.created_at
+       OR (osm.created_at = older.created_at AND osm.id > older.id));
+
+-- Item reservado ainda sem operação vinculada
+ALTER TABLE operation_source_mapping ALTER COLUMN operation_id DROP NOT NULL;
+
+-- Constraint de idempotência: um mapeamento por invoice item
+CREATE UNIQUE INDEX idx_operation_source_mapping_invoice_item_unique 
+ON operation_source_mapping(invoice_item_id);
+
+-- Comentários
+COMMENT ON COLUMN operation_source_mapping.operation_id IS 'Operação gerada; nulo enquanto o item está reservado (CLAIMED)';
+COMMENT ON COLUMN operation_source_mapping.mapping_type IS 'Tipo: CLAIMED, NEW_OPERATION, EXISTING_OPERATION_EXIT, DAY_TRADE_ENTRY, DAY_TRADE_EXIT';
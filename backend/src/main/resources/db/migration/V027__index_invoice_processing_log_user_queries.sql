@@ -0,0 +1,9 @@
+-- Migration para índices compostos das consultas por usuário
+-- Criada em: 2025-07-21
+-- Objetivo: Histórico paginado, logs ativos e estatísticas agregadas sem varrer todos os logs
+
+CREATE INDEX IF NOT EXISTS idx_invoice_processing_log_user_created_at
+    ON invoice_processing_log(user_id, created_at DESC);
+
+CREATE INDEX IF NOT EXISTS idx_invoice_processing_log_user_status
+    ON invoice_processing_log(user_id, status);
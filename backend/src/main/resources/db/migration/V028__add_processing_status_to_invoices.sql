@@ -0,0 +1,24 @@
+-- Migration para status de processamento denormalizado nas invoices
+-- Criada em: 2025-07-21
+-- Objetivo: Filtros das abas e contadores de invoices sem subconsultas EXISTS em invoice_processing_log
+
+ALTER TABLE invoices ADD COLUMN IF NOT EXISTS processing_status VARCHAR(50) NOT NULL DEFAULT 'PENDING';
+ALTER TABLE invoices ADD COLUMN IF NOT EXISTS last_processed_at TIMESTAMP WITHOUT TIME ZONE;
+
+-- Se o ddl-auto criou a coluna antes (nula, sem default), o ADD COLUMN acima não faz nada
+UPDATE invoices SET processing_status = 'PENDING' WHERE processing_status IS NULL;
+
+-- Preencher a partir do log existente (um log por invoice)
+UPDATE invoices i
+SET processing_status = ipl.status,
+    last_processed_at = COALESCE(ipl.completed_at, ipl.started_at)
+FROM invoice_processing_log ipl
+WHERE ipl.invoice_id = i.id;
+
+ALTER TABLE invoices ALTER COLUMN processing_status SET DEFAULT 'PENDING', ALTER COLUMN processing_status SET NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_invoices_user_processing_status_trading_date
+    ON invoices(user_id, processing_status, trading_date);
+
+COMMENT ON COLUMN invoices.processing_status IS 'Espelho do status em invoice_processing_log: PENDING, PROCESSING, SUCCESS, PARTIAL_SUCCESS, ERROR, CANCELLED';
+COMMENT ON COLUMN invoices.last_processed_at IS 'Início ou conclusão do último processamento';
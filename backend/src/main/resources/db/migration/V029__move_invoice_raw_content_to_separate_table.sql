@@ -0,0 +1,22 @@
+-- Migration para texto bruto das invoices em tabela separada
+-- Criada em: 2025-07-21
+-- Objetivo: Tirar o TEXT do PDF da tabela invoices (listagens não leem mais o conteúdo) e permitir compactação
+
+CREATE TABLE IF NOT EXISTS invoice_raw_contents (
+    invoice_id UUID PRIMARY KEY REFERENCES invoices(id) ON DELETE CASCADE,
+    content BYTEA NOT NULL,
+    compressed BOOLEAN NOT NULL DEFAULT FALSE,
+    original_length INTEGER,
+    created_at TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Conteúdo existente migra sem compactação (lido normalmente pelo serviço)
+INSERT INTO invoice_raw_contents (invoice_id, content, compressed, original_length)
+SELECT id, convert_to(raw_content, 'UTF8'), FALSE, octet_length(raw_content)
+FROM invoices
+WHERE raw_content IS NOT NULL
+ON CONFLICT (invoice_id) DO NOTHING;
+
+ALTER TABLE invoices DROP COLUMN IF EXISTS raw_content;
+
+COMMENT ON TABLE invoice_raw_contents IS 'Texto bruto extraído do PDF das invoices (GZIP quando compressed = true)';
@@ -0,0 +1,16 @@
+-- Migration para versionamento otimista de posições, lotes e grupos
+-- Criada em: 2025-07-21
+-- Objetivo: Detectar entradas/saídas concorrentes que leem e regravam remaining_quantity da mesma posição
+
+ALTER TABLE position ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE entry_lot ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE average_operation_group ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+-- Se o ddl-auto criou a coluna antes (nula, sem default), o ADD COLUMN acima não faz nada
+UPDATE position SET version = 0 WHERE version IS NULL;
+UPDATE entry_lot SET version = 0 WHERE version IS NULL;
+UPDATE average_operation_group SET version = 0 WHERE version IS NULL;
+
+ALTER TABLE position ALTER COLUMN version SET DEFAULT 0, ALTER COLUMN version SET NOT NULL;
+ALTER TABLE entry_lot ALTER COLUMN version SET DEFAULT 0, ALTER COLUMN version SET NOT NULL;
+ALTER TABLE average_operation_group ALTER COLUMN version SET DEFAULT 0, ALTER COLUMN version SET NOT NULL;
@@ -0,0 +1,70 @@
+package com.olisystem.optionsmanager.service.invoice;
+
+import com.olisystem.optionsmanager.config.invoice.InvoiceConfigurationProperties;
+import com.olisystem.optionsmanager.model.invoice.InvoiceRawContent;
+import com.olisystem.optionsmanager.repository.InvoiceRawContentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testes unitários para InvoiceRawContentService
+ */
+class InvoiceRawContentServiceTest {
+
+    private InvoiceRawContentRepository rawContentRepository;
+    private InvoiceConfigurationProperties properties;
+    private InvoiceRawContentService service;
+
+    @BeforeEach
+    void setUp() {
+        rawContentRepository = mock(InvoiceRawContentRepository.class);
+        properties = new InvoiceConfigurationProperties();
+        service = new InvoiceRawContentService(rawContentRepository, properties);
+    }
+
+    @Test
+    @DisplayName("Deve salvar o texto compactado e devolvê-lo íntegro na leitura")
+    void testStoreCompressedAndReadBack() {
+        // Explicação: Texto repetitivo de nota (com acentos) fica menor em GZIP e é reconstituído sem perdas.
+        UUID invoiceId = UUID.randomUUID();
+        String text = "NOTA DE NEGOCIAÇÃO - C OPCAO DE COMPRA PETRE300 100 1,25\n".repeat(200);
+
+        service.store(invoiceId, text);
+
+        ArgumentCaptor<InvoiceRawContent> captor = ArgumentCaptor.forClass(InvoiceRawContent.class);
+        verify(rawContentRepository).save(captor.capture());
+        InvoiceRawContent saved = captor.getValue();
+        assertTrue(saved.isCompressed());
+        assertTrue(saved.getContent().length < saved.getOriginalLength() / 10);
+
+        when(rawContentRepository.findById(invoiceId)).thenReturn(Optional.of(saved));
+        assertEquals(text, service.findText(invoiceId).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Deve ler conteúdo não compactado (migrado) e ignorar texto vazio")
+    void testUncompressedAndEmpty() {
+        // Explicação: Linhas migradas da coluna antiga têm compressed = false; texto vazio não gera registro.
+        UUID invoiceId = UUID.randomUUID();
+        properties.getFileConfig().setCompressContent(false);
+
+        service.store(invoiceId, "");
+        verify(rawContentRepository, never()).save(any());
+
+        service.store(invoiceId, "texto simples");
+        ArgumentCaptor<InvoiceRawContent> captor = ArgumentCaptor.forClass(InvoiceRawContent.class);
+        verify(rawContentRepository).save(captor.capture());
+        assertFalse(captor.getValue().isCompressed());
+
+        when(rawContentRepository.findById(invoiceId)).thenReturn(Optional.of(captor.getValue()));
+        assertEquals("texto simples", service.findText(invoiceId).orElseThrow());
+    }
+}
@@ -0,0 +1,125 @@
+package com.olisystem.optionsmanager.service.invoice.archive;
+
+import com.olisystem.optionsmanager.config.invoice.InvoiceConfigurationProperties;
+import com.olisystem.optionsmanager.dto.invoice.InvoiceImportResponse;
+import com.olisystem.optionsmanager.model.auth.User;
+import com.olisystem.optionsmanager.service.invoice.InvoiceImportService;
+import com.olisystem.optionsmanager.service.invoice.parser.BrokerageTextDetector;
+import com.olisystem.optionsmanager.service.invoice.parser.PdfTextExtractor;
+import com.olisystem.optionsmanager.service.invoice.processing.ProcessingProgressService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testes unitários para InvoiceArchiveImportService
+ */
+class InvoiceArchiveImportServiceTest {
+
+    private InvoiceImportService invoiceImportService;
+    private PdfTextExtractor pdfTextExtractor;
+    private ProcessingProgressService progressService;
+    private InvoiceArchiveImportService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        invoiceImportService = mock(InvoiceImportService.class);
+        pdfTextExtractor = mock(PdfTextExtractor.class);
+        progressService = mock(ProcessingProgressService.class);
+
+        // O "PDF" de teste já é o próprio texto
+        when(pdfTextExtractor.extractText(any(InputStream.class)))
+            .thenAnswer(invocation -> new String(((InputStream) invocation.getArgument(0)).readAllBytes(),
+                                                 StandardCharsets.UTF_8));
+        when(invoiceImportService.processSingleFile(any(), any(), any()))
+            .thenAnswer(invocation -> new InvoiceImportResponse.ImportResult(
+                "nota.pdf", InvoiceImportResponse.ImportStatus.SUCCESS, "Importado com sucesso", UUID.randomUUID(), null));
+        when(invoiceImportService.isFileAlreadyImported(PdfTextExtractor.hashText("nota antiga")))
+            .thenReturn(true);
+
+        service = new InvoiceArchiveImportService(invoiceImportService, pdfTextExtractor,
+            mock(BrokerageTextDetector.class), progressService, new InvoiceConfigurationProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    @DisplayName("Deve importar apenas PDFs do ZIP, descartando duplicatas do banco e do próprio arquivo")
+    void testImportArchiveDeduplicates() throws IOException {
+        // Explicação: Entradas que não são PDF são ignoradas; texto repetido no ZIP e nota já importada viram DUPLICATE.
+        byte[] archive = zip(
+            "2023/nota-1.pdf", "nota 1",
+            "2023/nota-1-copia.pdf", "nota 1",
+            "2023/nota-2.pdf", "nota 2",
+            "2022/nota-antiga.pdf", "nota antiga",
+            "leia-me.txt", "ignorar",
+            "__MACOSX/2023/._nota-1.pdf", "ignorar");
+
+        InvoiceImportResponse response = service.importArchive(
+            new ByteArrayInputStream(archive), "notas.zip", UUID.randomUUID(), new User(), "sessao-1");
+
+        assertEquals(4, response.totalFilesProcessed());
+        assertEquals(2, response.successfulImports());
+        assertEquals(2, response.duplicateFiles());
+        assertEquals(0, response.failedImports());
+        verify(invoiceImportService, times(2)).processSingleFile(any(), any(), any());
+        verify(progressService, times(4)).emitCompleted(eq("sessao-1"), any(), anyString(), anyInt(), anyInt());
+        verify(progressService).emitFinished(eq("sessao-1"), any(), eq("notas.zip"), eq(2));
+    }
+
+    @Test
+    @DisplayName("Deve recusar entradas acima do tamanho máximo sem interromper o ZIP")
+    void testOversizedEntryIsReportedAsError() throws IOException {
+        // Explicação: A leitura da entrada é limitada ao tamanho máximo de arquivo; as demais seguem normalmente.
+        InvoiceConfigurationProperties properties = new InvoiceConfigurationProperties();
+        properties.getFileConfig().setMaxFileSizeBytes(10);
+        service.shutdown();
+        service = new InvoiceArchiveImportService(invoiceImportService, pdfTextExtractor,
+            mock(BrokerageTextDetector.class), progressService, properties);
+
+        byte[] archive = zip(
+            "grande.pdf", "conteúdo acima do limite",
+            "pequena.pdf", "nota 3");
+
+        InvoiceImportResponse response = service.importArchive(
+            new ByteArrayInputStream(archive), "notas.zip", UUID.randomUUID(), new User(), "sessao-2");
+
+        assertEquals(2, response.totalFilesProcessed());
+        assertEquals(1, response.successfulImports());
+        assertEquals(1, response.failedImports());
+        assertTrue(response.results().get(0).isError());
+        verify(progressService).emitError(eq("sessao-2"), any(), eq("grande.pdf"), anyString());
+    }
+
+    private static byte[] zip(String... namesAndContents) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zip.putNextEntry(new ZipEntry(namesAndContents[i]));
+                zip.write(namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return out.toByteArray();
+    }
+}
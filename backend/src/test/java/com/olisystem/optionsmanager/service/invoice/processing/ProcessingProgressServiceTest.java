@@ -0,0 +1,94 @@
+package com.olisystem.optionsmanager.service.invoice.processing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.olisystem.optionsmanager.dto.invoice.ProcessingProgressEvent.ProgressEventType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes unitários para o barramento de progresso do ProcessingProgressService
+ */
+class ProcessingProgressServiceTest {
+
+    private ProcessingProgressService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ProcessingProgressService(new ObjectMapper(), new InMemoryProgressTransport());
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    @DisplayName("Assinante tardio deve receber os eventos emitidos antes da conexão")
+    void testLateSubscriberReplaysBufferedEvents() throws InterruptedException {
+        // Explicação: substitui o Thread.sleep do controller - nada se perde antes do SSE conectar.
+        service.emitStarted("s1", "inv", "NOTA-1", 2);
+        service.emitCompleted("s1", "inv", "NOTA-1", 1, 2);
+
+        List<SequencedProgressEvent> received = new CopyOnWriteArrayList<>();
+        service.registerProgressCallback("s1", 0L, received::add);
+        service.emitFinished("s1", "inv", "NOTA-1", 2);
+
+        awaitSize(received, 3);
+        assertEquals(List.of(ProgressEventType.STARTED, ProgressEventType.COMPLETED, ProgressEventType.FINISHED),
+            received.stream().map(e -> e.event().getType()).toList());
+        assertEquals(List.of(1L, 2L, 3L), received.stream().map(SequencedProgressEvent::id).toList());
+    }
+
+    @Test
+    @DisplayName("Reconexão com Last-Event-ID deve receber apenas eventos posteriores")
+    void testReplayFromLastEventId() throws InterruptedException {
+        // Explicação: o navegador reenvia o último ID recebido; os eventos anteriores não são duplicados.
+        service.emitStarted("s2", "inv", "NOTA-2", 1);
+        service.emitCompleted("s2", "inv", "NOTA-2", 1, 1);
+        service.emitFinished("s2", "inv", "NOTA-2", 1);
+
+        List<SequencedProgressEvent> received = new CopyOnWriteArrayList<>();
+        service.registerProgressCallback("s2", 2L, received::add);
+
+        awaitSize(received, 1);
+        Thread.sleep(100);
+        assertEquals(1, received.size());
+        assertEquals(ProgressEventType.FINISHED, received.get(0).event().getType());
+    }
+
+    @Test
+    @DisplayName("Eventos PROCESSING de alta frequência devem ser coalescidos")
+    void testProcessingEventsAreCoalesced() throws InterruptedException {
+        // Explicação: mil atualizações seguidas viram um evento com o valor mais recente.
+        List<SequencedProgressEvent> received = new CopyOnWriteArrayList<>();
+        service.registerProgressCallback("s3", 0L, received::add);
+
+        for (int i = 1; i <= 1000; i++) {
+            service.emitProcessing("s3", "inv", "NOTA-3", i, 1000);
+        }
+        service.emitFinished("s3", "inv", "NOTA-3", 1000);
+
+        awaitSize(received, 2);
+        Thread.sleep(100);
+        // Um flush periódico pode cair no meio do laço, publicando no máximo um evento intermediário
+        int size = received.size();
+        assertTrue(size <= 3, "Esperados no máximo 3 eventos, recebidos " + size);
+        assertEquals(1000, received.get(size - 2).event().getCurrent());
+        assertEquals(ProgressEventType.FINISHED, received.get(size - 1).event().getType());
+    }
+
+    private void awaitSize(List<?> list, int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (list.size() < size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(list.size() >= size, "Esperados " + size + " eventos, recebidos " + list.size());
+    }
+}
@@ -0,0 +1,74 @@
+package com.olisystem.optionsmanager.service.invoice.processing.detection;
+
+import com.olisystem.optionsmanager.model.invoice.InvoiceItem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes unitários para FillNettingService
+ */
+class FillNettingServiceTest {
+
+    private FillNettingService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new FillNettingService();
+    }
+
+    @Test
+    @DisplayName("Deve agrupar execuções parciais do mesmo lado em preço médio ponderado")
+    void testNetsSameSideFillsIntoWeightedAverage() {
+        // Explicação: 100 @ 1,00 + 300 @ 1,20 = 400 @ 1,15, mantendo os dois itens como origem.
+        InvoiceItem first = item(1, "PETRE100", "C", 100, "1.00");
+        InvoiceItem second = item(2, "PETRE100", "C", 300, "1.20");
+        InvoiceItem sell = item(3, "PETRE100", "V", 400, "1.50");
+
+        List<NettedFill> fills = service.netFills(List.of(first, second, sell));
+
+        assertEquals(2, fills.size());
+        NettedFill buy = fills.get(0);
+        assertTrue(buy.isNetted());
+        assertEquals(List.of(first, second), buy.getSourceItems());
+        assertEquals(400, buy.getQuantity());
+        assertEquals(0, new BigDecimal("1.15").compareTo(buy.getUnitPrice()));
+        assertEquals(0, new BigDecimal("460.00").compareTo(buy.getTotalValue()));
+        assertFalse(fills.get(1).isNetted());
+    }
+
+    @Test
+    @DisplayName("Deve preservar a sequência entrada → saída → reentrada da mesma série")
+    void testOppositeSideBreaksGroup() {
+        // Explicação: a compra após a venda abre nova posição e não pode ser somada à primeira compra.
+        List<NettedFill> fills = service.netFills(List.of(
+            item(1, "VALEF550", "C", 100, "2.00"),
+            item(2, "BBASG300", "C", 100, "0.50"),
+            item(3, "VALEF550", "V", 100, "2.10"),
+            item(4, "VALEF550", "C", 200, "1.90"),
+            item(5, "BBASG300", "C", 100, "0.70")));
+
+        assertEquals(List.of("1", "2+5", "3", "4"),
+            fills.stream().map(NettedFill::getSequenceLabel).toList());
+        assertEquals(0, new BigDecimal("0.60").compareTo(fills.get(1).getUnitPrice()));
+    }
+
+    private InvoiceItem item(int sequence, String assetCode, String side, int quantity, String price) {
+        InvoiceItem item = new InvoiceItem();
+        item.setId(UUID.randomUUID());
+        item.setSequenceNumber(sequence);
+        item.setAssetCode(assetCode);
+        item.setOperationType(side);
+        item.setMarketType("OPCAO DE COMPRA");
+        item.setQuantity(quantity);
+        item.setUnitPrice(new BigDecimal(price));
+        item.setTotalValue(item.getUnitPrice().multiply(BigDecimal.valueOf(quantity)));
+        return item;
+    }
+}
@@ -0,0 +1,56 @@
+package com.olisystem.optionsmanager.service.invoice.processing.estimate;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes unitários para ProcessingTimeModel
+ */
+class ProcessingTimeModelTest {
+
+    @Test
+    @DisplayName("Deve recuperar os custos por tipo de item a partir do histórico")
+    void testFitRecoversCostsFromHistory() {
+        // Explicação: Amostras geradas com base=400ms, opção=900ms e outros=250ms (com ruído) devem reproduzir os coeficientes.
+        Random random = new Random(11);
+        List<ProcessingTimeModel.Sample> samples = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            long options = random.nextInt(20);
+            long others = random.nextInt(10);
+            long duration = 400 + 900 * options + 250 * others + random.nextInt(101) - 50;
+            samples.add(new ProcessingTimeModel.Sample(duration, options, others));
+        }
+
+        ProcessingTimeModel model = ProcessingTimeModel.fit(samples);
+
+        assertTrue(model.isFitted());
+        assertEquals(400, model.getBaseMs(), 30);
+        assertEquals(900, model.getMsPerOptionItem(), 5);
+        assertEquals(250, model.getMsPerOtherItem(), 5);
+        assertEquals(400 + 900 * 3 + 250 * 2, model.estimateMs(3, 2), 40);
+    }
+
+    @Test
+    @DisplayName("Deve usar valores padrão com poucas amostras e custo único sem variação de composição")
+    void testFallbacks() {
+        // Explicação: Sem histórico suficiente mantém a estimativa antiga; só opções no histórico ajusta um custo por item.
+        assertFalse(ProcessingTimeModel.fit(List.of(new ProcessingTimeModel.Sample(1000, 1, 0))).isFitted());
+        assertEquals(1000 + 800 * 2 + 500, ProcessingTimeModel.defaults().estimateMs(2, 1));
+
+        List<ProcessingTimeModel.Sample> optionsOnly = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            optionsOnly.add(new ProcessingTimeModel.Sample(200 + 700L * i, i, 0));
+        }
+        ProcessingTimeModel model = ProcessingTimeModel.fit(optionsOnly);
+
+        assertTrue(model.isFitted());
+        assertEquals(700, model.getMsPerOptionItem(), 1);
+        assertEquals(model.getMsPerOptionItem(), model.getMsPerOtherItem());
+    }
+}
@@ -0,0 +1,66 @@
+package com.olisystem.optionsmanager.service.invoice.processing.metrics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes unitários para PipelineMetrics
+ */
+class PipelineMetricsTest {
+
+    private PipelineMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new PipelineMetrics();
+    }
+
+    @Test
+    @DisplayName("Deve contabilizar medições por etapa e corretora e exportar histograma Prometheus")
+    void testRecordAndExport() {
+        // Explicação: Duas medições da BTG (uma com falha) e uma da Toro geram séries separadas com buckets cumulativos.
+        metrics.record(PipelineStage.PARSING, "BTG", 2_000_000, true);
+        metrics.record(PipelineStage.PARSING, "BTG", 300_000_000, false);
+        metrics.record(PipelineStage.PARSING, "Toro", 500_000, true);
+
+        List<StageMetricsSnapshot> snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.size());
+        StageMetricsSnapshot btg = snapshot.get(0);
+        assertEquals("BTG", btg.getBrokerage());
+        assertEquals(2, btg.getCount());
+        assertEquals(1, btg.getErrorCount());
+        assertEquals(300.0, btg.getMaxMs(), 0.001);
+
+        String text = metrics.toPrometheus();
+        assertTrue(text.contains("invoice_pipeline_stage_seconds_bucket{stage=\"parsing\",brokerage=\"BTG\",le=\"0.005\"} 1"));
+        assertTrue(text.contains("invoice_pipeline_stage_seconds_bucket{stage=\"parsing\",brokerage=\"BTG\",le=\"0.5\"} 2"));
+        assertTrue(text.contains("invoice_pipeline_stage_seconds_count{stage=\"parsing\",brokerage=\"Toro\"} 1"));
+        assertTrue(text.contains("invoice_pipeline_stage_errors_total{stage=\"parsing\",brokerage=\"BTG\"} 1"));
+    }
+
+    @Test
+    @DisplayName("Deve somar o tempo por etapa da sessão aberta na thread e usar a corretora corrente")
+    void testSessionScope() {
+        // Explicação: Medições feitas com a sessão aberta entram no resultado da execução; após fechar, não entram mais.
+        PipelineMetrics.SessionScope scope = metrics.openSession();
+        metrics.setCurrentBrokerage("Clear");
+        metrics.record(PipelineStage.LOG_WRITE, metrics.currentBrokerage(), 4_000_000, true);
+        metrics.record(PipelineStage.LOG_WRITE, metrics.currentBrokerage(), 6_000_000, true);
+        String value = metrics.time(PipelineStage.SERIES_LOOKUP_LOCAL, () -> "ok");
+        scope.close();
+        metrics.record(PipelineStage.LOG_WRITE, metrics.currentBrokerage(), 50_000_000, true);
+
+        assertEquals("ok", value);
+        Map<String, Long> durations = scope.getDurationsMs();
+        assertEquals(10L, durations.get("log_write"));
+        assertTrue(durations.containsKey("series_lookup_local"));
+        assertEquals("unknown", metrics.currentBrokerage());
+        assertEquals("Clear", metrics.snapshot().get(0).getBrokerage());
+    }
+}
@@ -0,0 +1,73 @@
+package com.olisystem.optionsmanager.service.invoice.processing.session;
+
+import com.olisystem.optionsmanager.service.invoice.processing.ProcessingResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes unitários para ProcessingSessionRegistry
+ */
+class ProcessingSessionRegistryTest {
+
+    private ProcessingSessionRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new ProcessingSessionRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    @DisplayName("Deve remover sessões concluídas e ociosas após o TTL")
+    void testEvictsCompletedAndIdleSessions() {
+        // Explicação: Sessões em andamento com atividade recente permanecem; as demais são descartadas.
+        ProcessingSession completed = registry.create(1);
+        completed.complete(ProcessingResult.builder().build(), Map.of("success", true));
+        ProcessingSession running = registry.create(2);
+
+        long now = System.currentTimeMillis();
+        assertEquals(0, registry.evictExpiredSessions(now));
+
+        long afterCompletedTtl = now + ProcessingSessionRegistry.COMPLETED_SESSION_TTL_MS + 1;
+        assertEquals(1, registry.evictExpiredSessions(afterCompletedTtl));
+        assertTrue(registry.find(completed.getSessionId()).isEmpty());
+        assertTrue(registry.find(running.getSessionId()).isPresent());
+
+        long afterIdleTtl = now + ProcessingSessionRegistry.IDLE_SESSION_TTL_MS + 1;
+        assertEquals(1, registry.evictExpiredSessions(afterIdleTtl));
+
+        ProcessingSessionMetrics metrics = registry.getMetrics();
+        assertEquals(0, metrics.getActiveSessions());
+        assertEquals(2, metrics.getTotalCreated());
+        assertEquals(2, metrics.getTotalEvicted());
+    }
+
+    @Test
+    @DisplayName("Deve manter apenas as mensagens mais recentes da sessão")
+    void testMessageHistoryIsBounded() {
+        // Explicação: O histórico não cresce além do limite, descartando as mensagens mais antigas.
+        ProcessingSession session = registry.create(1);
+        int total = ProcessingSessionRegistry.MAX_RETAINED_MESSAGES + 50;
+
+        for (int i = 0; i < total; i++) {
+            session.addMessage("mensagem " + i);
+        }
+
+        List<String> messages = session.getMessages();
+        assertEquals(ProcessingSessionRegistry.MAX_RETAINED_MESSAGES, messages.size());
+        assertTrue(messages.get(0).endsWith("mensagem 50"));
+        assertTrue(messages.get(messages.size() - 1).endsWith("mensagem " + (total - 1)));
+        assertEquals(50, session.getDroppedMessages());
+    }
+}
@@ -0,0 +1,187 @@
+package com.olisystem.optionsmanager.service.invoice.processing.validation;
+
+import com.olisystem.optionsmanager.model.invoice.Invoice;
+import com.olisystem.optionsmanager.model.invoice.InvoiceItem;
+import com.olisystem.optionsmanager.repository.InvoiceItemRepository;
+import com.olisystem.optionsmanager.repository.OperationSourceMappingRepository;
+import com.olisystem.optionsmanager.service.invoice.processing.context.InvoiceBatchContext;
+import com.olisystem.optionsmanager.service.invoice.processing.metrics.PipelineMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testes unitários para DuplicateDetectionService
+ * Compara a detecção por ordenação com a comparação par a par original
+ * e garante que lotes sintéticos maiores não caem no caminho quadrático.
+ */
+class DuplicateDetectionServiceTest {
+
+    private static final BigDecimal THRESHOLD = BigDecimal.valueOf(0.01);
+    private static final String[] ASSETS = {"PETRE100", "VALEF550", "BBASG300", "ITUBH250", "BOVAJ120"};
+
+    private InvoiceItemRepository invoiceItemRepository;
+    private OperationSourceMappingRepository sourceMappingRepository;
+    private DuplicateDetectionService service;
+
+    @BeforeEach
+    void setUp() {
+        invoiceItemRepository = mock(InvoiceItemRepository.class);
+        sourceMappingRepository = mock(OperationSourceMappingRepository.class);
+        service = new DuplicateDetectionService(invoiceItemRepository, sourceMappingRepository, new PipelineMetrics());
+    }
+
+    @Test
+    @DisplayName("Deve reportar as mesmas duplicatas que a comparação par a par")
+    void testSameDuplicatesAsPairwiseComparison() {
+        // Explicação: Garante que a varredura ordenada encontra exatamente os mesmos itens que o algoritmo O(n²).
+        Random random = new Random(42);
+        SyntheticBatch batch = createBatch(random, 400, 5, 400);
+        Set<UUID> processedIds = pickProcessed(batch.items, random, 20);
+
+        when(sourceMappingRepository.findMappedInvoiceItemIdsByInvoiceIds(anyCollection()))
+            .thenReturn(new ArrayList<>(processedIds));
+
+        var result = service.detectDuplicates(batch.context);
+
+        Set<UUID> expected = pairwiseReference(batch.items, processedIds);
+        Set<UUID> actual = result.getDuplicateItems().keySet().stream()
+            .map(InvoiceItem::getId)
+            .collect(Collectors.toSet());
+
+        assertFalse(result.hasErrors());
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    @DisplayName("Deve buscar itens já processados com uma única consulta por lote")
+    void testProcessedItemsUseSingleQuery() {
+        // Explicação: Garante que o número de consultas não cresce com o número de itens.
+        SyntheticBatch batch = createBatch(new Random(7), 50, 20, 30);
+        InvoiceItem processed = batch.items.get(0);
+
+        when(sourceMappingRepository.findMappedInvoiceItemIdsByInvoiceIds(anyCollection()))
+            .thenReturn(List.of(processed.getId()));
+
+        var result = service.detectDuplicates(batch.context);
+
+        assertTrue(result.getDuplicateItems().containsKey(processed));
+        verify(sourceMappingRepository, times(1)).findMappedInvoiceItemIdsByInvoiceIds(anyCollection());
+        verify(sourceMappingRepository, never()).findByInvoiceItem(any());
+        verifyNoInteractions(invoiceItemRepository);
+    }
+
+    @Test
+    @DisplayName("Lote sintético maior deve ser analisado em tempo sub-quadrático")
+    void testLargerSyntheticBatchIsSubQuadratic() {
+        // Explicação: 20 mil itens em poucos grupos já levariam centenas de milhões de comparações no algoritmo par a par.
+        SyntheticBatch batch = createBatch(new Random(2025), 20, 1000, 20);
+        when(sourceMappingRepository.findMappedInvoiceItemIdsByInvoiceIds(anyCollection()))
+            .thenReturn(List.of());
+
+        var result = assertTimeoutPreemptively(Duration.ofSeconds(5),
+            () -> service.detectDuplicates(batch.context));
+
+        assertFalse(result.hasErrors());
+        assertTrue(result.hasDuplicates());
+        verify(sourceMappingRepository, times(1)).findMappedInvoiceItemIdsByInvoiceIds(anyCollection());
+    }
+
+    // === MÉTODOS AUXILIARES ===
+
+    private record SyntheticBatch(InvoiceBatchContext context, List<InvoiceItem> items) {}
+
+    /**
+     * Cria um lote sintético; os itens não são adicionados a invoice.getItems()
+     * para evitar recursão no hashCode gerado pelo Lombok
+     */
+    private SyntheticBatch createBatch(Random random, int invoiceCount, int itemsPerInvoice, int distinctDays) {
+        List<Invoice> invoices = new ArrayList<>();
+        Map<UUID, List<InvoiceItem>> itemsByInvoice = new HashMap<>();
+        List<InvoiceItem> allItems = new ArrayList<>();
+        LocalDate baseDate = LocalDate.of(2024, 1, 2);
+
+        for (int i = 0; i < invoiceCount; i++) {
+            Invoice invoice = new Invoice();
+            invoice.setId(UUID.randomUUID());
+            invoice.setInvoiceNumber("NOTA_" + i);
+            invoice.setTradingDate(baseDate.plusDays(random.nextInt(distinctDays)));
+            invoices.add(invoice);
+
+            List<InvoiceItem> items = new ArrayList<>();
+            for (int j = 0; j < itemsPerInvoice; j++) {
+                InvoiceItem item = new InvoiceItem();
+                item.setId(UUID.randomUUID());
+                item.setInvoice(invoice);
+                item.setSequenceNumber(j + 1);
+                item.setAssetCode(ASSETS[random.nextInt(ASSETS.length)]);
+                item.setOperationType(random.nextBoolean() ? "C" : "V");
+                item.setQuantity(100 * (1 + random.nextInt(10)));
+                // Preços com 4 casas para gerar casos próximos ao limiar de 1 centavo
+                item.setUnitPrice(BigDecimal.valueOf(10_000 + random.nextInt(200_000), 4));
+                item.setTotalValue(item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+                items.add(item);
+            }
+            itemsByInvoice.put(invoice.getId(), items);
+            allItems.addAll(items);
+        }
+
+        InvoiceBatchContext context = InvoiceBatchContext.of(invoices, itemsByInvoice::get);
+        return new SyntheticBatch(context, allItems);
+    }
+
+    private Set<UUID> pickProcessed(List<InvoiceItem> items, Random random, int count) {
+        Set<UUID> ids = new HashSet<>();
+        while (ids.size() < count) {
+            ids.add(items.get(random.nextInt(items.size())).getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Implementação de referência com a comparação par a par original
+     */
+    private Set<UUID> pairwiseReference(List<InvoiceItem> items, Set<UUID> processedIds) {
+        Set<UUID> duplicates = new HashSet<>();
+
+        for (InvoiceItem item : items) {
+            if (processedIds.contains(item.getId())) {
+                duplicates.add(item.getId());
+            }
+        }
+
+        for (int i = 0; i < items.size(); i++) {
+            for (int j = i + 1; j < items.size(); j++) {
+                InvoiceItem a = items.get(i);
+                InvoiceItem b = items.get(j);
+                boolean sameGroup = a.getAssetCode().equals(b.getAssetCode())
+                    && a.getOperationType().equals(b.getOperationType());
+                if (sameGroup && a.getUnitPrice().subtract(b.getUnitPrice()).abs().compareTo(THRESHOLD) <= 0) {
+                    duplicates.add(a.getId());
+                    duplicates.add(b.getId());
+                }
+            }
+        }
+
+        Map<String, List<InvoiceItem>> byDay = items.stream().collect(Collectors.groupingBy(item ->
+            item.getAssetCode() + "_" + item.getOperationType() + "_" + item.getInvoice().getTradingDate()));
+        byDay.values().stream()
+            .filter(group -> group.size() > 1)
+            .flatMap(List::stream)
+            .forEach(item -> duplicates.add(item.getId()));
+
+        return duplicates;
+    }
+}
@@ -0,0 +1,95 @@
+package com.olisystem.optionsmanager.service.operation.averageOperation;
+
+import com.olisystem.optionsmanager.config.calculation.CalculationProperties;
+import com.olisystem.optionsmanager.model.operation.AverageOperationGroup;
+import com.olisystem.optionsmanager.model.operation.AverageOperationGroupStatus;
+import com.olisystem.optionsmanager.model.operation.AverageOperationItem;
+import com.olisystem.optionsmanager.model.operation.Operation;
+import com.olisystem.optionsmanager.model.operation.OperationRoleType;
+import com.olisystem.optionsmanager.model.position.Position;
+import com.olisystem.optionsmanager.repository.AverageOperationGroupRepository;
+import com.olisystem.optionsmanager.repository.AverageOperationItemRepository;
+import com.olisystem.optionsmanager.repository.OperationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testes unitários para AverageOperationService
+ */
+class AverageOperationServiceTest {
+
+    private AverageOperationItemRepository itemRepository;
+    private CalculationProperties calculationProperties;
+    private AverageOperationService service;
+
+    @BeforeEach
+    void setUp() {
+        itemRepository = mock(AverageOperationItemRepository.class);
+        calculationProperties = new CalculationProperties();
+        service = new AverageOperationService();
+        ReflectionTestUtils.setField(service, "groupRepository", mock(AverageOperationGroupRepository.class));
+        ReflectionTestUtils.setField(service, "itemRepository", itemRepository);
+        ReflectionTestUtils.setField(service, "operationRepository", mock(OperationRepository.class));
+        ReflectionTestUtils.setField(service, "calculationProperties", calculationProperties);
+    }
+
+    @Test
+    @DisplayName("Deve calcular o preço médio de saída em ponto fixo igual ao cálculo em BigDecimal")
+    void testAvgExitPriceFixedPointMatchesBigDecimal() {
+        // Explicação: 2,234565 / 2 = 1,1172825 - empate na 7ª casa arredonda para cima (HALF_UP), não para o par.
+        assertEquals(new BigDecimal("1.117283"), avgExitPriceAfterTotalExit(true, "1.234565", 1, "1.00", 1));
+        assertEquals(new BigDecimal("1.117283"), avgExitPriceAfterTotalExit(false, "1.234565", 1, "1.00", 1));
+
+        // Mesmo valor e escala nos dois caminhos, incluindo o preço com 7 casas que volta para BigDecimal
+        String[][] cases = {
+            {"1.333333", "3", "1.55", "4"},
+            {"0.47", "200", "0.53", "100"},
+            {"12.345678", "7", "0.01", "13"},
+            {"1.25", "1", "1.0000005", "1"}};
+        for (String[] c : cases) {
+            int prevClosed = Integer.parseInt(c[1]);
+            int exitQuantity = Integer.parseInt(c[3]);
+            assertEquals(avgExitPriceAfterTotalExit(false, c[0], prevClosed, c[2], exitQuantity),
+                avgExitPriceAfterTotalExit(true, c[0], prevClosed, c[2], exitQuantity), String.join(" / ", c));
+        }
+    }
+
+    /**
+     * Saída total sobre um grupo que já teve saídas parciais (prevClosed a prevAvg)
+     */
+    private BigDecimal avgExitPriceAfterTotalExit(boolean fixedPoint, String prevAvg, int prevClosed,
+                                                  String exitPrice, int exitQuantity) {
+        calculationProperties.setFixedPointMoney(fixedPoint);
+
+        AverageOperationGroup group = AverageOperationGroup.builder()
+            .id(UUID.randomUUID())
+            .status(AverageOperationGroupStatus.PARTIALLY_CLOSED)
+            .totalQuantity(prevClosed + exitQuantity)
+            .remainingQuantity(exitQuantity)
+            .closedQuantity(prevClosed)
+            .totalProfit(BigDecimal.ZERO)
+            .avgExitPrice(new BigDecimal(prevAvg))
+            .build();
+        Operation original = Operation.builder().id(UUID.randomUUID()).build();
+        when(itemRepository.findByOperation_IdAndRoleType(eq(original.getId()), eq(OperationRoleType.ORIGINAL)))
+            .thenReturn(AverageOperationItem.builder().group(group).operation(original).build());
+
+        Operation exit = Operation.builder().id(UUID.randomUUID()).quantity(exitQuantity)
+            .exitUnitPrice(new BigDecimal(exitPrice)).profitLoss(BigDecimal.ONE).build();
+        Position position = Position.builder().id(UUID.randomUUID()).build();
+
+        AverageOperationGroup result = service.processFullExit(original, exit, null, position);
+        verify(itemRepository, atLeastOnce()).save(any(AverageOperationItem.class));
+        return result.getAvgExitPrice();
+    }
+}
@@ -0,0 +1,135 @@
+package com.olisystem.optionsmanager.service.operation.engine;
+
+import com.olisystem.optionsmanager.config.calculation.CalculationProperties;
+import com.olisystem.optionsmanager.model.operation.TradeType;
+import com.olisystem.optionsmanager.model.position.EntryLot;
+import com.olisystem.optionsmanager.record.consumption.ComplexConsumptionPlan;
+import com.olisystem.optionsmanager.record.consumption.ComplexConsumptionResult;
+import com.olisystem.optionsmanager.record.consumption.LotConsumption;
+import com.olisystem.optionsmanager.service.operation.profit.ProfitCalculationService;
+import com.olisystem.optionsmanager.service.position.PositionCalculator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes de equivalência entre os cálculos em BigDecimal e em ponto fixo
+ */
+class ComplexLotConsumptionEngineTest {
+
+    private static final LocalDate EXIT_DATE = LocalDate.of(2025, 7, 21);
+
+    private PositionCalculator bigDecimalCalculator;
+    private PositionCalculator fixedPointCalculator;
+    private ProfitCalculationService bigDecimalProfit;
+    private ProfitCalculationService fixedPointProfit;
+    private ComplexLotConsumptionEngine bigDecimalEngine;
+    private ComplexLotConsumptionEngine fixedPointEngine;
+
+    @BeforeEach
+    void setUp() {
+        CalculationProperties bigDecimal = new CalculationProperties();
+        CalculationProperties fixedPoint = new CalculationProperties();
+        fixedPoint.setFixedPointMoney(true);
+
+        bigDecimalCalculator = new PositionCalculator(bigDecimal);
+        fixedPointCalculator = new PositionCalculator(fixedPoint);
+        bigDecimalProfit = new ProfitCalculationService(bigDecimalCalculator, bigDecimal);
+        fixedPointProfit = new ProfitCalculationService(fixedPointCalculator, fixedPoint);
+        bigDecimalEngine = new ComplexLotConsumptionEngine(bigDecimalProfit, bigDecimal);
+        fixedPointEngine = new ComplexLotConsumptionEngine(fixedPointProfit, fixedPoint);
+    }
+
+    @Test
+    @DisplayName("Deve produzir exatamente o mesmo resultado de consumo em ponto fixo e em BigDecimal")
+    void testExecuteConsumptionEquivalence() {
+        // Explicação: Planos aleatórios (preços com 2 a 6 casas, day e swing trade) devem gerar valores e escalas idênticos.
+        Random random = new Random(41);
+        for (int round = 0; round < 500; round++) {
+            List<LotConsumption> consumptions = new ArrayList<>();
+            int totalQuantity = 0;
+            int lots = 1 + random.nextInt(6);
+            for (int i = 0; i < lots; i++) {
+                int quantity = 100 * (1 + random.nextInt(50));
+                EntryLot lot = EntryLot.builder()
+                    .entryDate(EXIT_DATE.minusDays(random.nextInt(3)))
+                    .quantity(quantity)
+                    .remainingQuantity(quantity)
+                    .unitPrice(randomPrice(random))
+                    .sequenceNumber(i + 1)
+                    .isFullyConsumed(false)
+                    .build();
+                int toConsume = 1 + random.nextInt(quantity);
+                consumptions.add(new LotConsumption(lot, toConsume, random.nextBoolean() ? TradeType.DAY : TradeType.SWING));
+                totalQuantity += toConsume;
+            }
+            ComplexConsumptionPlan plan = new ComplexConsumptionPlan(consumptions, totalQuantity, EXIT_DATE, "AUTO");
+            BigDecimal exitPrice = random.nextInt(20) == 0 ? BigDecimal.ZERO.setScale(2) : randomPrice(random);
+
+            ComplexConsumptionResult expected = bigDecimalEngine.executeConsumption(plan, exitPrice);
+            ComplexConsumptionResult actual = fixedPointEngine.executeConsumption(plan, exitPrice);
+
+            assertEquals(expected, actual, "rodada " + round);
+        }
+    }
+
+    @Test
+    @DisplayName("Deve produzir exatamente os mesmos P&L, percentuais e preços médios nos calculadores")
+    void testCalculatorEquivalence() {
+        // Explicação: Cobre PositionCalculator (6 casas) e ProfitCalculationService (4 casas), incluindo prejuízos e preços com mais casas.
+        Random random = new Random(7);
+        for (int round = 0; round < 2000; round++) {
+            BigDecimal entry = randomPrice(random);
+            BigDecimal exit = randomPrice(random);
+            int quantity = 1 + random.nextInt(10_000);
+
+            BigDecimal profitLoss = bigDecimalCalculator.calculateProfitLoss(entry, exit, quantity);
+            assertEquals(profitLoss, fixedPointCalculator.calculateProfitLoss(entry, exit, quantity));
+            assertEquals(bigDecimalCalculator.calculateProfitLossPercentage(entry, exit),
+                         fixedPointCalculator.calculateProfitLossPercentage(entry, exit));
+
+            BigDecimal entryTotal = entry.multiply(BigDecimal.valueOf(quantity));
+            assertEquals(bigDecimalProfit.calculateProfitLossPercentage(profitLoss, entryTotal),
+                         fixedPointProfit.calculateProfitLossPercentage(profitLoss, entryTotal));
+            assertEquals(bigDecimalProfit.calculateProfitLossPercentageFromPrices(entry, exit),
+                         fixedPointProfit.calculateProfitLossPercentageFromPrices(entry, exit));
+        }
+
+        List<EntryLot> lots = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            lots.add(EntryLot.builder()
+                .remainingQuantity(random.nextInt(3) == 0 ? 0 : 1 + random.nextInt(1000))
+                .unitPrice(randomPrice(random))
+                .build());
+            assertEquals(bigDecimalCalculator.calculateRemainingAveragePrice(lots),
+                         fixedPointCalculator.calculateRemainingAveragePrice(lots));
+        }
+    }
+
+    @Test
+    @DisplayName("Deve voltar para BigDecimal quando o valor não cabe no ponto fixo")
+    void testFallbackOutsideFixedPointRange() {
+        // Explicação: Preço com 8 casas significativas não é representável; o resultado continua exato.
+        BigDecimal entry = new BigDecimal("1.12345678");
+        BigDecimal exit = new BigDecimal("2.5");
+
+        assertEquals(bigDecimalCalculator.calculateProfitLoss(entry, exit, 300),
+                     fixedPointCalculator.calculateProfitLoss(entry, exit, 300));
+        assertEquals(bigDecimalCalculator.calculateProfitLossPercentage(entry, exit),
+                     fixedPointCalculator.calculateProfitLossPercentage(entry, exit));
+    }
+
+    private static BigDecimal randomPrice(Random random) {
+        int scale = 2 + random.nextInt(5);
+        long unscaled = 1 + (long) (random.nextDouble() * 50 * Math.pow(10, scale));
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+}
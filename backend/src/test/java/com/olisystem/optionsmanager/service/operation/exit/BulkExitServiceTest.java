@@ -0,0 +1,109 @@
+package com.olisystem.optionsmanager.service.operation.exit;
+
+import com.olisystem.optionsmanager.dto.operation.BulkExitResponse;
+import com.olisystem.optionsmanager.dto.operation.OperationFinalizationRequest;
+import com.olisystem.optionsmanager.model.auth.User;
+import com.olisystem.optionsmanager.model.operation.Operation;
+import com.olisystem.optionsmanager.record.operation.OperationExitContext;
+import com.olisystem.optionsmanager.repository.AverageOperationItemRepository;
+import com.olisystem.optionsmanager.repository.OperationRepository;
+import com.olisystem.optionsmanager.repository.position.EntryLotRepository;
+import com.olisystem.optionsmanager.repository.position.PositionRepository;
+import com.olisystem.optionsmanager.service.operation.factory.ExitContextFactory;
+import com.olisystem.optionsmanager.service.operation.strategy.processor.ExitProcessorSelector;
+import com.olisystem.optionsmanager.service.position.lock.PositionLockService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testes unitários para BulkExitService
+ */
+class BulkExitServiceTest {
+
+    private OperationRepository operationRepository;
+    private ExitProcessorSelector processorSelector;
+    private PlatformTransactionManager transactionManager;
+    private BulkExitService service;
+
+    private final UUID existingId = UUID.randomUUID();
+    private final UUID missingId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        operationRepository = mock(OperationRepository.class);
+        AverageOperationItemRepository itemRepository = mock(AverageOperationItemRepository.class);
+        PositionRepository positionRepository = mock(PositionRepository.class);
+        ExitContextFactory contextFactory = mock(ExitContextFactory.class);
+        processorSelector = mock(ExitProcessorSelector.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+
+        Operation existing = Operation.builder().id(existingId).build();
+        when(operationRepository.findAllById(any())).thenAnswer(invocation -> {
+            Iterable<UUID> ids = invocation.getArgument(0);
+            return StreamSupport.stream(ids.spliterator(), false)
+                .filter(existingId::equals)
+                .map(id -> existing)
+                .toList();
+        });
+        when(itemRepository.findWithGroupByOperationIdIn(any())).thenReturn(List.of());
+        when(positionRepository.findAllById(any())).thenReturn(List.of());
+        when(contextFactory.createPositionContext(any(OperationExitContext.class), any(ExitBatchSnapshot.class)))
+            .thenReturn(null);
+        when(processorSelector.selectAndProcess(any())).thenReturn(
+            Operation.builder().id(UUID.randomUUID()).profitLoss(new BigDecimal("50.00")).build());
+
+        service = new BulkExitService(operationRepository, itemRepository, positionRepository,
+            mock(EntryLotRepository.class), contextFactory, processorSelector, mock(PositionLockService.class),
+            transactionManager);
+    }
+
+    @Test
+    @DisplayName("Deve refazer item a item o bloco com falha e rejeitar operações repetidas")
+    void testFinalizeAllIsolatesFailuresAndDuplicates() {
+        // Explicação: A operação inexistente desfaz o bloco; no reprocessamento só ela falha e a repetida é rejeitada sem processar.
+        List<OperationFinalizationRequest> requests = List.of(
+            request(existingId), request(missingId), request(existingId));
+
+        BulkExitResponse response = service.finalizeAll(requests, User.builder().username("trader").build());
+
+        assertEquals(3, response.getTotal());
+        assertEquals(1, response.getSuccessful());
+        assertEquals(2, response.getFailed());
+        assertEquals(new BigDecimal("50.00"), response.getTotalProfitLoss());
+
+        List<BulkExitResponse.ItemResult> results = response.getResults();
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals(missingId, results.get(1).getOperationId());
+        assertFalse(results.get(2).isSuccess());
+        assertEquals("Operação repetida na requisição", results.get(2).getMessage());
+
+        // Bloco inteiro + um reprocessamento por item
+        verify(transactionManager, times(3)).getTransaction(any());
+        verify(transactionManager, times(2)).rollback(any());
+        verify(processorSelector, times(2)).selectAndProcess(any());
+    }
+
+    private static OperationFinalizationRequest request(UUID operationId) {
+        return OperationFinalizationRequest.builder()
+            .operationId(operationId)
+            .exitDate(LocalDate.of(2025, 7, 21))
+            .exitUnitPrice(new BigDecimal("1.50"))
+            .quantity(100)
+            .build();
+    }
+}
@@ -0,0 +1,96 @@
+package com.olisystem.optionsmanager.service.operation.exit;
+
+import com.olisystem.optionsmanager.model.operation.AverageOperationGroup;
+import com.olisystem.optionsmanager.model.operation.Operation;
+import com.olisystem.optionsmanager.model.operation.OperationStatus;
+import com.olisystem.optionsmanager.model.position.EntryLot;
+import com.olisystem.optionsmanager.model.position.ExitRecord;
+import com.olisystem.optionsmanager.model.position.Position;
+import com.olisystem.optionsmanager.model.position.PositionStatus;
+import com.olisystem.optionsmanager.repository.AverageOperationGroupRepository;
+import com.olisystem.optionsmanager.repository.AverageOperationItemRepository;
+import com.olisystem.optionsmanager.repository.OperationRepository;
+import com.olisystem.optionsmanager.repository.position.EntryLotRepository;
+import com.olisystem.optionsmanager.repository.position.ExitRecordRepository;
+import com.olisystem.optionsmanager.repository.position.PositionOperationRepository;
+import com.olisystem.optionsmanager.repository.position.PositionRepository;
+import com.olisystem.optionsmanager.service.position.entrylots.EntryLotUpdateService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testes unitários para ExitChangeSetWriter
+ */
+class ExitChangeSetWriterTest {
+
+    private OperationRepository operationRepository;
+    private EntryLotRepository entryLotRepository;
+    private ExitRecordRepository exitRecordRepository;
+    private PositionRepository positionRepository;
+    private ExitChangeSetWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        operationRepository = mock(OperationRepository.class);
+        entryLotRepository = mock(EntryLotRepository.class);
+        exitRecordRepository = mock(ExitRecordRepository.class);
+        positionRepository = mock(PositionRepository.class);
+
+        writer = new ExitChangeSetWriter(operationRepository, entryLotRepository, exitRecordRepository,
+            mock(PositionOperationRepository.class), positionRepository, mock(AverageOperationItemRepository.class),
+            mock(AverageOperationGroupRepository.class), new EntryLotUpdateService(entryLotRepository));
+    }
+
+    @Test
+    @DisplayName("Deve aplicar lotes, posição e status planejados e gravar com um único flush")
+    void testApplyWritesPlannedChangesWithSingleFlush() {
+        // Explicação: O planejamento não altera entidades; só a aplicação reduz os lotes, fecha a posição e oculta a entrada.
+        Position position = Position.builder().status(PositionStatus.OPEN).remainingQuantity(300)
+            .averagePrice(new BigDecimal("1.00")).build();
+        EntryLot first = EntryLot.builder().remainingQuantity(100).isFullyConsumed(false).build();
+        EntryLot second = EntryLot.builder().remainingQuantity(200).isFullyConsumed(false).build();
+        Operation entry = Operation.builder().status(OperationStatus.ACTIVE).build();
+        Operation exit = Operation.builder().status(OperationStatus.HIDDEN).quantity(300).build();
+        ExitRecord record = ExitRecord.builder().entryLot(first).exitOperation(exit).quantity(100).build();
+
+        ExitChangeSet changeSet = new ExitChangeSet(position, new AverageOperationGroup())
+            .addExitOperation(exit)
+            .hide(entry)
+            .addExitRecord(record)
+            .consumeLot(first, 100)
+            .consumeLot(second, 200)
+            .updatePosition(new ExitChangeSet.PositionTotals(new BigDecimal("1.00"), 0, new BigDecimal("50.00"),
+                new BigDecimal("16.6700"), PositionStatus.CLOSED, LocalDate.of(2025, 7, 21)));
+
+        assertEquals(100, first.getRemainingQuantity());
+        assertEquals(PositionStatus.OPEN, position.getStatus());
+        assertTrue(changeSet.closesPosition());
+
+        writer.apply(changeSet);
+
+        assertEquals(0, first.getRemainingQuantity());
+        assertTrue(first.getIsFullyConsumed());
+        assertEquals(0, second.getRemainingQuantity());
+        assertEquals(PositionStatus.CLOSED, position.getStatus());
+        assertEquals(LocalDate.of(2025, 7, 21), position.getCloseDate());
+        assertEquals(OperationStatus.HIDDEN, entry.getStatus());
+
+        InOrder order = inOrder(operationRepository, exitRecordRepository, entryLotRepository, positionRepository);
+        order.verify(operationRepository).saveAll(List.of(exit));
+        order.verify(exitRecordRepository).saveAll(List.of(record));
+        order.verify(entryLotRepository).saveAll(List.of(first, second));
+        order.verify(positionRepository).save(position);
+        order.verify(operationRepository).flush();
+        verify(operationRepository, times(1)).flush();
+        verify(entryLotRepository, never()).save(any());
+    }
+}
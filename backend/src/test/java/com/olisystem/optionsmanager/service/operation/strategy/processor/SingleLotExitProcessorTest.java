@@ -21,12 +21,14 @@ import com.olisystem.optionsmanager.record.operation.OperationExitContext;
 import com.olisystem.optionsmanager.record.operation.OperationExitPositionContext;
 import com.olisystem.optionsmanager.resolver.tradeType.TradeTypeResolver;
 import com.olisystem.optionsmanager.service.operation.averageOperation.AverageOperationGroupService;
+import com.olisystem.optionsmanager.service.operation.averageOperation.AverageOperationService;
 import com.olisystem.optionsmanager.service.operation.consolidate.ConsolidatedOperationService;
 import com.olisystem.optionsmanager.service.operation.creation.OperationCreationService;
+import com.olisystem.optionsmanager.service.operation.exit.ExitChangeSet;
+import com.olisystem.optionsmanager.service.operation.exit.ExitChangeSetWriter;
 import com.olisystem.optionsmanager.service.operation.exitRecord.ExitRecordService;
 import com.olisystem.optionsmanager.service.operation.profit.ProfitCalculationService;
 import com.olisystem.optionsmanager.service.operation.status.OperationStatusService;
-import com.olisystem.optionsmanager.service.position.entrylots.EntryLotUpdateService;
 import com.olisystem.optionsmanager.service.position.positionOperation.PositionOperationService;
 import com.olisystem.optionsmanager.service.position.update.PositionUpdateService;
 import org.junit.jupiter.api.BeforeEach;
@@ -63,7 +65,8 @@ class SingleLotExitProcessorTest {
     @Mock
     private TradeTypeResolver tradeTypeResolver;
     @Mock private ProfitCalculationService profitCalculationService;
-    @Mock private EntryLotUpdateService entryLotUpdateService;
+    @Mock private AverageOperationService averageOperationService;
+    @Mock private ExitChangeSetWriter exitChangeSetWriter;
     @Mock private PositionUpdateService positionUpdateService;
     @Mock private OperationStatusService operationStatusService;
     @Mock private ExitRecordService exitRecordService;
@@ -102,8 +105,9 @@ class SingleLotExitProcessorTest {
         assertEquals(new BigDecimal("-75.75"), result.getProfitLoss());
         assertEquals(0, result.getProfitLossPercentage().compareTo(new BigDecimal("-24.51")));
         
-        // Verificar que as operações intermediárias foram marcadas como HIDDEN
-        verify(operationStatusService).updateOperationStatus(originalOperation, OperationStatus.HIDDEN);
+        // Verificar que as operações intermediárias foram marcadas como HIDDEN (no conjunto de alterações aplicado)
+        verify(exitChangeSetWriter).apply(argThat(changeSet ->
+            changeSet.getHiddenOperations().contains(originalOperation)));
         
         // Verificar que a consolidação foi chamada com os parâmetros corretos
         verify(consolidatedOperationService).transformToTotalExit(
@@ -296,7 +300,7 @@ class SingleLotExitProcessorTest {
         )).thenReturn(new BigDecimal("-42.50"));
 
         // OperationCreationService
-        when(operationCreationService.createExitOperation(any(), any(), any(), any(), anyInt()))
+        when(operationCreationService.prepareExitOperation(any(), any(), any(), any(), anyInt()))
             .thenReturn(finalExitOperation);
 
         // ConsolidatedOperationService
@@ -319,10 +323,11 @@ class SingleLotExitProcessorTest {
                 .build());
 
         // Outros mocks básicos
-        doNothing().when(entryLotUpdateService).updateEntryLot(any(), anyInt());
-        doNothing().when(positionUpdateService).updatePosition(any(), any(), any(), any());
+        when(positionUpdateService.planTotalExit(any(), any(), any(), any()))
+            .thenReturn(new ExitChangeSet.PositionTotals(new BigDecimal("0.80"), 0, new BigDecimal("-75.75"),
+                new BigDecimal("-24.51"), PositionStatus.CLOSED, LocalDate.of(2025, 6, 3)));
         doNothing().when(operationStatusService).updateOperationStatus(any(), any());
-        when(exitRecordService.createExitRecord(any(), any(), any(), anyInt()))
+        when(exitRecordService.buildExitRecord(any(), any(), any(), anyInt()))
             .thenReturn(ExitRecord.builder()
                 .id(UUID.randomUUID())
                 .entryLot(entryLot)
@@ -335,7 +340,7 @@ class SingleLotExitProcessorTest {
                 .profitLossPercentage(new BigDecimal("-24.51"))
                 .appliedStrategy(ExitStrategy.FIFO)
                 .build());
-        when(positionOperationService.createPositionOperation(any(), any(), any(), any()))
+        when(positionOperationService.buildPositionOperation(any(), any(), any(), any()))
             .thenReturn(PositionOperation.builder()
                 .id(UUID.randomUUID())
                 .position(position)
@@ -344,6 +349,8 @@ class SingleLotExitProcessorTest {
                 .timestamp(LocalDate.of(2025, 6, 3).atStartOfDay())
                 .sequenceNumber(1)
                 .build());
-        doNothing().when(averageOperationGroupService).updateOperationGroup(any(), any(), any(), any());
+        when(averageOperationGroupService.planGroupClose(any(), any(), any()))
+            .thenReturn(new ExitChangeSet.GroupTotals(0, new BigDecimal("0.46"), 225,
+                new BigDecimal("-76.50"), AverageOperationGroupStatus.CLOSED));
     }
 }
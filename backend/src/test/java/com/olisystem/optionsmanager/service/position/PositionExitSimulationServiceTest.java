@@ -0,0 +1,115 @@
+package com.olisystem.optionsmanager.service.position;
+
+import com.olisystem.optionsmanager.config.calculation.CalculationProperties;
+import com.olisystem.optionsmanager.dto.position.ExitSimulationRequest;
+import com.olisystem.optionsmanager.dto.position.ExitSimulationResponse;
+import com.olisystem.optionsmanager.model.auth.User;
+import com.olisystem.optionsmanager.model.operation.TradeType;
+import com.olisystem.optionsmanager.model.position.EntryLot;
+import com.olisystem.optionsmanager.model.position.ExitStrategy;
+import com.olisystem.optionsmanager.model.position.Position;
+import com.olisystem.optionsmanager.repository.position.EntryLotRepository;
+import com.olisystem.optionsmanager.repository.position.PositionRepository;
+import com.olisystem.optionsmanager.service.operation.engine.ComplexLotConsumptionEngine;
+import com.olisystem.optionsmanager.service.operation.profit.ProfitCalculationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testes unitários para PositionExitSimulationService
+ */
+class PositionExitSimulationServiceTest {
+
+    private static final LocalDate EXIT_DATE = LocalDate.of(2025, 7, 21);
+
+    private PositionRepository positionRepository;
+    private EntryLotRepository entryLotRepository;
+    private PositionExitSimulationService service;
+
+    private final User user = User.builder().username("trader").build();
+    private Position position;
+    private EntryLot previousDay;
+    private EntryLot sameDay;
+
+    @BeforeEach
+    void setUp() {
+        positionRepository = mock(PositionRepository.class);
+        entryLotRepository = mock(EntryLotRepository.class);
+
+        CalculationProperties properties = new CalculationProperties();
+        PositionCalculator calculator = new PositionCalculator(properties);
+        ComplexLotConsumptionEngine engine =
+            new ComplexLotConsumptionEngine(new ProfitCalculationService(calculator, properties), properties);
+        service = new PositionExitSimulationService(positionRepository, entryLotRepository, engine, calculator);
+
+        position = Position.builder().id(UUID.randomUUID()).user(user)
+            .averagePrice(new BigDecimal("1.50")).remainingQuantity(200).build();
+        previousDay = lot(1, EXIT_DATE.minusDays(1), "1.00");
+        sameDay = lot(2, EXIT_DATE, "2.00");
+
+        when(positionRepository.findById(position.getId())).thenReturn(Optional.of(position));
+        when(entryLotRepository.findByPositionInOrderByEntryDateAscSequenceNumberAsc(any()))
+            .thenReturn(List.of(previousDay, sameDay));
+    }
+
+    @Test
+    @DisplayName("Deve simular FIFO, LIFO e AUTO para vários preços sem alterar nem gravar os lotes")
+    void testSimulateStrategiesForPriceVector() {
+        // Explicação: FIFO consome o lote do dia anterior (swing); LIFO e AUTO consomem o lote do próprio dia (day trade).
+        ExitSimulationRequest request = ExitSimulationRequest.builder()
+            .exitDate(EXIT_DATE)
+            .quantity(100)
+            .exitUnitPrices(List.of(new BigDecimal("1.50"), new BigDecimal("3.00")))
+            .build();
+
+        ExitSimulationResponse response = service.simulate(position.getId(), request, user);
+
+        assertEquals(200, response.getAvailableQuantity());
+        assertEquals(3, response.getSimulations().size());
+
+        ExitSimulationResponse.StrategySimulation fifo = response.getSimulations().get(0);
+        assertEquals(ExitStrategy.FIFO, fifo.getStrategy());
+        assertEquals(100, fifo.getSwingTradeQuantity());
+        assertEquals(TradeType.SWING, fifo.getLots().get(0).getTradeType());
+        assertEquals(0, new BigDecimal("50.00").compareTo(fifo.getPoints().get(0).getSwingTradeProfitLoss()));
+        assertEquals(0, new BigDecimal("200.00").compareTo(fifo.getPoints().get(1).getTotalProfitLoss()));
+        assertEquals(0, new BigDecimal("2.00").compareTo(fifo.getRemainingAveragePrice()));
+
+        for (ExitSimulationResponse.StrategySimulation simulation : response.getSimulations().subList(1, 3)) {
+            assertEquals(100, simulation.getDayTradeQuantity());
+            assertEquals(sameDay.getId(), simulation.getLots().get(0).getEntryLotId());
+            assertEquals(0, new BigDecimal("-50.00").compareTo(simulation.getPoints().get(0).getDayTradeProfitLoss()));
+            assertEquals(0, new BigDecimal("1.00").compareTo(simulation.getRemainingAveragePrice()));
+            assertEquals(100, simulation.getRemainingQuantity());
+        }
+
+        assertEquals(100, previousDay.getRemainingQuantity());
+        assertEquals(100, sameDay.getRemainingQuantity());
+        verify(entryLotRepository, never()).save(any());
+        verify(positionRepository, never()).save(any());
+    }
+
+    private static EntryLot lot(int sequence, LocalDate entryDate, String unitPrice) {
+        return EntryLot.builder()
+            .id(UUID.randomUUID())
+            .sequenceNumber(sequence)
+            .entryDate(entryDate)
+            .quantity(100)
+            .remainingQuantity(100)
+            .unitPrice(new BigDecimal(unitPrice))
+            .totalValue(new BigDecimal(unitPrice).multiply(BigDecimal.valueOf(100)))
+            .isFullyConsumed(false)
+            .build();
+    }
+}
@@ -0,0 +1,113 @@
+package com.olisystem.optionsmanager.service.position.entrylots;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes unitários para LotBook
+ */
+class LotBookTest {
+
+    private static final LocalDate EXIT_DATE = LocalDate.of(2025, 7, 21);
+
+    private record Lot(String id, LocalDate entryDate, int sequence, int remaining) {
+    }
+
+    private record Taken(String id, int quantity, boolean sameDay) {
+    }
+
+    @Test
+    @DisplayName("Deve consumir mesmo dia em LIFO e depois dias anteriores em FIFO")
+    void testConsumeAuto() {
+        // Explicação: Lotes fora de ordem são ordenados; lotes zerados e lotes futuros não são consumidos.
+        List<Lot> lots = List.of(
+            new Lot("hoje-2", EXIT_DATE, 5, 100),
+            new Lot("antigo-1", EXIT_DATE.minusDays(3), 1, 200),
+            new Lot("hoje-1", EXIT_DATE, 4, 300),
+            new Lot("zerado", EXIT_DATE.minusDays(2), 2, 0),
+            new Lot("antigo-2", EXIT_DATE.minusDays(1), 3, 400),
+            new Lot("futuro", EXIT_DATE.plusDays(1), 6, 500));
+        LotBook<Lot> book = book(lots);
+
+        assertEquals(1500, book.totalRemaining());
+        assertEquals(400, book.remainingOn(EXIT_DATE));
+        assertEquals(600, book.remainingBefore(EXIT_DATE));
+
+        List<Taken> taken = new ArrayList<>();
+        int consumed = book.consumeAuto(EXIT_DATE, 650,
+            (lot, quantity) -> taken.add(new Taken(lot.id(), quantity, true)),
+            (lot, quantity) -> taken.add(new Taken(lot.id(), quantity, false)));
+
+        assertEquals(650, consumed);
+        assertEquals(List.of(
+            new Taken("hoje-2", 100, true),
+            new Taken("hoje-1", 300, true),
+            new Taken("antigo-1", 200, false),
+            new Taken("antigo-2", 50, false)), taken);
+        assertEquals(0, book.remainingOn(EXIT_DATE));
+        assertEquals(850, book.totalRemaining());
+
+        // Saldo insuficiente: consome o que há antes da data e para no lote futuro
+        assertEquals(350, book.consumeAuto(EXIT_DATE, 1000, (lot, quantity) -> { }, (lot, quantity) -> { }));
+    }
+
+    @Test
+    @DisplayName("Deve consumir na mesma ordem da ordenação completa por data e sequência")
+    void testMatchesSortedConsumption() {
+        // Explicação: Consumos sucessivos em FIFO e LIFO (com descarte preguiçoso) equivalem a reordenar a lista a cada saída.
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            List<Lot> lots = new ArrayList<>();
+            int[] remaining = new int[40];
+            for (int i = 0; i < remaining.length; i++) {
+                remaining[i] = random.nextInt(5) == 0 ? 0 : 1 + random.nextInt(300);
+                lots.add(new Lot(String.valueOf(i), EXIT_DATE.minusDays(random.nextInt(5)), i, remaining[i]));
+            }
+            Collections.shuffle(lots, random);
+            LotBook<Lot> book = book(lots);
+
+            for (int exit = 0; exit < 6; exit++) {
+                boolean fifo = random.nextBoolean();
+                int quantity = 1 + random.nextInt(1500);
+
+                List<Taken> expected = new ArrayList<>();
+                List<Lot> sorted = new ArrayList<>(lots);
+                Comparator<Lot> order = Comparator.comparing(Lot::entryDate).thenComparingInt(Lot::sequence);
+                sorted.sort(fifo ? order : order.reversed());
+                int left = quantity;
+                for (Lot lot : sorted) {
+                    int available = remaining[lot.sequence()];
+                    int take = Math.min(available, left);
+                    if (take > 0) {
+                        expected.add(new Taken(lot.id(), take, false));
+                        remaining[lot.sequence()] -= take;
+                        left -= take;
+                    }
+                }
+
+                List<Taken> actual = new ArrayList<>();
+                LotBook.LotConsumer<Lot> consumer = (lot, taken) -> actual.add(new Taken(lot.id(), taken, false));
+                if (fifo) {
+                    book.consumeFifo(quantity, consumer);
+                } else {
+                    book.consumeLifo(quantity, consumer);
+                }
+
+                assertEquals(expected, actual, "rodada " + round + ", saída " + exit);
+            }
+        }
+    }
+
+    private static LotBook<Lot> book(List<Lot> lots) {
+        return LotBook.of(lots, Lot::entryDate, Lot::sequence, Lot::remaining);
+    }
+}
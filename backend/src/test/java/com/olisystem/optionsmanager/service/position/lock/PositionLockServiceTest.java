@@ -0,0 +1,193 @@
+package com.olisystem.optionsmanager.service.position.lock;
+
+import com.olisystem.optionsmanager.model.auth.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testes unitários para PositionLockService
+ */
+class PositionLockServiceTest {
+
+    private PlatformTransactionManager transactionManager;
+    private PositionLockService lockService;
+
+    @BeforeEach
+    void setUp() {
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        lockService = new PositionLockService(transactionManager);
+    }
+
+    @Test
+    @DisplayName("Deve refazer a ação em nova transação após conflito de versão")
+    void testRetriesOnOptimisticLockConflict() {
+        // Explicação: A primeira tentativa perde a corrida para outra gravação; a segunda roda em transação nova e confirma.
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = lockService.executeLocked("user:PETRA123", () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new ObjectOptimisticLockingFailureException("Position", UUID.randomUUID());
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(2, attempts.get());
+        verify(transactionManager, times(2)).getTransaction(any());
+        verify(transactionManager, times(1)).rollback(any());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    @DisplayName("Deve desistir após o limite de tentativas e propagar o conflito")
+    void testGivesUpAfterMaxAttempts() {
+        // Explicação: Conflito persistente não pode virar laço infinito.
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () ->
+            lockService.executeLocked("user:PETRA123", () -> {
+                attempts.incrementAndGet();
+                throw new ObjectOptimisticLockingFailureException("Position", UUID.randomUUID());
+            }));
+
+        assertEquals(PositionLockService.MAX_ATTEMPTS, attempts.get());
+    }
+
+    @Test
+    @DisplayName("Deve serializar ações da mesma posição e gerar a mesma chave para a série normalizada")
+    void testSerializesSamePosition() throws Exception {
+        // Explicação: Duas threads na mesma posição nunca ficam dentro da ação ao mesmo tempo.
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        String key = PositionLockService.keyOf(user, "petra123 ");
+        assertEquals(key, PositionLockService.keyOf(user, "PETRA123"));
+
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] futures = new Future<?>[4];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = executor.submit(() -> {
+                    start.await();
+                    return lockService.executeLocked(key, () -> {
+                        maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                        try {
+                            Thread.sleep(20);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        inside.decrementAndGet();
+                        return null;
+                    });
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, maxInside.get());
+    }
+
+    @Test
+    @DisplayName("Deve manter o lock até o commit da transação externa")
+    void testHoldsLockUntilOuterTransactionCompletes() throws Exception {
+        // Explicação: Cada thread grava dentro de uma transação já aberta e segue nela antes do commit;
+        // a gravação da outra thread só pode acontecer depois desse commit.
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        TransactionTemplate outer = new TransactionTemplate(new RecordingTransactionManager(events));
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?>[] futures = new Future<?>[2];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = executor.submit(() -> {
+                    start.await();
+                    return outer.execute(status -> {
+                        String name = Thread.currentThread().getName();
+                        lockService.executeLocked("user:PETRA123", () -> events.add("write " + name));
+                        try {
+                            Thread.sleep(50);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        events.add("end " + name);
+                        return null;
+                    });
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(6, events.size());
+        for (int i = 0; i < events.size(); i += 3) {
+            String name = events.get(i).substring("write ".length());
+            assertEquals(List.of("write " + name, "end " + name, "commit " + name), events.subList(i, i + 3));
+        }
+        verifyNoInteractions(transactionManager);
+    }
+
+    /**
+     * Gerenciador de transações em memória que registra o commit com o nome da thread
+     */
+    private static final class RecordingTransactionManager extends AbstractPlatformTransactionManager {
+
+        private final List<String> events;
+
+        RecordingTransactionManager(List<String> events) {
+            this.events = events;
+        }
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            events.add("commit " + Thread.currentThread().getName());
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.olisystem.optionsmanager.service.position.rebuild;
+
+import com.olisystem.optionsmanager.config.calculation.CalculationProperties;
+import com.olisystem.optionsmanager.dto.position.PositionRebuildReport;
+import com.olisystem.optionsmanager.model.auth.User;
+import com.olisystem.optionsmanager.model.operation.AverageOperationGroup;
+import com.olisystem.optionsmanager.model.operation.AverageOperationGroupStatus;
+import com.olisystem.optionsmanager.model.operation.AverageOperationItem;
+import com.olisystem.optionsmanager.model.operation.Operation;
+import com.olisystem.optionsmanager.model.operation.OperationRoleType;
+import com.olisystem.optionsmanager.model.operation.OperationStatus;
+import com.olisystem.optionsmanager.model.option_serie.OptionSerie;
+import com.olisystem.optionsmanager.model.position.EntryLot;
+import com.olisystem.optionsmanager.model.position.Position;
+import com.olisystem.optionsmanager.model.position.PositionOperation;
+import com.olisystem.optionsmanager.model.position.PositionOperationType;
+import com.olisystem.optionsmanager.model.position.PositionStatus;
+import com.olisystem.optionsmanager.model.transaction.TransactionType;
+import com.olisystem.optionsmanager.repository.AverageOperationGroupRepository;
+import com.olisystem.optionsmanager.repository.AverageOperationItemRepository;
+import com.olisystem.optionsmanager.repository.OperationSourceMappingRepository;
+import com.olisystem.optionsmanager.repository.position.EntryLotRepository;
+import com.olisystem.optionsmanager.repository.position.ExitRecordRepository;
+import com.olisystem.optionsmanager.repository.position.PositionOperationRepository;
+import com.olisystem.optionsmanager.repository.position.PositionRepository;
+import com.olisystem.optionsmanager.service.operation.exitRecord.ExitRecordService;
+import com.olisystem.optionsmanager.service.operation.profit.ProfitCalculationService;
+import com.olisystem.optionsmanager.service.position.PositionCalculator;
+import com.olisystem.optionsmanager.service.position.lock.PositionLockService;
+import com.olisystem.optionsmanager.service.position.positionOperation.PositionOperationService;
+import com.olisystem.optionsmanager.service.position.update.PositionUpdateService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testes unitários para PositionRebuildService
+ */
+class PositionRebuildServiceTest {
+
+    private static final LocalDate DAY_1 = LocalDate.of(2025, 7, 10);
+    private static final LocalDate DAY_2 = LocalDate.of(2025, 7, 15);
+    private static final LocalDate DAY_3 = LocalDate.of(2025, 7, 20);
+
+    private PositionRepository positionRepository;
+    private EntryLotRepository entryLotRepository;
+    private PositionOperationRepository positionOperationRepository;
+    private AverageOperationGroupRepository groupRepository;
+    private AverageOperationItemRepository itemRepository;
+    private PositionRebuildService service;
+
+    private User user;
+    private Position position;
+    private AverageOperationGroup group;
+
+    @BeforeEach
+    void setUp() {
+        positionRepository = mock(PositionRepository.class);
+        entryLotRepository = mock(EntryLotRepository.class);
+        positionOperationRepository = mock(PositionOperationRepository.class);
+        groupRepository = mock(AverageOperationGroupRepository.class);
+        itemRepository = mock(AverageOperationItemRepository.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+
+        CalculationProperties properties = new CalculationProperties();
+        ProfitCalculationService profitCalculationService =
+            new ProfitCalculationService(new PositionCalculator(properties), properties);
+        PositionReplayer replayer = new PositionReplayer(
+            new ExitRecordService(mock(ExitRecordRepository.class), profitCalculationService),
+            new PositionOperationService(mock(PositionOperationRepository.class)),
+            new PositionUpdateService(mock(PositionRepository.class)));
+
+        service = new PositionRebuildService(positionRepository, entryLotRepository, mock(ExitRecordRepository.class),
+            positionOperationRepository, groupRepository, itemRepository, mock(OperationSourceMappingRepository.class),
+            replayer, mock(PositionLockService.class), transactionManager);
+
+        user = User.builder().id(UUID.randomUUID()).username("trader").build();
+        OptionSerie serie = OptionSerie.builder().id(UUID.randomUUID()).code("PETRH320").build();
+        position = Position.builder().id(UUID.randomUUID()).user(user).optionSeries(serie)
+            .direction(TransactionType.BUY).build();
+        group = AverageOperationGroup.builder().id(UUID.randomUUID()).positionId(position.getId()).build();
+
+        when(positionRepository.findByUserAndOptionSeries_Code(user, "PETRH320")).thenReturn(List.of(position));
+        when(groupRepository.findByPositionIdIn(any())).thenReturn(List.of(group));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    @DisplayName("Deve tratar a venda oculta da consolidação (NEW_ENTRY) como saída e aplicar a posição reconstruída")
+    void testHiddenConsolidationSellIsReplayedAsExit() {
+        // Explicação: A venda de 40 ficou como NEW_ENTRY e só reduziu a posição; reaplicada como saída, o saldo fica em 60 (não 140).
+        Operation original = operation(TransactionType.BUY, OperationStatus.HIDDEN, 100, "1.00", DAY_1, null, null);
+        Operation hiddenSell = operation(TransactionType.SELL, OperationStatus.HIDDEN, 40, "1.50", DAY_2, null, null);
+        Operation consolidated = operation(TransactionType.BUY, OperationStatus.ACTIVE, 60, "1.00", DAY_1, null, null);
+        items(item(original, OperationRoleType.ORIGINAL, 1), item(hiddenSell, OperationRoleType.NEW_ENTRY, 2),
+            item(consolidated, OperationRoleType.CONSOLIDATED_ENTRY, 3));
+
+        // Estado atual: a venda baixou o saldo sem consumir o lote nem registrar a saída
+        setPosition(PositionStatus.PARTIAL, 100, 60);
+        EntryLot lot = EntryLot.builder().id(UUID.randomUUID()).position(position).entryDate(DAY_1).quantity(100)
+            .unitPrice(new BigDecimal("1.00")).remainingQuantity(100).sequenceNumber(1).build();
+        when(entryLotRepository.findByPositionInOrderByEntryDateAscSequenceNumberAsc(any())).thenReturn(List.of(lot));
+        when(positionOperationRepository.findByPositionIn(any()))
+            .thenReturn(List.of(positionOperation(original, PositionOperationType.ENTRY)));
+
+        PositionRebuildReport report = service.rebuild(user, "PETRH320", true);
+
+        PositionRebuildReport.PositionDiff diff = report.getPositions().get(0);
+        assertNull(diff.getError());
+        assertTrue(diff.isApplied());
+        assertTrue(diff.getChanges().stream().anyMatch(change -> change.startsWith("entryLot[1].remainingQuantity: 100 → 60")));
+        assertFalse(diff.getChanges().stream().anyMatch(change -> change.startsWith("remainingQuantity")));
+
+        // Swap: posição, grupo e lote trocados pelo estado reconstruído
+        assertEquals(PositionStatus.PARTIAL, position.getStatus());
+        assertEquals(100, position.getTotalQuantity());
+        assertEquals(60, position.getRemainingQuantity());
+        assertEquals(0, new BigDecimal("20.00").compareTo(position.getTotalRealizedProfit()));
+        assertEquals(40, group.getClosedQuantity());
+        assertEquals(AverageOperationGroupStatus.PARTIALLY_CLOSED, group.getStatus());
+        verify(entryLotRepository).deleteAllByIdInBatch(List.of(lot.getId()));
+        verify(entryLotRepository).saveAll(argThat((List<EntryLot> lots) ->
+            lots.size() == 1 && lots.get(0).getRemainingQuantity() == 60 && lots.get(0).getPosition() == position));
+        verify(positionRepository).flush();
+    }
+
+    @Test
+    @DisplayName("Deve ignorar o resultado consolidado transformado em TOTAL_EXIT e recusar saída sem registros que não consolida nada")
+    void testTransformedConsolidatedResultIsSkipped() {
+        // Explicação: O TOTAL_EXIT visível de 100 é a soma das saídas de 40 e 60; contá-lo de novo faria a reconstrução falhar.
+        Operation original = operation(TransactionType.BUY, OperationStatus.HIDDEN, 100, "1.00", DAY_1, null, null);
+        Operation partial = operation(TransactionType.SELL, OperationStatus.WINNER, 40, "1.00", DAY_1, DAY_2, "2.00");
+        Operation last = operation(TransactionType.SELL, OperationStatus.HIDDEN, 60, "1.00", DAY_1, DAY_3, "3.00");
+        Operation transformed = operation(TransactionType.SELL, OperationStatus.WINNER, 100, "1.00", DAY_1, DAY_3, "2.60");
+        items(item(original, OperationRoleType.ORIGINAL, 1), item(partial, OperationRoleType.PARTIAL_EXIT, 2),
+            item(transformed, OperationRoleType.TOTAL_EXIT, 3), item(last, OperationRoleType.TOTAL_EXIT, 4));
+        when(positionOperationRepository.findByPositionIn(any())).thenReturn(List.of(
+            positionOperation(original, PositionOperationType.ENTRY),
+            positionOperation(partial, PositionOperationType.PARTIAL_EXIT),
+            positionOperation(last, PositionOperationType.FULL_EXIT)));
+        setPosition(PositionStatus.CLOSED, 100, 0);
+
+        PositionRebuildReport.PositionDiff diff = service.rebuild(user, "PETRH320", false).getPositions().get(0);
+
+        assertNull(diff.getError());
+        assertFalse(diff.isApplied());
+        assertFalse(diff.getChanges().stream().anyMatch(change -> change.startsWith("remainingQuantity")
+            || change.startsWith("status") || change.startsWith("positionOperations")));
+
+        // Sem as saídas reais que ela somaria, a saída sem registros não é classificável: só relatório, nunca aplicada
+        items(item(original, OperationRoleType.ORIGINAL, 1), item(transformed, OperationRoleType.TOTAL_EXIT, 2));
+        when(positionOperationRepository.findByPositionIn(any()))
+            .thenReturn(List.of(positionOperation(original, PositionOperationType.ENTRY)));
+
+        PositionRebuildReport report = service.rebuild(user, "PETRH320", true);
+
+        assertEquals(1, report.getPositionsFailed());
+        assertTrue(report.getPositions().get(0).getError().contains(transformed.getId().toString()));
+        assertFalse(report.getPositions().get(0).isApplied());
+        verify(entryLotRepository, never()).saveAll(any());
+        verify(positionRepository, never()).flush();
+    }
+
+    private void setPosition(PositionStatus status, int totalQuantity, int remainingQuantity) {
+        position.setStatus(status);
+        position.setOpenDate(DAY_1);
+        position.setTotalQuantity(totalQuantity);
+        position.setRemainingQuantity(remainingQuantity);
+        position.setAveragePrice(new BigDecimal("1.00"));
+        position.setTotalRealizedProfit(BigDecimal.ZERO);
+        position.setTotalRealizedProfitPercentage(BigDecimal.ZERO);
+    }
+
+    private void items(AverageOperationItem... items) {
+        when(itemRepository.findWithOperationByGroupIdIn(any())).thenReturn(new ArrayList<>(List.of(items)));
+    }
+
+    private AverageOperationItem item(Operation operation, OperationRoleType roleType, int sequence) {
+        return AverageOperationItem.builder().id(UUID.randomUUID()).group(group).operation(operation)
+            .roleType(roleType).sequenceNumber(sequence).build();
+    }
+
+    private PositionOperation positionOperation(Operation operation, PositionOperationType type) {
+        return PositionOperation.builder().id(UUID.randomUUID()).position(position).operation(operation)
+            .type(type).timestamp(operation.getEntryDate().atStartOfDay()).build();
+    }
+
+    private static Operation operation(TransactionType type, OperationStatus status, int quantity, String entryPrice,
+                                       LocalDate entryDate, LocalDate exitDate, String exitPrice) {
+        BigDecimal price = new BigDecimal(entryPrice);
+        return Operation.builder().id(UUID.randomUUID()).transactionType(type).status(status).quantity(quantity)
+            .entryDate(entryDate).entryUnitPrice(price).entryTotalValue(price.multiply(BigDecimal.valueOf(quantity)))
+            .exitDate(exitDate).exitUnitPrice(exitPrice != null ? new BigDecimal(exitPrice) : null).build();
+    }
+}
@@ -0,0 +1,115 @@
+package com.olisystem.optionsmanager.service.position.rebuild;
+
+import com.olisystem.optionsmanager.config.calculation.CalculationProperties;
+import com.olisystem.optionsmanager.model.auth.User;
+import com.olisystem.optionsmanager.model.operation.AverageOperationGroupStatus;
+import com.olisystem.optionsmanager.model.operation.Operation;
+import com.olisystem.optionsmanager.model.operation.TradeType;
+import com.olisystem.optionsmanager.model.position.Position;
+import com.olisystem.optionsmanager.model.position.PositionOperationType;
+import com.olisystem.optionsmanager.model.position.PositionStatus;
+import com.olisystem.optionsmanager.repository.position.ExitRecordRepository;
+import com.olisystem.optionsmanager.repository.position.PositionOperationRepository;
+import com.olisystem.optionsmanager.repository.position.PositionRepository;
+import com.olisystem.optionsmanager.service.operation.exitRecord.ExitRecordService;
+import com.olisystem.optionsmanager.service.operation.profit.ProfitCalculationService;
+import com.olisystem.optionsmanager.service.position.PositionCalculator;
+import com.olisystem.optionsmanager.service.position.positionOperation.PositionOperationService;
+import com.olisystem.optionsmanager.service.position.update.PositionUpdateService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Testes unitários para PositionReplayer
+ */
+class PositionReplayerTest {
+
+    private PositionReplayer replayer;
+    private Position position;
+
+    @BeforeEach
+    void setUp() {
+        CalculationProperties properties = new CalculationProperties();
+        ProfitCalculationService profitCalculationService =
+            new ProfitCalculationService(new PositionCalculator(properties), properties);
+
+        replayer = new PositionReplayer(
+            new ExitRecordService(mock(ExitRecordRepository.class), profitCalculationService),
+            new PositionOperationService(mock(PositionOperationRepository.class)),
+            new PositionUpdateService(mock(PositionRepository.class)));
+
+        position = Position.builder().id(UUID.randomUUID()).user(User.builder().username("trader").build())
+            .status(PositionStatus.OPEN).remainingQuantity(999).build();
+    }
+
+    @Test
+    @DisplayName("Deve reconstruir lotes, saídas e totais reaplicando as operações na ordem")
+    void testReplayRebuildsLotsExitsAndTotals() {
+        // Explicação: A saída swing consome os lotes em FIFO e a saída final fecha a posição; a ordem de entrada dos eventos não importa.
+        List<ReplayEvent> events = List.of(
+            new ReplayEvent(exit(LocalDate.of(2025, 7, 21), 50, "1.00", null), false, null, 4),
+            new ReplayEvent(entry(LocalDate.of(2025, 7, 15), 100, "2.00"), true, null, 2),
+            new ReplayEvent(exit(LocalDate.of(2025, 7, 20), 150, "3.00", TradeType.SWING), false, null, 3),
+            new ReplayEvent(entry(LocalDate.of(2025, 7, 10), 100, "1.00"), true, null, 1));
+
+        PositionReplay replay = replayer.replay(position, events, Map.of());
+
+        assertFalse(replay.failed());
+        Position rebuilt = replay.position();
+        assertEquals(PositionStatus.CLOSED, rebuilt.getStatus());
+        assertEquals(LocalDate.of(2025, 7, 10), rebuilt.getOpenDate());
+        assertEquals(LocalDate.of(2025, 7, 21), rebuilt.getCloseDate());
+        assertEquals(200, rebuilt.getTotalQuantity());
+        assertEquals(0, rebuilt.getRemainingQuantity());
+        assertEquals(0, new BigDecimal("200.00").compareTo(rebuilt.getTotalRealizedProfit()));
+
+        assertEquals(2, replay.entryLots().size());
+        assertTrue(replay.entryLots().stream().allMatch(lot -> lot.getRemainingQuantity() == 0));
+        assertEquals(3, replay.exitRecords().size());
+        assertEquals(100, replay.exitRecords().get(0).getQuantity());
+        assertEquals(0, new BigDecimal("200.00").compareTo(replay.exitRecords().get(0).getProfitLoss()));
+
+        assertEquals(4, replay.positionOperations().size());
+        assertEquals(PositionOperationType.FULL_EXIT, replay.positionOperations().get(3).getType());
+
+        assertEquals(AverageOperationGroupStatus.CLOSED, replay.groupTotals().status());
+        assertEquals(200, replay.groupTotals().closedQuantity());
+        assertEquals(0, new BigDecimal("2.50").compareTo(replay.groupTotals().avgExitPrice()));
+        assertEquals(999, position.getRemainingQuantity());
+    }
+
+    @Test
+    @DisplayName("Deve falhar a reconstrução quando a saída excede a quantidade em aberto")
+    void testReplayFailsWhenExitExceedsOpenQuantity() {
+        // Explicação: Operações de origem inconsistentes não podem gerar estado; a posição fica com erro no relatório.
+        List<ReplayEvent> events = List.of(
+            new ReplayEvent(entry(LocalDate.of(2025, 7, 10), 100, "1.00"), true, null, 1),
+            new ReplayEvent(exit(LocalDate.of(2025, 7, 11), 150, "2.00", null), false, null, 2));
+
+        PositionReplay replay = replayer.replay(position, events, Map.of());
+
+        assertTrue(replay.failed());
+        assertTrue(replay.error().contains("150"));
+    }
+
+    private static Operation entry(LocalDate date, int quantity, String unitPrice) {
+        BigDecimal price = new BigDecimal(unitPrice);
+        return Operation.builder().id(UUID.randomUUID()).entryDate(date).quantity(quantity)
+            .entryUnitPrice(price).entryTotalValue(price.multiply(BigDecimal.valueOf(quantity))).build();
+    }
+
+    private static Operation exit(LocalDate date, int quantity, String unitPrice, TradeType tradeType) {
+        return Operation.builder().id(UUID.randomUUID()).entryDate(date).exitDate(date).quantity(quantity)
+            .exitUnitPrice(new BigDecimal(unitPrice)).tradeType(tradeType).build();
+    }
+}
@@ -0,0 +1,128 @@
+package com.olisystem.optionsmanager.service.position.risk;
+
+import com.olisystem.optionsmanager.config.risk.RiskProperties;
+import com.olisystem.optionsmanager.dto.position.PortfolioRiskResponse;
+import com.olisystem.optionsmanager.model.Asset.Asset;
+import com.olisystem.optionsmanager.model.option_serie.OptionSerie;
+import com.olisystem.optionsmanager.model.option_serie.OptionType;
+import com.olisystem.optionsmanager.model.position.Position;
+import com.olisystem.optionsmanager.model.position.PositionStatus;
+import com.olisystem.optionsmanager.model.transaction.TransactionType;
+import com.olisystem.optionsmanager.service.marketdata.PriceSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes unitários para GreeksEngine e BlackScholes
+ */
+class GreeksEngineTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 7, 21);
+
+    private GreeksEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        RiskProperties properties = new RiskProperties();
+        properties.setRiskFreeRate(0.10);
+        properties.setDividendYields(Map.of("PETR4", 0.05));
+        engine = new GreeksEngine(properties);
+    }
+
+    @Test
+    @DisplayName("Deve reproduzir os valores de referência de Black-Scholes e recuperar a volatilidade implícita")
+    void testBlackScholesReferenceValues() {
+        // Explicação: S=K=100, T=1, r=5%, vol=20% é o exemplo clássico (call 10,4506 / put 5,5735).
+        OptionGreeks call = BlackScholes.greeks(OptionType.CALL, 100, 100, 1, 0.05, 0, 0.20);
+        OptionGreeks put = BlackScholes.greeks(OptionType.PUT, 100, 100, 1, 0.05, 0, 0.20);
+
+        assertEquals(10.4506, call.price(), 1e-4);
+        assertEquals(5.5735, put.price(), 1e-4);
+        assertEquals(0.6368, call.delta(), 1e-4);
+        assertEquals(call.delta() - 1, put.delta(), 1e-9);
+        assertEquals(0.018762, call.gamma(), 1e-6);
+        assertEquals(0.37524, call.vega(), 1e-5);
+
+        // Paridade put-call com dividend yield: C - P = S.e^(-qT) - K.e^(-rT)
+        double callWithYield = BlackScholes.price(OptionType.CALL, 100, 95, 0.5, 0.10, 0.04, 0.35);
+        double putWithYield = BlackScholes.price(OptionType.PUT, 100, 95, 0.5, 0.10, 0.04, 0.35);
+        assertEquals(100 * Math.exp(-0.02) - 95 * Math.exp(-0.05), callWithYield - putWithYield, 1e-6);
+
+        assertEquals(0.35, BlackScholes.impliedVolatility(OptionType.PUT, putWithYield, 100, 95, 0.5, 0.10, 0.04), 1e-6);
+        assertTrue(Double.isNaN(BlackScholes.impliedVolatility(OptionType.CALL, 1.0, 100, 80, 0.5, 0.10, 0.0)));
+    }
+
+    @Test
+    @DisplayName("Deve agregar a exposição por ativo-objeto com sinal da direção e deixar de fora séries sem preço")
+    void testAggregatesExposurePerUnderlying() {
+        // Explicação: Call comprada e put vendida no mesmo ativo somam delta positivo; a série sem spot não entra.
+        Asset petr4 = Asset.builder().code("PETR4").build();
+        Asset vale3 = Asset.builder().code("VALE3").build();
+        OptionSerie call = serie("PETRH320", petr4, OptionType.CALL, "32.00");
+        OptionSerie put = serie("PETRT300", petr4, OptionType.PUT, "30.00");
+        OptionSerie noSpot = serie("VALEH600", vale3, OptionType.CALL, "60.00");
+
+        double callPrice = BlackScholes.price(OptionType.CALL, 31.5, 32, 31 / 365.0, 0.10, 0.05, 0.30);
+        double putPrice = BlackScholes.price(OptionType.PUT, 31.5, 30, 31 / 365.0, 0.10, 0.05, 0.40);
+        Map<String, PriceSnapshot> prices = Map.of(
+            "PETR4", price("PETR4", 31.5),
+            "PETRH320", price("PETRH320", callPrice),
+            "PETRT300", price("PETRT300", putPrice),
+            "VALEH600", price("VALEH600", 1.10));
+        Function<String, Optional<PriceSnapshot>> lookup = code -> Optional.ofNullable(prices.get(code));
+
+        List<Position> positions = List.of(
+            position(call, TransactionType.BUY, 1000),
+            position(put, TransactionType.SELL, 500),
+            position(noSpot, TransactionType.BUY, 100));
+
+        PortfolioRiskResponse response = engine.evaluate(positions, lookup, TODAY);
+
+        assertEquals(2, response.getPricedPositions());
+        assertEquals(1, response.getUnpricedPositions());
+        assertEquals(1, response.getUnderlyings().size());
+
+        PortfolioRiskResponse.PositionRisk callRisk = response.getPositions().get(0);
+        PortfolioRiskResponse.PositionRisk putRisk = response.getPositions().get(1);
+        assertEquals(0.30, callRisk.getImpliedVolatility().doubleValue(), 1e-5);
+        assertEquals(0.40, putRisk.getImpliedVolatility().doubleValue(), 1e-5);
+        assertTrue(putRisk.getPositionDelta().signum() > 0); // put vendida = delta positivo
+        assertTrue(putRisk.getPositionTheta().signum() > 0); // vendida ganha com o tempo
+        assertNotNull(response.getPositions().get(2).getMessage());
+
+        PortfolioRiskResponse.UnderlyingExposure exposure = response.getUnderlyings().get(0);
+        assertEquals("PETR4", exposure.getUnderlyingCode());
+        assertEquals(callRisk.getPositionDelta().add(putRisk.getPositionDelta()).doubleValue(),
+            exposure.getDelta().doubleValue(), 0.02);
+        assertEquals(exposure.getDelta().doubleValue() * 31.5, exposure.getDeltaNotional().doubleValue(), 0.5);
+
+        // Mesmos preços e data: resultado idêntico vindo da memória
+        assertEquals(response.getPositions(), engine.evaluate(positions, lookup, TODAY).getPositions());
+    }
+
+    private static OptionSerie serie(String code, Asset asset, OptionType type, String strike) {
+        return OptionSerie.builder().code(code).asset(asset).type(type)
+            .strikePrice(new BigDecimal(strike)).expirationDate(TODAY.plusDays(31)).build();
+    }
+
+    private static Position position(OptionSerie serie, TransactionType direction, int quantity) {
+        return Position.builder().id(UUID.randomUUID()).optionSeries(serie).direction(direction)
+            .status(PositionStatus.OPEN).remainingQuantity(quantity).averagePrice(BigDecimal.ONE).build();
+    }
+
+    private static PriceSnapshot price(String code, double value) {
+        return new PriceSnapshot(code, BigDecimal.valueOf(value), LocalDateTime.now(), "TEST");
+    }
+}
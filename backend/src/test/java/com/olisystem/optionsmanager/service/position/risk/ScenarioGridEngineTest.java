@@ -0,0 +1,145 @@
+package com.olisystem.optionsmanager.service.position.risk;
+
+import com.olisystem.optionsmanager.dto.position.ScenarioGridResponse;
+import com.olisystem.optionsmanager.model.Asset.Asset;
+import com.olisystem.optionsmanager.model.option_serie.OptionSerie;
+import com.olisystem.optionsmanager.model.option_serie.OptionType;
+import com.olisystem.optionsmanager.model.position.Position;
+import com.olisystem.optionsmanager.model.position.PositionStatus;
+import com.olisystem.optionsmanager.model.transaction.TransactionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes unitários para ScenarioGridEngine
+ */
+class ScenarioGridEngineTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 7, 21);
+
+    private ScenarioGridEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new ScenarioGridEngine();
+    }
+
+    @Test
+    @DisplayName("Deve gerar a matriz de P&L por ativo-objeto e da carteira a partir do valor teórico atual")
+    void testBuildsProfitLossMatrices() {
+        // Explicação: Call comprada ganha com alta e vol; put vendida ganha com alta; o ponto sem variação é zero.
+        Map<String, SeriesParameters> parameters = new HashMap<>();
+        parameters.put("PETRH320", series("PETRH320", "PETR4", OptionType.CALL, 32, 31.5, 0.30));
+        parameters.put("VALET600", series("VALET600", "VALE3", OptionType.PUT, 60, 62, 0.35));
+
+        List<Position> positions = List.of(
+            position("PETRH320", TransactionType.BUY, 600),
+            position("PETRH320", TransactionType.BUY, 400), // mesma série: quantidade líquida de 1000
+            position("VALET600", TransactionType.SELL, 500),
+            position("BBASH300", TransactionType.BUY, 100)); // sem parâmetros
+
+        double[] spotShifts = {-0.10, 0.0, 0.10};
+        double[] volShifts = {0.0, 0.05};
+        int[] days = {0, 10};
+        ScenarioGridResponse response = engine.evaluate(positions, parameters, TODAY, spotShifts, volShifts, days);
+
+        assertEquals(12, response.getGridPoints());
+        assertEquals(3, response.getPricedPositions());
+        assertEquals(List.of("BBASH300"), response.getUnpricedSeries());
+        assertEquals(2, response.getUnderlyings().size());
+
+        double[][][] petr = response.getUnderlyings().get(0).getProfitLoss();
+        double[][][] vale = response.getUnderlyings().get(1).getProfitLoss();
+        assertEquals(0.0, petr[0][1][0], 1e-9);
+        assertTrue(petr[0][2][0] > 0 && petr[0][0][0] < 0);
+        assertTrue(petr[0][1][1] > 0); // vega positiva
+        assertTrue(petr[1][1][0] < 0); // theta negativa
+
+        double callUp = 1000 * (parameters.get("PETRH320").priceAt(31.5 * 1.10, 0.30, TODAY)
+            - parameters.get("PETRH320").priceAt(31.5, 0.30, TODAY));
+        assertEquals(callUp, petr[0][2][0], 0.01);
+        assertTrue(vale[0][2][0] > 0); // put vendida com alta do ativo
+
+        double[][][] portfolio = response.getPortfolio();
+        for (int d = 0; d < days.length; d++) {
+            for (int s = 0; s < spotShifts.length; s++) {
+                for (int v = 0; v < volShifts.length; v++) {
+                    assertEquals(petr[d][s][v] + vale[d][s][v], portfolio[d][s][v], 0.011);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Deve reavaliar uma grade 50x20x5 com centenas de posições e somar a carteira por ativo")
+    void testLargeGrid() {
+        // Explicação: 5.000 pontos x 300 séries = 1,5 milhão de reavaliações divididas entre tarefas fork/join.
+        Map<String, SeriesParameters> parameters = new HashMap<>();
+        List<Position> positions = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            String code = "SERIE" + i;
+            parameters.put(code, series(code, "ATIVO" + (i % 10), i % 2 == 0 ? OptionType.CALL : OptionType.PUT,
+                20 + i % 15, 27, 0.25 + (i % 7) / 100.0));
+            positions.add(position(code, i % 3 == 0 ? TransactionType.SELL : TransactionType.BUY, 100 + i));
+        }
+        double[] spotShifts = new double[50];
+        for (int i = 0; i < spotShifts.length; i++) {
+            spotShifts[i] = -0.25 + i * 0.01;
+        }
+        double[] volShifts = new double[20];
+        for (int i = 0; i < volShifts.length; i++) {
+            volShifts[i] = -0.10 + i * 0.01;
+        }
+        int[] days = {0, 1, 5, 10, 20};
+
+        // Limite folgado só para pegar regressões grosseiras; o tempo fino não é medido em teste unitário
+        ScenarioGridResponse response = assertTimeoutPreemptively(Duration.ofSeconds(30),
+            () -> engine.evaluate(positions, parameters, TODAY, spotShifts, volShifts, days));
+
+        assertEquals(5000, response.getGridPoints());
+        assertEquals(10, response.getUnderlyings().size());
+        assertEquals(5, response.getPortfolio().length);
+        assertEquals(50, response.getPortfolio()[0].length);
+        assertEquals(20, response.getPortfolio()[0][0].length);
+        assertEquals(300, response.getPricedPositions());
+
+        double[][][] portfolio = response.getPortfolio();
+        for (int d = 0; d < days.length; d++) {
+            for (int s = 0; s < spotShifts.length; s += 7) {
+                for (int v = 0; v < volShifts.length; v += 3) {
+                    double sum = 0;
+                    for (ScenarioGridResponse.UnderlyingScenario underlying : response.getUnderlyings()) {
+                        sum += underlying.getProfitLoss()[d][s][v];
+                    }
+                    assertEquals(sum, portfolio[d][s][v], 0.06); // arredondamento de centavos por ativo
+                }
+            }
+        }
+    }
+
+    private static SeriesParameters series(String code, String underlying, OptionType type, double strike,
+                                           double spot, double volatility) {
+        double price = BlackScholes.price(type, spot, strike, 45 / 365.0, 0.10, 0.0, volatility);
+        return new SeriesParameters(code, underlying, type, strike, TODAY.plusDays(45), price, spot, volatility,
+            0.10, 0.0);
+    }
+
+    private static Position position(String code, TransactionType direction, int quantity) {
+        OptionSerie serie = OptionSerie.builder().code(code).asset(Asset.builder().code("X").build())
+            .strikePrice(BigDecimal.TEN).expirationDate(TODAY.plusDays(45)).build();
+        return Position.builder().id(UUID.randomUUID()).optionSeries(serie).direction(direction)
+            .status(PositionStatus.OPEN).remainingQuantity(quantity).averagePrice(BigDecimal.ONE).build();
+    }
+}
@@ -0,0 +1,105 @@
+package com.olisystem.optionsmanager.service.position.valuation;
+
+import com.olisystem.optionsmanager.dto.position.MarkToMarketResponse;
+import com.olisystem.optionsmanager.model.Asset.Asset;
+import com.olisystem.optionsmanager.model.auth.User;
+import com.olisystem.optionsmanager.model.option_serie.OptionSerie;
+import com.olisystem.optionsmanager.model.position.Position;
+import com.olisystem.optionsmanager.model.position.PositionStatus;
+import com.olisystem.optionsmanager.model.transaction.TransactionType;
+import com.olisystem.optionsmanager.repository.position.PositionRepository;
+import com.olisystem.optionsmanager.service.marketdata.PriceSnapshot;
+import com.olisystem.optionsmanager.service.marketdata.PriceSnapshotStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testes unitários para MarkToMarketService
+ */
+class MarkToMarketServiceTest {
+
+    private PositionRepository positionRepository;
+    private PriceSnapshotStore priceStore;
+    private MarkToMarketService service;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        positionRepository = mock(PositionRepository.class);
+        priceStore = new PriceSnapshotStore(List.of());
+        service = new MarkToMarketService(positionRepository, priceStore, new MarkToMarketEngine());
+
+        user = new User();
+        user.setId(UUID.randomUUID());
+
+        Asset petr4 = Asset.builder().code("PETR4").build();
+        Position longCall = Position.builder().id(UUID.randomUUID()).direction(TransactionType.BUY)
+            .status(PositionStatus.OPEN).remainingQuantity(100).averagePrice(new BigDecimal("1.00"))
+            .optionSeries(OptionSerie.builder().code("PETRA123").asset(petr4).build()).build();
+        Position shortPut = Position.builder().id(UUID.randomUUID()).direction(TransactionType.SELL)
+            .status(PositionStatus.PARTIAL).remainingQuantity(200).averagePrice(new BigDecimal("0.50"))
+            .optionSeries(OptionSerie.builder().code("PETRM300").asset(petr4).build()).build();
+        Position unpriced = Position.builder().id(UUID.randomUUID()).direction(TransactionType.BUY)
+            .status(PositionStatus.OPEN).remainingQuantity(10).averagePrice(new BigDecimal("2.00"))
+            .optionSeries(OptionSerie.builder().code("VALEB50").build()).build();
+        when(positionRepository.findByUserAndStatusIn(any(), anyList()))
+            .thenReturn(List.of(longCall, shortPut, unpriced));
+    }
+
+    @Test
+    @DisplayName("Deve marcar compradas e vendidas a mercado e ignorar posições sem preço nos totais")
+    void testMarksLongAndShortPositions() {
+        // Explicação: Comprada ganha com a alta (100 x 0,20); vendida ganha com a queda (-200 x -0,10).
+        priceStore.update(List.of(
+            price("PETRA123", "1.20"), price("petrm300", "0.40"), price("PETR4", "31.50")));
+
+        MarkToMarketResponse response = service.markToMarket(user, false);
+
+        assertEquals(2, response.getPricedPositions());
+        assertEquals(1, response.getUnpricedPositions());
+        assertEquals(new BigDecimal("40.00"), response.getUnrealizedProfitLoss());
+        assertEquals(new BigDecimal("40.00"), response.getMarketValue()); // 120 - 80
+        assertEquals(new BigDecimal("0.00"), response.getCostBasis()); // 100 - 100
+        assertEquals(new BigDecimal("20.0000"), response.getUnrealizedProfitLossPercentage()); // 40 / 200
+
+        MarkToMarketResponse.PositionMark longMark = response.getPositions().get(0);
+        assertEquals(new BigDecimal("20.00"), longMark.getUnrealizedProfitLoss());
+        assertEquals(new BigDecimal("31.50"), longMark.getUnderlyingPrice());
+        assertEquals(new BigDecimal("20.00"), response.getPositions().get(1).getUnrealizedProfitLoss());
+        assertNull(response.getPositions().get(2).getLastPrice());
+    }
+
+    @Test
+    @DisplayName("Deve servir do cache até os preços mudarem")
+    void testServesFromCacheUntilPricesChange() {
+        // Explicação: Preço repetido não muda a versão; só o novo preço força o recálculo.
+        priceStore.update(List.of(price("PETRA123", "1.20")));
+        MarkToMarketResponse first = service.markToMarket(user, false);
+
+        priceStore.update(List.of(price("PETRA123", "1.20")));
+        assertSame(first, service.markToMarket(user, false));
+        verify(positionRepository, times(1)).findByUserAndStatusIn(any(), anyList());
+
+        priceStore.update(List.of(price("PETRA123", "1.50")));
+        MarkToMarketResponse second = service.markToMarket(user, false);
+
+        assertNotSame(first, second);
+        assertEquals(new BigDecimal("50.00"), second.getUnrealizedProfitLoss());
+        verify(positionRepository, times(2)).findByUserAndStatusIn(any(), anyList());
+    }
+
+    private static PriceSnapshot price(String code, String value) {
+        return new PriceSnapshot(code, new BigDecimal(value), LocalDateTime.now(), "TEST");
+    }
+}
@@ -0,0 +1,41 @@
+package com.olisystem.optionsmanager.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testes unitários para FixedPointMoney
+ */
+class FixedPointMoneyTest {
+
+    @Test
+    @DisplayName("Deve arredondar divisões HALF_UP como BigDecimal, inclusive para valores negativos")
+    void testDivideHalfUpMatchesBigDecimal() {
+        // Explicação: Metade se afasta do zero em ambos os sinais; abaixo da metade trunca.
+        long[][] cases = {{5, 2}, {-5, 2}, {5, -2}, {-5, -2}, {7, 3}, {-7, 3}, {8, 3}, {-8, 3}, {1, 3}, {0, 7}};
+        for (long[] c : cases) {
+            long expected = BigDecimal.valueOf(c[0])
+                .divide(BigDecimal.valueOf(c[1]), 0, RoundingMode.HALF_UP).longValueExact();
+            assertEquals(expected, FixedPointMoney.divideHalfUp(c[0], c[1]), c[0] + " / " + c[1]);
+        }
+    }
+
+    @Test
+    @DisplayName("Deve aceitar apenas conversões exatas e sinalizar estouro")
+    void testConversionAndOverflow() {
+        // Explicação: Mais de 6 casas ou valores fora do long lançam ArithmeticException (o chamador volta para BigDecimal).
+        assertEquals(1_250_000L, FixedPointMoney.of(new BigDecimal("1.25")));
+        assertEquals(1_250_000L, FixedPointMoney.of(new BigDecimal("1.25000000")));
+        assertEquals(new BigDecimal("1.25"), FixedPointMoney.toBigDecimal(1_250_000L, 2));
+        assertEquals(new BigDecimal("0.0001"), FixedPointMoney.toBigDecimal(50L, 4));
+
+        assertThrows(ArithmeticException.class, () -> FixedPointMoney.of(new BigDecimal("0.0000001")));
+        assertThrows(ArithmeticException.class, () -> FixedPointMoney.of(new BigDecimal("1E+15")));
+        assertThrows(ArithmeticException.class, () -> FixedPointMoney.times(Long.MAX_VALUE / 2, 3));
+    }
+}